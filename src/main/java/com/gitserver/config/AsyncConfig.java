@@ -0,0 +1,12 @@
+package com.gitserver.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * Enables asynchronous event listeners for background indexing work.
+ */
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+}
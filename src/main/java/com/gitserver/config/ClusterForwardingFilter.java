@@ -0,0 +1,275 @@
+package com.gitserver.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gitserver.entity.ClusterNode;
+import com.gitserver.service.ClusterService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.*;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Filter forwarding requests for a repository this node does not own to the node that
+ * does, in cluster mode. Request and response bodies are streamed, so clones and pushes
+ * are not held in memory. Runs after authentication, so unauthenticated requests are
+ * answered locally; the owner authenticates the forwarded request again.
+ * <p>
+ * Forwarded requests carry a signature over the cluster secret. A request claiming to be
+ * forwarded without a valid one is rejected, as serving it here would bypass the owner.
+ */
+@Slf4j
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 1)
+public class ClusterForwardingFilter extends OncePerRequestFilter {
+
+    /** Marks a forwarded request; the receiving node serves it even if its ring differs */
+    public static final String FORWARDED_BY_HEADER = "X-Git-Server-Forwarded-By";
+    public static final String FORWARDED_AT_HEADER = "X-Git-Server-Forwarded-At";
+    public static final String FORWARDED_SIGNATURE_HEADER = "X-Git-Server-Forwarded-Signature";
+
+    private static final Pattern REPOSITORY_PATH =
+            Pattern.compile("^/(?:git/([^/]+)/([^/]+?)\\.git|api/repos/([^/]+)/([^/]+))(?:/.*)?$");
+    // API paths of the form /api/repos/{x}/... that are not about a repository
+    private static final Set<String> NON_REPOSITORY_PATHS = Set.of("owner", "trash");
+    private static final Set<String> UNFORWARDED_HEADERS = Set.of("connection", "keep-alive", "proxy-authenticate",
+            "proxy-authorization", "te", "trailer", "transfer-encoding", "upgrade", "host", "content-length", "expect",
+            FORWARDED_BY_HEADER.toLowerCase(Locale.ROOT), FORWARDED_AT_HEADER.toLowerCase(Locale.ROOT),
+            FORWARDED_SIGNATURE_HEADER.toLowerCase(Locale.ROOT));
+    private static final int MAX_CREATE_REQUEST_SIZE = 64 * 1024;
+
+    private final ClusterService clusterService;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+
+    public ClusterForwardingFilter(ClusterService clusterService,
+                                   ObjectMapper objectMapper,
+                                   @Value("${git.cluster.connect-timeout-ms:5000}") long connectTimeoutMs) {
+        this.clusterService = clusterService;
+        this.objectMapper = objectMapper;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !clusterService.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String forwardedBy = request.getHeader(FORWARDED_BY_HEADER);
+        if (forwardedBy != null) {
+            String query = request.getQueryString();
+            if (!clusterService.verifyForwardedRequest(forwardedBy, request.getHeader(FORWARDED_AT_HEADER),
+                    request.getHeader(FORWARDED_SIGNATURE_HEADER), request.getMethod(),
+                    request.getRequestURI() + (query != null ? "?" + query : ""))) {
+                log.warn("Rejected request claiming to be forwarded by {} from {}", forwardedBy, request.getRemoteAddr());
+                response.sendError(HttpStatus.FORBIDDEN.value(), "Invalid forwarded request signature");
+                return;
+            }
+            // Forwarded by the node that routed it here, so served even if this node's ring differs
+            chain.doFilter(request, response);
+            return;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        Matcher matcher = REPOSITORY_PATH.matcher(path);
+        if (matcher.matches()) {
+            boolean git = matcher.group(1) != null;
+            String owner = git ? matcher.group(1) : matcher.group(3);
+            String name = git ? matcher.group(2) : matcher.group(4);
+            if (git || !NON_REPOSITORY_PATHS.contains(owner)) {
+                Optional<ClusterNode> node = clusterService.findRemoteOwner(owner, name);
+                if (node.isPresent()) {
+                    forward(request, response, node.get(), null);
+                    return;
+                }
+            }
+        } else if ("POST".equals(request.getMethod()) && path.equals("/api/repos")) {
+            // A new repository is created by the node that will own it
+            byte[] body = request.getInputStream().readNBytes(MAX_CREATE_REQUEST_SIZE + 1);
+            if (body.length > MAX_CREATE_REQUEST_SIZE) {
+                response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value());
+                return;
+            }
+            Optional<ClusterNode> node = findOwnerOfNewRepository(body);
+            if (node.isPresent()) {
+                forward(request, response, node.get(), body);
+            } else {
+                chain.doFilter(new BufferedBodyRequest(request, body), response);
+            }
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private Optional<ClusterNode> findOwnerOfNewRepository(byte[] body) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return Optional.empty();
+        }
+        try {
+            String name = objectMapper.readTree(body).path("name").asText("");
+            return name.isEmpty() ? Optional.empty() : clusterService.findRemoteOwner(authentication.getName(), name);
+        } catch (IOException e) {
+            // Malformed; let the controller reject it
+            return Optional.empty();
+        }
+    }
+
+    private void forward(HttpServletRequest request, HttpServletResponse response, ClusterNode node, byte[] body)
+            throws IOException {
+        String query = request.getQueryString();
+        String uri = request.getRequestURI() + (query != null ? "?" + query : "");
+        URI target = URI.create(node.getUrl() + uri);
+        long sentAt = System.currentTimeMillis();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(target);
+        for (String header : Collections.list(request.getHeaderNames())) {
+            if (!UNFORWARDED_HEADERS.contains(header.toLowerCase(Locale.ROOT))) {
+                Collections.list(request.getHeaders(header)).forEach(value -> builder.header(header, value));
+            }
+        }
+        builder.header(FORWARDED_BY_HEADER, clusterService.getNodeId());
+        builder.header(FORWARDED_AT_HEADER, Long.toString(sentAt));
+        builder.header(FORWARDED_SIGNATURE_HEADER, clusterService.signForwardedRequest(sentAt, request.getMethod(), uri));
+        builder.header("X-Forwarded-For", request.getRemoteAddr());
+        builder.method(request.getMethod(), bodyOf(request, body));
+
+        HttpResponse<InputStream> upstream;
+        try {
+            upstream = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException e) {
+            log.warn("Failed to forward {} {} to {}: {}", request.getMethod(), target, node.getNodeId(), e.getMessage());
+            response.sendError(HttpStatus.BAD_GATEWAY.value(), "Repository owner " + node.getNodeId() + " unavailable");
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+
+        response.setStatus(upstream.statusCode());
+        upstream.headers().map().forEach((header, values) -> {
+            if (!header.startsWith(":") && !UNFORWARDED_HEADERS.contains(header.toLowerCase(Locale.ROOT))) {
+                // Replace headers this node's filters already set, e.g. security headers
+                response.setHeader(header, values.get(0));
+                values.stream().skip(1).forEach(value -> response.addHeader(header, value));
+            }
+        });
+        upstream.headers().firstValueAsLong("content-length").ifPresent(response::setContentLengthLong);
+
+        try (InputStream in = upstream.body()) {
+            OutputStream out = response.getOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                if (in.available() == 0) {
+                    // Pass on git progress messages as they arrive
+                    out.flush();
+                }
+            }
+        }
+    }
+
+    private HttpRequest.BodyPublisher bodyOf(HttpServletRequest request, byte[] body) {
+        if (body != null) {
+            return HttpRequest.BodyPublishers.ofByteArray(body);
+        }
+        long length = request.getContentLengthLong();
+        if (length == 0 || (length < 0 && request.getHeader("Transfer-Encoding") == null)) {
+            return HttpRequest.BodyPublishers.noBody();
+        }
+        HttpRequest.BodyPublisher stream = HttpRequest.BodyPublishers.ofInputStream(() -> {
+            try {
+                return request.getInputStream();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return length > 0 ? HttpRequest.BodyPublishers.fromPublisher(stream, length) : stream;
+    }
+
+    /**
+     * Request whose body was read to route it, replayed to the rest of the chain.
+     */
+    private static class BufferedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        BufferedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    // The whole body is buffered, so all of it can be read right away
+                    try {
+                        if (!isFinished()) {
+                            listener.onDataAvailable();
+                        }
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            return new BufferedReader(new InputStreamReader(getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -2,10 +2,12 @@ package com.gitserver.config;
 
 import com.gitserver.entity.User;
 import com.gitserver.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
@@ -23,6 +25,7 @@ public class DataInitializer implements CommandLineRunner {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final JdbcTemplate jdbcTemplate;
 
     @Value("${git.repositories.base-path:./repositories}")
     private String repositoriesBasePath;
@@ -33,6 +36,18 @@ public class DataInitializer implements CommandLineRunner {
     @Value("${spring.security.user.password:admin123}")
     private String defaultAdminPassword;
 
+    /**
+     * Move id sequences past ids assigned before the tables used them, e.g. by identity
+     * columns of an older schema. Runs before the web server accepts requests.
+     */
+    @PostConstruct
+    public void alignIdSequences() {
+        alignIdSequence("issues", "issues_seq", 50);
+        alignIdSequence("pull_requests", "pull_requests_seq", 50);
+        alignIdSequence("reviews", "reviews_seq", 50);
+        alignIdSequence("review_comments", "review_comments_seq", 50);
+    }
+
     @Override
     public void run(String... args) throws Exception {
         initializeRepositoriesDirectory();
@@ -74,4 +89,15 @@ public class DataInitializer implements CommandLineRunner {
             log.info("Default admin user already exists: {}", defaultAdminUsername);
         }
     }
+
+    private void alignIdSequence(String table, String sequence, int allocationSize) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+        Long nextValue = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + sequence, Long.class);
+        if (maxId != null && nextValue != null && nextValue - allocationSize < maxId) {
+            // Leave a whole allocation above the existing ids, whichever pooled optimizer is used
+            long restart = maxId + allocationSize + 1;
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + restart);
+            log.info("Moved sequence {} past existing {} ids to {}", sequence, table, restart);
+        }
+    }
 }
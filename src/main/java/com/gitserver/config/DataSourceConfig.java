@@ -0,0 +1,50 @@
+package com.gitserver.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Sends read-only transactions to a replica database when git.datasource.replica.url
+ * is set. Without it the single spring.datasource is used for everything.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "git.datasource.replica.url")
+public class DataSourceConfig {
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties,
+                                 @Value("${git.datasource.replica.url}") String replicaUrl,
+                                 @Value("${git.datasource.replica.username:${spring.datasource.username:}}") String replicaUsername,
+                                 @Value("${git.datasource.replica.password:${spring.datasource.password:}}") String replicaPassword,
+                                 @Value("${git.datasource.replica.read-your-writes-ms:5000}") long readYourWritesMillis) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        primary.setPoolName("primary");
+
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(properties.determineDriverClassName())
+                .url(replicaUrl)
+                .username(replicaUsername)
+                .password(replicaPassword)
+                .build();
+        replica.setPoolName("replica");
+        replica.setReadOnly(true);
+
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica, readYourWritesMillis);
+        routing.afterPropertiesSet();
+        log.info("Routing read-only transactions to replica {}", replicaUrl);
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
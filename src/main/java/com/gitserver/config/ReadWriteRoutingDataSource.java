@@ -0,0 +1,102 @@
+package com.gitserver.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Routes connections of read-only transactions to a replica and everything else to the
+ * primary. To read their own writes despite replication lag, a user's read-only
+ * transactions stay on the primary for a while after that user commits a write.
+ * Must be wrapped in a LazyConnectionDataSourceProxy so the route is chosen when the
+ * first statement runs, after the transaction's read-only flag is known.
+ * <p>
+ * Rows read from the replica may be behind; in-memory caches check
+ * {@link #isCurrentTransactionOnReplica()} and do not keep them.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY,
+        REPLICA
+    }
+
+    // Bound as a transaction resource while the transaction's connection is the replica's
+    private static final Object REPLICA_ROUTE = new Object();
+
+    private final long readYourWritesMillis;
+    private final Map<String, Long> lastWriteByUser = new ConcurrentHashMap<>();
+
+    public ReadWriteRoutingDataSource(Object primary, Object replica, long readYourWritesMillis) {
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        this.readYourWritesMillis = readYourWritesMillis;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Route.PRIMARY;
+        }
+        String user = currentUser();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            recordWriteOnCommit(user);
+            return Route.PRIMARY;
+        }
+        if (user != null) {
+            Long lastWrite = lastWriteByUser.get(user);
+            if (lastWrite != null) {
+                if (System.currentTimeMillis() - lastWrite < readYourWritesMillis) {
+                    return Route.PRIMARY;
+                }
+                lastWriteByUser.remove(user, lastWrite);
+            }
+        }
+        markReplicaRoute();
+        return Route.REPLICA;
+    }
+
+    /**
+     * Check whether the current transaction reads from the replica, so what it read may be
+     * stale. False outside of a transaction, or before its first statement.
+     */
+    public static boolean isCurrentTransactionOnReplica() {
+        return TransactionSynchronizationManager.hasResource(REPLICA_ROUTE);
+    }
+
+    private void markReplicaRoute() {
+        if (TransactionSynchronizationManager.hasResource(REPLICA_ROUTE)
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(REPLICA_ROUTE, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(REPLICA_ROUTE);
+            }
+        });
+    }
+
+    private void recordWriteOnCommit(String user) {
+        if (user == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                lastWriteByUser.put(user, System.currentTimeMillis());
+            }
+        });
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+}
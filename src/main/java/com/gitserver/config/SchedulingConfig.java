@@ -0,0 +1,12 @@
+package com.gitserver.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables scheduled background jobs (disk usage reconciliation, maintenance).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
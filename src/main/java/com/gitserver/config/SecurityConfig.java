@@ -1,7 +1,9 @@
 package com.gitserver.config;
 
 import com.gitserver.repository.UserRepository;
+import com.gitserver.security.AccessTokenAuthenticationFilter;
 import com.gitserver.security.CustomUserDetailsService;
+import com.gitserver.service.AccessTokenService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -16,6 +18,7 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 
 /**
  * Security configuration for the Git Server.
@@ -26,6 +29,7 @@ import org.springframework.security.web.SecurityFilterChain;
 public class SecurityConfig {
 
     private final UserRepository userRepository;
+    private final AccessTokenService accessTokenService;
 
     @Bean
     public PasswordEncoder passwordEncoder() {
@@ -56,14 +60,23 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.GET, "/api/repos/{owner}/{name}/branches/**").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/repos/{owner}/{name}/commits/**").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/repos/{owner}/{name}/contents/**").permitAll()
+                .requestMatchers(HttpMethod.GET, "/api/repos/{owner}/{name}/find").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/repos/{owner}/{name}/issues/**").permitAll()
                 .requestMatchers(HttpMethod.GET, "/api/repos/{owner}/{name}/pulls/**").permitAll()
-                .requestMatchers(HttpMethod.GET, "/api/repos/{owner}/{name}/insights").permitAll()
+                .requestMatchers(HttpMethod.GET, "/api/repos/{owner}/{name}/insights/**").permitAll()
+                .requestMatchers(HttpMethod.GET, "/api/search/**").permitAll()
                 
                 // Git protocol endpoints (require authentication for push, allow public for fetch)
                 .requestMatchers(HttpMethod.GET, "/git/**").permitAll()
                 .requestMatchers(HttpMethod.POST, "/git/**").authenticated()
                 
+                // Replication and cluster state reveal the server layout
+                .requestMatchers("/api/replication/**", "/api/cluster/**").hasRole("ADMIN")
+
+                // Only administrators lock users out
+                .requestMatchers(HttpMethod.PUT, "/api/users/{username}/disable", "/api/users/{username}/enable")
+                        .hasRole("ADMIN")
+                
                 // Swagger/OpenAPI
                 .requestMatchers("/swagger-ui/**", "/api-docs/**", "/swagger-ui.html").permitAll()
                 
@@ -74,6 +87,8 @@ public class SecurityConfig {
                 .anyRequest().authenticated()
             )
             .httpBasic(Customizer.withDefaults())
+            // Personal access tokens, as bearer tokens or HTTP Basic passwords
+            .addFilterBefore(new AccessTokenAuthenticationFilter(accessTokenService), BasicAuthenticationFilter.class)
             .headers(headers -> headers.frameOptions(frame -> frame.sameOrigin()));
 
         return http.build();
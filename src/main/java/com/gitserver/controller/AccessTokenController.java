@@ -0,0 +1,54 @@
+package com.gitserver.controller;
+
+import com.gitserver.dto.*;
+import com.gitserver.service.AccessTokenService;
+import com.gitserver.service.AccessTokenService.VerifiedToken;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * REST controller for personal access token management.
+ */
+@RestController
+@RequestMapping("/api/users/tokens")
+@RequiredArgsConstructor
+@Tag(name = "Access Tokens", description = "Personal access token management APIs")
+public class AccessTokenController {
+
+    private final AccessTokenService accessTokenService;
+
+    @PostMapping
+    @Operation(summary = "Create a personal access token", description = "The token is only returned once. "
+            + "Created with an access token, it has at most that token's scopes and expires no later")
+    public ResponseEntity<AccessTokenResponse> createToken(
+            @Valid @RequestBody CreateAccessTokenRequest request,
+            Authentication authentication) {
+        String username = authentication.getName();
+        VerifiedToken creator = authentication.getDetails() instanceof VerifiedToken token ? token : null;
+        AccessTokenResponse response = accessTokenService.createToken(username, request, creator);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @GetMapping
+    @Operation(summary = "Get all personal access tokens of the current user")
+    public ResponseEntity<List<AccessTokenResponse>> getTokens(Authentication authentication) {
+        return ResponseEntity.ok(accessTokenService.getTokens(authentication.getName()));
+    }
+
+    @DeleteMapping("/{tokenId}")
+    @Operation(summary = "Revoke a personal access token")
+    public ResponseEntity<Void> revokeToken(
+            @PathVariable Long tokenId,
+            Authentication authentication) {
+        accessTokenService.revokeToken(authentication.getName(), tokenId);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,29 @@
+package com.gitserver.controller;
+
+import com.gitserver.dto.ClusterNodeResponse;
+import com.gitserver.service.ClusterService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * REST controller for cluster membership.
+ */
+@RestController
+@RequestMapping("/api/cluster")
+@RequiredArgsConstructor
+@Tag(name = "Cluster", description = "Cluster membership APIs")
+public class ClusterController {
+
+    private final ClusterService clusterService;
+
+    @GetMapping("/nodes")
+    @Operation(summary = "Get the live nodes of the cluster as seen by this node (administrators only)")
+    public ResponseEntity<List<ClusterNodeResponse>> getNodes() {
+        return ResponseEntity.ok(clusterService.getMembers());
+    }
+}
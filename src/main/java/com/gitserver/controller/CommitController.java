@@ -1,10 +1,12 @@
 package com.gitserver.controller;
 
 import com.gitserver.dto.*;
+import com.gitserver.service.CommitSearchService;
 import com.gitserver.service.CommitService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -20,6 +22,7 @@ import java.util.List;
 public class CommitController {
 
     private final CommitService commitService;
+    private final CommitSearchService commitSearchService;
 
     @GetMapping
     @Operation(summary = "Get commits in a branch")
@@ -31,6 +34,20 @@ public class CommitController {
         return ResponseEntity.ok(commitService.getCommits(owner, repo, branch, limit));
     }
 
+    @GetMapping("/search")
+    @Operation(summary = "Search commit messages, author names and e-mails",
+               description = "All terms must match. Returns 202 Accepted while the index is being built")
+    public ResponseEntity<CommitSearchResponse> searchCommits(
+            @PathVariable String owner,
+            @PathVariable String repo,
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "30") int size) {
+        return commitSearchService.search(owner, repo, q, Math.max(page, 0), Math.max(1, Math.min(size, 100)))
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.ACCEPTED).build());
+    }
+
     @GetMapping("/{commitId}")
     @Operation(summary = "Get a specific commit")
     public ResponseEntity<CommitInfo> getCommit(
@@ -0,0 +1,49 @@
+package com.gitserver.controller;
+
+import com.gitserver.entity.RepositoryPermission.PermissionLevel;
+import com.gitserver.service.EventStreamService;
+import com.gitserver.service.PermissionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * REST controller for server-sent event streams of repository events.
+ */
+@RestController
+@RequestMapping("/api")
+@RequiredArgsConstructor
+@Tag(name = "Events", description = "Repository event stream APIs")
+public class EventController {
+
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+
+    private final EventStreamService eventStreamService;
+    private final PermissionService permissionService;
+
+    @GetMapping(value = "/repos/{owner}/{name}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream push, branch, issue and pull request events of a repository",
+               description = "Reconnect with Last-Event-ID to receive the events missed meanwhile")
+    public SseEmitter streamRepositoryEvents(
+            @PathVariable String owner,
+            @PathVariable String name,
+            @RequestHeader(value = LAST_EVENT_ID, required = false) Long lastEventId,
+            Authentication authentication) {
+        permissionService.verifyPermission(owner, name, authentication.getName(), PermissionLevel.READ,
+                "subscribe to events");
+        return eventStreamService.subscribeToRepository(owner, name, authentication.getName(), lastEventId);
+    }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream events of the repositories you own or collaborate on",
+               description = "Reconnect with Last-Event-ID to receive the events missed meanwhile")
+    public SseEmitter streamUserEvents(
+            @RequestHeader(value = LAST_EVENT_ID, required = false) Long lastEventId,
+            Authentication authentication) {
+        return eventStreamService.subscribeToUser(authentication.getName(), lastEventId);
+    }
+}
@@ -3,6 +3,7 @@ package com.gitserver.controller;
 import com.gitserver.dto.*;
 import com.gitserver.exception.FileNotFoundException;
 import com.gitserver.service.FileService;
+import com.gitserver.service.PathFinderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -24,6 +25,7 @@ import java.util.List;
 public class FileController {
 
     private final FileService fileService;
+    private final PathFinderService pathFinderService;
 
     @GetMapping("/contents")
     @Operation(summary = "Get files in root directory")
@@ -34,6 +36,17 @@ public class FileController {
         return ResponseEntity.ok(fileService.getFiles(owner, repo, branch, ""));
     }
 
+    @GetMapping("/find")
+    @Operation(summary = "Find files by fuzzy path match (\"go to file\")")
+    public ResponseEntity<List<PathMatch>> findFiles(
+            @PathVariable String owner,
+            @PathVariable String repo,
+            @RequestParam String q,
+            @RequestParam(required = false) String branch,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(pathFinderService.findFiles(owner, repo, branch, q, Math.max(1, Math.min(limit, 100))));
+    }
+
     @GetMapping("/contents/{*path}")
     @Operation(summary = "Get files in a directory or file content")
     public ResponseEntity<?> getContents(
@@ -1,13 +1,18 @@
 package com.gitserver.controller;
 
+import com.gitserver.dto.ContributorStats;
 import com.gitserver.dto.RepositoryInsights;
+import com.gitserver.dto.TreeStats;
 import com.gitserver.service.InsightsService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 /**
  * REST controller for repository insights/statistics.
  */
@@ -26,4 +31,25 @@ public class InsightsController {
             @PathVariable String repo) {
         return ResponseEntity.ok(insightsService.getRepositoryInsights(owner, repo));
     }
+
+    @GetMapping("/tree-stats")
+    @Operation(summary = "Get recursive file count, size and files per extension of a ref",
+               description = "Defaults to the repository's default branch")
+    public ResponseEntity<TreeStats> getTreeStats(
+            @PathVariable String owner,
+            @PathVariable String repo,
+            @RequestParam(required = false) String ref) {
+        return ResponseEntity.ok(insightsService.getTreeStats(owner, repo, ref));
+    }
+
+    @GetMapping("/contributors")
+    @Operation(summary = "Get weekly commit, addition and deletion statistics per contributor",
+               description = "Returns 202 Accepted while the statistics are being computed")
+    public ResponseEntity<List<ContributorStats>> getContributorStats(
+            @PathVariable String owner,
+            @PathVariable String repo) {
+        return insightsService.getContributorStats(owner, repo)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.ACCEPTED).build());
+    }
 }
@@ -6,10 +6,12 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.List;
 
@@ -36,13 +38,53 @@ public class IssueController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping("/bulk")
+    @Operation(summary = "Create many issues in one transaction")
+    public ResponseEntity<List<IssueResponse>> createIssues(
+            @PathVariable String owner,
+            @PathVariable String repo,
+            @Valid @RequestBody BulkCreateRequest<CreateIssueRequest> request,
+            Authentication authentication) {
+        List<IssueResponse> response = issueService.createIssues(owner, repo, authentication.getName(), request.getItems());
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @PatchMapping("/bulk")
+    @Operation(summary = "Update many issues in one transaction")
+    public ResponseEntity<List<IssueResponse>> updateIssues(
+            @PathVariable String owner,
+            @PathVariable String repo,
+            @Valid @RequestBody BulkUpdateRequest<UpdateIssueRequest> request) {
+        return ResponseEntity.ok(issueService.updateIssues(owner, repo, request.getItems()));
+    }
+
+    @PutMapping("/bulk/close")
+    @Operation(summary = "Close many issues in one transaction")
+    public ResponseEntity<List<IssueResponse>> closeIssues(
+            @PathVariable String owner,
+            @PathVariable String repo,
+            @Valid @RequestBody BulkCloseRequest request) {
+        return ResponseEntity.ok(issueService.closeIssues(owner, repo, request.getNumbers()));
+    }
+
     @GetMapping
-    @Operation(summary = "Get all issues for a repository")
+    @Operation(summary = "Get issues for a repository, newest first",
+            description = "Returns one page; the Link header points to the next page when there is one")
     public ResponseEntity<List<IssueResponse>> getIssues(
             @PathVariable String owner,
             @PathVariable String repo,
-            @RequestParam(required = false) String state) {
-        return ResponseEntity.ok(issueService.getIssues(owner, repo, state));
+            @RequestParam(required = false) String state,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        CursorPage<IssueResponse> page = issueService.getIssues(owner, repo, state, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.getNextCursor())
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(page.getItems());
     }
 
     @GetMapping("/{issueNumber}")
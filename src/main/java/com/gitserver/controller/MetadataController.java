@@ -0,0 +1,60 @@
+package com.gitserver.controller;
+
+import com.gitserver.dto.MetadataImportResult;
+import com.gitserver.entity.RepositoryPermission.PermissionLevel;
+import com.gitserver.service.MetadataTransferService;
+import com.gitserver.service.PermissionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+
+/**
+ * REST controller for moving repository metadata between servers as NDJSON.
+ */
+@RestController
+@RequestMapping("/api/repos/{owner}/{repo}/metadata")
+@RequiredArgsConstructor
+@Tag(name = "Metadata", description = "Repository metadata export and import APIs")
+public class MetadataController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final MetadataTransferService metadataTransferService;
+    private final PermissionService permissionService;
+
+    @GetMapping("/export")
+    @Operation(summary = "Export collaborators, issues, pull requests and reviews as NDJSON")
+    public ResponseEntity<StreamingResponseBody> exportMetadata(
+            @PathVariable String owner,
+            @PathVariable String repo,
+            Authentication authentication) {
+        permissionService.verifyPermission(owner, repo, authentication.getName(), PermissionLevel.ADMIN,
+                "export metadata");
+        StreamingResponseBody body = out -> metadataTransferService.exportMetadata(owner, repo, out);
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + repo + "-metadata.ndjson\"")
+                .body(body);
+    }
+
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @Operation(summary = "Import metadata exported from another repository")
+    public ResponseEntity<MetadataImportResult> importMetadata(
+            @PathVariable String owner,
+            @PathVariable String repo,
+            HttpServletRequest request,
+            Authentication authentication) throws IOException {
+        permissionService.verifyPermission(owner, repo, authentication.getName(), PermissionLevel.ADMIN,
+                "import metadata");
+        return ResponseEntity.ok(metadataTransferService.importMetadata(owner, repo, request.getInputStream()));
+    }
+}
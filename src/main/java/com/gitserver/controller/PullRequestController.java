@@ -6,10 +6,12 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.List;
 
@@ -36,13 +38,54 @@ public class PullRequestController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping("/bulk")
+    @Operation(summary = "Create many pull requests in one transaction")
+    public ResponseEntity<List<PullRequestResponse>> createPullRequests(
+            @PathVariable String owner,
+            @PathVariable String repo,
+            @Valid @RequestBody BulkCreateRequest<CreatePullRequestRequest> request,
+            Authentication authentication) {
+        List<PullRequestResponse> response = pullRequestService.createPullRequests(
+                owner, repo, authentication.getName(), request.getItems());
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @PatchMapping("/bulk")
+    @Operation(summary = "Update many pull requests in one transaction")
+    public ResponseEntity<List<PullRequestResponse>> updatePullRequests(
+            @PathVariable String owner,
+            @PathVariable String repo,
+            @Valid @RequestBody BulkUpdateRequest<UpdatePullRequestRequest> request) {
+        return ResponseEntity.ok(pullRequestService.updatePullRequests(owner, repo, request.getItems()));
+    }
+
+    @PutMapping("/bulk/close")
+    @Operation(summary = "Close many pull requests in one transaction")
+    public ResponseEntity<List<PullRequestResponse>> closePullRequests(
+            @PathVariable String owner,
+            @PathVariable String repo,
+            @Valid @RequestBody BulkCloseRequest request) {
+        return ResponseEntity.ok(pullRequestService.closePullRequests(owner, repo, request.getNumbers()));
+    }
+
     @GetMapping
-    @Operation(summary = "Get all pull requests for a repository")
+    @Operation(summary = "Get pull requests for a repository, newest first",
+            description = "Returns one page; the Link header points to the next page when there is one")
     public ResponseEntity<List<PullRequestResponse>> getPullRequests(
             @PathVariable String owner,
             @PathVariable String repo,
-            @RequestParam(required = false) String state) {
-        return ResponseEntity.ok(pullRequestService.getPullRequests(owner, repo, state));
+            @RequestParam(required = false) String state,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        CursorPage<PullRequestResponse> page = pullRequestService.getPullRequests(owner, repo, state, cursor, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.getNextCursor())
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(page.getItems());
     }
 
     @GetMapping("/{prNumber}")
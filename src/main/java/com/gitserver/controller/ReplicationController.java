@@ -0,0 +1,29 @@
+package com.gitserver.controller;
+
+import com.gitserver.dto.ReplicaStatus;
+import com.gitserver.service.ReplicationService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * REST controller for the state of repository replication.
+ */
+@RestController
+@RequestMapping("/api/replication")
+@RequiredArgsConstructor
+@Tag(name = "Replication", description = "Repository replication APIs")
+public class ReplicationController {
+
+    private final ReplicationService replicationService;
+
+    @GetMapping
+    @Operation(summary = "Get the pending updates and lag of each replica (administrators only)")
+    public ResponseEntity<List<ReplicaStatus>> getStatus() {
+        return ResponseEntity.ok(replicationService.getStatus());
+    }
+}
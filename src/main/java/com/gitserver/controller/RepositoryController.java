@@ -1,6 +1,8 @@
 package com.gitserver.controller;
 
 import com.gitserver.dto.*;
+import com.gitserver.entity.RepositoryPermission.PermissionLevel;
+import com.gitserver.service.PermissionService;
 import com.gitserver.service.RepositoryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -23,6 +25,7 @@ import java.util.List;
 public class RepositoryController {
 
     private final RepositoryService repositoryService;
+    private final PermissionService permissionService;
 
     @PostMapping
     @Operation(summary = "Create a new repository")
@@ -35,9 +38,9 @@ public class RepositoryController {
     }
 
     @GetMapping
-    @Operation(summary = "Get all repositories")
-    public ResponseEntity<List<RepositoryResponse>> getAllRepositories() {
-        return ResponseEntity.ok(repositoryService.getAllRepositories());
+    @Operation(summary = "Get all repositories the current user can read")
+    public ResponseEntity<List<RepositoryResponse>> getAllRepositories(Authentication authentication) {
+        return ResponseEntity.ok(repositoryService.getAllRepositories(authentication.getName()));
     }
 
     @GetMapping("/public")
@@ -47,9 +50,11 @@ public class RepositoryController {
     }
 
     @GetMapping("/owner/{owner}")
-    @Operation(summary = "Get repositories by owner")
-    public ResponseEntity<List<RepositoryResponse>> getRepositoriesByOwner(@PathVariable String owner) {
-        return ResponseEntity.ok(repositoryService.getRepositoriesByOwner(owner));
+    @Operation(summary = "Get the repositories of an owner that the current user can read")
+    public ResponseEntity<List<RepositoryResponse>> getRepositoriesByOwner(
+            @PathVariable String owner,
+            Authentication authentication) {
+        return ResponseEntity.ok(repositoryService.getRepositoriesByOwner(owner, authentication.getName()));
     }
 
     @GetMapping("/{owner}/{name}")
@@ -77,4 +82,40 @@ public class RepositoryController {
         repositoryService.deleteRepository(owner, name);
         return ResponseEntity.noContent().build();
     }
+
+    @PostMapping("/{owner}/{name}/forks")
+    @Operation(summary = "Fork a repository into your account")
+    public ResponseEntity<RepositoryResponse> forkRepository(
+            @PathVariable String owner,
+            @PathVariable String name,
+            @Valid @RequestBody(required = false) ForkRepositoryRequest request,
+            Authentication authentication) {
+        permissionService.verifyPermission(owner, name, authentication.getName(), PermissionLevel.READ, "fork");
+        String forkName = request != null ? request.getName() : null;
+        RepositoryResponse fork = repositoryService.forkRepository(owner, name, authentication.getName(), forkName);
+        return ResponseEntity.status(HttpStatus.CREATED).body(fork);
+    }
+
+    @GetMapping("/{owner}/{name}/forks")
+    @Operation(summary = "List the forks of a repository")
+    public ResponseEntity<List<RepositoryResponse>> getForks(
+            @PathVariable String owner,
+            @PathVariable String name,
+            Authentication authentication) {
+        return ResponseEntity.ok(repositoryService.getForks(owner, name, authentication.getName()));
+    }
+
+    @GetMapping("/trash")
+    @Operation(summary = "List your deleted repositories that can still be restored")
+    public ResponseEntity<List<TrashedRepositoryResponse>> getTrash(Authentication authentication) {
+        return ResponseEntity.ok(repositoryService.getTrash(authentication.getName()));
+    }
+
+    @PostMapping("/trash/{trashId}/restore")
+    @Operation(summary = "Restore a deleted repository")
+    public ResponseEntity<RepositoryResponse> restoreRepository(
+            @PathVariable Long trashId,
+            Authentication authentication) {
+        return ResponseEntity.ok(repositoryService.restoreRepository(authentication.getName(), trashId));
+    }
 }
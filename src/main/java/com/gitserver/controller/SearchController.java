@@ -0,0 +1,67 @@
+package com.gitserver.controller;
+
+import com.gitserver.dto.CodeSearchResult;
+import com.gitserver.dto.IssueSearchResponse;
+import com.gitserver.service.CodeSearchService;
+import com.gitserver.service.IssueSearchService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * REST controller for search.
+ */
+@RestController
+@RequestMapping("/api/search")
+@RequiredArgsConstructor
+@Tag(name = "Search", description = "Search APIs")
+public class SearchController {
+
+    private static final int MAX_LIMIT = 100;
+
+    private final CodeSearchService codeSearchService;
+    private final IssueSearchService issueSearchService;
+
+    @GetMapping("/code")
+    @Operation(summary = "Search code on the default branch of visible repositories",
+               description = "Literal queries are case-insensitive; set regex=true for a regular expression")
+    public ResponseEntity<List<CodeSearchResult>> searchCode(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "false") boolean regex,
+            @RequestParam(required = false) String repo,
+            @RequestParam(required = false) String path,
+            @RequestParam(defaultValue = "50") int limit,
+            Authentication authentication) {
+        String username = authentication != null ? authentication.getName() : null;
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_LIMIT));
+        return ResponseEntity.ok(codeSearchService.search(q, regex, repo, path, boundedLimit, username));
+    }
+
+    @GetMapping("/issues")
+    @Operation(summary = "Search issues and pull requests of a repository",
+               description = "Every term must match the title, body or labels; an empty query lists newest first")
+    public ResponseEntity<IssueSearchResponse> searchIssues(
+            @RequestParam String repo,
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String state,
+            @RequestParam(required = false) String label,
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) String assignee,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "30") int size,
+            Authentication authentication) {
+        String[] parts = repo.split("/", 2);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Repository must be 'owner/name'");
+        }
+        String username = authentication != null ? authentication.getName() : null;
+        return ResponseEntity.ok(issueSearchService.search(parts[0], parts[1], q, type, state, label, author, 
+                assignee, Math.max(page, 0), Math.max(1, Math.min(size, MAX_LIMIT)), username));
+    }
+}
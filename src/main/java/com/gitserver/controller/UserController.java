@@ -60,6 +60,27 @@ public class UserController {
         return ResponseEntity.ok(userService.updateUser(username, request));
     }
 
+    @PutMapping("/me/password")
+    @Operation(summary = "Change the password of the current user")
+    public ResponseEntity<Void> changePassword(
+            @Valid @RequestBody ChangePasswordRequest request,
+            Authentication authentication) {
+        userService.changePassword(authentication.getName(), request);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PutMapping("/{username}/disable")
+    @Operation(summary = "Disable a user account")
+    public ResponseEntity<UserResponse> disableUser(@PathVariable String username) {
+        return ResponseEntity.ok(userService.setEnabled(username, false));
+    }
+
+    @PutMapping("/{username}/enable")
+    @Operation(summary = "Enable a user account")
+    public ResponseEntity<UserResponse> enableUser(@PathVariable String username) {
+        return ResponseEntity.ok(userService.setEnabled(username, true));
+    }
+
     @DeleteMapping("/{username}")
     @Operation(summary = "Delete a user")
     public ResponseEntity<Void> deleteUser(@PathVariable String username) {
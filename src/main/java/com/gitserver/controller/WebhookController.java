@@ -0,0 +1,120 @@
+package com.gitserver.controller;
+
+import com.gitserver.dto.CreateWebhookRequest;
+import com.gitserver.dto.WebhookDeliveryResponse;
+import com.gitserver.dto.WebhookResponse;
+import com.gitserver.entity.RepositoryPermission.PermissionLevel;
+import com.gitserver.entity.WebhookDelivery.DeliveryStatus;
+import com.gitserver.service.PermissionService;
+import com.gitserver.service.WebhookService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * REST controller for repository webhooks and their deliveries. Webhooks are managed by
+ * repository administrators.
+ */
+@RestController
+@RequestMapping("/api/repos/{owner}/{repo}/hooks")
+@RequiredArgsConstructor
+@Tag(name = "Webhooks", description = "Repository webhook APIs")
+public class WebhookController {
+
+    private final WebhookService webhookService;
+    private final PermissionService permissionService;
+
+    @PostMapping
+    @Operation(summary = "Create a webhook")
+    public ResponseEntity<WebhookResponse> createWebhook(
+            @PathVariable String owner,
+            @PathVariable String repo,
+            @Valid @RequestBody CreateWebhookRequest request,
+            Authentication authentication) {
+        verifyAdmin(owner, repo, authentication, "create webhooks");
+        WebhookResponse response = webhookService.createWebhook(owner, repo, authentication.getName(), request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @GetMapping
+    @Operation(summary = "List the webhooks of a repository")
+    public ResponseEntity<List<WebhookResponse>> getWebhooks(
+            @PathVariable String owner,
+            @PathVariable String repo,
+            Authentication authentication) {
+        verifyAdmin(owner, repo, authentication, "view webhooks");
+        return ResponseEntity.ok(webhookService.getWebhooks(owner, repo));
+    }
+
+    @GetMapping("/{hookId}")
+    @Operation(summary = "Get a webhook")
+    public ResponseEntity<WebhookResponse> getWebhook(
+            @PathVariable String owner,
+            @PathVariable String repo,
+            @PathVariable Long hookId,
+            Authentication authentication) {
+        verifyAdmin(owner, repo, authentication, "view webhooks");
+        return ResponseEntity.ok(webhookService.getWebhook(owner, repo, hookId));
+    }
+
+    @PutMapping("/{hookId}")
+    @Operation(summary = "Update a webhook")
+    public ResponseEntity<WebhookResponse> updateWebhook(
+            @PathVariable String owner,
+            @PathVariable String repo,
+            @PathVariable Long hookId,
+            @Valid @RequestBody CreateWebhookRequest request,
+            Authentication authentication) {
+        verifyAdmin(owner, repo, authentication, "update webhooks");
+        return ResponseEntity.ok(webhookService.updateWebhook(owner, repo, hookId, request));
+    }
+
+    @DeleteMapping("/{hookId}")
+    @Operation(summary = "Delete a webhook and its pending deliveries")
+    public ResponseEntity<Void> deleteWebhook(
+            @PathVariable String owner,
+            @PathVariable String repo,
+            @PathVariable Long hookId,
+            Authentication authentication) {
+        verifyAdmin(owner, repo, authentication, "delete webhooks");
+        webhookService.deleteWebhook(owner, repo, hookId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/{hookId}/deliveries")
+    @Operation(summary = "List the latest deliveries of a webhook",
+               description = "Filter by status PENDING, DELIVERED or DEAD (dead-lettered)")
+    public ResponseEntity<List<WebhookDeliveryResponse>> getDeliveries(
+            @PathVariable String owner,
+            @PathVariable String repo,
+            @PathVariable Long hookId,
+            @RequestParam(required = false) DeliveryStatus status,
+            @RequestParam(defaultValue = "30") int limit,
+            Authentication authentication) {
+        verifyAdmin(owner, repo, authentication, "view webhook deliveries");
+        return ResponseEntity.ok(webhookService.getDeliveries(owner, repo, hookId, status, limit));
+    }
+
+    @PostMapping("/{hookId}/deliveries/{deliveryId}/redeliver")
+    @Operation(summary = "Queue a delivery again, e.g. a dead-lettered one")
+    public ResponseEntity<WebhookDeliveryResponse> redeliver(
+            @PathVariable String owner,
+            @PathVariable String repo,
+            @PathVariable Long hookId,
+            @PathVariable Long deliveryId,
+            Authentication authentication) {
+        verifyAdmin(owner, repo, authentication, "redeliver webhook deliveries");
+        return ResponseEntity.accepted().body(webhookService.redeliver(owner, repo, hookId, deliveryId));
+    }
+
+    private void verifyAdmin(String owner, String repo, Authentication authentication, String action) {
+        permissionService.verifyPermission(owner, repo, authentication.getName(), PermissionLevel.ADMIN, action);
+    }
+}
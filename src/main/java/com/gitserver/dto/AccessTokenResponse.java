@@ -0,0 +1,29 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * DTO for personal access token response. The token is only set in the response to
+ * creating it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccessTokenResponse {
+
+    private Long id;
+    private String name;
+    private String token;
+    private String tokenPrefix;
+    private Set<String> scopes;
+    private LocalDateTime expiresAt;
+    private LocalDateTime lastUsedAt;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,24 @@
+package com.gitserver.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * DTO for closing many issues or pull requests in one transaction.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkCloseRequest {
+
+    @NotEmpty(message = "At least one number is required")
+    @Size(max = BulkCreateRequest.MAX_ITEMS, message = "At most " + BulkCreateRequest.MAX_ITEMS + " numbers per request")
+    private List<Integer> numbers;
+}
@@ -0,0 +1,44 @@
+package com.gitserver.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * DTO for updating many issues or pull requests, identified by number, in one
+ * transaction.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkUpdateRequest<T> {
+
+    @NotEmpty(message = "At least one item is required")
+    @Size(max = BulkCreateRequest.MAX_ITEMS, message = "At most " + BulkCreateRequest.MAX_ITEMS + " items per request")
+    @Valid
+    private List<Item<T>> items;
+
+    /**
+     * The changes to apply to one issue or pull request.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item<T> {
+
+        @NotNull(message = "Number is required")
+        private Integer number;
+
+        @NotNull(message = "Changes are required")
+        @Valid
+        private T changes;
+    }
+}
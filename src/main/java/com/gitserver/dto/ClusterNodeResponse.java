@@ -0,0 +1,26 @@
+package com.gitserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for a member of the cluster.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ClusterNodeResponse {
+
+    private String nodeId;
+    private String url;
+    private LocalDateTime startedAt;
+    private LocalDateTime lastHeartbeat;
+
+    /** Whether this is the node that answered the request */
+    private boolean self;
+}
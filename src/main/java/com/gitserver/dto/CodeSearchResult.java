@@ -0,0 +1,33 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * DTO for a file matching a code search, with its matching lines.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CodeSearchResult {
+
+    private String owner;
+    private String repository;
+    private String path;
+    private String blobId;
+    private List<LineMatch> matches;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class LineMatch {
+        private int lineNumber;
+        private String line;
+    }
+}
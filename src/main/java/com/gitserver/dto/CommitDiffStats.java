@@ -0,0 +1,20 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * DTO for the line statistics of a commit against its first parent.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CommitDiffStats {
+
+    private String commitId;
+    private int additions;
+    private int deletions;
+}
@@ -0,0 +1,38 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.List;
+
+/**
+ * DTO for a page of commit search results.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CommitSearchResponse {
+
+    private String query;
+    private long totalCount;
+    private int page;
+    private int size;
+    private List<Item> items;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Item {
+        private String id;
+        private String shortId;
+        private String summary;
+        private String author;
+        private String authorEmail;
+        private long commitTime;
+        private double score;
+    }
+}
@@ -0,0 +1,36 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO for per-author contribution statistics, bucketed by week.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ContributorStats {
+
+    private String author;
+    private long totalCommits;
+    private long totalAdditions;
+    private long totalDeletions;
+    private List<Week> weeks;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Week {
+        private LocalDate weekStart;
+        private long commits;
+        private long additions;
+        private long deletions;
+    }
+}
@@ -0,0 +1,32 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import java.util.Set;
+
+/**
+ * DTO for creating a personal access token.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CreateAccessTokenRequest {
+
+    @NotBlank(message = "Name is required")
+    @Size(max = 100, message = "Name must not exceed 100 characters")
+    private String name;
+
+    @NotEmpty(message = "At least one scope is required")
+    private Set<String> scopes; // REPO_READ, REPO_WRITE, API
+
+    @Positive(message = "Expiry must be a positive number of days")
+    private Integer expiresInDays; // null for a token that does not expire
+}
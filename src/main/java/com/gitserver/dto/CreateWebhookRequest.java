@@ -0,0 +1,39 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import java.util.Set;
+
+/**
+ * DTO for creating or updating a webhook.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CreateWebhookRequest {
+
+    @NotBlank(message = "URL is required")
+    @Size(max = 2000, message = "URL must not exceed 2000 characters")
+    @Pattern(regexp = "^https?://.+", message = "URL must be an http or https URL")
+    private String url;
+
+    @Size(max = 256, message = "Secret must not exceed 256 characters")
+    private String secret;
+
+    private Set<String> events; // push, branch.created, branch.deleted, issue, pull_request; empty for all
+
+    @Min(value = 1, message = "Batch size must be at least 1")
+    @Max(value = 100, message = "Batch size must not exceed 100")
+    private Integer batchSize; // events per delivery, default 1
+
+    private Boolean active; // default true
+}
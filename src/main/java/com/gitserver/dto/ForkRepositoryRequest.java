@@ -0,0 +1,24 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import jakarta.validation.constraints.Size;
+
+/**
+ * DTO for forking a repository.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ForkRepositoryRequest {
+
+    /**
+     * Name of the fork; defaults to the name of the forked repository.
+     */
+    @Size(min = 1, max = 100, message = "Repository name must be between 1 and 100 characters")
+    private String name;
+}
@@ -0,0 +1,42 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * DTO for a page of issue and pull request search results.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IssueSearchResponse {
+
+    private String query;
+    private long totalCount;
+    private int page;
+    private int size;
+    private List<Item> items;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Item {
+        private String type;
+        private int number;
+        private String title;
+        private String state;
+        private String author;
+        private String assignee;
+        private Set<String> labels;
+        private LocalDateTime createdAt;
+        private double score;
+    }
+}
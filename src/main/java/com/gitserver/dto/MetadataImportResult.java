@@ -0,0 +1,28 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * DTO summarizing a repository metadata import.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MetadataImportResult {
+
+    private long permissions;
+    private long issues;
+    private long pullRequests;
+    private long reviews;
+    private long reviewComments;
+    /**
+     * Added to every imported issue and pull request number; 0 when the repository
+     * had none, so numbers were kept.
+     */
+    private int numberOffset;
+    private long durationMillis;
+}
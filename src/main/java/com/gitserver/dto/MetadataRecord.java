@@ -0,0 +1,52 @@
+package com.gitserver.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.gitserver.entity.Issue.IssueState;
+import com.gitserver.entity.PullRequest.PullRequestState;
+import com.gitserver.entity.RepositoryPermission.PermissionLevel;
+import com.gitserver.entity.Review.ReviewState;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * One line of a repository metadata export (NDJSON). Records carry numbers and
+ * usernames rather than database ids. A review follows its pull request and a review
+ * comment follows its review, so an import only has to remember the latest of each.
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = MetadataRecord.PermissionRecord.class, name = "permission"),
+        @JsonSubTypes.Type(value = MetadataRecord.IssueRecord.class, name = "issue"),
+        @JsonSubTypes.Type(value = MetadataRecord.PullRequestRecord.class, name = "pull_request"),
+        @JsonSubTypes.Type(value = MetadataRecord.ReviewRecord.class, name = "review"),
+        @JsonSubTypes.Type(value = MetadataRecord.ReviewCommentRecord.class, name = "review_comment")
+})
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public sealed interface MetadataRecord {
+
+    record PermissionRecord(String username, PermissionLevel permission) implements MetadataRecord {
+    }
+
+    record IssueRecord(int number, String title, String body, IssueState state, String author, String assignee,
+                       Set<String> labels, LocalDateTime createdAt, LocalDateTime updatedAt,
+                       LocalDateTime closedAt) implements MetadataRecord {
+    }
+
+    record PullRequestRecord(int number, String title, String body, PullRequestState state, String author,
+                             String headBranch, String baseBranch, Set<String> labels, Set<String> reviewers,
+                             boolean merged, String mergedBy, LocalDateTime mergedAt, LocalDateTime createdAt,
+                             LocalDateTime updatedAt, LocalDateTime closedAt) implements MetadataRecord {
+    }
+
+    record ReviewRecord(int pullRequest, String reviewer, String body, ReviewState state, String commitId,
+                        LocalDateTime createdAt, LocalDateTime updatedAt) implements MetadataRecord {
+    }
+
+    record ReviewCommentRecord(int pullRequest, String author, String body, String filePath, Integer lineNumber,
+                               String commitId, LocalDateTime createdAt,
+                               LocalDateTime updatedAt) implements MetadataRecord {
+    }
+}
@@ -0,0 +1,20 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * DTO for a file path matching a fuzzy "go to file" query.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PathMatch {
+
+    private String path;
+    private int score;
+    private int[] matchedPositions;
+}
@@ -0,0 +1,32 @@
+package com.gitserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Replication state of a replica location.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReplicaStatus {
+
+    private String location;
+
+    /** Repositories with updates not yet pushed to this replica */
+    private int pendingRepositories;
+
+    /** Pending repositories whose last push failed and waits for a retry */
+    private int failingRepositories;
+
+    /** Age of the oldest update not yet on this replica, 0 when caught up */
+    private long lagMillis;
+
+    private Instant lastReplicatedAt;
+    private String lastError;
+}
@@ -0,0 +1,24 @@
+package com.gitserver.dto;
+
+import com.gitserver.entity.GitRepository;
+import lombok.Value;
+
+/**
+ * Immutable snapshot of the identity and access settings of a repository, as cached by
+ * the repository resolver. Mutable counters such as disk usage are deliberately absent.
+ */
+@Value
+public class RepositoryDescriptor {
+
+    Long id;
+    String owner;
+    String name;
+    boolean isPrivate;
+    String defaultBranch;
+    String diskPath;
+
+    public static RepositoryDescriptor of(GitRepository repository) {
+        return new RepositoryDescriptor(repository.getId(), repository.getOwner(), repository.getName(),
+                repository.isPrivate(), repository.getDefaultBranch(), repository.getDiskPath());
+    }
+}
@@ -0,0 +1,31 @@
+package com.gitserver.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * DTO for an event of the repository event stream, sent as the data of a server-sent
+ * event whose id and event name are {@code id} and {@code type}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RepositoryEventMessage {
+
+    private Long id;
+
+    /** push, branch.created, branch.deleted, issue or pull_request */
+    private String type;
+
+    /** owner/name of the repository */
+    private String repository;
+
+    private LocalDateTime createdAt;
+    private Map<String, Object> payload;
+}
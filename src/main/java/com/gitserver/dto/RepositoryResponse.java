@@ -23,6 +23,7 @@ public class RepositoryResponse {
     private boolean isPrivate;
     private String defaultBranch;
     private String cloneUrl;
+    private Long forkedFromId;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
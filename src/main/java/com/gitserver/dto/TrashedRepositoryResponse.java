@@ -0,0 +1,25 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for a deleted repository that can still be restored.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TrashedRepositoryResponse {
+
+    private Long id;
+    private String owner;
+    private String name;
+    private String description;
+    private LocalDateTime deletedAt;
+    private LocalDateTime restorableUntil;
+}
@@ -0,0 +1,24 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.Map;
+
+/**
+ * DTO for recursive statistics of a Git tree: file count, total blob size and
+ * file counts per extension (files without an extension are not listed).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TreeStats {
+
+    private String treeId;
+    private long fileCount;
+    private long totalSize;
+    private Map<String, Long> extensionCounts;
+}
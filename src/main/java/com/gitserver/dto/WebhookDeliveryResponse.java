@@ -0,0 +1,28 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for the state of a webhook delivery.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WebhookDeliveryResponse {
+
+    private Long id;
+    private String event;
+    private String status; // PENDING, DELIVERED or DEAD
+    private int attempts;
+    private Integer responseStatus;
+    private String lastError;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+}
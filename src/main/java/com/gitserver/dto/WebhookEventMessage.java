@@ -0,0 +1,34 @@
+package com.gitserver.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for an event as posted to a webhook, on its own or in the {@code events} array of
+ * a batch. The id is the delivery id, the same on every attempt.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WebhookEventMessage {
+
+    private Long id;
+
+    /** push, branch.created, branch.deleted, issue or pull_request */
+    private String type;
+
+    /** owner/name of the repository */
+    private String repository;
+
+    private LocalDateTime createdAt;
+
+    /** Stored as JSON and sent as is */
+    @JsonRawValue
+    private String payload;
+}
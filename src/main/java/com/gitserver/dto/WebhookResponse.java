@@ -0,0 +1,31 @@
+package com.gitserver.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * DTO for webhook response. The secret is never returned.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WebhookResponse {
+
+    private Long id;
+    private String url;
+    private boolean hasSecret;
+    private Set<String> events;
+    private int batchSize;
+    private boolean active;
+    private long pendingDeliveries;
+    private long deadDeliveries;
+    private String createdBy;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,65 @@
+package com.gitserver.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing a personal access token. Only the SHA-256 digest of the token is
+ * stored; the token itself is shown once when it is created.
+ */
+@Entity
+@Table(name = "access_tokens", indexes = {
+        @Index(name = "idx_access_tokens_user", columnList = "user_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccessToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(name = "token_digest", nullable = false, unique = true, length = 64)
+    private String tokenDigest;
+
+    @Column(name = "token_prefix", nullable = false)
+    private String tokenPrefix;
+
+    /**
+     * Comma-separated {@link Scope} names.
+     */
+    @Column(nullable = false)
+    private String scopes;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+
+    @Column(name = "last_used_at")
+    private LocalDateTime lastUsedAt;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public enum Scope {
+        REPO_READ,   // Clone and fetch over HTTP
+        REPO_WRITE,  // Push over HTTP
+        API          // Use the REST API
+    }
+}
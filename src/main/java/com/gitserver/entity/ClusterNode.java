@@ -0,0 +1,37 @@
+package com.gitserver.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing a server instance of the cluster. Every node refreshes its own row
+ * periodically; nodes whose heartbeat is older than the node timeout are not members.
+ */
+@Entity
+@Table(name = "cluster_nodes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ClusterNode {
+
+    @Id
+    @Column(name = "node_id")
+    private String nodeId;
+
+    /**
+     * Base URL other nodes forward requests to, e.g. http://10.0.0.2:8080.
+     */
+    @Column(nullable = false)
+    private String url;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "last_heartbeat", nullable = false)
+    private LocalDateTime lastHeartbeat;
+}
@@ -0,0 +1,34 @@
+package com.gitserver.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDate;
+
+/**
+ * Entity representing the number of default-branch commits authored on a given day.
+ */
+@Entity
+@Table(name = "commit_activity",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"repository_id", "activity_date"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CommitActivity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "repository_id", nullable = false)
+    private Long repositoryId;
+
+    @Column(name = "activity_date", nullable = false)
+    private LocalDate activityDate;
+
+    @Column(name = "commit_count", nullable = false)
+    private long commitCount;
+}
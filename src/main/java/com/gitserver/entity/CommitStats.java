@@ -0,0 +1,44 @@
+package com.gitserver.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDate;
+
+/**
+ * Entity holding the diff statistics of a single commit against its first parent.
+ * Commits are immutable, so a row is computed once and reused across rebuilds.
+ */
+@Entity
+@Table(name = "commit_stats",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"repository_id", "commit_id"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CommitStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "repository_id", nullable = false)
+    private Long repositoryId;
+
+    @Column(name = "commit_id", nullable = false, length = 40)
+    private String commitId;
+
+    @Column(nullable = false)
+    private String author;
+
+    @Column(name = "week_start", nullable = false)
+    private LocalDate weekStart;
+
+    @Column(nullable = false)
+    private int additions;
+
+    @Column(nullable = false)
+    private int deletions;
+}
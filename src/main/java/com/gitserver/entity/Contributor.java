@@ -0,0 +1,33 @@
+package com.gitserver.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * Entity representing a commit author on the default branch of a repository.
+ */
+@Entity
+@Table(name = "contributors",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"repository_id", "name"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Contributor {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "repository_id", nullable = false)
+    private Long repositoryId;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(name = "commit_count", nullable = false)
+    private long commitCount;
+}
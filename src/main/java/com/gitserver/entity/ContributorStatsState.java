@@ -0,0 +1,42 @@
+package com.gitserver.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDateTime;
+
+/**
+ * Entity recording how far the contributor statistics of a repository have been computed.
+ */
+@Entity
+@Table(name = "contributor_stats_state")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ContributorStatsState {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "repository_id", nullable = false, unique = true)
+    private Long repositoryId;
+
+    @Column(name = "indexed_branch")
+    private String indexedBranch;
+
+    @Column(name = "indexed_commit_id", length = 40)
+    private String indexedCommitId;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
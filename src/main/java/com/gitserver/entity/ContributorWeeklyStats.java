@@ -0,0 +1,43 @@
+package com.gitserver.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDate;
+
+/**
+ * Entity aggregating one author's default-branch commits, additions and deletions per week.
+ */
+@Entity
+@Table(name = "contributor_weekly_stats",
+       uniqueConstraints = @UniqueConstraint(columnNames = {"repository_id", "author", "week_start"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ContributorWeeklyStats {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "repository_id", nullable = false)
+    private Long repositoryId;
+
+    @Column(nullable = false)
+    private String author;
+
+    @Column(name = "week_start", nullable = false)
+    private LocalDate weekStart;
+
+    @Column(nullable = false)
+    private long commits;
+
+    @Column(nullable = false)
+    private long additions;
+
+    @Column(nullable = false)
+    private long deletions;
+}
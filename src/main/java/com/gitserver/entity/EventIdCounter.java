@@ -0,0 +1,26 @@
+package com.gitserver.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * Entity holding the next unreserved id of the repository event stream. There is one
+ * row, shared by all nodes of a cluster.
+ */
+@Entity
+@Table(name = "event_id_counter")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EventIdCounter {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "next_id", nullable = false)
+    private Long nextId;
+}
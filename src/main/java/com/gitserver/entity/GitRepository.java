@@ -41,6 +41,15 @@ public class GitRepository {
     @Column(name = "disk_path")
     private String diskPath;
 
+    @Column(name = "disk_usage")
+    private Long diskUsage;
+
+    /**
+     * Repository this one was forked from, if any.
+     */
+    @Column(name = "forked_from_id")
+    private Long forkedFromId;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -12,15 +12,24 @@ import java.util.Set;
  * Entity representing an issue in a repository.
  */
 @Entity
-@Table(name = "issues")
+@Table(name = "issues", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_issues_repo_number", columnNames = {"repository_id", "issue_number"})
+}, indexes = {
+        @Index(name = "idx_issues_repo_state_created", columnList = "repository_id, state, created_at"),
+        @Index(name = "idx_issues_repo_created", columnList = "repository_id, created_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Issue {
 
+    /**
+     * Pooled sequence ids, so inserts of many rows can be batched.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "issueIds")
+    @SequenceGenerator(name = "issueIds", sequenceName = "issues_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "issue_number", nullable = false)
@@ -61,8 +70,13 @@ public class Issue {
 
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
-        updatedAt = LocalDateTime.now();
+        // Imported rows keep their original timestamps
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        if (updatedAt == null) {
+            updatedAt = createdAt;
+        }
         if (state == null) {
             state = IssueState.OPEN;
         }
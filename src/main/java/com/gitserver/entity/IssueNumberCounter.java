@@ -0,0 +1,27 @@
+package com.gitserver.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * Entity holding the next unreserved issue number of a repository. Issues and pull
+ * requests share one sequence of numbers.
+ */
+@Entity
+@Table(name = "issue_number_counters")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IssueNumberCounter {
+
+    @Id
+    @Column(name = "repository_id")
+    private Long repositoryId;
+
+    @Column(name = "next_number", nullable = false)
+    private Integer nextNumber;
+}
@@ -12,15 +12,24 @@ import java.util.Set;
  * Entity representing a pull request in a repository.
  */
 @Entity
-@Table(name = "pull_requests")
+@Table(name = "pull_requests", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_pull_requests_repo_number", columnNames = {"repository_id", "pr_number"})
+}, indexes = {
+        @Index(name = "idx_pull_requests_repo_state_created", columnList = "repository_id, state, created_at"),
+        @Index(name = "idx_pull_requests_repo_created", columnList = "repository_id, created_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class PullRequest {
 
+    /**
+     * Pooled sequence ids, so inserts of many rows can be batched.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "pullRequestIds")
+    @SequenceGenerator(name = "pullRequestIds", sequenceName = "pull_requests_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "pr_number", nullable = false)
@@ -78,8 +87,13 @@ public class PullRequest {
 
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
-        updatedAt = LocalDateTime.now();
+        // Imported rows keep their original timestamps
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        if (updatedAt == null) {
+            updatedAt = createdAt;
+        }
         if (state == null) {
             state = PullRequestState.OPEN;
         }
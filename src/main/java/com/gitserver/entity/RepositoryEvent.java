@@ -0,0 +1,63 @@
+package com.gitserver.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing an event of the repository event stream, kept for a while so
+ * subscribers can resume after the in-memory buffer has moved on.
+ */
+@Entity
+@Table(name = "repository_events", indexes = {
+        @Index(name = "idx_repository_events_repository", columnList = "repository_id, id"),
+        @Index(name = "idx_repository_events_created_at", columnList = "created_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RepositoryEvent implements Persistable<Long> {
+
+    /**
+     * Assigned by the event stream, increasing in publication order.
+     */
+    @Id
+    private Long id;
+
+    @Column(name = "repository_id", nullable = false)
+    private Long repositoryId;
+
+    @Column(nullable = false, length = 50)
+    private String type;
+
+    /**
+     * The event as sent to subscribers, as JSON.
+     */
+    @Column(nullable = false, length = 16000)
+    private String data;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Ids are assigned, so tell Spring Data which rows are new instead of it selecting first
+    @Transient
+    @Builder.Default
+    private boolean persisted = false;
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+}
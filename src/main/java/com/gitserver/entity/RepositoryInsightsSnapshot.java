@@ -0,0 +1,68 @@
+package com.gitserver.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDateTime;
+
+/**
+ * Entity holding materialized insights for a repository.
+ * Commit statistics cover the default branch up to {@code indexedCommitId} and are
+ * extended incrementally as new commits are pushed.
+ */
+@Entity
+@Table(name = "repository_insights")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RepositoryInsightsSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "repository_id", nullable = false, unique = true)
+    private Long repositoryId;
+
+    @Column(name = "indexed_branch")
+    private String indexedBranch;
+
+    @Column(name = "indexed_commit_id", length = 40)
+    private String indexedCommitId;
+
+    @Column(name = "total_commits")
+    private long totalCommits;
+
+    @Column(name = "total_branches")
+    private int totalBranches;
+
+    @Column(name = "total_contributors")
+    private int totalContributors;
+
+    @Column(name = "open_issues")
+    private long openIssues;
+
+    @Column(name = "closed_issues")
+    private long closedIssues;
+
+    @Column(name = "open_pull_requests")
+    private long openPullRequests;
+
+    @Column(name = "closed_pull_requests")
+    private long closedPullRequests;
+
+    @Column(name = "merged_pull_requests")
+    private long mergedPullRequests;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -18,8 +18,12 @@ import java.time.LocalDateTime;
 @Builder
 public class Review {
 
+    /**
+     * Pooled sequence ids, so inserts of many rows can be batched.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reviewIds")
+    @SequenceGenerator(name = "reviewIds", sequenceName = "reviews_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "pull_request_id", nullable = false)
@@ -46,8 +50,13 @@ public class Review {
 
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
-        updatedAt = LocalDateTime.now();
+        // Imported rows keep their original timestamps
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        if (updatedAt == null) {
+            updatedAt = createdAt;
+        }
         if (state == null) {
             state = ReviewState.PENDING;
         }
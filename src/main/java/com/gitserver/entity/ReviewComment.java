@@ -18,8 +18,12 @@ import java.time.LocalDateTime;
 @Builder
 public class ReviewComment {
 
+    /**
+     * Pooled sequence ids, so inserts of many rows can be batched.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reviewCommentIds")
+    @SequenceGenerator(name = "reviewCommentIds", sequenceName = "review_comments_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "review_id", nullable = false)
@@ -51,8 +55,13 @@ public class ReviewComment {
 
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
-        updatedAt = LocalDateTime.now();
+        // Imported rows keep their original timestamps
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        if (updatedAt == null) {
+            updatedAt = createdAt;
+        }
     }
 
     @PreUpdate
@@ -0,0 +1,68 @@
+package com.gitserver.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing a deleted repository whose directory waits in the trash area
+ * until the reaper removes it. Keeps what is needed to restore the repository.
+ */
+@Entity
+@Table(name = "trashed_repositories", indexes = {
+        @Index(name = "idx_trashed_repositories_owner", columnList = "owner"),
+        @Index(name = "idx_trashed_repositories_deleted_at", columnList = "deleted_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TrashedRepository {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Id of the deleted repository row; its issues and pull requests still refer to it.
+     */
+    @Column(name = "repository_id", nullable = false)
+    private Long repositoryId;
+
+    @Column(nullable = false)
+    private String owner;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(length = 1000)
+    private String description;
+
+    @Column(name = "is_private")
+    private boolean isPrivate;
+
+    @Column(name = "default_branch")
+    private String defaultBranch;
+
+    @Column(name = "trash_path", nullable = false)
+    private String trashPath;
+
+    @Column(name = "disk_usage")
+    private Long diskUsage;
+
+    @Column(name = "forked_from_id")
+    private Long forkedFromId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (deletedAt == null) {
+            deletedAt = LocalDateTime.now();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.gitserver.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * Entity memoizing the recursive statistics of a Git tree, keyed by tree SHA.
+ * Trees are immutable, so rows are never updated and are shared between repositories.
+ */
+@Entity
+@Table(name = "tree_stats")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TreeStatsEntry {
+
+    @Id
+    @Column(name = "tree_id", length = 40)
+    private String treeId;
+
+    @Column(name = "file_count", nullable = false)
+    private long fileCount;
+
+    @Column(name = "total_size", nullable = false)
+    private long totalSize;
+
+    /**
+     * Extension counts encoded as "ext=count" pairs separated by '/',
+     * a character that cannot appear in a file name.
+     */
+    @Column(name = "extension_counts", columnDefinition = "TEXT")
+    private String extensionCounts;
+}
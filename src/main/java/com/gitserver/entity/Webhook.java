@@ -0,0 +1,73 @@
+package com.gitserver.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing a webhook: an HTTP endpoint notified of a repository's events.
+ */
+@Entity
+@Table(name = "webhooks", indexes = {
+        @Index(name = "idx_webhooks_repository", columnList = "repository_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Webhook {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "repository_id", nullable = false)
+    private Long repositoryId;
+
+    @Column(nullable = false, length = 2000)
+    private String url;
+
+    /**
+     * Key of the HMAC-SHA256 signature sent with every delivery, if set.
+     */
+    @Column(length = 256)
+    private String secret;
+
+    /**
+     * Comma-separated event types the webhook receives, or "*" for all.
+     */
+    @Column(nullable = false, length = 500)
+    private String events;
+
+    /**
+     * Maximum number of events sent in one delivery; 1 sends every event on its own.
+     */
+    @Column(name = "batch_size", nullable = false)
+    private int batchSize;
+
+    @Column(nullable = false)
+    private boolean active;
+
+    @Column(name = "created_by")
+    private String createdBy;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
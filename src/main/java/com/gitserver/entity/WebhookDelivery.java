@@ -0,0 +1,81 @@
+package com.gitserver.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import java.time.LocalDateTime;
+
+/**
+ * Entity representing one event to be delivered to a webhook. Rows are written in the
+ * transaction that changes the data (the outbox), and updated as delivery proceeds.
+ */
+@Entity
+@Table(name = "webhook_deliveries", indexes = {
+        @Index(name = "idx_webhook_deliveries_due", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_webhook_deliveries_webhook", columnList = "webhook_id, status, next_attempt_at, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WebhookDelivery {
+
+    /**
+     * Pooled sequence ids, so the rows of many events can be inserted in batches.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "webhookDeliveryIds")
+    @SequenceGenerator(name = "webhookDeliveryIds", sequenceName = "webhook_deliveries_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "webhook_id", nullable = false)
+    private Long webhookId;
+
+    /**
+     * owner/name of the repository when the event happened.
+     */
+    @Column(nullable = false)
+    private String repository;
+
+    @Column(name = "event_type", nullable = false, length = 50)
+    private String eventType;
+
+    /**
+     * The payload of the event, as JSON.
+     */
+    @Column(nullable = false, length = 16000)
+    private String payload;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private DeliveryStatus status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    /**
+     * When the delivery is due; while an attempt is in progress, when it is given up on.
+     */
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public enum DeliveryStatus {
+        PENDING,    // Waiting for its first attempt or a retry
+        DELIVERED,  // Accepted by the endpoint with a 2xx response
+        DEAD        // Given up on; can be redelivered by hand
+    }
+}
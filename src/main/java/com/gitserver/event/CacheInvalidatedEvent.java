@@ -0,0 +1,27 @@
+package com.gitserver.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Event published when another node of the cluster dropped an entry of one of its
+ * caches, so this node drops the entry too. A null cache name stands for every cache
+ * and a null key for every entry, e.g. after invalidations may have been missed.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class CacheInvalidatedEvent {
+
+    private final String cacheName;
+    private final String key;
+
+    public boolean covers(String cache) {
+        return cacheName == null || cacheName.equals(cache);
+    }
+
+    public boolean isAll() {
+        return key == null;
+    }
+}
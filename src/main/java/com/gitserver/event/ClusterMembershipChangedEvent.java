@@ -0,0 +1,19 @@
+package com.gitserver.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Event published when nodes joined or left the cluster, so ownership of some
+ * repositories moved. Carries the node ids of the new membership.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ClusterMembershipChangedEvent {
+
+    private final List<String> members;
+}
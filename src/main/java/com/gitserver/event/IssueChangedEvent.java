@@ -0,0 +1,54 @@
+package com.gitserver.event;
+
+import com.gitserver.entity.Issue;
+import com.gitserver.entity.PullRequest;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Event published when an issue or pull request is created or updated. It carries the
+ * searchable fields as written, so listeners running after commit need no reload.
+ */
+@Getter
+@ToString(exclude = "body")
+@AllArgsConstructor
+public class IssueChangedEvent {
+
+    private final Long repositoryId;
+    private final Kind kind;
+    private final int number;
+    private final String title;
+    private final String body;
+    private final String state;
+    private final String author;
+    private final String assignee;
+    private final Set<String> labels;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+
+    public enum Kind {
+        ISSUE, PULL_REQUEST
+    }
+
+    public static IssueChangedEvent of(Issue issue) {
+        return new IssueChangedEvent(issue.getRepositoryId(), Kind.ISSUE, issue.getIssueNumber(),
+                issue.getTitle(), issue.getBody(), issue.getState().name(), issue.getAuthorUsername(),
+                issue.getAssigneeUsername(), copy(issue.getLabels()), issue.getCreatedAt(), issue.getUpdatedAt());
+    }
+
+    public static IssueChangedEvent of(PullRequest pullRequest) {
+        return new IssueChangedEvent(pullRequest.getRepositoryId(), Kind.PULL_REQUEST, pullRequest.getPrNumber(),
+                pullRequest.getTitle(), pullRequest.getBody(), pullRequest.getState().name(),
+                pullRequest.getAuthorUsername(), null, copy(pullRequest.getLabels()),
+                pullRequest.getCreatedAt(), pullRequest.getUpdatedAt());
+    }
+
+    private static Set<String> copy(Set<String> labels) {
+        return labels != null ? new HashSet<>(labels) : Set.of();
+    }
+}
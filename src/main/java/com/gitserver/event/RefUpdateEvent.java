@@ -0,0 +1,49 @@
+package com.gitserver.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Event published after refs of a repository have been updated, either by a push
+ * through receive-pack or by a write made through the REST API.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class RefUpdateEvent {
+
+    private final String owner;
+    private final String name;
+    private final Source source;
+    private final List<RefChange> changes;
+
+    /**
+     * A single ref update. {@code oldId} is null for created refs and {@code newId}
+     * is null for deleted refs.
+     */
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class RefChange {
+        private final String refName;
+        private final String oldId;
+        private final String newId;
+
+        public boolean isBranch() {
+            return refName.startsWith("refs/heads/");
+        }
+
+        public String getBranchName() {
+            return isBranch() ? refName.substring("refs/heads/".length()) : refName;
+        }
+    }
+
+    public enum Source {
+        PUSH,   // git push over receive-pack
+        API,    // file, branch or merge operations through the REST API
+        SYSTEM  // repository initialization and maintenance
+    }
+}
@@ -0,0 +1,15 @@
+package com.gitserver.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a personal access token is not found.
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class AccessTokenNotFoundException extends RuntimeException {
+
+    public AccessTokenNotFoundException(Long tokenId) {
+        super(String.format("Access token with ID %d not found", tokenId));
+    }
+}
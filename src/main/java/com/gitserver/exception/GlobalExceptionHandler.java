@@ -86,6 +86,21 @@ public class GlobalExceptionHandler {
         return createErrorResponse(HttpStatus.NOT_FOUND, ex.getMessage());
     }
 
+    @ExceptionHandler(AccessTokenNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleAccessTokenNotFound(AccessTokenNotFoundException ex) {
+        return createErrorResponse(HttpStatus.NOT_FOUND, ex.getMessage());
+    }
+
+    @ExceptionHandler(WebhookNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleWebhookNotFound(WebhookNotFoundException ex) {
+        return createErrorResponse(HttpStatus.NOT_FOUND, ex.getMessage());
+    }
+
+    @ExceptionHandler(TrashedRepositoryNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleTrashedRepositoryNotFound(TrashedRepositoryNotFoundException ex) {
+        return createErrorResponse(HttpStatus.NOT_FOUND, ex.getMessage());
+    }
+
     @ExceptionHandler(SshKeyAlreadyExistsException.class)
     public ResponseEntity<ErrorResponse> handleSshKeyAlreadyExists(SshKeyAlreadyExistsException ex) {
         return createErrorResponse(HttpStatus.CONFLICT, ex.getMessage());
@@ -101,6 +116,11 @@ public class GlobalExceptionHandler {
         return createErrorResponse(HttpStatus.FORBIDDEN, ex.getMessage());
     }
 
+    @ExceptionHandler(RepositoryQuotaExceededException.class)
+    public ResponseEntity<ErrorResponse> handleRepositoryQuotaExceeded(RepositoryQuotaExceededException ex) {
+        return createErrorResponse(HttpStatus.INSUFFICIENT_STORAGE, ex.getMessage());
+    }
+
     @ExceptionHandler(IllegalStateException.class)
     public ResponseEntity<ErrorResponse> handleIllegalState(IllegalStateException ex) {
         return createErrorResponse(HttpStatus.BAD_REQUEST, ex.getMessage());
@@ -0,0 +1,20 @@
+package com.gitserver.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a write would exceed a repository's disk quota.
+ */
+@ResponseStatus(HttpStatus.INSUFFICIENT_STORAGE)
+public class RepositoryQuotaExceededException extends RuntimeException {
+
+    public RepositoryQuotaExceededException(String message) {
+        super(message);
+    }
+
+    public RepositoryQuotaExceededException(String owner, String repo, long usage, long quota) {
+        super(String.format("Repository '%s/%s' uses %d bytes and has reached its quota of %d bytes",
+              owner, repo, usage, quota));
+    }
+}
@@ -0,0 +1,15 @@
+package com.gitserver.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a deleted repository is no longer in the trash.
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class TrashedRepositoryNotFoundException extends RuntimeException {
+
+    public TrashedRepositoryNotFoundException(Long trashId) {
+        super(String.format("Deleted repository with ID %d not found in trash", trashId));
+    }
+}
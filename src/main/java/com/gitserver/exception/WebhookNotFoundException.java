@@ -0,0 +1,19 @@
+package com.gitserver.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a webhook or one of its deliveries is not found.
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class WebhookNotFoundException extends RuntimeException {
+
+    public WebhookNotFoundException(String message) {
+        super(message);
+    }
+
+    public WebhookNotFoundException(Long webhookId) {
+        super(String.format("Webhook with ID %d not found", webhookId));
+    }
+}
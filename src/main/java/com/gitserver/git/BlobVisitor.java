@@ -0,0 +1,16 @@
+package com.gitserver.git;
+
+/**
+ * Callback receiving blob contents from {@link JGitService}.
+ */
+@FunctionalInterface
+public interface BlobVisitor {
+
+    /**
+     * Visit a file. The content is null when the file was deleted or is larger than
+     * the requested limit.
+     *
+     * @return false to stop the walk
+     */
+    boolean visit(String path, String blobId, byte[] content);
+}
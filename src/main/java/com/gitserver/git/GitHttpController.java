@@ -2,16 +2,23 @@ package com.gitserver.git;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import com.gitserver.event.RefUpdateEvent;
+import com.gitserver.event.RefUpdateEvent.RefChange;
+import com.gitserver.service.DiskUsageService;
+import com.gitserver.service.ReplicationService;
+import com.gitserver.service.RepositoryResolver;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.RepositoryCache;
 import org.eclipse.jgit.transport.PacketLineOut;
+import org.eclipse.jgit.transport.ReceiveCommand;
 import org.eclipse.jgit.transport.ReceivePack;
 import org.eclipse.jgit.transport.RefAdvertiser;
 import org.eclipse.jgit.transport.UploadPack;
 import org.eclipse.jgit.util.FS;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
@@ -20,6 +27,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Controller for Git Smart HTTP protocol support.
@@ -31,8 +42,12 @@ import java.io.OutputStream;
 @RequiredArgsConstructor
 public class GitHttpController {
 
-    @Value("${git.repositories.base-path:./repositories}")
-    private String repositoriesBasePath;
+    private final RepositoryResolver repositoryResolver;
+    private final DiskUsageService diskUsageService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JGitService jGitService;
+    private final RepositoryWriteFence writeFence;
+    private final ReplicationService replicationService;
 
     private static final String UPLOAD_PACK_SERVICE = "git-upload-pack";
     private static final String RECEIVE_PACK_SERVICE = "git-receive-pack";
@@ -54,9 +69,13 @@ public class GitHttpController {
             HttpServletResponse response) throws IOException {
         
         log.debug("Info refs request for {}/{}, service: {}", owner, repo, service);
+        if (!isKnownRepository(owner, repo, response)) {
+            return;
+        }
         
-        try (Repository repository = openRepository(owner, repo)) {
-            if (service.equals(UPLOAD_PACK_SERVICE)) {
+        boolean upload = service.equals(UPLOAD_PACK_SERVICE);
+        try (Repository repository = upload ? openRepositoryForRead(owner, repo) : openRepository(owner, repo)) {
+            if (upload) {
                 response.setContentType(UPLOAD_PACK_ADVERTISEMENT);
                 response.setStatus(HttpStatus.OK.value());
                 advertiseUploadPack(repository, response.getOutputStream());
@@ -86,8 +105,11 @@ public class GitHttpController {
             HttpServletResponse response) throws IOException {
         
         log.debug("Upload pack request for {}/{}", owner, repo);
+        if (!isKnownRepository(owner, repo, response)) {
+            return;
+        }
         
-        try (Repository repository = openRepository(owner, repo)) {
+        try (Repository repository = openRepositoryForRead(owner, repo)) {
             response.setContentType(UPLOAD_PACK_RESULT);
             response.setStatus(HttpStatus.OK.value());
             
@@ -117,8 +139,13 @@ public class GitHttpController {
             HttpServletResponse response) throws IOException {
         
         log.debug("Receive pack request for {}/{}", owner, repo);
+        if (!isKnownRepository(owner, repo, response)) {
+            return;
+        }
         
-        try (Repository repository = openRepository(owner, repo)) {
+        // Hold a write permit so the repository is not moved to another storage root mid-push
+        try (RepositoryWriteFence.Permit permit = writeFence.enter(owner, repo);
+             Repository repository = openRepository(owner, repo)) {
             response.setContentType(RECEIVE_PACK_RESULT);
             response.setStatus(HttpStatus.OK.value());
             
@@ -128,8 +155,18 @@ public class GitHttpController {
             receivePack.setAllowNonFastForwards(true);
             receivePack.setAllowDeletes(true);
             
+            long remainingQuota = diskUsageService.getRemainingQuota(owner, repo);
+            if (remainingQuota >= 0) {
+                receivePack.setMaxPackSizeLimit(remainingQuota);
+            }
+            
             receivePack.receive(request.getInputStream(), response.getOutputStream(), null);
             
+            if (receivePack.hasReceivedPack()) {
+                diskUsageService.recordBytesAdded(owner, repo, receivePack.getPackSize());
+            }
+            publishRefUpdates(owner, repo, receivePack.getAllCommands());
+            
             log.debug("Receive pack completed for {}/{}", owner, repo);
         } catch (Exception e) {
             log.error("Error in receive pack for {}/{}", owner, repo, e);
@@ -170,19 +207,60 @@ public class GitHttpController {
     }
 
     /**
-     * Open a Git repository.
+     * Publish the ref updates that were applied by a push.
+     */
+    private void publishRefUpdates(String owner, String repo, List<ReceiveCommand> commands) {
+        List<RefChange> changes = new ArrayList<>();
+        for (ReceiveCommand command : commands) {
+            if (command.getResult() != ReceiveCommand.Result.OK) {
+                continue;
+            }
+            changes.add(new RefChange(command.getRefName(),
+                    toNullableId(command.getOldId()),
+                    toNullableId(command.getNewId())));
+        }
+        if (!changes.isEmpty()) {
+            eventPublisher.publishEvent(new RefUpdateEvent(owner, repo, RefUpdateEvent.Source.PUSH, changes));
+        }
+    }
+
+    private String toNullableId(ObjectId objectId) {
+        return objectId == null || ObjectId.zeroId().equals(objectId) ? null : objectId.getName();
+    }
+
+    /**
+     * Check the repository is registered, answering 404 if not, without a database query
+     * once its descriptor is cached.
+     */
+    private boolean isKnownRepository(String owner, String name, HttpServletResponse response) throws IOException {
+        if (repositoryResolver.find(owner, name).isPresent()) {
+            return true;
+        }
+        response.sendError(HttpStatus.NOT_FOUND.value(), "Repository not found: " + owner + "/" + name);
+        return false;
+    }
+
+    /**
+     * Open the copy of a repository a fetch or clone is served from: the primary, or a
+     * replica that has every update applied.
+     */
+    private Repository openRepositoryForRead(String owner, String name) throws IOException {
+        Optional<Path> replica = replicationService.selectReadCopy(owner, name);
+        if (replica.isPresent()) {
+            return RepositoryCache.open(RepositoryCache.FileKey.exact(replica.get().toFile(), FS.DETECTED), true);
+        }
+        return openRepository(owner, name);
+    }
+
+    /**
+     * Open a Git repository from the shared cache. Repositories are stored bare; one not
+     * converted from the old layout yet is opened through its .git directory.
      */
     private Repository openRepository(String owner, String name) throws IOException {
-        File repoDir = new File(repositoriesBasePath, owner + "/" + name);
-        File gitDir = new File(repoDir, ".git");
-        
-        if (!repoDir.exists()) {
+        if (!jGitService.repositoryExistsOnDisk(owner, name)) {
             throw new IOException("Repository not found: " + owner + "/" + name);
         }
-        
-        return RepositoryCache.open(
-            RepositoryCache.FileKey.exact(gitDir.exists() ? gitDir : repoDir, FS.DETECTED),
-            true
-        );
+        File gitDir = jGitService.getGitDirectory(jGitService.getRepositoryPath(owner, name)).toFile();
+        return RepositoryCache.open(RepositoryCache.FileKey.exact(gitDir, FS.DETECTED), true);
     }
 }
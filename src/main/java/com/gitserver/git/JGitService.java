@@ -1,23 +1,44 @@
 package com.gitserver.git;
 
 import com.gitserver.dto.*;
+import com.gitserver.event.RefUpdateEvent;
+import com.gitserver.event.RefUpdateEvent.RefChange;
 import com.gitserver.exception.*;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ListBranchCommand;
 import org.eclipse.jgit.api.MergeResult;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEditor;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.InvalidPathException;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.lib.*;
+import org.eclipse.jgit.merge.MergeStrategy;
+import org.eclipse.jgit.merge.ThreeWayMerger;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.transport.ReceiveCommand;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.TagOpt;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.eclipse.jgit.util.FS;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
@@ -25,15 +46,30 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 /**
  * Service for Git operations using JGit.
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class JGitService {
 
+    private static final String POOL_MEMBER_REFS = "refs/members/";
+    private static final Pattern LOOSE_OBJECT_DIRECTORY = Pattern.compile("[0-9a-f]{2}");
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final RepositoryStorage repositoryStorage;
+    private final RepositoryWriteFence writeFence;
+
     @Value("${git.repositories.base-path:./repositories}")
     private String repositoriesBasePath;
 
@@ -41,45 +77,88 @@ public class JGitService {
     private String defaultBranch;
 
     /**
-     * Initialize a new bare Git repository.
+     * Initialize a new bare Git repository by copying a prepared skeleton, optionally
+     * with an initial commit of a README written straight to the object database.
      */
     public void initRepository(String owner, String name, boolean initReadme, String description) {
         Path repoPath = getRepositoryPath(owner, name);
-        
+        Path staging = null;
+
         try {
-            Files.createDirectories(repoPath);
-            
-            // Initialize non-bare repository (with working directory)
-            try (Git git = Git.init()
-                    .setDirectory(repoPath.toFile())
-                    .setBare(false)
-                    .setInitialBranch(defaultBranch)
-                    .call()) {
-                
-                log.info("Initialized repository at: {}", repoPath);
-                
-                // Create initial commit with README if requested
-                if (initReadme) {
-                    String readmeContent = "# " + name + "\n\n";
-                    if (description != null && !description.isEmpty()) {
-                        readmeContent += description + "\n";
-                    }
-                    
-                    Path readmePath = repoPath.resolve("README.md");
-                    Files.writeString(readmePath, readmeContent);
-                    
-                    git.add().addFilepattern("README.md").call();
-                    git.commit()
-                        .setAuthor("System", "system@gitserver.local")
-                        .setCommitter("System", "system@gitserver.local")
-                        .setMessage("Initial commit")
-                        .call();
-                    
+            // Copy next to the target and rename, so a half-copied repository is never seen
+            Files.createDirectories(repoPath.getParent());
+            staging = Files.createTempDirectory(repoPath.getParent(), "." + name + ".init-");
+            copyDirectory(getTemplatePath(), staging);
+            Files.move(staging, repoPath, StandardCopyOption.ATOMIC_MOVE);
+            staging = null;
+            log.info("Initialized repository at: {}", repoPath);
+
+            // Create initial commit with README if requested
+            if (initReadme) {
+                String readmeContent = "# " + name + "\n\n";
+                if (description != null && !description.isEmpty()) {
+                    readmeContent += description + "\n";
+                }
+
+                try (Git git = Git.open(repoPath.toFile())) {
+                    PersonIdent system = new PersonIdent("System", "system@gitserver.local");
+                    RevCommit commit = commitFile(git.getRepository(), name, defaultBranch, "README.md",
+                            readmeContent.getBytes(StandardCharsets.UTF_8), system, "Initial commit");
+
                     log.info("Created initial commit with README.md");
+                    publishRefUpdate(owner, name, RefUpdateEvent.Source.SYSTEM,
+                            Constants.R_HEADS + defaultBranch, null, commit);
                 }
             }
         } catch (IOException | GitAPIException e) {
             throw new GitOperationException("Failed to initialize repository: " + e.getMessage(), e);
+        } finally {
+            if (staging != null) {
+                try {
+                    deleteDirectory(staging.toFile());
+                } catch (IOException e) {
+                    log.warn("Failed to remove {}: {}", staging, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Convert a repository with a working tree into a bare one in place: the repository
+     * is renamed aside, its .git directory renamed into its place and the rest deleted.
+     * Also finishes a conversion that was interrupted part way. Returns false if the
+     * repository was already bare.
+     */
+    public boolean convertToBare(String owner, String name) {
+        // Pushes and API writes wait while the directory is renamed under them
+        try (RepositoryWriteFence.Permit fence = writeFence.fence(owner, name)) {
+            Path repoPath = getRepositoryPath(owner, name);
+            Path aside = repoPath.resolveSibling("." + name + ".converting");
+
+            if (!Files.exists(aside)) {
+                if (!Files.isDirectory(repoPath.resolve(".git"))) {
+                    return false;
+                }
+                closeCachedRepository(repoPath);
+                Files.move(repoPath, aside, StandardCopyOption.ATOMIC_MOVE);
+            }
+            if (!Files.exists(repoPath)) {
+                Files.move(aside.resolve(".git"), repoPath, StandardCopyOption.ATOMIC_MOVE);
+            }
+            deleteDirectory(aside.toFile());
+
+            Files.deleteIfExists(repoPath.resolve("index"));
+            try (Repository repository = openBare(repoPath)) {
+                StoredConfig config = repository.getConfig();
+                config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_KEY_BARE, true);
+                config.unset(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_KEY_WORKTREE);
+                config.save();
+            }
+            closeCachedRepository(repoPath);
+            log.info("Converted repository {}/{} to bare storage", owner, name);
+            return true;
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to convert repository to bare: " + e.getMessage(), e);
         }
     }
 
@@ -99,6 +178,210 @@ public class JGitService {
         }
     }
 
+    /**
+     * Move a repository directory into the trash area of its storage root with one atomic
+     * rename, so the slow recursive delete can happen later. Returns the new location.
+     */
+    public Path moveToTrash(String owner, String name, String entryName) {
+        try (RepositoryWriteFence.Permit fence = writeFence.fence(owner, name)) {
+            Path repoPath = getRepositoryPath(owner, name);
+            Path trashPath = moveToTrash(repoPath, entryName);
+            log.info("Moved repository {}/{} to trash at {}", owner, name, trashPath);
+            return trashPath;
+        }
+    }
+
+    /**
+     * Move a repository directory from the trash area back to its place on the same
+     * storage root.
+     */
+    public void restoreFromTrash(Path trashPath, String owner, String name) {
+        Path repoPath = RepositoryStorage.rootOf(trashPath).resolve(owner).resolve(name);
+        try {
+            Files.createDirectories(repoPath.getParent());
+            Files.move(trashPath, repoPath, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Restored repository {}/{} from trash", owner, name);
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to restore repository from trash: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Directories holding deleted repositories until they are reaped, one per storage
+     * root so moving into them is a rename on the same file system.
+     */
+    public List<Path> getTrashPaths() {
+        return repositoryStorage.getRoots().stream().map(root -> root.resolve(".trash")).toList();
+    }
+
+    /**
+     * Copy a repository to another storage root while it stays in use, into a staging
+     * directory next to its new place. Returns the staging directory.
+     */
+    public Path stageCopy(Path repoPath, Path targetRoot) {
+        Path target = targetRoot.resolve(repoPath.getParent().getFileName()).resolve(repoPath.getFileName());
+        try {
+            Files.createDirectories(target.getParent());
+            Path staging = Files.createTempDirectory(target.getParent(), "." + repoPath.getFileName() + ".moving-");
+            syncDirectory(repoPath, staging);
+            return staging;
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to copy repository: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Bring a staged copy up to date and rename it into place. Call it while writes to the
+     * repository are fenced: only files changed since the copy was staged are copied, so
+     * this is quick. Returns the new repository directory.
+     */
+    public Path finishCopy(Path repoPath, Path staging) {
+        Path target = staging.resolveSibling(repoPath.getFileName());
+        try {
+            syncDirectory(repoPath, staging);
+            Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+            return target;
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to copy repository: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Move a directory that no repository uses any more, such as the old copy of a moved
+     * repository or an abandoned staging copy, into the trash area of its storage root.
+     */
+    public void discard(Path directory) {
+        try {
+            if (Files.exists(directory)) {
+                moveToTrash(directory, "discarded-" + System.currentTimeMillis());
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to discard {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * Fork a repository. The fork borrows every object from a pool shared by the fork
+     * network through objects/info/alternates, so creating it only copies refs. The first
+     * fork of a repository creates the pool by moving the repository's objects into it.
+     */
+    public void forkRepository(String owner, String name, String forkOwner, String forkName) {
+        // Pushes to the parent wait while its objects are handed to the pool
+        try (RepositoryWriteFence.Permit fence = writeFence.fence(owner, name)) {
+            Path parentPath = getRepositoryPath(owner, name);
+            Optional<Path> existingPool = getObjectPool(parentPath);
+            Path pool;
+            if (existingPool.isPresent()) {
+                // Objects pushed since the last maintenance are only in the parent so far
+                pool = existingPool.get();
+                syncToPool(parentPath, pool, owner + "/" + name);
+            } else {
+                pool = createObjectPool(parentPath, owner + "/" + name);
+            }
+
+            Path forkPath = getRepositoryPath(forkOwner, forkName);
+            Files.createDirectories(forkPath.getParent());
+            Path staging = Files.createTempDirectory(forkPath.getParent(), "." + forkName + ".fork-");
+            try {
+                copyDirectory(getTemplatePath(), staging);
+                writeAlternates(staging, pool);
+                try (Repository parent = openBare(getGitDirectory(parentPath));
+                     Repository fork = openBare(staging)) {
+                    copyRefs(parent, fork);
+                }
+                Files.move(staging, forkPath, StandardCopyOption.ATOMIC_MOVE);
+                staging = null;
+            } finally {
+                if (staging != null) {
+                    deleteDirectory(staging.toFile());
+                }
+            }
+            log.info("Forked repository {}/{} to {}/{} sharing objects from {}", owner, name, forkOwner, forkName, pool);
+        } catch (IOException | GitAPIException e) {
+            throw new GitOperationException("Failed to fork repository: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the object pool a repository borrows objects from, if it is in a fork network.
+     */
+    public Optional<Path> getObjectPool(Path repoPath) {
+        Path alternates = getGitDirectory(repoPath).resolve("objects").resolve("info").resolve("alternates");
+        if (!Files.isRegularFile(alternates)) {
+            return Optional.empty();
+        }
+        try (Stream<String> lines = Files.lines(alternates)) {
+            return lines.map(String::trim)
+                    .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+                    .findFirst()
+                    .map(objects -> Path.of(objects).getParent().toAbsolutePath().normalize());
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to read alternates of " + repoPath + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the object pools of all fork networks on all storage roots.
+     */
+    public List<Path> getObjectPools() {
+        List<Path> pools = new ArrayList<>();
+        for (Path root : repositoryStorage.getRoots()) {
+            Path poolsPath = root.resolve(".pools");
+            if (!Files.isDirectory(poolsPath)) {
+                continue;
+            }
+            try (Stream<Path> paths = Files.list(poolsPath)) {
+                paths.filter(Files::isDirectory).map(path -> path.toAbsolutePath().normalize()).forEach(pools::add);
+            } catch (IOException e) {
+                log.warn("Failed to list object pools in {}: {}", poolsPath, e.getMessage());
+            }
+        }
+        return pools;
+    }
+
+    /**
+     * Get the object pools that deleted repositories waiting in the trash borrow from, so
+     * restoring them keeps working.
+     */
+    public Set<Path> getObjectPoolsUsedInTrash() {
+        Set<Path> pools = new HashSet<>();
+        for (Path trash : getTrashPaths()) {
+            if (!Files.isDirectory(trash)) {
+                continue;
+            }
+            try (Stream<Path> paths = Files.list(trash)) {
+                paths.forEach(path -> getObjectPool(path).ifPresent(pools::add));
+            } catch (IOException e) {
+                log.warn("Failed to list trash directory {}: {}", trash, e.getMessage());
+            }
+        }
+        return pools;
+    }
+
+    /**
+     * Run garbage collection on an object pool. Pools mirror the refs of every member and
+     * keep reflogs, so objects a member still uses are never unreachable here.
+     */
+    public void runPoolGarbageCollection(Path pool) {
+        try (Git git = Git.open(pool.toFile())) {
+            git.gc().call();
+            log.info("Ran garbage collection on object pool {}", pool);
+        } catch (IOException | GitAPIException e) {
+            throw new GitOperationException("Failed to run garbage collection on pool: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * When an object pool was created.
+     */
+    public long getObjectPoolCreatedAt(Path pool) {
+        try {
+            return Files.getLastModifiedTime(pool.resolve("config")).toMillis();
+        } catch (IOException e) {
+            return System.currentTimeMillis();
+        }
+    }
+
     /**
      * Get list of branches in a repository.
      */
@@ -145,9 +428,8 @@ public class JGitService {
      * Create a new branch.
      */
     public BranchInfo createBranch(String owner, String name, String branchName, String source) {
-        Path repoPath = getRepositoryPath(owner, name);
-        
-        try (Git git = Git.open(repoPath.toFile())) {
+        try (RepositoryWriteFence.Permit permit = writeFence.enter(owner, name);
+             Git git = Git.open(getRepositoryPath(owner, name).toFile())) {
             Repository repository = git.getRepository();
             
             // Resolve the source to a commit
@@ -164,6 +446,9 @@ public class JGitService {
                     .setStartPoint(sourceId.getName())
                     .call();
             
+            publishRefUpdate(owner, name, RefUpdateEvent.Source.API, 
+                    newBranch.getName(), null, newBranch.getObjectId());
+            
             try (RevWalk revWalk = new RevWalk(repository)) {
                 RevCommit commit = revWalk.parseCommit(newBranch.getObjectId());
                 
@@ -186,15 +471,20 @@ public class JGitService {
      * Delete a branch.
      */
     public void deleteBranch(String owner, String name, String branchName) {
-        Path repoPath = getRepositoryPath(owner, name);
-        
-        try (Git git = Git.open(repoPath.toFile())) {
+        try (RepositoryWriteFence.Permit permit = writeFence.enter(owner, name);
+             Git git = Git.open(getRepositoryPath(owner, name).toFile())) {
+            ObjectId oldId = git.getRepository().resolve(Constants.R_HEADS + branchName);
+            
             git.branchDelete()
                     .setBranchNames(branchName)
                     .setForce(true)
                     .call();
             
             log.info("Deleted branch '{}' from repository '{}/{}'", branchName, owner, name);
+            if (oldId != null) {
+                publishRefUpdate(owner, name, RefUpdateEvent.Source.API, 
+                        Constants.R_HEADS + branchName, oldId, null);
+            }
         } catch (IOException | GitAPIException e) {
             throw new GitOperationException("Failed to delete branch: " + e.getMessage(), e);
         }
@@ -428,33 +718,23 @@ public class JGitService {
      */
     public CommitInfo createOrUpdateFile(String owner, String name, FileUpdateRequest request, 
                                          String authorName, String authorEmail) {
-        Path repoPath = getRepositoryPath(owner, name);
         String branch = request.getBranch() != null ? request.getBranch() : defaultBranch;
         
-        try (Git git = Git.open(repoPath.toFile())) {
-            // Checkout the branch
-            git.checkout().setName(branch).call();
-            
-            // Write the file
-            Path filePath = repoPath.resolve(request.getPath());
-            Files.createDirectories(filePath.getParent());
-            
+        try (RepositoryWriteFence.Permit permit = writeFence.enter(owner, name);
+             Git git = Git.open(getRepositoryPath(owner, name).toFile())) {
+            ObjectId oldId = git.getRepository().resolve(Constants.R_HEADS + branch);
+
             byte[] content;
             if ("base64".equals(request.getEncoding())) {
                 content = Base64.getDecoder().decode(request.getContent());
             } else {
                 content = request.getContent().getBytes(StandardCharsets.UTF_8);
             }
-            Files.write(filePath, content);
-            
-            // Add and commit
-            git.add().addFilepattern(request.getPath()).call();
-            
-            RevCommit commit = git.commit()
-                    .setAuthor(authorName, authorEmail)
-                    .setCommitter(authorName, authorEmail)
-                    .setMessage(request.getMessage())
-                    .call();
+
+            PersonIdent author = new PersonIdent(authorName, authorEmail);
+            RevCommit commit = commitFile(git.getRepository(), name, branch, request.getPath(), content,
+                    author, request.getMessage());
+            publishRefUpdate(owner, name, RefUpdateEvent.Source.API, Constants.R_HEADS + branch, oldId, commit);
             
             List<String> parentIds = new ArrayList<>();
             for (RevCommit parent : commit.getParents()) {
@@ -474,7 +754,7 @@ public class JGitService {
                     .parentIds(parentIds)
                     .build();
                     
-        } catch (IOException | GitAPIException e) {
+        } catch (IOException e) {
             throw new GitOperationException("Failed to create/update file: " + e.getMessage(), e);
         }
     }
@@ -484,27 +764,13 @@ public class JGitService {
      */
     public CommitInfo deleteFile(String owner, String name, String path, String branch, 
                                  String message, String authorName, String authorEmail) {
-        Path repoPath = getRepositoryPath(owner, name);
-        
-        try (Git git = Git.open(repoPath.toFile())) {
-            // Checkout the branch
-            git.checkout().setName(branch).call();
-            
-            // Delete the file
-            Path filePath = repoPath.resolve(path);
-            if (!Files.exists(filePath)) {
-                throw new FileNotFoundException(name, path);
-            }
-            Files.delete(filePath);
-            
-            // Add deletion and commit
-            git.rm().addFilepattern(path).call();
-            
-            RevCommit commit = git.commit()
-                    .setAuthor(authorName, authorEmail)
-                    .setCommitter(authorName, authorEmail)
-                    .setMessage(message)
-                    .call();
+        try (RepositoryWriteFence.Permit permit = writeFence.enter(owner, name);
+             Git git = Git.open(getRepositoryPath(owner, name).toFile())) {
+            ObjectId oldId = git.getRepository().resolve(Constants.R_HEADS + branch);
+
+            PersonIdent author = new PersonIdent(authorName, authorEmail);
+            RevCommit commit = commitFile(git.getRepository(), name, branch, path, null, author, message);
+            publishRefUpdate(owner, name, RefUpdateEvent.Source.API, Constants.R_HEADS + branch, oldId, commit);
             
             List<String> parentIds = new ArrayList<>();
             for (RevCommit parent : commit.getParents()) {
@@ -524,24 +790,334 @@ public class JGitService {
                     .parentIds(parentIds)
                     .build();
                     
-        } catch (IOException | GitAPIException e) {
+        } catch (IOException e) {
             throw new GitOperationException("Failed to delete file: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Resolve the commit a branch points to, or null if the branch does not exist.
+     */
+    public String resolveBranchHead(String owner, String name, String branch) {
+        Path repoPath = getRepositoryPath(owner, name);
+        
+        try (Git git = Git.open(repoPath.toFile())) {
+            ObjectId objectId = git.getRepository().resolve(Constants.R_HEADS + branch);
+            return objectId != null ? objectId.getName() : null;
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to resolve branch: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Count the branches of a repository without parsing their tip commits.
+     */
+    public int countBranches(String owner, String name) {
+        Path repoPath = getRepositoryPath(owner, name);
+        
+        try (Git git = Git.open(repoPath.toFile())) {
+            return git.getRepository().getRefDatabase().getRefsByPrefix(Constants.R_HEADS).size();
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to count branches: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Check whether a commit is reachable from (or equal to) another commit.
+     * Returns false if the ancestor no longer exists.
+     */
+    public boolean isAncestor(String owner, String name, String ancestorId, String commitId) {
+        Path repoPath = getRepositoryPath(owner, name);
+        
+        try (Git git = Git.open(repoPath.toFile());
+             RevWalk revWalk = new RevWalk(git.getRepository())) {
+            Repository repository = git.getRepository();
+            ObjectId ancestor = ObjectId.fromString(ancestorId);
+            if (!repository.getObjectDatabase().has(ancestor)) {
+                return false;
+            }
+            return revWalk.isMergedInto(revWalk.parseCommit(ancestor), 
+                    revWalk.parseCommit(ObjectId.fromString(commitId)));
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to check ancestry: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Check whether each of the given commits is reachable from (or equal to) at least one
+     * of the tip commits. Returns false if any of them no longer exists.
+     */
+    public boolean allReachable(String owner, String name, Collection<String> commitIds, 
+                                Collection<String> tipIds) {
+        Path repoPath = getRepositoryPath(owner, name);
+        
+        try (Git git = Git.open(repoPath.toFile());
+             RevWalk revWalk = new RevWalk(git.getRepository())) {
+            Repository repository = git.getRepository();
+            List<RevCommit> tips = new ArrayList<>();
+            for (String tipId : tipIds) {
+                tips.add(revWalk.parseCommit(ObjectId.fromString(tipId)));
+            }
+            for (String commitId : commitIds) {
+                if (tipIds.contains(commitId)) {
+                    continue;
+                }
+                ObjectId id = ObjectId.fromString(commitId);
+                if (!repository.getObjectDatabase().has(id)) {
+                    return false;
+                }
+                RevCommit commit = revWalk.parseCommit(id);
+                boolean reachable = false;
+                for (RevCommit tip : tips) {
+                    if (revWalk.isMergedInto(commit, tip)) {
+                        reachable = true;
+                        break;
+                    }
+                }
+                if (!reachable) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to check ancestry: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Visit every commit reachable from {@code startId} but not from {@code excludeId}.
+     * Passing a null {@code excludeId} visits the full history. Commits are streamed
+     * to the visitor so arbitrarily long histories can be processed.
+     */
+    public void walkCommits(String owner, String name, String startId, String excludeId, 
+                            Consumer<CommitInfo> visitor) {
+        Path repoPath = getRepositoryPath(owner, name);
+        
+        try (Git git = Git.open(repoPath.toFile());
+             RevWalk revWalk = new RevWalk(git.getRepository())) {
+            revWalk.markStart(revWalk.parseCommit(ObjectId.fromString(startId)));
+            if (excludeId != null) {
+                revWalk.markUninteresting(revWalk.parseCommit(ObjectId.fromString(excludeId)));
+            }
+            
+            for (RevCommit commit : revWalk) {
+                visitor.accept(toCommitInfo(commit));
+                commit.disposeBody();
+            }
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to walk commits: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Walk the commits reachable from any of the start commits but from none of the
+     * excluded ones. Excluded commits that no longer exist are ignored.
+     */
+    public void walkCommits(String owner, String name, Collection<String> startIds, 
+                            Collection<String> excludeIds, Consumer<CommitInfo> visitor) {
+        Path repoPath = getRepositoryPath(owner, name);
+        
+        try (Git git = Git.open(repoPath.toFile());
+             RevWalk revWalk = new RevWalk(git.getRepository())) {
+            for (String startId : startIds) {
+                revWalk.markStart(revWalk.parseCommit(ObjectId.fromString(startId)));
+            }
+            for (String excludeId : excludeIds) {
+                try {
+                    revWalk.markUninteresting(revWalk.parseCommit(ObjectId.fromString(excludeId)));
+                } catch (MissingObjectException e) {
+                    log.debug("Ignoring missing commit {} in {}/{}", excludeId, owner, name);
+                }
+            }
+            
+            for (RevCommit commit : revWalk) {
+                visitor.accept(toCommitInfo(commit));
+                commit.disposeBody();
+            }
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to walk commits: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the distinct commit ids at the heads of all branches.
+     */
+    public List<String> getBranchHeads(String owner, String name) {
+        Path repoPath = getRepositoryPath(owner, name);
+        
+        try (Git git = Git.open(repoPath.toFile())) {
+            return git.getRepository().getRefDatabase().getRefsByPrefix(Constants.R_HEADS).stream()
+                    .map(Ref::getObjectId)
+                    .filter(Objects::nonNull)
+                    .map(ObjectId::getName)
+                    .distinct()
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to list branch heads: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Compute added and deleted line counts of each commit against its first parent.
+     * Merge commits count as no lines: their changes are those of the merged commits,
+     * which are counted themselves. Commits are diffed in parallel on a dedicated pool of {@code parallelism} threads,
+     * each with its own reader and diff formatter.
+     */
+    public List<CommitDiffStats> getCommitDiffStats(String owner, String name, List<String> commitIds, 
+                                                    int parallelism) {
+        Path repoPath = getRepositoryPath(owner, name);
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        
+        try (Git git = Git.open(repoPath.toFile())) {
+            Repository repository = git.getRepository();
+            return pool.submit(() -> commitIds.parallelStream()
+                    .map(commitId -> diffStats(repository, commitId))
+                    .toList()).get();
+        } catch (IOException | ExecutionException e) {
+            throw new GitOperationException("Failed to compute diff stats: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GitOperationException("Interrupted while computing diff stats", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Get the recursive file count, size and extension breakdown of the tree of a
+     * revision. Subtrees already present in the cache are not read again, so after
+     * a new commit only the trees along the changed paths are visited.
+     */
+    public TreeStats getTreeStats(String owner, String name, String revision, TreeStatsCache cache) {
+        Path repoPath = getRepositoryPath(owner, name);
+        
+        try (Git git = Git.open(repoPath.toFile());
+             RevWalk revWalk = new RevWalk(git.getRepository());
+             ObjectReader reader = git.getRepository().newObjectReader()) {
+            RevTree tree = parseRevisionTree(git.getRepository(), revWalk, name, revision);
+            return computeTreeStats(reader, tree, cache);
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to get tree statistics: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Resolve a branch, tag or commit to the id of its root tree.
+     */
+    public String resolveTreeId(String owner, String name, String revision) {
+        Path repoPath = getRepositoryPath(owner, name);
+        
+        try (Git git = Git.open(repoPath.toFile());
+             RevWalk revWalk = new RevWalk(git.getRepository())) {
+            return parseRevisionTree(git.getRepository(), revWalk, name, revision).getName();
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to resolve tree: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Visit the file paths added to or removed from one tree relative to another
+     * (true for added). With no old tree every path of the new tree is added.
+     * Modified files keep their path and are not visited.
+     */
+    public void diffTreePaths(String owner, String name, String oldTreeId, String newTreeId, 
+                              BiConsumer<String, Boolean> visitor) {
+        Path repoPath = getRepositoryPath(owner, name);
+        
+        try (Git git = Git.open(repoPath.toFile());
+             ObjectReader reader = git.getRepository().newObjectReader();
+             TreeWalk treeWalk = new TreeWalk(reader)) {
+            treeWalk.addTree(oldTreeId != null 
+                    ? new CanonicalTreeParser(null, reader, ObjectId.fromString(oldTreeId)) 
+                    : new EmptyTreeIterator());
+            treeWalk.addTree(new CanonicalTreeParser(null, reader, ObjectId.fromString(newTreeId)));
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(TreeFilter.ANY_DIFF);
+            
+            while (treeWalk.next()) {
+                boolean inOld = treeWalk.getRawMode(0) != 0;
+                boolean inNew = treeWalk.getRawMode(1) != 0;
+                if (inOld != inNew) {
+                    visitor.accept(treeWalk.getPathString(), inNew);
+                }
+            }
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to diff trees: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Visit the files that differ between two commits. With no old commit every file
+     * of the new commit is visited; with no new commit every file of the old commit is
+     * visited as deleted.
+     */
+    public void walkChangedBlobs(String owner, String name, String oldCommitId, String newCommitId, 
+                                 long maxBlobSize, BlobVisitor visitor) {
+        Path repoPath = getRepositoryPath(owner, name);
+        
+        try (Git git = Git.open(repoPath.toFile());
+             RevWalk revWalk = new RevWalk(git.getRepository());
+             ObjectReader reader = git.getRepository().newObjectReader();
+             TreeWalk treeWalk = new TreeWalk(reader)) {
+            treeWalk.addTree(treeIterator(reader, revWalk, oldCommitId));
+            treeWalk.addTree(treeIterator(reader, revWalk, newCommitId));
+            treeWalk.setRecursive(true);
+            treeWalk.setFilter(TreeFilter.ANY_DIFF);
+            
+            while (treeWalk.next()) {
+                ObjectId blobId = treeWalk.getObjectId(1);
+                boolean isFile = (treeWalk.getRawMode(1) & FileMode.TYPE_MASK) == FileMode.TYPE_FILE;
+                byte[] content = null;
+                if (isFile && !blobId.equals(ObjectId.zeroId())
+                        && reader.getObjectSize(blobId, Constants.OBJ_BLOB) <= maxBlobSize) {
+                    content = reader.open(blobId, Constants.OBJ_BLOB).getCachedBytes();
+                }
+                if (!visitor.visit(treeWalk.getPathString(), blobId.getName(), content)) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to walk changed files: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read blobs by id, in the order given (path to blob id).
+     */
+    public void readBlobs(String owner, String name, Map<String, String> blobIdsByPath, 
+                          long maxBlobSize, BlobVisitor visitor) {
+        Path repoPath = getRepositoryPath(owner, name);
+        
+        try (Git git = Git.open(repoPath.toFile());
+             ObjectReader reader = git.getRepository().newObjectReader()) {
+            for (Map.Entry<String, String> entry : blobIdsByPath.entrySet()) {
+                ObjectId blobId = ObjectId.fromString(entry.getValue());
+                byte[] content = null;
+                if (reader.has(blobId) && reader.getObjectSize(blobId, Constants.OBJ_BLOB) <= maxBlobSize) {
+                    content = reader.open(blobId, Constants.OBJ_BLOB).getCachedBytes();
+                }
+                if (!visitor.visit(entry.getKey(), entry.getValue(), content)) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to read blobs: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Check if repository exists on disk.
      */
     public boolean repositoryExistsOnDisk(String owner, String name) {
-        Path repoPath = getRepositoryPath(owner, name);
-        return Files.exists(repoPath.resolve(".git")) || Files.exists(repoPath.resolve("HEAD"));
+        return Files.exists(getGitDirectory(getRepositoryPath(owner, name)).resolve("HEAD"));
     }
 
     /**
-     * Get the repository path on disk.
+     * Get the repository path on disk, on the storage root it was placed on.
      */
     public Path getRepositoryPath(String owner, String name) {
-        return Path.of(repositoriesBasePath, owner, name);
+        return repositoryStorage.locate(owner, name);
     }
 
     /**
@@ -551,6 +1127,138 @@ public class JGitService {
         return getRepositoryPath(owner, name).toString();
     }
 
+    private RevTree parseRevisionTree(Repository repository, RevWalk revWalk, String name, String revision) 
+            throws IOException {
+        ObjectId revisionId = repository.resolve(Constants.R_HEADS + revision);
+        if (revisionId == null) {
+            revisionId = repository.resolve(revision);
+        }
+        if (revisionId == null) {
+            throw new BranchNotFoundException(name, revision);
+        }
+        return revWalk.parseTree(revisionId);
+    }
+
+    private AbstractTreeIterator treeIterator(ObjectReader reader, RevWalk revWalk, String commitId) 
+            throws IOException {
+        if (commitId == null) {
+            return new EmptyTreeIterator();
+        }
+        return new CanonicalTreeParser(null, reader, revWalk.parseCommit(ObjectId.fromString(commitId)).getTree());
+    }
+
+    private TreeStats computeTreeStats(ObjectReader reader, AnyObjectId treeId, TreeStatsCache cache) 
+            throws IOException {
+        TreeStats cached = cache.get(treeId.getName());
+        if (cached != null) {
+            return cached;
+        }
+        
+        long fileCount = 0;
+        long totalSize = 0;
+        Map<String, Long> extensionCounts = new TreeMap<>();
+        
+        CanonicalTreeParser parser = new CanonicalTreeParser(null, reader, treeId);
+        while (!parser.eof()) {
+            FileMode mode = parser.getEntryFileMode();
+            ObjectId entryId = parser.getEntryObjectId();
+            
+            if (mode == FileMode.TREE) {
+                TreeStats subtree = computeTreeStats(reader, entryId, cache);
+                fileCount += subtree.getFileCount();
+                totalSize += subtree.getTotalSize();
+                subtree.getExtensionCounts().forEach((ext, count) -> extensionCounts.merge(ext, count, Long::sum));
+            } else if (mode != FileMode.GITLINK) {
+                fileCount++;
+                totalSize += reader.getObjectSize(entryId, Constants.OBJ_BLOB);
+                String fileName = parser.getEntryPathString();
+                int dot = fileName.lastIndexOf('.');
+                if (dot > 0 && dot < fileName.length() - 1) {
+                    extensionCounts.merge(fileName.substring(dot + 1).toLowerCase(Locale.ROOT), 1L, Long::sum);
+                }
+            }
+            parser.next();
+        }
+        
+        TreeStats stats = TreeStats.builder()
+                .treeId(treeId.getName())
+                .fileCount(fileCount)
+                .totalSize(totalSize)
+                .extensionCounts(extensionCounts)
+                .build();
+        cache.put(treeId.getName(), stats);
+        return stats;
+    }
+
+    private CommitDiffStats diffStats(Repository repository, String commitId) {
+        try (RevWalk revWalk = new RevWalk(repository);
+             DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+            formatter.setRepository(repository);
+            formatter.setDiffComparator(RawTextComparator.DEFAULT);
+            formatter.setDetectRenames(true);
+            
+            RevCommit commit = revWalk.parseCommit(ObjectId.fromString(commitId));
+            if (commit.getParentCount() > 1) {
+                return CommitDiffStats.builder()
+                        .commitId(commitId)
+                        .additions(0)
+                        .deletions(0)
+                        .build();
+            }
+            AbstractTreeIterator oldTree = new EmptyTreeIterator();
+            if (commit.getParentCount() > 0) {
+                RevCommit parent = revWalk.parseCommit(commit.getParent(0));
+                oldTree = new CanonicalTreeParser(null, revWalk.getObjectReader(), parent.getTree());
+            }
+            AbstractTreeIterator newTree = new CanonicalTreeParser(null, revWalk.getObjectReader(), commit.getTree());
+            
+            int additions = 0;
+            int deletions = 0;
+            for (DiffEntry entry : formatter.scan(oldTree, newTree)) {
+                for (Edit edit : formatter.toFileHeader(entry).toEditList()) {
+                    additions += edit.getLengthB();
+                    deletions += edit.getLengthA();
+                }
+            }
+            
+            return CommitDiffStats.builder()
+                    .commitId(commitId)
+                    .additions(additions)
+                    .deletions(deletions)
+                    .build();
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to diff commit " + commitId + ": " + e.getMessage(), e);
+        }
+    }
+
+    private CommitInfo toCommitInfo(RevCommit commit) {
+        List<String> parentIds = new ArrayList<>();
+        for (RevCommit parent : commit.getParents()) {
+            parentIds.add(parent.getName());
+        }
+        
+        return CommitInfo.builder()
+                .id(commit.getName())
+                .shortId(commit.abbreviate(7).name())
+                .message(commit.getFullMessage())
+                .author(commit.getAuthorIdent().getName())
+                .authorEmail(commit.getAuthorIdent().getEmailAddress())
+                .authorTime(commit.getAuthorIdent().getWhen().getTime())
+                .committer(commit.getCommitterIdent().getName())
+                .committerEmail(commit.getCommitterIdent().getEmailAddress())
+                .commitTime(commit.getCommitTime() * 1000L)
+                .parentIds(parentIds)
+                .build();
+    }
+
+    private void publishRefUpdate(String owner, String name, RefUpdateEvent.Source source, 
+                                  String refName, AnyObjectId oldId, AnyObjectId newId) {
+        RefChange change = new RefChange(refName, 
+                oldId != null ? oldId.getName() : null, 
+                newId != null ? newId.getName() : null);
+        eventPublisher.publishEvent(new RefUpdateEvent(owner, name, source, List.of(change)));
+    }
+
     private String extractBranchName(String refName) {
         if (refName.startsWith("refs/heads/")) {
             return refName.substring("refs/heads/".length());
@@ -579,6 +1287,307 @@ public class JGitService {
         }
     }
 
+    /**
+     * Skeleton every new repository is copied from: an empty bare repository whose HEAD
+     * points to the default branch. Built once per default branch name; it is built under
+     * a temporary name and renamed so a concurrent creation never sees it half-written.
+     */
+    private Path getTemplatePath() throws IOException, GitAPIException {
+        Path template = Path.of(repositoriesBasePath, ".templates", defaultBranch);
+        if (Files.exists(template)) {
+            return template;
+        }
+
+        Files.createDirectories(template.getParent());
+        Path staging = Files.createTempDirectory(template.getParent(), ".building-");
+        try {
+            Git.init().setBare(true).setDirectory(staging.toFile()).setInitialBranch(defaultBranch).call().close();
+            Files.move(staging, template, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Created repository template at: {}", template);
+        } catch (IOException e) {
+            if (!Files.exists(template)) {
+                throw e;
+            }
+            // Another thread built it first
+        } finally {
+            if (Files.exists(staging)) {
+                deleteDirectory(staging.toFile());
+            }
+        }
+        return template;
+    }
+
+    private static void copyDirectory(Path source, Path target) throws IOException {
+        try (Stream<Path> paths = Files.walk(source)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Path copy = target.resolve(source.relativize(path).toString());
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(copy);
+                } else {
+                    Files.copy(path, copy);
+                }
+            }
+        }
+    }
+
+    private Path moveToTrash(Path repoPath, String entryName) {
+        Path trashPath = RepositoryStorage.rootOf(repoPath).resolve(".trash").resolve(entryName);
+        try {
+            Files.createDirectories(trashPath.getParent());
+            closeCachedRepository(repoPath);
+            Files.move(repoPath, trashPath, StandardCopyOption.ATOMIC_MOVE);
+            return trashPath;
+        } catch (IOException e) {
+            throw new GitOperationException("Failed to move repository to trash: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Make target a copy of source, copying only files that are missing or differ in
+     * size or modification time and deleting files that source no longer has. Objects
+     * and packs never change once written, so a second pass copies little.
+     */
+    private static void syncDirectory(Path source, Path target) throws IOException {
+        try (Stream<Path> paths = Files.walk(source)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Path copy = target.resolve(source.relativize(path).toString());
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(copy);
+                } else if (!Files.exists(copy) || Files.size(copy) != Files.size(path)
+                        || !Files.getLastModifiedTime(copy).equals(Files.getLastModifiedTime(path))) {
+                    Files.copy(path, copy, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+            }
+        }
+        List<Path> removed;
+        try (Stream<Path> paths = Files.walk(target)) {
+            removed = paths.filter(path -> !Files.exists(source.resolve(target.relativize(path).toString())))
+                    .sorted(Comparator.reverseOrder())
+                    .toList();
+        }
+        for (Path path : removed) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Create the object pool of a new fork network from the repository being forked: its
+     * objects are moved into the pool with renames, and the pool gets copies of its refs.
+     */
+    private Path createObjectPool(Path repoPath, String memberKey) throws IOException, GitAPIException {
+        Path pool = RepositoryStorage.rootOf(repoPath).resolve(".pools").resolve(UUID.randomUUID() + ".git")
+                .toAbsolutePath().normalize();
+        Files.createDirectories(pool.getParent());
+        Git.init().setBare(true).setDirectory(pool.toFile()).call().close();
+        try (Repository repository = openBare(pool)) {
+            // Reflogs keep what rewritten member refs pointed to reachable for gc
+            StoredConfig config = repository.getConfig();
+            config.setBoolean(ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_KEY_LOGALLREFUPDATES, true);
+            config.save();
+        }
+
+        // Borrow from the pool before moving, so every object stays visible throughout
+        Path gitDir = getGitDirectory(repoPath);
+        writeAlternates(gitDir, pool);
+        closeCachedRepository(repoPath);
+        moveObjects(gitDir.resolve("objects"), pool.resolve("objects"));
+        syncToPool(repoPath, pool, memberKey);
+        log.info("Created object pool {} from {}", pool, repoPath);
+        return pool;
+    }
+
+    /**
+     * Copy the refs of a pool member, and any objects it has that the pool lacks, into the
+     * pool under refs/members/{owner}/{name}/. Refs deleted in the member are
+     * kept, so nothing a fork may still build on becomes unreachable in the pool.
+     */
+    private void syncToPool(Path memberPath, Path pool, String memberKey) throws GitAPIException, IOException {
+        try (Git git = Git.open(pool.toFile())) {
+            git.fetch()
+                    .setRemote(getGitDirectory(memberPath).toAbsolutePath().normalize().toUri().toString())
+                    .setRefSpecs(new RefSpec("+" + Constants.R_REFS + "*:" + POOL_MEMBER_REFS + memberKey + "/*"))
+                    .setTagOpt(TagOpt.NO_TAGS)
+                    .setRemoveDeletedRefs(false)
+                    .call();
+        }
+    }
+
+    /**
+     * Hand the objects of a pool member to the pool and drop the member's own copies.
+     */
+    private void compactIntoPool(String owner, String name, Path pool) {
+        try (RepositoryWriteFence.Permit fence = writeFence.fence(owner, name)) {
+            Path repoPath = getRepositoryPath(owner, name);
+            syncToPool(repoPath, pool, owner + "/" + name);
+
+            // Everything reachable is in the pool now
+            closeCachedRepository(repoPath);
+            Path objects = getGitDirectory(repoPath).resolve("objects");
+            try (Stream<Path> entries = Files.list(objects)) {
+                for (Path entry : entries.toList()) {
+                    String fileName = entry.getFileName().toString();
+                    if (LOOSE_OBJECT_DIRECTORY.matcher(fileName).matches()) {
+                        deleteDirectory(entry.toFile());
+                    }
+                }
+            }
+            Path packs = objects.resolve("pack");
+            if (Files.isDirectory(packs)) {
+                try (Stream<Path> files = Files.list(packs)) {
+                    for (Path file : files.toList()) {
+                        Files.delete(file);
+                    }
+                }
+            }
+            log.info("Moved objects of {}/{} into object pool {}", owner, name, pool);
+        } catch (IOException | GitAPIException e) {
+            throw new GitOperationException("Failed to compact repository into its pool: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Move loose objects and packs from one object directory into an empty one. Pack data
+     * files go last, so a pack is never visible without its index.
+     */
+    private static void moveObjects(Path from, Path to) throws IOException {
+        try (Stream<Path> entries = Files.list(from)) {
+            for (Path entry : entries.toList()) {
+                if (LOOSE_OBJECT_DIRECTORY.matcher(entry.getFileName().toString()).matches()) {
+                    Files.move(entry, to.resolve(entry.getFileName().toString()), StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+        }
+        Path packs = from.resolve("pack");
+        if (Files.isDirectory(packs)) {
+            Files.createDirectories(to.resolve("pack"));
+            List<Path> files;
+            try (Stream<Path> paths = Files.list(packs)) {
+                files = paths.sorted(Comparator.comparing((Path path) -> path.toString().endsWith(".pack"))).toList();
+            }
+            for (Path file : files) {
+                Files.move(file, to.resolve("pack").resolve(file.getFileName().toString()), StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+    }
+
+    private static void writeAlternates(Path gitDir, Path pool) throws IOException {
+        Path info = gitDir.resolve("objects").resolve("info");
+        Files.createDirectories(info);
+        Files.writeString(info.resolve("alternates"), pool.resolve("objects").toAbsolutePath().normalize() + "\n");
+    }
+
+    /**
+     * Copy all refs and the HEAD branch of one repository into another whose object
+     * database already has the objects.
+     */
+    private static void copyRefs(Repository source, Repository target) throws IOException {
+        BatchRefUpdate batch = target.getRefDatabase().newBatchUpdate();
+        for (Ref ref : source.getRefDatabase().getRefsByPrefix(Constants.R_REFS)) {
+            if (!ref.isSymbolic() && ref.getObjectId() != null) {
+                batch.addCommand(new ReceiveCommand(ObjectId.zeroId(), ref.getObjectId(), ref.getName()));
+            }
+        }
+        try (RevWalk revWalk = new RevWalk(target)) {
+            batch.execute(revWalk, NullProgressMonitor.INSTANCE);
+        }
+        for (ReceiveCommand command : batch.getCommands()) {
+            if (command.getResult() != ReceiveCommand.Result.OK) {
+                throw new IOException("Failed to copy " + command.getRefName() + ": " + command.getResult());
+            }
+        }
+
+        Ref head = source.exactRef(Constants.HEAD);
+        if (head != null && head.isSymbolic()) {
+            target.updateRef(Constants.HEAD).link(head.getTarget().getName());
+        }
+    }
+
+    private static Repository openBare(Path gitDir) throws IOException {
+        return new FileRepositoryBuilder().setGitDir(gitDir.toFile()).setBare().build();
+    }
+
+    /**
+     * Drop repositories the git HTTP endpoint keeps open for a directory that is moved.
+     */
+    private static void closeCachedRepository(Path repoPath) {
+        RepositoryCache.unregister(RepositoryCache.FileKey.exact(repoPath.toFile(), FS.DETECTED));
+        RepositoryCache.unregister(RepositoryCache.FileKey.exact(repoPath.resolve(".git").toFile(), FS.DETECTED));
+    }
+
+    /**
+     * Commit a change of one file to a branch without a working tree: the branch's tree
+     * is edited in an in-core index and written straight to the object database, then
+     * the branch is moved. A null content deletes the file. An unborn branch of an empty
+     * repository gets a root commit.
+     */
+    private RevCommit commitFile(Repository repository, String name, String branch, String path,
+                                 byte[] content, PersonIdent author, String message) throws IOException {
+        String filePath = path.startsWith("/") ? path.substring(1) : path;
+        ObjectId parentId = repository.resolve(Constants.R_HEADS + branch);
+        if (parentId == null && !repository.getRefDatabase().getRefsByPrefix(Constants.R_HEADS).isEmpty()) {
+            throw new BranchNotFoundException(name, branch);
+        }
+
+        try (ObjectInserter inserter = repository.newObjectInserter();
+             RevWalk revWalk = new RevWalk(inserter.newReader())) {
+            DirCache index = parentId != null
+                    ? DirCache.read(revWalk.getObjectReader(), revWalk.parseCommit(parentId).getTree())
+                    : DirCache.newInCore();
+            DirCacheEditor editor = index.editor();
+            if (content == null) {
+                if (index.getEntry(filePath) == null) {
+                    throw new FileNotFoundException(name, path);
+                }
+                editor.add(new DirCacheEditor.DeletePath(filePath));
+            } else {
+                ObjectId blobId = inserter.insert(Constants.OBJ_BLOB, content);
+                editor.add(new DirCacheEditor.PathEdit(filePath) {
+                    @Override
+                    public void apply(DirCacheEntry entry) {
+                        // Keep the executable bit of an existing file
+                        if (entry.getFileMode() != FileMode.EXECUTABLE_FILE) {
+                            entry.setFileMode(FileMode.REGULAR_FILE);
+                        }
+                        entry.setObjectId(blobId);
+                    }
+                });
+            }
+            editor.finish();
+
+            CommitBuilder commit = new CommitBuilder();
+            commit.setTreeId(index.writeTree(inserter));
+            if (parentId != null) {
+                commit.setParentId(parentId);
+            }
+            commit.setAuthor(author);
+            commit.setCommitter(author);
+            commit.setMessage(message);
+            ObjectId commitId = inserter.insert(commit);
+            inserter.flush();
+
+            updateBranch(repository, branch, parentId, commitId, "commit: " + message.lines().findFirst().orElse(""));
+            return revWalk.parseCommit(commitId);
+        } catch (InvalidPathException e) {
+            throw new GitOperationException("Invalid file path: " + path, e);
+        }
+    }
+
+    /**
+     * Move a branch from the commit it was read at, failing if it moved meanwhile so
+     * concurrent commits are not overwritten.
+     */
+    private void updateBranch(Repository repository, String branch, ObjectId oldId, ObjectId newId,
+                              String reflogMessage) throws IOException {
+        RefUpdate update = repository.updateRef(Constants.R_HEADS + branch);
+        update.setExpectedOldObjectId(oldId != null ? oldId : ObjectId.zeroId());
+        update.setNewObjectId(newId);
+        update.setRefLogMessage(reflogMessage, false);
+        RefUpdate.Result result = update.update();
+        if (result != RefUpdate.Result.NEW && result != RefUpdate.Result.FAST_FORWARD) {
+            throw new GitOperationException("Failed to update branch " + branch + ": " + result);
+        }
+    }
+
     private boolean isTextContent(byte[] bytes) {
         if (bytes.length == 0) {
             return true;
@@ -621,28 +1630,65 @@ public class JGitService {
 
     /**
      * Merge a source branch into a target branch.
+     *
+     * @return the id of the merge commit, or {@code null} if the target was fast-forwarded
+     *         and no new objects were written
      */
-    public void mergeBranch(String owner, String name, String sourceBranch, String targetBranch, String mergedBy) {
-        Path repoPath = getRepositoryPath(owner, name);
-        
-        try (Git git = Git.open(repoPath.toFile())) {
-            // Checkout target branch
-            git.checkout().setName(targetBranch).call();
-            
-            // Merge source branch
-            MergeResult result = git.merge()
-                    .include(git.getRepository().resolve("refs/heads/" + sourceBranch))
-                    .setMessage("Merge branch '" + sourceBranch + "' into " + targetBranch)
-                    .setCommit(true)
-                    .call();
-            
-            if (!result.getMergeStatus().isSuccessful()) {
-                throw new GitOperationException("Merge failed: " + result.getMergeStatus());
+    public String mergeBranch(String owner, String name, String sourceBranch, String targetBranch, String mergedBy) {
+        try (RepositoryWriteFence.Permit permit = writeFence.enter(owner, name);
+             Git git = Git.open(getRepositoryPath(owner, name).toFile());
+             RevWalk revWalk = new RevWalk(git.getRepository())) {
+            Repository repository = git.getRepository();
+            ObjectId oldId = repository.resolve(Constants.R_HEADS + targetBranch);
+            ObjectId sourceId = repository.resolve(Constants.R_HEADS + sourceBranch);
+            if (oldId == null) {
+                throw new BranchNotFoundException(name, targetBranch);
             }
-            
+            if (sourceId == null) {
+                throw new BranchNotFoundException(name, sourceBranch);
+            }
+
+            RevCommit target = revWalk.parseCommit(oldId);
+            RevCommit source = revWalk.parseCommit(sourceId);
+            if (revWalk.isMergedInto(source, target)) {
+                return null;
+            }
+            revWalk.reset();
+            if (revWalk.isMergedInto(target, source)) {
+                updateBranch(repository, targetBranch, oldId, sourceId, "merge " + sourceBranch + ": Fast-forward");
+                log.info("Fast-forwarded '{}' to '{}' in repository '{}/{}'",
+                        targetBranch, sourceBranch, owner, name);
+                publishRefUpdate(owner, name, RefUpdateEvent.Source.API,
+                        Constants.R_HEADS + targetBranch, oldId, sourceId);
+                return null;
+            }
+
+            // Merge in memory; a bare repository has no working tree to merge in
+            ThreeWayMerger merger = MergeStrategy.RECURSIVE.newMerger(repository, true);
+            if (!merger.merge(target, source)) {
+                throw new GitOperationException("Merge failed: " + MergeResult.MergeStatus.CONFLICTING);
+            }
+
+            PersonIdent committer = new PersonIdent(mergedBy, mergedBy + "@gitserver.local");
+            CommitBuilder commit = new CommitBuilder();
+            commit.setTreeId(merger.getResultTreeId());
+            commit.setParentIds(target, source);
+            commit.setAuthor(committer);
+            commit.setCommitter(committer);
+            commit.setMessage("Merge branch '" + sourceBranch + "' into " + targetBranch);
+            ObjectId mergeId;
+            try (ObjectInserter inserter = repository.newObjectInserter()) {
+                mergeId = inserter.insert(commit);
+                inserter.flush();
+            }
+            updateBranch(repository, targetBranch, oldId, mergeId, "merge " + sourceBranch + ": Merge made by recursive.");
+
             log.info("Merged branch '{}' into '{}' in repository '{}/{}'", 
                     sourceBranch, targetBranch, owner, name);
-        } catch (IOException | GitAPIException e) {
+            publishRefUpdate(owner, name, RefUpdateEvent.Source.API,
+                    Constants.R_HEADS + targetBranch, oldId, mergeId);
+            return mergeId.getName();
+        } catch (IOException e) {
             throw new GitOperationException("Failed to merge branches: " + e.getMessage(), e);
         }
     }
@@ -686,13 +1732,18 @@ public class JGitService {
     }
 
     /**
-     * Get the repository size in bytes.
+     * Get the repository size in bytes by scanning the object database.
+     * The working tree is not counted. This is a full scan; callers on hot paths
+     * should use the incrementally maintained value instead.
      */
     public long getRepositorySize(String owner, String name) {
-        Path repoPath = getRepositoryPath(owner, name);
-        
-        try {
-            return Files.walk(repoPath)
+        Path objectsPath = getGitDirectory(getRepositoryPath(owner, name)).resolve("objects");
+        if (!Files.exists(objectsPath)) {
+            return 0L;
+        }
+
+        try (Stream<Path> paths = Files.walk(objectsPath)) {
+            return paths
                     .filter(Files::isRegularFile)
                     .mapToLong(p -> {
                         try {
@@ -708,6 +1759,96 @@ public class JGitService {
         }
     }
 
+    /**
+     * Get the on-disk size of the loose objects introduced by a commit: the commit itself
+     * plus every tree and blob that differs from all of its parents. Objects already
+     * packed or shared with a parent are not counted.
+     */
+    public long getLooseObjectsSize(String owner, String name, String commitId) {
+        Path repoPath = getRepositoryPath(owner, name);
+
+        try (Git git = Git.open(repoPath.toFile())) {
+            Repository repository = git.getRepository();
+            Path objectsPath = repository.getDirectory().toPath().resolve("objects");
+
+            try (RevWalk revWalk = new RevWalk(repository);
+                 TreeWalk treeWalk = new TreeWalk(repository)) {
+                RevCommit commit = revWalk.parseCommit(ObjectId.fromString(commitId));
+                long size = looseObjectSize(objectsPath, commit);
+                size += looseObjectSize(objectsPath, commit.getTree());
+
+                treeWalk.addTree(commit.getTree());
+                for (RevCommit parent : commit.getParents()) {
+                    treeWalk.addTree(revWalk.parseCommit(parent).getTree());
+                }
+                treeWalk.setRecursive(false);
+
+                while (treeWalk.next()) {
+                    if (treeWalk.getFileMode(0) == FileMode.MISSING || sameAsAnyParent(treeWalk)) {
+                        continue;
+                    }
+                    size += looseObjectSize(objectsPath, treeWalk.getObjectId(0));
+                    if (treeWalk.isSubtree()) {
+                        treeWalk.enterSubtree();
+                    }
+                }
+                return size;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Failed to measure objects of commit {} in {}/{}: {}", commitId, owner, name, e.getMessage());
+            return 0L;
+        }
+    }
+
+    /**
+     * Run garbage collection on a repository, repacking loose objects and pruning
+     * unreachable ones. A repository in a fork network instead hands its own objects
+     * to the network's pool; plain gc would copy every borrowed object into it.
+     */
+    public void runGarbageCollection(String owner, String name) {
+        Optional<Path> pool = getObjectPool(getRepositoryPath(owner, name));
+        if (pool.isPresent()) {
+            compactIntoPool(owner, name, pool.get());
+            return;
+        }
+
+        try (RepositoryWriteFence.Permit permit = writeFence.enter(owner, name);
+             Git git = Git.open(getRepositoryPath(owner, name).toFile())) {
+            git.gc().call();
+            log.info("Ran garbage collection on repository '{}/{}'", owner, name);
+        } catch (IOException | GitAPIException e) {
+            throw new GitOperationException("Failed to run garbage collection: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The directory holding a repository's git data: the repository directory itself for
+     * bare storage, or its .git directory if it has not been converted yet.
+     */
+    public Path getGitDirectory(Path repoPath) {
+        Path dotGit = repoPath.resolve(".git");
+        return Files.isDirectory(dotGit) ? dotGit : repoPath;
+    }
+
+    private boolean sameAsAnyParent(TreeWalk treeWalk) {
+        for (int i = 1; i < treeWalk.getTreeCount(); i++) {
+            if (treeWalk.idEqual(0, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long looseObjectSize(Path objectsPath, AnyObjectId objectId) {
+        String hex = objectId.getName();
+        Path objectPath = objectsPath.resolve(hex.substring(0, 2)).resolve(hex.substring(2));
+        try {
+            return Files.exists(objectPath) ? Files.size(objectPath) : 0L;
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
     private AbstractTreeIterator prepareTreeParser(Repository repository, ObjectId objectId) throws IOException {
         try (RevWalk walk = new RevWalk(repository)) {
             RevCommit commit = walk.parseCommit(objectId);
@@ -0,0 +1,107 @@
+package com.gitserver.git;
+
+import com.gitserver.dto.RepositoryDescriptor;
+import com.gitserver.service.RepositoryResolver;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Storage roots that repositories are spread over, usually one per disk. Where a
+ * repository lives is recorded in {@code GitRepository.diskPath}; new repositories are
+ * placed by hashing their coordinates, or on the root with the most free space.
+ */
+@Slf4j
+@Component
+public class RepositoryStorage {
+
+    public enum Placement {
+        HASHED,
+        LEAST_USED
+    }
+
+    private final RepositoryResolver repositoryResolver;
+    private final List<Path> roots;
+    private final Placement placement;
+
+    public RepositoryStorage(RepositoryResolver repositoryResolver,
+                             @Value("${git.repositories.base-path:./repositories}") String basePath,
+                             @Value("${git.repositories.storage-roots:}") List<String> storageRoots,
+                             @Value("${git.repositories.placement:hashed}") String placement) {
+        this.repositoryResolver = repositoryResolver;
+        List<Path> configured = storageRoots.stream()
+                .map(String::trim)
+                .filter(root -> !root.isEmpty())
+                .map(Path::of)
+                .toList();
+        this.roots = configured.isEmpty() ? List.of(Path.of(basePath)) : configured;
+        this.placement = Placement.valueOf(placement.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        log.info("Repository storage roots: {} ({} placement)", roots, this.placement);
+    }
+
+    /**
+     * Get the configured storage roots.
+     */
+    public List<Path> getRoots() {
+        return roots;
+    }
+
+    /**
+     * Get the directory of a repository: the recorded one if the repository is registered,
+     * else an existing directory on any root (the repository is being created or restored),
+     * else where a new repository would be placed.
+     */
+    public Path locate(String owner, String name) {
+        Optional<String> diskPath = repositoryResolver.find(owner, name).map(RepositoryDescriptor::getDiskPath);
+        if (diskPath.isPresent()) {
+            return Path.of(diskPath.get());
+        }
+        if (roots.size() > 1) {
+            for (Path root : roots) {
+                Path candidate = root.resolve(owner).resolve(name);
+                if (Files.exists(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+        return place(owner, name).resolve(owner).resolve(name);
+    }
+
+    /**
+     * Choose the root for a new repository.
+     */
+    public Path place(String owner, String name) {
+        if (roots.size() == 1) {
+            return roots.get(0);
+        }
+        if (placement == Placement.LEAST_USED) {
+            return roots.stream().max(Comparator.comparingLong(RepositoryStorage::usableSpace)).orElseThrow();
+        }
+        return roots.get(Math.floorMod((owner + "/" + name).hashCode(), roots.size()));
+    }
+
+    /**
+     * Get the storage root a repository directory is in.
+     */
+    public static Path rootOf(Path repoPath) {
+        return repoPath.getParent().getParent();
+    }
+
+    private static long usableSpace(Path root) {
+        try {
+            Files.createDirectories(root);
+            return Files.getFileStore(root).getUsableSpace();
+        } catch (IOException e) {
+            log.warn("Failed to read free space of {}: {}", root, e.getMessage());
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.gitserver.git;
+
+import com.gitserver.exception.GitOperationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Fence that lets a repository's directory be moved without losing writes. Anything
+ * changing a repository holds a shared permit while it does; a move holds the exclusive
+ * one while it copies the last changes and switches the repository to its new place.
+ * Locks are striped so memory stays bounded; a move briefly holds back writes to the
+ * few other repositories sharing its stripe.
+ */
+@Component
+public class RepositoryWriteFence {
+
+    private static final int STRIPES = 256;
+
+    private final ReentrantReadWriteLock[] locks = new ReentrantReadWriteLock[STRIPES];
+    private final long timeoutMillis;
+
+    public RepositoryWriteFence(@Value("${git.storage.write-fence-timeout-ms:30000}") long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Held while a repository is written to. Closing it releases the lock.
+     */
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Get a permit to write to a repository, waiting while it is being moved.
+     */
+    public Permit enter(String owner, String name) {
+        return acquire(lockFor(owner, name).readLock(), owner, name);
+    }
+
+    /**
+     * Hold back all writes to a repository, waiting for the ones in progress to finish.
+     */
+    public Permit fence(String owner, String name) {
+        return acquire(lockFor(owner, name).writeLock(), owner, name);
+    }
+
+    private Permit acquire(Lock lock, String owner, String name) {
+        try {
+            if (!lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new GitOperationException("Repository " + owner + "/" + name + " is being moved, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GitOperationException("Interrupted while waiting for repository " + owner + "/" + name);
+        }
+        return lock::unlock;
+    }
+
+    private ReentrantReadWriteLock lockFor(String owner, String name) {
+        return locks[Math.floorMod((owner + "/" + name).hashCode(), STRIPES)];
+    }
+}
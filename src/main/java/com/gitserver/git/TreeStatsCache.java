@@ -0,0 +1,20 @@
+package com.gitserver.git;
+
+import com.gitserver.dto.TreeStats;
+
+/**
+ * Memo consulted by {@link JGitService#getTreeStats} for subtrees.
+ * Trees are content-addressed, so an entry never becomes stale.
+ */
+public interface TreeStatsCache {
+
+    /**
+     * Get the statistics of a tree, or null if they are not known.
+     */
+    TreeStats get(String treeId);
+
+    /**
+     * Record the statistics of a tree.
+     */
+    void put(String treeId, TreeStats stats);
+}
@@ -0,0 +1,33 @@
+package com.gitserver.repository;
+
+import com.gitserver.entity.AccessToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * JPA Repository for AccessToken entity.
+ */
+@Repository
+public interface AccessTokenRepository extends JpaRepository<AccessToken, Long> {
+
+    Optional<AccessToken> findByTokenDigest(String tokenDigest);
+
+    List<AccessToken> findByUserIdOrderByCreatedAtDesc(Long userId);
+
+    Optional<AccessToken> findByIdAndUserId(Long id, Long userId);
+
+    boolean existsByUserIdAndName(Long userId, String name);
+
+    void deleteByUserId(Long userId);
+
+    @Modifying
+    @Query("UPDATE AccessToken t SET t.lastUsedAt = :lastUsedAt WHERE t.id = :id")
+    int updateLastUsedAt(@Param("id") Long id, @Param("lastUsedAt") LocalDateTime lastUsedAt);
+}
@@ -0,0 +1,17 @@
+package com.gitserver.repository;
+
+import com.gitserver.entity.ClusterNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JPA Repository for ClusterNode entity.
+ */
+@Repository
+public interface ClusterNodeRepository extends JpaRepository<ClusterNode, String> {
+
+    List<ClusterNode> findByLastHeartbeatAfterOrderByNodeId(LocalDateTime heartbeatAfter);
+}
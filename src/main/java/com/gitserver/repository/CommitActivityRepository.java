@@ -0,0 +1,33 @@
+package com.gitserver.repository;
+
+import com.gitserver.entity.CommitActivity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * JPA Repository for CommitActivity entity.
+ */
+@Repository
+public interface CommitActivityRepository extends JpaRepository<CommitActivity, Long> {
+
+    List<CommitActivity> findByRepositoryIdOrderByActivityDateAsc(Long repositoryId);
+
+    List<CommitActivity> findByRepositoryIdAndActivityDateGreaterThanEqual(Long repositoryId, LocalDate since);
+
+    @Modifying
+    @Query("UPDATE CommitActivity a SET a.commitCount = a.commitCount + :count " +
+           "WHERE a.repositoryId = :repositoryId AND a.activityDate = :activityDate")
+    int incrementCommitCount(@Param("repositoryId") Long repositoryId,
+                             @Param("activityDate") LocalDate activityDate,
+                             @Param("count") long count);
+
+    @Modifying
+    @Query("DELETE FROM CommitActivity a WHERE a.repositoryId = :repositoryId")
+    void deleteByRepositoryId(@Param("repositoryId") Long repositoryId);
+}
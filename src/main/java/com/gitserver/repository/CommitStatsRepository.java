@@ -0,0 +1,24 @@
+package com.gitserver.repository;
+
+import com.gitserver.entity.CommitStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JPA Repository for CommitStats entity.
+ */
+@Repository
+public interface CommitStatsRepository extends JpaRepository<CommitStats, Long> {
+
+    List<CommitStats> findByRepositoryIdAndCommitIdIn(Long repositoryId, Collection<String> commitIds);
+
+    @Modifying
+    @Query("DELETE FROM CommitStats s WHERE s.repositoryId = :repositoryId")
+    void deleteByRepositoryId(@Param("repositoryId") Long repositoryId);
+}
@@ -0,0 +1,32 @@
+package com.gitserver.repository;
+
+import com.gitserver.entity.Contributor;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * JPA Repository for Contributor entity.
+ */
+@Repository
+public interface ContributorRepository extends JpaRepository<Contributor, Long> {
+
+    List<Contributor> findByRepositoryIdOrderByCommitCountDesc(Long repositoryId);
+
+    long countByRepositoryId(Long repositoryId);
+
+    @Modifying
+    @Query("UPDATE Contributor c SET c.commitCount = c.commitCount + :count " +
+           "WHERE c.repositoryId = :repositoryId AND c.name = :name")
+    int incrementCommitCount(@Param("repositoryId") Long repositoryId,
+                             @Param("name") String name,
+                             @Param("count") long count);
+
+    @Modifying
+    @Query("DELETE FROM Contributor c WHERE c.repositoryId = :repositoryId")
+    void deleteByRepositoryId(@Param("repositoryId") Long repositoryId);
+}
@@ -0,0 +1,26 @@
+package com.gitserver.repository;
+
+import com.gitserver.entity.ContributorStatsState;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * JPA Repository for ContributorStatsState entity.
+ */
+@Repository
+public interface ContributorStatsStateRepository extends JpaRepository<ContributorStatsState, Long> {
+
+    Optional<ContributorStatsState> findByRepositoryId(Long repositoryId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ContributorStatsState s WHERE s.repositoryId = :repositoryId")
+    Optional<ContributorStatsState> findByRepositoryIdForUpdate(@Param("repositoryId") Long repositoryId);
+
+    void deleteByRepositoryId(Long repositoryId);
+}
@@ -0,0 +1,35 @@
+package com.gitserver.repository;
+
+import com.gitserver.entity.ContributorWeeklyStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * JPA Repository for ContributorWeeklyStats entity.
+ */
+@Repository
+public interface ContributorWeeklyStatsRepository extends JpaRepository<ContributorWeeklyStats, Long> {
+
+    List<ContributorWeeklyStats> findByRepositoryIdOrderByAuthorAscWeekStartAsc(Long repositoryId);
+
+    @Modifying
+    @Query("UPDATE ContributorWeeklyStats w SET w.commits = w.commits + :commits, " +
+           "w.additions = w.additions + :additions, w.deletions = w.deletions + :deletions " +
+           "WHERE w.repositoryId = :repositoryId AND w.author = :author AND w.weekStart = :weekStart")
+    int increment(@Param("repositoryId") Long repositoryId,
+                  @Param("author") String author,
+                  @Param("weekStart") LocalDate weekStart,
+                  @Param("commits") long commits,
+                  @Param("additions") long additions,
+                  @Param("deletions") long deletions);
+
+    @Modifying
+    @Query("DELETE FROM ContributorWeeklyStats w WHERE w.repositoryId = :repositoryId")
+    void deleteByRepositoryId(@Param("repositoryId") Long repositoryId);
+}
@@ -0,0 +1,28 @@
+package com.gitserver.repository;
+
+import com.gitserver.entity.EventIdCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * JPA Repository for EventIdCounter entity.
+ */
+@Repository
+public interface EventIdCounterRepository extends JpaRepository<EventIdCounter, Integer> {
+
+    /**
+     * Move the counter to at least floor, then past count more ids.
+     */
+    @Modifying
+    @Query("UPDATE EventIdCounter c SET c.nextId = (CASE WHEN c.nextId > :floor THEN c.nextId ELSE :floor END) + :count "
+            + "WHERE c.id = :id")
+    int advance(@Param("id") Integer id, @Param("floor") long floor, @Param("count") long count);
+
+    @Query("SELECT c.nextId FROM EventIdCounter c WHERE c.id = :id")
+    Optional<Long> findNextId(@Param("id") Integer id);
+}
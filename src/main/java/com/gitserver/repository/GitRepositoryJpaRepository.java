@@ -2,6 +2,9 @@ package com.gitserver.repository;
 
 import com.gitserver.entity.GitRepository;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -21,7 +24,22 @@ public interface GitRepositoryJpaRepository extends JpaRepository<GitRepository,
 
     List<GitRepository> findByIsPrivate(boolean isPrivate);
 
+    List<GitRepository> findByForkedFromId(Long forkedFromId);
+
     boolean existsByName(String name);
 
     boolean existsByOwnerAndName(String owner, String name);
+
+    @Modifying
+    @Query("UPDATE GitRepository r SET r.diskUsage = COALESCE(r.diskUsage, 0) + :delta " +
+           "WHERE r.owner = :owner AND r.name = :name")
+    int addDiskUsage(@Param("owner") String owner, @Param("name") String name, @Param("delta") long delta);
+
+    @Modifying
+    @Query("UPDATE GitRepository r SET r.diskUsage = :diskUsage WHERE r.owner = :owner AND r.name = :name")
+    int setDiskUsage(@Param("owner") String owner, @Param("name") String name, @Param("diskUsage") long diskUsage);
+
+    @Modifying
+    @Query("UPDATE GitRepository r SET r.diskPath = :diskPath WHERE r.id = :id")
+    int updateDiskPath(@Param("id") Long id, @Param("diskPath") String diskPath);
 }
@@ -0,0 +1,24 @@
+package com.gitserver.repository;
+
+import com.gitserver.entity.IssueNumberCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * JPA Repository for IssueNumberCounter entity.
+ */
+@Repository
+public interface IssueNumberCounterRepository extends JpaRepository<IssueNumberCounter, Long> {
+
+    @Modifying
+    @Query("UPDATE IssueNumberCounter c SET c.nextNumber = c.nextNumber + :count WHERE c.repositoryId = :repositoryId")
+    int advance(@Param("repositoryId") Long repositoryId, @Param("count") int count);
+
+    @Query("SELECT c.nextNumber FROM IssueNumberCounter c WHERE c.repositoryId = :repositoryId")
+    Optional<Integer> findNextNumber(@Param("repositoryId") Long repositoryId);
+}
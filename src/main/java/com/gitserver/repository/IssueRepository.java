@@ -2,13 +2,21 @@ package com.gitserver.repository;
 
 import com.gitserver.entity.Issue;
 import com.gitserver.entity.Issue.IssueState;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * JPA Repository for Issue entity.
@@ -26,10 +34,75 @@ public interface IssueRepository extends JpaRepository<Issue, Long> {
 
     Optional<Issue> findByRepositoryIdAndIssueNumber(Long repositoryId, Integer issueNumber);
 
+    List<Issue> findByRepositoryIdAndIssueNumberIn(Long repositoryId, Collection<Integer> issueNumbers);
+
     boolean existsByRepositoryIdAndIssueNumber(Long repositoryId, Integer issueNumber);
 
     @Query("SELECT MAX(i.issueNumber) FROM Issue i WHERE i.repositoryId = :repositoryId")
     Optional<Integer> findMaxIssueNumberByRepositoryId(@Param("repositoryId") Long repositoryId);
 
     long countByRepositoryIdAndState(Long repositoryId, IssueState state);
+
+    /**
+     * Issues created before the (createdAt, id) cursor, newest first.
+     */
+    @Query("SELECT new com.gitserver.repository.IssueSummary(i.id, i.issueNumber, i.title, i.body, i.state, "
+            + "i.authorUsername, i.assigneeUsername, i.createdAt, i.updatedAt, i.closedAt) "
+            + "FROM Issue i WHERE i.repositoryId = :repositoryId "
+            + "AND (i.createdAt < :createdAt OR (i.createdAt = :createdAt AND i.id < :id)) "
+            + "ORDER BY i.createdAt DESC, i.id DESC")
+    List<IssueSummary> findPage(@Param("repositoryId") Long repositoryId,
+                                @Param("createdAt") LocalDateTime createdAt,
+                                @Param("id") Long id,
+                                Pageable pageable);
+
+    /**
+     * Issues in a state created before the (createdAt, id) cursor, newest first.
+     */
+    @Query("SELECT new com.gitserver.repository.IssueSummary(i.id, i.issueNumber, i.title, i.body, i.state, "
+            + "i.authorUsername, i.assigneeUsername, i.createdAt, i.updatedAt, i.closedAt) "
+            + "FROM Issue i WHERE i.repositoryId = :repositoryId AND i.state = :state "
+            + "AND (i.createdAt < :createdAt OR (i.createdAt = :createdAt AND i.id < :id)) "
+            + "ORDER BY i.createdAt DESC, i.id DESC")
+    List<IssueSummary> findPageByState(@Param("repositoryId") Long repositoryId,
+                                       @Param("state") IssueState state,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") Long id,
+                                       Pageable pageable);
+
+    /**
+     * (issue id, label) pairs for a batch of issues.
+     */
+    @Query("SELECT i.id, l FROM Issue i JOIN i.labels l WHERE i.id IN :ids")
+    List<Object[]> findLabels(@Param("ids") Collection<Long> ids);
+
+    /**
+     * All issues of a repository in id order, read incrementally.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.gitserver.repository.IssueSummary(i.id, i.issueNumber, i.title, i.body, i.state, "
+            + "i.authorUsername, i.assigneeUsername, i.createdAt, i.updatedAt, i.closedAt) "
+            + "FROM Issue i WHERE i.repositoryId = :repositoryId ORDER BY i.id")
+    Stream<IssueSummary> streamByRepositoryId(@Param("repositoryId") Long repositoryId);
+
+    /**
+     * (issue id, label) pairs of all issues of a repository in issue id order.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT i.id, l FROM Issue i JOIN i.labels l WHERE i.repositoryId = :repositoryId ORDER BY i.id")
+    Stream<Object[]> streamLabels(@Param("repositoryId") Long repositoryId);
+
+    /**
+     * Re-point the rows of a deleted repository to the row it was restored as.
+     */
+    @Modifying
+    @Query("UPDATE Issue i SET i.repositoryId = :newRepositoryId WHERE i.repositoryId = :oldRepositoryId")
+    int moveToRepository(@Param("oldRepositoryId") Long oldRepositoryId, @Param("newRepositoryId") Long newRepositoryId);
+
+    /**
+     * Give rows staged by an import, which carry their negated number, their final number.
+     */
+    @Modifying
+    @Query("UPDATE Issue i SET i.issueNumber = :offset - i.issueNumber WHERE i.repositoryId = :repositoryId AND i.issueNumber < 0")
+    int assignStagedNumbers(@Param("repositoryId") Long repositoryId, @Param("offset") int offset);
 }
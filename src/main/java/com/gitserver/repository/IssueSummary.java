@@ -0,0 +1,13 @@
+package com.gitserver.repository;
+
+import com.gitserver.entity.Issue.IssueState;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of the scalar columns of an issue, used by paginated listings.
+ */
+public record IssueSummary(Long id, Integer issueNumber, String title, String body, IssueState state,
+                           String authorUsername, String assigneeUsername, LocalDateTime createdAt,
+                           LocalDateTime updatedAt, LocalDateTime closedAt) {
+}
@@ -2,13 +2,21 @@ package com.gitserver.repository;
 
 import com.gitserver.entity.PullRequest;
 import com.gitserver.entity.PullRequest.PullRequestState;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * JPA Repository for PullRequest entity.
@@ -24,6 +32,8 @@ public interface PullRequestRepository extends JpaRepository<PullRequest, Long>
 
     Optional<PullRequest> findByRepositoryIdAndPrNumber(Long repositoryId, Integer prNumber);
 
+    List<PullRequest> findByRepositoryIdAndPrNumberIn(Long repositoryId, Collection<Integer> prNumbers);
+
     boolean existsByRepositoryIdAndPrNumber(Long repositoryId, Integer prNumber);
 
     @Query("SELECT MAX(p.prNumber) FROM PullRequest p WHERE p.repositoryId = :repositoryId")
@@ -33,4 +43,83 @@ public interface PullRequestRepository extends JpaRepository<PullRequest, Long>
 
     @Query("SELECT p FROM PullRequest p JOIN p.reviewers r WHERE r = :username ORDER BY p.createdAt DESC")
     List<PullRequest> findByReviewer(@Param("username") String username);
+
+    /**
+     * Pull requests created before the (createdAt, id) cursor, newest first.
+     */
+    @Query("SELECT new com.gitserver.repository.PullRequestSummary(p.id, p.prNumber, p.title, p.body, p.state, "
+            + "p.authorUsername, p.headBranch, p.baseBranch, p.isMerged, p.mergedBy, p.mergedAt, "
+            + "p.createdAt, p.updatedAt, p.closedAt) "
+            + "FROM PullRequest p WHERE p.repositoryId = :repositoryId "
+            + "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) "
+            + "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PullRequestSummary> findPage(@Param("repositoryId") Long repositoryId,
+                                      @Param("createdAt") LocalDateTime createdAt,
+                                      @Param("id") Long id,
+                                      Pageable pageable);
+
+    /**
+     * Pull requests in a state created before the (createdAt, id) cursor, newest first.
+     */
+    @Query("SELECT new com.gitserver.repository.PullRequestSummary(p.id, p.prNumber, p.title, p.body, p.state, "
+            + "p.authorUsername, p.headBranch, p.baseBranch, p.isMerged, p.mergedBy, p.mergedAt, "
+            + "p.createdAt, p.updatedAt, p.closedAt) "
+            + "FROM PullRequest p WHERE p.repositoryId = :repositoryId AND p.state = :state "
+            + "AND (p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id)) "
+            + "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PullRequestSummary> findPageByState(@Param("repositoryId") Long repositoryId,
+                                             @Param("state") PullRequestState state,
+                                             @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+
+    /**
+     * (pull request id, label) pairs for a batch of pull requests.
+     */
+    @Query("SELECT p.id, l FROM PullRequest p JOIN p.labels l WHERE p.id IN :ids")
+    List<Object[]> findLabels(@Param("ids") Collection<Long> ids);
+
+    /**
+     * (pull request id, reviewer) pairs for a batch of pull requests.
+     */
+    @Query("SELECT p.id, r FROM PullRequest p JOIN p.reviewers r WHERE p.id IN :ids")
+    List<Object[]> findReviewers(@Param("ids") Collection<Long> ids);
+
+    /**
+     * All pull requests of a repository in id order, read incrementally.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.gitserver.repository.PullRequestSummary(p.id, p.prNumber, p.title, p.body, p.state, "
+            + "p.authorUsername, p.headBranch, p.baseBranch, p.isMerged, p.mergedBy, p.mergedAt, "
+            + "p.createdAt, p.updatedAt, p.closedAt) "
+            + "FROM PullRequest p WHERE p.repositoryId = :repositoryId ORDER BY p.id")
+    Stream<PullRequestSummary> streamByRepositoryId(@Param("repositoryId") Long repositoryId);
+
+    /**
+     * (pull request id, label) pairs of all pull requests of a repository in pull request id order.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT p.id, l FROM PullRequest p JOIN p.labels l WHERE p.repositoryId = :repositoryId ORDER BY p.id")
+    Stream<Object[]> streamLabels(@Param("repositoryId") Long repositoryId);
+
+    /**
+     * (pull request id, reviewer) pairs of all pull requests of a repository in pull request id order.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT p.id, r FROM PullRequest p JOIN p.reviewers r WHERE p.repositoryId = :repositoryId ORDER BY p.id")
+    Stream<Object[]> streamReviewers(@Param("repositoryId") Long repositoryId);
+
+    /**
+     * Re-point the rows of a deleted repository to the row it was restored as.
+     */
+    @Modifying
+    @Query("UPDATE PullRequest p SET p.repositoryId = :newRepositoryId WHERE p.repositoryId = :oldRepositoryId")
+    int moveToRepository(@Param("oldRepositoryId") Long oldRepositoryId, @Param("newRepositoryId") Long newRepositoryId);
+
+    /**
+     * Give rows staged by an import, which carry their negated number, their final number.
+     */
+    @Modifying
+    @Query("UPDATE PullRequest p SET p.prNumber = :offset - p.prNumber WHERE p.repositoryId = :repositoryId AND p.prNumber < 0")
+    int assignStagedNumbers(@Param("repositoryId") Long repositoryId, @Param("offset") int offset);
 }
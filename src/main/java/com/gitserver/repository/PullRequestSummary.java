@@ -0,0 +1,14 @@
+package com.gitserver.repository;
+
+import com.gitserver.entity.PullRequest.PullRequestState;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of the scalar columns of a pull request, used by paginated listings.
+ */
+public record PullRequestSummary(Long id, Integer prNumber, String title, String body, PullRequestState state,
+                                 String authorUsername, String headBranch, String baseBranch, boolean merged,
+                                 String mergedBy, LocalDateTime mergedAt, LocalDateTime createdAt,
+                                 LocalDateTime updatedAt, LocalDateTime closedAt) {
+}
@@ -0,0 +1,32 @@
+package com.gitserver.repository;
+
+import com.gitserver.entity.RepositoryEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * JPA Repository for RepositoryEvent entity.
+ */
+@Repository
+public interface RepositoryEventRepository extends JpaRepository<RepositoryEvent, Long> {
+
+    List<RepositoryEvent> findByRepositoryIdAndIdGreaterThanOrderById(Long repositoryId, Long id, Pageable pageable);
+
+    List<RepositoryEvent> findByRepositoryIdInAndIdGreaterThanOrderById(Collection<Long> repositoryIds, Long id,
+                                                                        Pageable pageable);
+
+    @Query("SELECT MAX(e.id) FROM RepositoryEvent e")
+    Long findMaxId();
+
+    @Modifying
+    @Query("DELETE FROM RepositoryEvent e WHERE e.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") LocalDateTime before);
+}
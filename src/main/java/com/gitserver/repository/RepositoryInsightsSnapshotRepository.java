@@ -0,0 +1,43 @@
+package com.gitserver.repository;
+
+import com.gitserver.entity.RepositoryInsightsSnapshot;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * JPA Repository for RepositoryInsightsSnapshot entity.
+ */
+@Repository
+public interface RepositoryInsightsSnapshotRepository extends JpaRepository<RepositoryInsightsSnapshot, Long> {
+
+    Optional<RepositoryInsightsSnapshot> findByRepositoryId(Long repositoryId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM RepositoryInsightsSnapshot s WHERE s.repositoryId = :repositoryId")
+    Optional<RepositoryInsightsSnapshot> findByRepositoryIdForUpdate(@Param("repositoryId") Long repositoryId);
+
+    @Modifying
+    @Query("UPDATE RepositoryInsightsSnapshot s SET s.openIssues = :openIssues, s.closedIssues = :closedIssues " +
+           "WHERE s.repositoryId = :repositoryId")
+    int updateIssueCounts(@Param("repositoryId") Long repositoryId,
+                          @Param("openIssues") long openIssues,
+                          @Param("closedIssues") long closedIssues);
+
+    @Modifying
+    @Query("UPDATE RepositoryInsightsSnapshot s SET s.openPullRequests = :openPullRequests, " +
+           "s.closedPullRequests = :closedPullRequests, s.mergedPullRequests = :mergedPullRequests " +
+           "WHERE s.repositoryId = :repositoryId")
+    int updatePullRequestCounts(@Param("repositoryId") Long repositoryId,
+                                @Param("openPullRequests") long openPullRequests,
+                                @Param("closedPullRequests") long closedPullRequests,
+                                @Param("mergedPullRequests") long mergedPullRequests);
+
+    void deleteByRepositoryId(Long repositoryId);
+}
@@ -3,8 +3,12 @@ package com.gitserver.repository;
 import com.gitserver.entity.RepositoryPermission;
 import com.gitserver.entity.RepositoryPermission.PermissionLevel;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +20,8 @@ public interface RepositoryPermissionRepository extends JpaRepository<Repository
 
     List<RepositoryPermission> findByRepositoryId(Long repositoryId);
 
+    List<RepositoryPermission> findByRepositoryIdIn(Collection<Long> repositoryIds);
+
     List<RepositoryPermission> findByUsername(String username);
 
     Optional<RepositoryPermission> findByRepositoryIdAndUsername(Long repositoryId, String username);
@@ -25,4 +31,11 @@ public interface RepositoryPermissionRepository extends JpaRepository<Repository
     List<RepositoryPermission> findByRepositoryIdAndPermission(Long repositoryId, PermissionLevel permission);
 
     void deleteByRepositoryIdAndUsername(Long repositoryId, String username);
+
+    /**
+     * Re-point the rows of a deleted repository to the row it was restored as.
+     */
+    @Modifying
+    @Query("UPDATE RepositoryPermission p SET p.repositoryId = :newRepositoryId WHERE p.repositoryId = :oldRepositoryId")
+    int moveToRepository(@Param("oldRepositoryId") Long oldRepositoryId, @Param("newRepositoryId") Long newRepositoryId);
 }
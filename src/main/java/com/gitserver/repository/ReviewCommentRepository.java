@@ -1,10 +1,16 @@
 package com.gitserver.repository;
 
 import com.gitserver.entity.ReviewComment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * JPA Repository for ReviewComment entity.
@@ -19,4 +25,14 @@ public interface ReviewCommentRepository extends JpaRepository<ReviewComment, Lo
     List<ReviewComment> findByPullRequestIdAndFilePath(Long pullRequestId, String filePath);
 
     long countByPullRequestId(Long pullRequestId);
+
+    /**
+     * All review comments on pull requests of a repository, ordered by pull request,
+     * review and id.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT c FROM ReviewComment c WHERE c.pullRequestId IN "
+            + "(SELECT p.id FROM PullRequest p WHERE p.repositoryId = :repositoryId) "
+            + "ORDER BY c.pullRequestId, c.reviewId, c.id")
+    Stream<ReviewComment> streamByRepositoryId(@Param("repositoryId") Long repositoryId);
 }
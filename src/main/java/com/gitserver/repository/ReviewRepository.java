@@ -2,10 +2,16 @@ package com.gitserver.repository;
 
 import com.gitserver.entity.Review;
 import com.gitserver.entity.Review.ReviewState;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * JPA Repository for Review entity.
@@ -20,4 +26,13 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     List<Review> findByPullRequestIdAndState(Long pullRequestId, ReviewState state);
 
     long countByPullRequestIdAndState(Long pullRequestId, ReviewState state);
+
+    /**
+     * All reviews on pull requests of a repository, ordered by pull request and id.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT r FROM Review r WHERE r.pullRequestId IN "
+            + "(SELECT p.id FROM PullRequest p WHERE p.repositoryId = :repositoryId) "
+            + "ORDER BY r.pullRequestId, r.id")
+    Stream<Review> streamByRepositoryId(@Param("repositoryId") Long repositoryId);
 }
@@ -0,0 +1,31 @@
+package com.gitserver.repository;
+
+import com.gitserver.entity.TrashedRepository;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * JPA Repository for TrashedRepository entity.
+ */
+@Repository
+public interface TrashedRepositoryRepository extends JpaRepository<TrashedRepository, Long> {
+
+    List<TrashedRepository> findByOwnerOrderByDeletedAtDesc(String owner);
+
+    List<TrashedRepository> findByDeletedAtBeforeOrderByDeletedAt(LocalDateTime deletedBefore);
+
+    boolean existsByTrashPath(String trashPath);
+
+    /**
+     * Delete an entry, returning 0 if someone else (the reaper or a restore) took it first.
+     */
+    @Modifying
+    @Query("DELETE FROM TrashedRepository t WHERE t.id = :id")
+    int claim(@Param("id") Long id);
+}
@@ -0,0 +1,12 @@
+package com.gitserver.repository;
+
+import com.gitserver.entity.TreeStatsEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JPA Repository for TreeStatsEntry entity.
+ */
+@Repository
+public interface TreeStatsEntryRepository extends JpaRepository<TreeStatsEntry, String> {
+}
@@ -0,0 +1,86 @@
+package com.gitserver.repository;
+
+import com.gitserver.entity.WebhookDelivery;
+import com.gitserver.entity.WebhookDelivery.DeliveryStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * JPA Repository for WebhookDelivery entity.
+ */
+@Repository
+public interface WebhookDeliveryRepository extends JpaRepository<WebhookDelivery, Long> {
+
+    @Query("SELECT DISTINCT d.webhookId FROM WebhookDelivery d "
+            + "WHERE d.status = :status AND d.nextAttemptAt <= :now")
+    List<Long> findWebhookIdsDue(@Param("status") DeliveryStatus status, @Param("now") LocalDateTime now);
+
+    /**
+     * Due deliveries of a webhook, longest due first. Ordered by all columns of the index,
+     * so the first rows are read in index order instead of sorting every due row.
+     */
+    @Query("SELECT d FROM WebhookDelivery d WHERE d.webhookId = :webhookId AND d.status = :status "
+            + "AND d.nextAttemptAt <= :now ORDER BY d.webhookId, d.status, d.nextAttemptAt, d.id")
+    List<WebhookDelivery> findDue(@Param("webhookId") Long webhookId,
+                                  @Param("status") DeliveryStatus status,
+                                  @Param("now") LocalDateTime now,
+                                  Pageable pageable);
+
+    List<WebhookDelivery> findByWebhookIdOrderByIdDesc(Long webhookId, Pageable pageable);
+
+    List<WebhookDelivery> findByWebhookIdAndStatusOrderByIdDesc(Long webhookId, DeliveryStatus status,
+                                                               Pageable pageable);
+
+    Optional<WebhookDelivery> findByIdAndWebhookId(Long id, Long webhookId);
+
+    long countByWebhookIdAndStatus(Long webhookId, DeliveryStatus status);
+
+    /**
+     * Lease a due delivery while it is attempted, unless another claim leased it first.
+     */
+    @Modifying
+    @Query("UPDATE WebhookDelivery d SET d.nextAttemptAt = :until "
+            + "WHERE d.id = :id AND d.status = :status AND d.nextAttemptAt = :due")
+    int lease(@Param("id") Long id,
+              @Param("status") DeliveryStatus status,
+              @Param("due") LocalDateTime due,
+              @Param("until") LocalDateTime until);
+
+    /**
+     * Move the next attempt of deliveries, e.g. to release those claimed but not sent.
+     */
+    @Modifying
+    @Query("UPDATE WebhookDelivery d SET d.nextAttemptAt = :nextAttemptAt WHERE d.id IN :ids")
+    int reschedule(@Param("ids") Collection<Long> ids, @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+
+    /**
+     * Record an attempt; a completed delivery gets its final status.
+     */
+    @Modifying
+    @Query("UPDATE WebhookDelivery d SET d.status = :status, d.attempts = d.attempts + 1, "
+            + "d.responseStatus = :responseStatus, d.lastError = :error, d.nextAttemptAt = :nextAttemptAt, "
+            + "d.completedAt = :completedAt WHERE d.id IN :ids")
+    int recordAttempt(@Param("ids") Collection<Long> ids,
+                      @Param("status") DeliveryStatus status,
+                      @Param("responseStatus") Integer responseStatus,
+                      @Param("error") String error,
+                      @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                      @Param("completedAt") LocalDateTime completedAt);
+
+    @Modifying
+    @Query("DELETE FROM WebhookDelivery d WHERE d.webhookId = :webhookId")
+    int deleteByWebhook(@Param("webhookId") Long webhookId);
+
+    @Modifying
+    @Query("DELETE FROM WebhookDelivery d WHERE d.completedAt < :before")
+    int deleteCompletedBefore(@Param("before") LocalDateTime before);
+}
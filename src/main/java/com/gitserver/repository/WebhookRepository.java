@@ -0,0 +1,31 @@
+package com.gitserver.repository;
+
+import com.gitserver.entity.Webhook;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * JPA Repository for Webhook entity.
+ */
+@Repository
+public interface WebhookRepository extends JpaRepository<Webhook, Long> {
+
+    List<Webhook> findByRepositoryIdOrderById(Long repositoryId);
+
+    List<Webhook> findByRepositoryIdAndActiveTrue(Long repositoryId);
+
+    Optional<Webhook> findByIdAndRepositoryId(Long id, Long repositoryId);
+
+    /**
+     * Re-point the webhooks of a deleted repository to the row it was restored as.
+     */
+    @Modifying
+    @Query("UPDATE Webhook w SET w.repositoryId = :newRepositoryId WHERE w.repositoryId = :oldRepositoryId")
+    int moveToRepository(@Param("oldRepositoryId") Long oldRepositoryId, @Param("newRepositoryId") Long newRepositoryId);
+}
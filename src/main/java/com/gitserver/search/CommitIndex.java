@@ -0,0 +1,226 @@
+package com.gitserver.search;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over the commits of a repository: message, author name and e-mail.
+ * Commits are only ever appended; the index remembers the branch heads it covers so
+ * later updates walk just the commits that became reachable since. When history is
+ * rewritten the index is cleared and rebuilt.
+ */
+public class CommitIndex {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x434d4931; // "CMI1"
+    private static final int AUTHOR_WEIGHT = 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Entry> commits = new ArrayList<>();
+    private final Set<String> commitIds = new HashSet<>();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private List<String> heads = List.of();
+
+    /**
+     * An indexed commit; the summary is the first line of its message.
+     */
+    public record Entry(String commitId, String author, String authorEmail, long commitTime, String summary) {
+    }
+
+    /**
+     * A commit matching a query.
+     */
+    public record Hit(Entry entry, double score) {
+    }
+
+    /**
+     * A page of hits and the total number of matching commits.
+     */
+    public record Page(long total, List<Hit> hits) {
+    }
+
+    public List<String> getHeads() {
+        lock.readLock().lock();
+        try {
+            return heads;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Record the branch heads whose history is now fully indexed.
+     */
+    public void setHeads(Collection<String> heads) {
+        lock.writeLock().lock();
+        try {
+            this.heads = List.copyOf(heads);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of indexed commits.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return commits.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Add a commit; commits already indexed are ignored.
+     */
+    public void add(String commitId, String author, String authorEmail, long commitTime, String message) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : Tokenizer.indexTerms(message)) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        for (String term : Tokenizer.indexTerms(author + " " + authorEmail)) {
+            frequencies.merge(term, AUTHOR_WEIGHT, Integer::sum);
+        }
+        String summary = message == null ? "" : message.lines().findFirst().orElse("");
+
+        lock.writeLock().lock();
+        try {
+            if (!commitIds.add(commitId)) {
+                return;
+            }
+            int documentId = commits.size();
+            commits.add(new Entry(commitId, author, authorEmail, commitTime, summary));
+            frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, t -> new PostingList(2)).add(documentId, frequency));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the commits containing every term of a query, best match first and newest
+     * first among equal scores.
+     */
+    public Page search(String query, int offset, int limit) {
+        Set<String> terms = Tokenizer.queryTerms(query);
+        if (terms.isEmpty()) {
+            return new Page(0, List.of());
+        }
+
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = new ArrayList<>();
+            for (String term : terms) {
+                PostingList list = postings.get(term);
+                if (list == null) {
+                    return new Page(0, List.of());
+                }
+                lists.add(list);
+            }
+            lists.sort(Comparator.comparingInt(list -> list.size));
+
+            double[] idf = new double[lists.size()];
+            for (int l = 0; l < lists.size(); l++) {
+                idf[l] = PostingList.idf(lists.get(l).size, commits.size());
+            }
+
+            // Keep only the best offset + limit hits in a heap whose head is the worst kept hit
+            Comparator<Hit> ranking = Comparator.comparingDouble(Hit::score).reversed()
+                    .thenComparing(hit -> hit.entry().commitTime(), Comparator.reverseOrder());
+            int wanted = offset + limit;
+            PriorityQueue<Hit> best = new PriorityQueue<>(ranking.reversed());
+            long[] total = {0};
+            PostingList.intersect(lists, idf, (id, score) -> {
+                total[0]++;
+                best.add(new Hit(commits.get(id), score));
+                if (best.size() > wanted) {
+                    best.poll();
+                }
+            });
+
+            List<Hit> hits = new ArrayList<>(best);
+            hits.sort(ranking);
+            int from = Math.min(offset, hits.size());
+            return new Page(total[0], List.copyOf(hits.subList(from, hits.size())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write the index to a file, replacing it atomically.
+     */
+    public void save(Path file) throws IOException {
+        lock.readLock().lock();
+        try {
+            IndexFiles.save(file, MAGIC, FORMAT_VERSION, out -> {
+                out.writeInt(heads.size());
+                for (String head : heads) {
+                    IndexFiles.writeString(out, head);
+                }
+
+                out.writeInt(commits.size());
+                for (Entry entry : commits) {
+                    IndexFiles.writeString(out, entry.commitId());
+                    IndexFiles.writeString(out, entry.author());
+                    IndexFiles.writeString(out, entry.authorEmail());
+                    out.writeLong(entry.commitTime());
+                    IndexFiles.writeString(out, entry.summary());
+                }
+
+                out.writeInt(postings.size());
+                for (Map.Entry<String, PostingList> entry : postings.entrySet()) {
+                    PostingList list = entry.getValue();
+                    IndexFiles.writeString(out, entry.getKey());
+                    out.writeInt(list.size);
+                    for (int i = 0; i < list.size; i++) {
+                        out.writeInt(list.ids[i]);
+                        out.writeInt(list.frequencies[i]);
+                    }
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Load an index written by {@link #save}. The file is memory-mapped while it is read.
+     */
+    public static CommitIndex load(Path file) throws IOException {
+        return IndexFiles.load(file, MAGIC, FORMAT_VERSION, "commit index", buffer -> {
+            CommitIndex index = new CommitIndex();
+            int headCount = buffer.getInt();
+            List<String> heads = new ArrayList<>(headCount);
+            for (int i = 0; i < headCount; i++) {
+                heads.add(IndexFiles.readString(buffer));
+            }
+            index.heads = List.copyOf(heads);
+
+            int commitCount = buffer.getInt();
+            for (int i = 0; i < commitCount; i++) {
+                Entry entry = new Entry(IndexFiles.readString(buffer), IndexFiles.readString(buffer), IndexFiles.readString(buffer),
+                        buffer.getLong(), IndexFiles.readString(buffer));
+                index.commits.add(entry);
+                index.commitIds.add(entry.commitId());
+            }
+
+            int termCount = buffer.getInt();
+            for (int i = 0; i < termCount; i++) {
+                String term = IndexFiles.readString(buffer);
+                int count = buffer.getInt();
+                PostingList list = new PostingList(count);
+                for (int j = 0; j < count; j++) {
+                    list.add(buffer.getInt(), buffer.getInt());
+                }
+                index.postings.put(term, list);
+            }
+            return index;
+        });
+    }
+}
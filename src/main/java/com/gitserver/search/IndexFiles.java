@@ -0,0 +1,88 @@
+package com.gitserver.search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * File format shared by the persisted search indexes: a magic number and format version
+ * followed by the index body. Files are replaced atomically and memory-mapped for reading.
+ */
+final class IndexFiles {
+
+    /**
+     * Writes the body of an index.
+     */
+    @FunctionalInterface
+    interface BodyWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Reads the body of an index.
+     */
+    @FunctionalInterface
+    interface BodyReader<T> {
+        T read(ByteBuffer buffer) throws IOException;
+    }
+
+    private IndexFiles() {
+    }
+
+    /**
+     * Write an index file through a temporary file, replacing the target atomically.
+     */
+    static void save(Path file, int magic, int version, BodyWriter body) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(magic);
+            out.writeInt(version);
+            body.write(out);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read an index file written by {@link #save}, checking its magic number and version.
+     * The description names the kind of index in error messages.
+     */
+    static <T> T load(Path file, int magic, int version, String description, BodyReader<T> body)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != magic || buffer.getInt() != version) {
+                throw new IOException("Unsupported " + description + " format: " + file);
+            }
+            return body.read(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated " + description + ": " + file, e);
+        }
+    }
+
+    /**
+     * Write a length-prefixed UTF-8 string; null is written as the empty string.
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,192 @@
+package com.gitserver.search;
+
+import com.gitserver.event.IssueChangedEvent.Kind;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Inverted index over the issues and pull requests of a repository: titles, bodies
+ * and labels. Updating a document tombstones its previous version; tombstones are
+ * purged from the posting lists once they outnumber the live documents.
+ */
+public class IssueIndex {
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final int LABEL_WEIGHT = 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<String, Integer> documentsByKey = new HashMap<>();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private int deletedDocuments;
+    private volatile boolean ready;
+
+    /**
+     * An indexed issue or pull request with the fields it can be filtered by.
+     */
+    public record Document(Kind kind, int number, String title, String state, String author,
+                           String assignee, Set<String> labels, LocalDateTime createdAt,
+                           LocalDateTime updatedAt) {
+    }
+
+    /**
+     * A document matching a query.
+     */
+    public record Hit(Document document, double score) {
+    }
+
+    /**
+     * A page of hits and the total number of matching documents.
+     */
+    public record Page(long total, List<Hit> hits) {
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Mark the initial load from the database as complete.
+     */
+    public void markReady() {
+        ready = true;
+    }
+
+    /**
+     * Index a document unless a newer version of it is already indexed.
+     */
+    public void put(Document document, String body) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String term : Tokenizer.indexTerms(document.title())) {
+            frequencies.merge(term, TITLE_WEIGHT, Integer::sum);
+        }
+        for (String term : Tokenizer.indexTerms(body)) {
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        if (document.labels() != null) {
+            for (String label : document.labels()) {
+                for (String term : Tokenizer.indexTerms(label)) {
+                    frequencies.merge(term, LABEL_WEIGHT, Integer::sum);
+                }
+            }
+        }
+
+        String key = key(document.kind(), document.number());
+        lock.writeLock().lock();
+        try {
+            Integer existingId = documentsByKey.get(key);
+            if (existingId != null) {
+                LocalDateTime existingUpdatedAt = documents.get(existingId).updatedAt();
+                if (existingUpdatedAt != null && document.updatedAt() != null
+                        && existingUpdatedAt.isAfter(document.updatedAt())) {
+                    return;
+                }
+                documents.set(existingId, null);
+                deletedDocuments++;
+            }
+
+            int documentId = documents.size();
+            documents.add(document);
+            documentsByKey.put(key, documentId);
+            frequencies.forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, t -> new PostingList(2)).add(documentId, frequency));
+
+            if (deletedDocuments > 1000 && deletedDocuments > documentsByKey.size()) {
+                purgeDeleted();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the documents containing every query term and accepted by the filter, best
+     * match first. With no query terms all accepted documents match, newest first.
+     */
+    public Page search(String query, Predicate<Document> filter, int offset, int limit) {
+        Set<String> terms = Tokenizer.queryTerms(query);
+        Comparator<Hit> ranking = Comparator.comparingDouble(Hit::score).reversed()
+                .thenComparing(hit -> hit.document().createdAt(), Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(hit -> hit.document().number(), Comparator.reverseOrder());
+        int wanted = offset + limit;
+        PriorityQueue<Hit> best = new PriorityQueue<>(ranking.reversed());
+        long[] total = {0};
+        PostingList.MatchVisitor collector = (id, score) -> {
+            Document document = documents.get(id);
+            if (document == null || !filter.test(document)) {
+                return;
+            }
+            total[0]++;
+            best.add(new Hit(document, score));
+            if (best.size() > wanted) {
+                best.poll();
+            }
+        };
+
+        lock.readLock().lock();
+        try {
+            if (terms.isEmpty()) {
+                for (int id = 0; id < documents.size(); id++) {
+                    collector.visit(id, 0);
+                }
+            } else {
+                List<PostingList> lists = new ArrayList<>();
+                for (String term : terms) {
+                    PostingList list = postings.get(term);
+                    if (list == null) {
+                        return new Page(0, List.of());
+                    }
+                    lists.add(list);
+                }
+                lists.sort(Comparator.comparingInt(list -> list.size));
+
+                double[] idf = new double[lists.size()];
+                for (int l = 0; l < lists.size(); l++) {
+                    idf[l] = PostingList.idf(lists.get(l).size, documentsByKey.size());
+                }
+                PostingList.intersect(lists, idf, collector);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(ranking);
+        int from = Math.min(offset, hits.size());
+        return new Page(total[0], List.copyOf(hits.subList(from, hits.size())));
+    }
+
+    private void purgeDeleted() {
+        int[] newIds = new int[documents.size()];
+        List<Document> live = new ArrayList<>(documentsByKey.size());
+        for (int id = 0; id < documents.size(); id++) {
+            Document document = documents.get(id);
+            newIds[id] = document != null ? live.size() : -1;
+            if (document != null) {
+                documentsByKey.put(key(document.kind(), document.number()), live.size());
+                live.add(document);
+            }
+        }
+
+        Iterator<PostingList> iterator = postings.values().iterator();
+        while (iterator.hasNext()) {
+            PostingList list = iterator.next();
+            list.remap(newIds);
+            if (list.size == 0) {
+                iterator.remove();
+            }
+        }
+
+        documents.clear();
+        documents.addAll(live);
+        deletedDocuments = 0;
+    }
+
+    private static String key(Kind kind, int number) {
+        return kind.name() + "#" + number;
+    }
+}
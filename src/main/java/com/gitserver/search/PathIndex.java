@@ -0,0 +1,220 @@
+package com.gitserver.search;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Immutable sorted list of the file paths of one tree, front-coded into an off-heap
+ * buffer: each path stores the length of the prefix it shares with the previous path
+ * followed by the remaining bytes. Supports fuzzy subsequence matching.
+ */
+public final class PathIndex {
+
+    private final ByteBuffer data;
+    private final int size;
+
+    /**
+     * A path matching a query, with the indexes of the matched characters.
+     */
+    public record Match(String path, int score, int[] positions) {
+    }
+
+    private PathIndex(ByteBuffer data, int size) {
+        this.data = data;
+        this.size = size;
+    }
+
+    /**
+     * Build an index from paths in ascending order.
+     */
+    public static PathIndex of(List<String> sortedPaths) {
+        List<byte[]> encoded = new ArrayList<>(sortedPaths.size());
+        int capacity = 0;
+        for (String path : sortedPaths) {
+            byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            capacity += bytes.length + 10;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(capacity, 1));
+        byte[] previous = new byte[0];
+        for (byte[] bytes : encoded) {
+            int shared = 0;
+            int max = Math.min(previous.length, bytes.length);
+            while (shared < max && previous[shared] == bytes[shared]) {
+                shared++;
+            }
+            writeVarInt(buffer, shared);
+            writeVarInt(buffer, bytes.length - shared);
+            buffer.put(bytes, shared, bytes.length - shared);
+            previous = bytes;
+        }
+
+        // Shrink to the encoded size
+        buffer.flip();
+        ByteBuffer data = ByteBuffer.allocateDirect(Math.max(buffer.remaining(), 1));
+        data.put(buffer).flip();
+        return new PathIndex(data.asReadOnlyBuffer(), sortedPaths.size());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visit the paths in ascending order.
+     */
+    public void forEach(Consumer<String> visitor) {
+        ByteBuffer buffer = data.duplicate();
+        byte[] current = new byte[256];
+        for (int i = 0; i < size; i++) {
+            int shared = readVarInt(buffer);
+            int suffix = readVarInt(buffer);
+            if (shared + suffix > current.length) {
+                current = Arrays.copyOf(current, Math.max(current.length * 2, shared + suffix));
+            }
+            buffer.get(current, shared, suffix);
+            visitor.accept(new String(current, 0, shared + suffix, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Derive the index of a tree from this one given the paths added and removed.
+     */
+    public PathIndex apply(Collection<String> added, Collection<String> removed) {
+        if (added.isEmpty() && removed.isEmpty()) {
+            return this;
+        }
+        Set<String> removedSet = new HashSet<>(removed);
+        List<String> sortedAdded = new ArrayList<>(added);
+        Collections.sort(sortedAdded);
+
+        List<String> merged = new ArrayList<>(size + sortedAdded.size());
+        int[] next = {0};
+        forEach(path -> {
+            while (next[0] < sortedAdded.size() && sortedAdded.get(next[0]).compareTo(path) < 0) {
+                merged.add(sortedAdded.get(next[0]++));
+            }
+            if (next[0] < sortedAdded.size() && sortedAdded.get(next[0]).equals(path)) {
+                next[0]++;
+            }
+            if (!removedSet.contains(path)) {
+                merged.add(path);
+            }
+        });
+        merged.addAll(sortedAdded.subList(next[0], sortedAdded.size()));
+        return of(merged);
+    }
+
+    /**
+     * Find the paths containing the query characters in order (ignoring case), best
+     * first. Consecutive characters, word starts and matches in the file name score higher.
+     */
+    public List<Match> find(String query, int limit) {
+        String needle = query.replace(" ", "").toLowerCase(Locale.ROOT);
+        if (needle.isEmpty()) {
+            return List.of();
+        }
+
+        Comparator<Match> ranking = Comparator.comparingInt(Match::score).reversed()
+                .thenComparingInt(match -> match.path().length())
+                .thenComparing(Match::path);
+        PriorityQueue<Match> best = new PriorityQueue<>(ranking.reversed());
+        forEach(path -> {
+            Match match = score(path, needle);
+            if (match != null) {
+                best.add(match);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        });
+
+        List<Match> matches = new ArrayList<>(best);
+        matches.sort(ranking);
+        return matches;
+    }
+
+    static Match score(String path, String needle) {
+        String haystack = path.toLowerCase(Locale.ROOT);
+        // Case folding can change the length of some strings; fall back to the folded form then
+        String original = haystack.length() == path.length() ? path : haystack;
+        int nameStart = haystack.lastIndexOf('/') + 1;
+
+        int[] positions = subsequence(haystack, needle, nameStart);
+        boolean inName = positions != null;
+        if (positions == null) {
+            positions = subsequence(haystack, needle, 0);
+            if (positions == null) {
+                return null;
+            }
+        }
+
+        int score = inName ? 10 : 0;
+        int previous = -2;
+        for (int position : positions) {
+            score += 1;
+            if (position == previous + 1) {
+                score += 5;
+            }
+            if (isWordStart(original, position)) {
+                score += 8;
+            }
+            if (position >= nameStart) {
+                score += 2;
+            }
+            previous = position;
+        }
+        String fileName = haystack.substring(nameStart);
+        if (fileName.equals(needle) || fileName.startsWith(needle + ".")) {
+            score += 20;
+        }
+        score -= haystack.length() / 8;
+        return new Match(path, score, positions);
+    }
+
+    private static int[] subsequence(String haystack, String needle, int from) {
+        int[] positions = new int[needle.length()];
+        int position = from;
+        for (int i = 0; i < needle.length(); i++) {
+            position = haystack.indexOf(needle.charAt(i), position);
+            if (position < 0) {
+                return null;
+            }
+            positions[i] = position++;
+        }
+        return positions;
+    }
+
+    private static boolean isWordStart(String path, int position) {
+        if (position == 0) {
+            return true;
+        }
+        char previous = path.charAt(position - 1);
+        char current = path.charAt(position);
+        return previous == '/' || previous == '_' || previous == '-' || previous == '.' || previous == ' '
+                || (Character.isLowerCase(previous) && Character.isUpperCase(current));
+    }
+
+    private static void writeVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,91 @@
+package com.gitserver.search;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Growable ascending list of document ids with the term frequency in each.
+ */
+class PostingList {
+
+    private static final double K1 = 1.2;
+
+    int[] ids;
+    int[] frequencies;
+    int size;
+
+    PostingList(int capacity) {
+        ids = new int[Math.max(capacity, 1)];
+        frequencies = new int[ids.length];
+    }
+
+    void add(int id, int frequency) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            frequencies = Arrays.copyOf(frequencies, size * 2);
+        }
+        ids[size] = id;
+        frequencies[size] = frequency;
+        size++;
+    }
+
+    /**
+     * Receives a document present in every list and its score.
+     */
+    @FunctionalInterface
+    interface MatchVisitor {
+        void visit(int id, double score);
+    }
+
+    /**
+     * Visit the documents present in every list, scoring each as the sum over lists of
+     * weight times saturated term frequency. Lists must be ordered smallest first.
+     */
+    static void intersect(List<PostingList> lists, double[] weights, MatchVisitor visitor) {
+        PostingList smallest = lists.get(0);
+        int[] positions = new int[lists.size()];
+        outer:
+        for (int i = 0; i < smallest.size; i++) {
+            int id = smallest.ids[i];
+            double score = weights[0] * saturate(smallest.frequencies[i]);
+            for (int l = 1; l < lists.size(); l++) {
+                PostingList list = lists.get(l);
+                int position = Arrays.binarySearch(list.ids, positions[l], list.size, id);
+                if (position < 0) {
+                    positions[l] = -position - 1;
+                    continue outer;
+                }
+                positions[l] = position;
+                score += weights[l] * saturate(list.frequencies[position]);
+            }
+            visitor.visit(id, score);
+        }
+    }
+
+    /**
+     * Inverse document frequency of a term found in {@code df} of {@code n} documents.
+     */
+    static double idf(int df, int n) {
+        return Math.log(1 + (n - df + 0.5) / (df + 0.5));
+    }
+
+    private static double saturate(int frequency) {
+        return frequency * (K1 + 1) / (frequency + K1);
+    }
+
+    /**
+     * Renumber the ids through a monotonic mapping, dropping ids mapped to -1.
+     */
+    void remap(int[] newIds) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int id = newIds[ids[i]];
+            if (id >= 0) {
+                ids[kept] = id;
+                frequencies[kept] = frequencies[i];
+                kept++;
+            }
+        }
+        size = kept;
+    }
+}
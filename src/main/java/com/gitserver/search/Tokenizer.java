@@ -0,0 +1,111 @@
+package com.gitserver.search;
+
+import java.util.*;
+
+/**
+ * Splits text into lower-cased search terms.
+ * Besides plain words, compound tokens such as ticket keys ({@code ABC-123}),
+ * e-mail addresses and dotted names are kept whole so they can be searched exactly.
+ * Terms are cut to {@value #MAX_TERM_LENGTH} characters, the same way when indexing and querying.
+ */
+public final class Tokenizer {
+
+    private static final int MAX_TERM_LENGTH = 64;
+
+    private Tokenizer() {
+    }
+
+    /**
+     * Terms of a text to index, with repetitions.
+     */
+    public static List<String> indexTerms(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String compound : compounds(text)) {
+            List<String> words = words(compound);
+            for (String word : words) {
+                terms.add(cap(word));
+            }
+            if (words.size() > 1) {
+                terms.add(cap(compound));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Distinct terms of a query. A compound token is looked up as a whole.
+     */
+    public static Set<String> queryTerms(String query) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (query == null) {
+            return terms;
+        }
+        for (String compound : compounds(query)) {
+            List<String> words = words(compound);
+            if (words.size() > 1) {
+                terms.add(cap(compound));
+            } else {
+                for (String word : words) {
+                    terms.add(cap(word));
+                }
+            }
+        }
+        return terms;
+    }
+
+    private static List<String> compounds(String text) {
+        List<String> compounds = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean part = i < text.length() && isCompoundChar(text.charAt(i));
+            if (part && start < 0) {
+                start = i;
+            } else if (!part && start >= 0) {
+                String compound = trim(text.substring(start, i));
+                if (!compound.isEmpty()) {
+                    compounds.add(compound.toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+        }
+        return compounds;
+    }
+
+    private static List<String> words(String compound) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= compound.length(); i++) {
+            boolean letter = i < compound.length() && Character.isLetterOrDigit(compound.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                words.add(compound.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private static String cap(String term) {
+        return term.length() <= MAX_TERM_LENGTH ? term : trim(term.substring(0, MAX_TERM_LENGTH));
+    }
+
+    private static String trim(String compound) {
+        int start = 0;
+        int end = compound.length();
+        while (start < end && !Character.isLetterOrDigit(compound.charAt(start))) {
+            start++;
+        }
+        while (end > start && !Character.isLetterOrDigit(compound.charAt(end - 1))) {
+            end--;
+        }
+        return compound.substring(start, end);
+    }
+
+    private static boolean isCompoundChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '-' || c == '_' || c == '.' || c == '@' || c == '/' || c == '#';
+    }
+}
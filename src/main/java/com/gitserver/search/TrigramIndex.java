@@ -0,0 +1,560 @@
+package com.gitserver.search;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram index over the files of one commit of a repository.
+ * Every file gets a document id; each case-folded trigram maps to the ascending list
+ * of documents containing it. Posting lists are read from the memory-mapped index file
+ * written by the last {@link #merge}. Files indexed since then are kept in an in-memory
+ * delta, and replaced or deleted files are tombstoned, until the next merge folds both
+ * into a new file.
+ */
+public class TrigramIndex {
+
+    private static final int FORMAT_VERSION = 2;
+    private static final int MAGIC = 0x54474931; // "TGI1"
+    private static final int TABLE_ENTRY_SIZE = 12;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<String, Integer> documentsByPath = new HashMap<>();
+    private final Map<Integer, PostingList> deltaPostings = new HashMap<>();
+    // Mapped index file: gap-encoded posting lists followed by a table of
+    // (trigram, offset, count) entries sorted by trigram
+    private ByteBuffer segment;
+    private int tableOffset;
+    private int trigramCount;
+    private int segmentDocuments;
+    private int deletedDocuments;
+    private long modifications;
+    private String branch;
+    private String commitId;
+
+    /**
+     * An indexed file.
+     */
+    public record Document(String path, String blobId) {
+    }
+
+    public String getBranch() {
+        return branch;
+    }
+
+    public String getCommitId() {
+        return commitId;
+    }
+
+    /**
+     * Record the commit the index now reflects.
+     */
+    public void setIndexedCommit(String branch, String commitId) {
+        lock.writeLock().lock();
+        try {
+            this.branch = branch;
+            this.commitId = commitId;
+            modifications++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Number of live documents.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documentsByPath.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Whether the index has never been merged into a file, or has collected at least the
+     * given number of indexed or removed files since it was last merged.
+     */
+    public boolean needsMerge(int threshold) {
+        lock.readLock().lock();
+        try {
+            return segment == null || documents.size() - segmentDocuments + deletedDocuments >= threshold;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Index the content of a file, replacing any previous version of it.
+     */
+    public void put(String path, String blobId, byte[] content) {
+        int[] trigrams = trigrams(content);
+        lock.writeLock().lock();
+        try {
+            removeLocked(path);
+            int documentId = documents.size();
+            documents.add(new Document(path, blobId));
+            documentsByPath.put(path, documentId);
+            for (int trigram : trigrams) {
+                deltaPostings.computeIfAbsent(trigram, t -> new PostingList()).add(documentId);
+            }
+            modifications++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a file from the index.
+     */
+    public void remove(String path) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(path);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Find the documents that contain all the given literals (ignoring case), in path
+     * order. Literals shorter than three characters do not narrow the result.
+     */
+    public List<Document> candidates(Collection<String> literals, String pathPrefix) {
+        Set<Integer> required = new HashSet<>();
+        for (String literal : literals) {
+            for (int trigram : trigrams(literal.getBytes(StandardCharsets.UTF_8))) {
+                required.add(trigram);
+            }
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Document> result = new ArrayList<>();
+            if (required.isEmpty()) {
+                documentsByPath.values().forEach(id -> result.add(documents.get(id)));
+            } else {
+                List<int[]> lists = new ArrayList<>();
+                for (int trigram : required) {
+                    int[] ids = postings(trigram);
+                    if (ids.length == 0) {
+                        return result;
+                    }
+                    lists.add(ids);
+                }
+                lists.sort(Comparator.comparingInt(ids -> ids.length));
+                for (int documentId : intersect(lists)) {
+                    Document document = documents.get(documentId);
+                    if (document != null) {
+                        result.add(document);
+                    }
+                }
+            }
+            if (pathPrefix != null && !pathPrefix.isEmpty()) {
+                result.removeIf(document -> !document.path().startsWith(pathPrefix));
+            }
+            result.sort(Comparator.comparing(Document::path));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write the live documents and all posting lists to a new index file, replacing it
+     * atomically, and read posting lists from that file from now on. Searches go on while
+     * the file is written; changes wait for it.
+     */
+    public void merge(Path file) throws IOException {
+        long written;
+        lock.readLock().lock();
+        try {
+            written = modifications;
+            write(file);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        TrigramIndex merged = load(file);
+        lock.writeLock().lock();
+        try {
+            if (modifications != written) {
+                // Changed in between; keep the delta, the file holds an earlier consistent state
+                return;
+            }
+            documents.clear();
+            documents.addAll(merged.documents);
+            documentsByPath.clear();
+            documentsByPath.putAll(merged.documentsByPath);
+            deltaPostings.clear();
+            segment = merged.segment;
+            tableOffset = merged.tableOffset;
+            trigramCount = merged.trigramCount;
+            segmentDocuments = merged.segmentDocuments;
+            deletedDocuments = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Open an index written by {@link #merge}. Only the documents are read into memory;
+     * posting lists stay in the memory-mapped file.
+     */
+    public static TrigramIndex load(Path file) throws IOException {
+        return IndexFiles.load(file, MAGIC, FORMAT_VERSION, "code search index", buffer -> {
+            TrigramIndex index = new TrigramIndex();
+            index.branch = emptyToNull(IndexFiles.readString(buffer));
+            index.commitId = emptyToNull(IndexFiles.readString(buffer));
+
+            int documentCount = buffer.getInt();
+            for (int id = 0; id < documentCount; id++) {
+                Document document = new Document(IndexFiles.readString(buffer), IndexFiles.readString(buffer));
+                index.documents.add(document);
+                index.documentsByPath.put(document.path(), id);
+            }
+            index.segmentDocuments = documentCount;
+
+            int trailer = buffer.limit() - 8;
+            index.tableOffset = buffer.getInt(trailer);
+            index.trigramCount = buffer.getInt(trailer + 4);
+            if (index.tableOffset < buffer.position()
+                    || (long) index.trigramCount * TABLE_ENTRY_SIZE != trailer - index.tableOffset) {
+                throw new IOException("Corrupt code search index: " + file);
+            }
+            index.segment = buffer;
+            return index;
+        });
+    }
+
+
+    /**
+     * Extract literal strings that every match of a regular expression must contain.
+     * Returns an empty list when nothing can be guaranteed (e.g. alternations).
+     * Text inside groups is ignored since the group may be optional or repeated.
+     */
+    public static List<String> requiredLiterals(String regex) {
+        List<String> literals = new ArrayList<>();
+        if (regex.contains("|")) {
+            return literals;
+        }
+
+        StringBuilder current = new StringBuilder();
+        int depth = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\' && i + 1 < regex.length()) {
+                char escaped = regex.charAt(++i);
+                if (Character.isLetterOrDigit(escaped)) {
+                    // Character class, code point or back-reference such as \d, \x41 or \k<name>
+                    flush(literals, current);
+                    i = skipEscapeOperand(regex, i, escaped);
+                } else if (depth == 0) {
+                    current.append(escaped);
+                }
+            } else if (c == '*' || c == '?' || c == '{') {
+                // The preceding character may be absent
+                if (current.length() > 0) {
+                    current.setLength(current.length() - 1);
+                }
+                flush(literals, current);
+                if (c == '{') {
+                    i = skipTo(regex, i, '}');
+                }
+            } else if (c == '+') {
+                flush(literals, current);
+            } else if (c == '[') {
+                flush(literals, current);
+                i = skipTo(regex, i + 1, ']');
+            } else if (c == '(') {
+                flush(literals, current);
+                depth++;
+            } else if (c == ')') {
+                current.setLength(0);
+                depth = Math.max(0, depth - 1);
+            } else if (c == '.' || c == '^' || c == '$') {
+                flush(literals, current);
+            } else if (depth == 0) {
+                current.append(c);
+            }
+        }
+        flush(literals, current);
+        return literals;
+    }
+
+
+    private void removeLocked(String path) {
+        Integer documentId = documentsByPath.remove(path);
+        if (documentId == null) {
+            return;
+        }
+        documents.set(documentId, null);
+        deletedDocuments++;
+        modifications++;
+    }
+
+    private void write(Path file) throws IOException {
+        IndexFiles.save(file, MAGIC, FORMAT_VERSION, out -> {
+            IndexFiles.writeString(out, branch);
+            IndexFiles.writeString(out, commitId);
+
+            // Renumber live documents; the mapping is monotonic so posting lists stay sorted
+            int[] newIds = new int[documents.size()];
+            int live = 0;
+            out.writeInt(documentsByPath.size());
+            for (int id = 0; id < documents.size(); id++) {
+                Document document = documents.get(id);
+                newIds[id] = document != null ? live++ : -1;
+                if (document != null) {
+                    IndexFiles.writeString(out, document.path());
+                    IndexFiles.writeString(out, document.blobId());
+                }
+            }
+
+            int[] trigrams = allTrigrams();
+            int[] table = new int[trigrams.length * 3];
+            int entries = 0;
+            for (int trigram : trigrams) {
+                int offset = out.size();
+                int count = 0;
+                int previous = -1;
+                for (int id : postings(trigram)) {
+                    int newId = newIds[id];
+                    if (newId >= 0) {
+                        writeVarint(out, newId - previous - 1);
+                        previous = newId;
+                        count++;
+                    }
+                }
+                if (count > 0) {
+                    table[entries * 3] = trigram;
+                    table[entries * 3 + 1] = offset;
+                    table[entries * 3 + 2] = count;
+                    entries++;
+                }
+            }
+
+            int tableStart = out.size();
+            for (int i = 0; i < entries * 3; i++) {
+                out.writeInt(table[i]);
+            }
+            out.writeInt(tableStart);
+            out.writeInt(entries);
+            if (out.size() == Integer.MAX_VALUE) {
+                // The byte count saturates there, so offsets can no longer be trusted
+                throw new IOException("Code search index exceeds 2 GB: " + file);
+            }
+        });
+    }
+
+    /**
+     * Ascending ids of the documents containing a trigram, tombstones included: those from
+     * the mapped file followed by those indexed since.
+     */
+    private int[] postings(int trigram) {
+        int entry = findEntry(trigram);
+        PostingList delta = deltaPostings.get(trigram);
+        int segmentCount = entry >= 0 ? segment.getInt(entry + 8) : 0;
+        int deltaCount = delta != null ? delta.size : 0;
+
+        int[] ids = new int[segmentCount + deltaCount];
+        int position = entry >= 0 ? segment.getInt(entry + 4) : 0;
+        int previous = -1;
+        for (int i = 0; i < segmentCount; i++) {
+            int gap = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = segment.get(position++);
+                gap |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            previous += gap + 1;
+            ids[i] = previous;
+        }
+        if (deltaCount > 0) {
+            System.arraycopy(delta.ids, 0, ids, segmentCount, deltaCount);
+        }
+        return ids;
+    }
+
+    /**
+     * Position of the table entry of a trigram in the mapped file, or -1.
+     */
+    private int findEntry(int trigram) {
+        if (segment == null) {
+            return -1;
+        }
+        int low = 0;
+        int high = trigramCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = tableOffset + middle * TABLE_ENTRY_SIZE;
+            int value = segment.getInt(entry);
+            if (value < trigram) {
+                low = middle + 1;
+            } else if (value > trigram) {
+                high = middle - 1;
+            } else {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private int[] allTrigrams() {
+        int[] trigrams = new int[trigramCount + deltaPostings.size()];
+        int count = 0;
+        for (int i = 0; i < trigramCount; i++) {
+            trigrams[count++] = segment.getInt(tableOffset + i * TABLE_ENTRY_SIZE);
+        }
+        for (int trigram : deltaPostings.keySet()) {
+            trigrams[count++] = trigram;
+        }
+        Arrays.sort(trigrams);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || trigrams[unique - 1] != trigrams[i]) {
+                trigrams[unique++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, unique);
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static List<Integer> intersect(List<int[]> lists) {
+        int[] smallest = lists.get(0);
+        List<Integer> result = new ArrayList<>();
+        int[] positions = new int[lists.size()];
+        outer:
+        for (int id : smallest) {
+            for (int l = 1; l < lists.size(); l++) {
+                int[] list = lists.get(l);
+                int position = Arrays.binarySearch(list, positions[l], list.length, id);
+                if (position < 0) {
+                    positions[l] = -position - 1;
+                    continue outer;
+                }
+                positions[l] = position;
+            }
+            result.add(id);
+        }
+        return result;
+    }
+
+    private static int[] trigrams(byte[] content) {
+        if (content.length < 3) {
+            return new int[0];
+        }
+        int[] trigrams = new int[content.length - 2];
+        int count = 0;
+        int window = (fold(content[0]) << 8) | fold(content[1]);
+        for (int i = 2; i < content.length; i++) {
+            window = ((window << 8) | fold(content[i])) & 0xFFFFFF;
+            trigrams[count++] = window;
+        }
+        Arrays.sort(trigrams, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || trigrams[unique - 1] != trigrams[i]) {
+                trigrams[unique++] = trigrams[i];
+            }
+        }
+        return Arrays.copyOf(trigrams, unique);
+    }
+
+    private static int fold(byte b) {
+        int c = b & 0xFF;
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    private static void flush(List<String> literals, StringBuilder current) {
+        if (current.length() >= 3) {
+            literals.add(current.toString());
+        }
+        current.setLength(0);
+    }
+
+    /**
+     * Skip the operand of the escape whose letter is at {@code i}, returning the index of
+     * its last character.
+     */
+    private static int skipEscapeOperand(String regex, int i, char escaped) {
+        int next = i + 1;
+        boolean braced = next < regex.length() && regex.charAt(next) == '{';
+        switch (escaped) {
+            case 'x':
+                return braced ? skipTo(regex, next, '}') : skipWhile(regex, next, 2, "0123456789abcdefABCDEF");
+            case 'u':
+                return skipWhile(regex, next, 4, "0123456789abcdefABCDEF");
+            case '0':
+                return skipWhile(regex, next, 3, "01234567");
+            case 'c':
+                return Math.min(next, regex.length() - 1);
+            case 'k':
+                return next < regex.length() && regex.charAt(next) == '<' ? skipTo(regex, next, '>') : i;
+            case 'p':
+            case 'P':
+            case 'N':
+                return braced ? skipTo(regex, next, '}') : Math.min(next, regex.length() - 1);
+            case 'Q':
+                int end = regex.indexOf("\\E", next);
+                return end < 0 ? regex.length() : end + 1;
+            default:
+                return Character.isDigit(escaped) ? skipWhile(regex, next, Integer.MAX_VALUE, "0123456789") : i;
+        }
+    }
+
+    private static int skipWhile(String regex, int from, int max, String chars) {
+        int i = from;
+        while (i < regex.length() && i - from < max && chars.indexOf(regex.charAt(i)) >= 0) {
+            i++;
+        }
+        return i - 1;
+    }
+
+    private static int skipTo(String regex, int from, char end) {
+        for (int i = from; i < regex.length(); i++) {
+            if (regex.charAt(i) == '\\') {
+                i++;
+            } else if (regex.charAt(i) == end) {
+                return i;
+            }
+        }
+        return regex.length();
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Growable ascending list of document ids.
+     */
+    private static class PostingList {
+
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.gitserver.security;
+
+import com.gitserver.entity.AccessToken.Scope;
+import com.gitserver.service.AccessTokenService;
+import com.gitserver.service.AccessTokenService.VerifiedToken;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Optional;
+
+/**
+ * Authenticates requests carrying a personal access token, either as a bearer token or
+ * as the password of HTTP Basic credentials (as git clients send it). Other requests
+ * pass through to the regular HTTP Basic authentication.
+ */
+@RequiredArgsConstructor
+public class AccessTokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER = "Bearer ";
+    private static final String BASIC = "Basic ";
+
+    private final AccessTokenService accessTokenService;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String token = extractToken(request.getHeader(HttpHeaders.AUTHORIZATION));
+        if (token == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Optional<VerifiedToken> verified = accessTokenService.verify(token);
+        if (verified.isEmpty()) {
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Basic realm=\"Realm\"");
+            response.sendError(HttpStatus.UNAUTHORIZED.value(), "Invalid or expired access token");
+            return;
+        }
+        Scope required = requiredScope(request);
+        if (!verified.get().hasScope(required)) {
+            response.sendError(HttpStatus.FORBIDDEN.value(), "Access token lacks the " + required + " scope");
+            return;
+        }
+
+        UsernamePasswordAuthenticationToken authentication = UsernamePasswordAuthenticationToken.authenticated(
+                verified.get().username(), null, verified.get().authorities());
+        // Lets e.g. token creation tell a token from a password and limit what it grants
+        authentication.setDetails(verified.get());
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(authentication);
+        SecurityContextHolder.setContext(context);
+
+        // Hide the credentials so HTTP Basic authentication does not check the token as a password
+        filterChain.doFilter(new HttpServletRequestWrapper(request) {
+            @Override
+            public String getHeader(String name) {
+                return HttpHeaders.AUTHORIZATION.equalsIgnoreCase(name) ? null : super.getHeader(name);
+            }
+
+            @Override
+            public Enumeration<String> getHeaders(String name) {
+                return HttpHeaders.AUTHORIZATION.equalsIgnoreCase(name)
+                        ? Collections.emptyEnumeration() : super.getHeaders(name);
+            }
+        }, response);
+    }
+
+    static String extractToken(String header) {
+        if (header == null) {
+            return null;
+        }
+        if (header.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return header.substring(BEARER.length()).trim();
+        }
+        if (header.regionMatches(true, 0, BASIC, 0, BASIC.length())) {
+            try {
+                String credentials = new String(Base64.getDecoder().decode(header.substring(BASIC.length()).trim()),
+                        StandardCharsets.UTF_8);
+                int separator = credentials.indexOf(':');
+                String password = separator >= 0 ? credentials.substring(separator + 1) : "";
+                return password.startsWith(AccessTokenService.TOKEN_PREFIX) ? password : null;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    static Scope requiredScope(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith("/git/")) {
+            return Scope.API;
+        }
+        boolean push = path.endsWith("/git-receive-pack")
+                || "git-receive-pack".equals(request.getParameter("service"));
+        return push ? Scope.REPO_WRITE : Scope.REPO_READ;
+    }
+}
@@ -0,0 +1,153 @@
+package com.gitserver.security;
+
+import com.gitserver.event.CacheInvalidatedEvent;
+import com.gitserver.service.CacheInvalidationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Username/password authentication that remembers verified credentials for a short
+ * time, so repeated HTTP Basic requests (e.g. every request of a git fetch) skip the
+ * user lookup and the BCrypt check. Credentials are only held as an HMAC under a key
+ * generated at startup; entries of a user are dropped when the account changes, on
+ * every node of a cluster.
+ */
+@Slf4j
+@Component
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String CACHE_NAME = "credentials";
+
+    private final DaoAuthenticationProvider delegate;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final SecretKeySpec key;
+    private final ThreadLocal<Mac> macs;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Bumped on every invalidation; credentials verified across a bump may be stale and are not cached
+    private final AtomicLong version = new AtomicLong();
+
+    private record Entry(String username, Authentication authentication, long expiresAt) {
+    }
+
+    public CachingAuthenticationProvider(CustomUserDetailsService userDetailsService,
+                                         PasswordEncoder passwordEncoder,
+                                         CacheInvalidationService cacheInvalidationService,
+                                         @Value("${git.auth.cache-ttl-seconds:60}") long ttlSeconds,
+                                         @Value("${git.auth.cache-size:10000}") int maxEntries) {
+        this.delegate = new DaoAuthenticationProvider(passwordEncoder);
+        this.delegate.setUserDetailsService(userDetailsService);
+        this.cacheInvalidationService = cacheInvalidationService;
+
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, HMAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+                mac.init(key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC-SHA256 is not available", e);
+            }
+        });
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        if (ttlMillis <= 0 || authentication.getCredentials() == null) {
+            return delegate.authenticate(authentication);
+        }
+
+        String username = authentication.getName();
+        String cacheKey = cacheKey(username, authentication.getCredentials().toString());
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(cacheKey);
+        if (entry != null && entry.expiresAt() > now) {
+            return entry.authentication();
+        }
+
+        long loadedVersion = version.get();
+        Authentication result = delegate.authenticate(authentication);
+        UsernamePasswordAuthenticationToken verified = UsernamePasswordAuthenticationToken.authenticated(
+                result.getPrincipal(), null, result.getAuthorities());
+        if (entries.size() >= maxEntries) {
+            entries.values().removeIf(e -> e.expiresAt() <= now);
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+        }
+        if (version.get() == loadedVersion) {
+            entries.put(cacheKey, new Entry(username, verified, now + ttlMillis));
+        }
+        return verified;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+
+    /**
+     * Forget the verified credentials of a user. Inside a transaction they are forgotten
+     * again after commit, so a request racing with the change cannot keep them cached.
+     */
+    public void invalidate(String username) {
+        version.incrementAndGet();
+        entries.values().removeIf(entry -> entry.username().equals(username));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    version.incrementAndGet();
+                    entries.values().removeIf(entry -> entry.username().equals(username));
+                }
+            });
+        }
+        cacheInvalidationService.broadcast(CACHE_NAME, username);
+        log.debug("Invalidated cached credentials of {}", username);
+    }
+
+    @EventListener
+    public void onCacheInvalidated(CacheInvalidatedEvent event) {
+        if (event.covers(CACHE_NAME)) {
+            version.incrementAndGet();
+            if (event.isAll()) {
+                entries.clear();
+            } else {
+                entries.values().removeIf(entry -> entry.username().equals(event.getKey()));
+            }
+        }
+    }
+
+    private String cacheKey(String username, String password) {
+        Mac mac = macs.get();
+        mac.update(username.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+    }
+}
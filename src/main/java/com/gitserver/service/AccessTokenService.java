@@ -0,0 +1,336 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.AccessTokenResponse;
+import com.gitserver.dto.CreateAccessTokenRequest;
+import com.gitserver.entity.AccessToken;
+import com.gitserver.entity.AccessToken.Scope;
+import com.gitserver.entity.User;
+import com.gitserver.event.CacheInvalidatedEvent;
+import com.gitserver.exception.AccessTokenNotFoundException;
+import com.gitserver.exception.PermissionDeniedException;
+import com.gitserver.exception.UserNotFoundException;
+import com.gitserver.repository.AccessTokenRepository;
+import com.gitserver.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Service for personal access tokens. Tokens are looked up by the SHA-256 digest of
+ * their value, so verifying one is a hash and an indexed lookup rather than a BCrypt
+ * check; verified tokens are also cached in memory for a short time, and dropped on
+ * every node of a cluster when revoked or when their account changes. Last-used
+ * timestamps are collected in memory and written in batches.
+ */
+@Slf4j
+@Service
+public class AccessTokenService {
+
+    /**
+     * Prefix of every token, so tokens are recognizable in HTTP Basic passwords and by
+     * secret scanners.
+     */
+    public static final String TOKEN_PREFIX = "gsp_";
+
+    private static final int TOKEN_BYTES = 30;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    // Keyed by username on other nodes; they drop every cached token of the account
+    private static final String CACHE_NAME = "access-tokens";
+
+    private final AccessTokenRepository accessTokenRepository;
+    private final UserRepository userRepository;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final TransactionTemplate transactionTemplate;
+    private final SecureRandom random = new SecureRandom();
+    private final long cacheTtlMillis;
+    private final Map<String, VerifiedToken> verified = new ConcurrentHashMap<>();
+    private final Map<Long, LocalDateTime> pendingLastUsed = new ConcurrentHashMap<>();
+
+    /**
+     * A token that passed verification, with the account it authenticates as.
+     */
+    public record VerifiedToken(Long tokenId, String username, Set<Scope> scopes,
+                                List<GrantedAuthority> authorities, LocalDateTime expiresAt, long cachedUntil) {
+
+        public boolean hasScope(Scope scope) {
+            return scopes.contains(scope);
+        }
+    }
+
+    public AccessTokenService(AccessTokenRepository accessTokenRepository,
+                              UserRepository userRepository,
+                              CacheInvalidationService cacheInvalidationService,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${git.auth.cache-ttl-seconds:60}") long cacheTtlSeconds) {
+        this.accessTokenRepository = accessTokenRepository;
+        this.userRepository = userRepository;
+        this.cacheInvalidationService = cacheInvalidationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cacheTtlMillis = cacheTtlSeconds * 1000;
+    }
+
+    /**
+     * Create a token for a user. The response is the only place the token appears.
+     */
+    @Transactional
+    public AccessTokenResponse createToken(String username, CreateAccessTokenRequest request) {
+        return createToken(username, request, null);
+    }
+
+    /**
+     * Create a token for a user, authenticated by another token if creator is not null. A
+     * token cannot grant more than it has: the new one may not have scopes the creator
+     * lacks, and expires no later than the creator.
+     */
+    @Transactional
+    public AccessTokenResponse createToken(String username, CreateAccessTokenRequest request, VerifiedToken creator) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new UserNotFoundException("User not found: " + username));
+
+        if (accessTokenRepository.existsByUserIdAndName(user.getId(), request.getName())) {
+            throw new IllegalArgumentException("An access token named '" + request.getName() + "' already exists");
+        }
+        Set<Scope> scopes = parseScopes(request.getScopes());
+        LocalDateTime expiresAt = request.getExpiresInDays() != null
+                ? LocalDateTime.now().plusDays(request.getExpiresInDays()) : null;
+        if (creator != null) {
+            if (!creator.scopes().containsAll(scopes)) {
+                throw new PermissionDeniedException("An access token cannot create a token with scopes it does not have");
+            }
+            if (creator.expiresAt() != null && (expiresAt == null || expiresAt.isAfter(creator.expiresAt()))) {
+                expiresAt = creator.expiresAt();
+            }
+        }
+
+        byte[] secret = new byte[TOKEN_BYTES];
+        random.nextBytes(secret);
+        String token = TOKEN_PREFIX + Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+
+        AccessToken accessToken = AccessToken.builder()
+                .userId(user.getId())
+                .name(request.getName())
+                .tokenDigest(digest(token))
+                .tokenPrefix(token.substring(0, TOKEN_PREFIX.length() + 4))
+                .scopes(scopes.stream().map(Scope::name).sorted().collect(Collectors.joining(",")))
+                .expiresAt(expiresAt)
+                .build();
+
+        accessToken = accessTokenRepository.save(accessToken);
+        log.info("Created access token '{}' for user '{}'", request.getName(), username);
+
+        AccessTokenResponse response = toResponse(accessToken);
+        response.setToken(token);
+        return response;
+    }
+
+    /**
+     * Get the tokens of a user.
+     */
+    public List<AccessTokenResponse> getTokens(String username) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new UserNotFoundException("User not found: " + username));
+
+        return accessTokenRepository.findByUserIdOrderByCreatedAtDesc(user.getId()).stream()
+                .map(this::toResponse)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Revoke a token of a user. It stops working immediately.
+     */
+    @Transactional
+    public void revokeToken(String username, Long tokenId) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new UserNotFoundException("User not found: " + username));
+
+        AccessToken accessToken = accessTokenRepository.findByIdAndUserId(tokenId, user.getId())
+                .orElseThrow(() -> new AccessTokenNotFoundException(tokenId));
+
+        accessTokenRepository.delete(accessToken);
+        String digest = accessToken.getTokenDigest();
+        verified.remove(digest);
+        pendingLastUsed.remove(tokenId);
+        // A verification racing with the delete may re-cache the token until commit
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    verified.remove(digest);
+                }
+            });
+        }
+        cacheInvalidationService.broadcast(CACHE_NAME, username);
+        log.info("Revoked access token '{}' of user '{}'", accessToken.getName(), username);
+    }
+
+    /**
+     * Revoke every token of a user.
+     */
+    @Transactional
+    public void revokeAll(String username) {
+        userRepository.findByUsername(username)
+                .ifPresent(user -> accessTokenRepository.deleteByUserId(user.getId()));
+        invalidateUser(username);
+    }
+
+    /**
+     * Forget the cached verifications of a user's tokens, e.g. after the account changed.
+     * Inside a transaction they are forgotten again after commit, so a verification racing
+     * with the change cannot re-cache the old account.
+     */
+    public void invalidateUser(String username) {
+        verified.values().removeIf(token -> token.username().equals(username));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    verified.values().removeIf(token -> token.username().equals(username));
+                }
+            });
+        }
+        cacheInvalidationService.broadcast(CACHE_NAME, username);
+    }
+
+    @EventListener
+    public void onCacheInvalidated(CacheInvalidatedEvent event) {
+        if (event.covers(CACHE_NAME)) {
+            if (event.isAll()) {
+                verified.clear();
+            } else {
+                verified.values().removeIf(token -> token.username().equals(event.getKey()));
+            }
+        }
+    }
+
+    /**
+     * Verify a token, returning the account and scopes it grants if it exists, has not
+     * expired and belongs to an enabled user.
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        if (token == null || !token.startsWith(TOKEN_PREFIX)) {
+            return Optional.empty();
+        }
+        String digest = digest(token);
+        long now = System.currentTimeMillis();
+
+        VerifiedToken cached = verified.get(digest);
+        if (cached == null || cached.cachedUntil() <= now) {
+            cached = load(digest, now).orElse(null);
+            if (cached == null) {
+                verified.remove(digest);
+                return Optional.empty();
+            }
+            if (cacheTtlMillis > 0) {
+                verified.put(digest, cached);
+            }
+        }
+        if (cached.expiresAt() != null && cached.expiresAt().isBefore(LocalDateTime.now())) {
+            return Optional.empty();
+        }
+
+        pendingLastUsed.put(cached.tokenId(), LocalDateTime.now());
+        return Optional.of(cached);
+    }
+
+    /**
+     * Write the collected last-used timestamps in one transaction.
+     */
+    @Scheduled(fixedDelayString = "${git.auth.token-last-used-flush-ms:30000}")
+    @PreDestroy
+    public void flushLastUsed() {
+        if (pendingLastUsed.isEmpty()) {
+            return;
+        }
+        Map<Long, LocalDateTime> batch = new HashMap<>();
+        for (Long tokenId : new ArrayList<>(pendingLastUsed.keySet())) {
+            LocalDateTime lastUsed = pendingLastUsed.remove(tokenId);
+            if (lastUsed != null) {
+                batch.put(tokenId, lastUsed);
+            }
+        }
+        transactionTemplate.executeWithoutResult(status ->
+                batch.forEach(accessTokenRepository::updateLastUsedAt));
+        log.debug("Recorded last use of {} access tokens", batch.size());
+    }
+
+    private Optional<VerifiedToken> load(String digest, long now) {
+        Optional<AccessToken> found = accessTokenRepository.findByTokenDigest(digest);
+        // The lookup matched the indexed digest; compare again without early exit
+        if (found.isEmpty() || !MessageDigest.isEqual(
+                found.get().getTokenDigest().getBytes(StandardCharsets.US_ASCII),
+                digest.getBytes(StandardCharsets.US_ASCII))) {
+            return Optional.empty();
+        }
+        AccessToken accessToken = found.get();
+
+        Optional<User> user = userRepository.findById(accessToken.getUserId());
+        if (user.isEmpty() || !user.get().isEnabled()) {
+            return Optional.empty();
+        }
+
+        Set<Scope> scopes = parseScopes(Arrays.asList(accessToken.getScopes().split(",")));
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        user.get().getRoles().forEach(role -> authorities.add(new SimpleGrantedAuthority(role)));
+        scopes.forEach(scope -> authorities.add(new SimpleGrantedAuthority("SCOPE_" + scope.name())));
+
+        return Optional.of(new VerifiedToken(accessToken.getId(), user.get().getUsername(), scopes,
+                List.copyOf(authorities), accessToken.getExpiresAt(), now + cacheTtlMillis));
+    }
+
+    private static Set<Scope> parseScopes(Collection<String> names) {
+        Set<Scope> scopes = EnumSet.noneOf(Scope.class);
+        for (String name : names) {
+            try {
+                scopes.add(Scope.valueOf(name.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown access token scope: " + name);
+            }
+        }
+        return scopes;
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            char[] hex = new char[hash.length * 2];
+            for (int i = 0; i < hash.length; i++) {
+                hex[2 * i] = HEX[(hash[i] >> 4) & 0xF];
+                hex[2 * i + 1] = HEX[hash[i] & 0xF];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private AccessTokenResponse toResponse(AccessToken accessToken) {
+        return AccessTokenResponse.builder()
+                .id(accessToken.getId())
+                .name(accessToken.getName())
+                .tokenPrefix(accessToken.getTokenPrefix())
+                .scopes(Arrays.stream(accessToken.getScopes().split(",")).collect(Collectors.toSet()))
+                .expiresAt(accessToken.getExpiresAt())
+                .lastUsedAt(accessToken.getLastUsedAt())
+                .createdAt(accessToken.getCreatedAt())
+                .build();
+    }
+}
@@ -1,10 +1,7 @@
 package com.gitserver.service;
 
 import com.gitserver.dto.*;
-import com.gitserver.entity.GitRepository;
-import com.gitserver.exception.RepositoryNotFoundException;
 import com.gitserver.git.JGitService;
-import com.gitserver.repository.GitRepositoryJpaRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -19,7 +16,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class BranchService {
 
-    private final GitRepositoryJpaRepository repositoryJpaRepository;
+    private final RepositoryResolver repositoryResolver;
     private final JGitService jGitService;
 
     /**
@@ -58,8 +55,6 @@ public class BranchService {
     }
 
     private void validateRepository(String owner, String name) {
-        if (!repositoryJpaRepository.existsByOwnerAndName(owner, name)) {
-            throw new RepositoryNotFoundException(owner, name);
-        }
+        repositoryResolver.resolve(owner, name);
     }
 }
@@ -0,0 +1,119 @@
+package com.gitserver.service;
+
+import com.gitserver.entity.CacheInvalidation;
+import com.gitserver.event.CacheInvalidatedEvent;
+import com.gitserver.repository.CacheInvalidationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service spreading cache invalidations over the nodes of a cluster. A node dropping a
+ * cache entry records it in the shared database when its change commits; every node
+ * polls the records of the others and publishes a {@link CacheInvalidatedEvent} for
+ * each, which the caches listen to. Outside of cluster mode this does nothing.
+ * <p>
+ * Records are read by time rather than by id, as ids are allocated before commit and
+ * may become visible out of order; a node that has not polled for longer than the
+ * look-back clears its caches instead.
+ */
+@Slf4j
+@Service
+public class CacheInvalidationService {
+
+    // How far back records are read, and kept twice as long
+    private static final Duration LOOK_BACK = Duration.ofMinutes(5);
+
+    private final CacheInvalidationRepository invalidationRepository;
+    private final ClusterService clusterService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    // Records applied within the look-back, by id, with their creation time
+    private final Map<Long, LocalDateTime> applied = new ConcurrentHashMap<>();
+    private volatile LocalDateTime lastPollAt;
+    private volatile LocalDateTime lastPruneAt = LocalDateTime.MIN;
+
+    public CacheInvalidationService(CacheInvalidationRepository invalidationRepository,
+                                    ClusterService clusterService,
+                                    ApplicationEventPublisher eventPublisher,
+                                    PlatformTransactionManager transactionManager) {
+        this.invalidationRepository = invalidationRepository;
+        this.clusterService = clusterService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Tell the other nodes to drop an entry of a cache. Inside a transaction the record is
+     * written just before commit, so it is not missed by a node polling meanwhile.
+     */
+    public void broadcast(String cacheName, String key) {
+        if (!clusterService.isEnabled()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    record(cacheName, key);
+                }
+            });
+        } else {
+            record(cacheName, key);
+        }
+    }
+
+    private void record(String cacheName, String key) {
+        invalidationRepository.save(CacheInvalidation.builder()
+                .nodeId(clusterService.getNodeId())
+                .cacheName(cacheName)
+                .cacheKey(key)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Apply the invalidations other nodes recorded since the last poll.
+     */
+    @Scheduled(fixedDelayString = "${git.cluster.cache-poll-interval-ms:1000}")
+    public void poll() {
+        if (!clusterService.isEnabled()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = now.minus(LOOK_BACK);
+        if (lastPollAt != null && lastPollAt.isBefore(since)) {
+            log.warn("Cache invalidations not polled since {}, clearing caches", lastPollAt);
+            eventPublisher.publishEvent(new CacheInvalidatedEvent(null, null));
+        }
+        List<CacheInvalidation> invalidations =
+                invalidationRepository.findByCreatedAtAfterAndNodeIdNotOrderById(since, clusterService.getNodeId());
+        for (CacheInvalidation invalidation : invalidations) {
+            if (applied.putIfAbsent(invalidation.getId(), invalidation.getCreatedAt()) == null) {
+                eventPublisher.publishEvent(
+                        new CacheInvalidatedEvent(invalidation.getCacheName(), invalidation.getCacheKey()));
+            }
+        }
+        applied.values().removeIf(createdAt -> createdAt.isBefore(since));
+        lastPollAt = now;
+
+        if (clusterService.isCoordinator() && lastPruneAt.isBefore(since)) {
+            Integer deleted = transactionTemplate.execute(status ->
+                    invalidationRepository.deleteCreatedBefore(now.minus(LOOK_BACK.multipliedBy(2))));
+            lastPruneAt = now;
+            log.debug("Pruned {} cache invalidations", deleted);
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.ClusterNodeResponse;
+import com.gitserver.entity.ClusterNode;
+import com.gitserver.event.ClusterMembershipChangedEvent;
+import com.gitserver.repository.ClusterNodeRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Service assigning repositories to the nodes of a cluster. Nodes find each other through
+ * heartbeat rows in the shared database, and every node maps owner/name onto the same
+ * consistent hash ring of the live members, so a node joining or leaving only moves the
+ * repositories it takes over or gave up. Repository files live on storage shared by all
+ * nodes; ownership decides which node serves a repository, so that per-node state such
+ * as caches and write fences only ever sees one writer. Requests forwarded between nodes
+ * are signed with a secret shared by the cluster, so clients cannot pass as a node.
+ */
+@Slf4j
+@Service
+public class ClusterService {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    // How old a forwarded request may be, allowing for clock skew between the nodes
+    private static final long MAX_FORWARD_AGE_MS = 5 * 60 * 1000;
+
+    private final ClusterNodeRepository clusterNodeRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final String nodeId;
+    private final String url;
+    private final int virtualNodes;
+    private final long nodeTimeoutMs;
+    private final byte[] secret;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+
+    private volatile List<ClusterNode> members = List.of();
+    private volatile Ring ring = new Ring(List.of(), 1);
+
+    public ClusterService(ClusterNodeRepository clusterNodeRepository,
+                          ApplicationEventPublisher eventPublisher,
+                          @Value("${git.cluster.enabled:false}") boolean enabled,
+                          @Value("${git.cluster.node-url:}") String nodeUrl,
+                          @Value("${git.cluster.node-id:}") String nodeId,
+                          @Value("${git.cluster.virtual-nodes:128}") int virtualNodes,
+                          @Value("${git.cluster.node-timeout-ms:15000}") long nodeTimeoutMs,
+                          @Value("${git.cluster.secret:}") String secret,
+                          @Value("${server.port:8080}") int serverPort) {
+        this.clusterNodeRepository = clusterNodeRepository;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.url = nodeUrl.isBlank() ? "http://localhost:" + serverPort : nodeUrl.replaceAll("/+$", "");
+        this.nodeId = nodeId.isBlank() ? this.url : nodeId;
+        this.virtualNodes = virtualNodes;
+        this.nodeTimeoutMs = nodeTimeoutMs;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Register this node before the server accepts requests, so it owns its share of the
+     * repositories from the first request on.
+     */
+    @PostConstruct
+    public void join() {
+        if (enabled) {
+            if (secret.length == 0) {
+                throw new IllegalStateException("git.cluster.secret must be set in cluster mode");
+            }
+            heartbeat();
+            log.info("Joined cluster as {} ({})", nodeId, url);
+        }
+    }
+
+    /**
+     * Remove this node on shutdown, so the others take over its repositories at their next
+     * heartbeat instead of after the node timeout.
+     */
+    @PreDestroy
+    public void leave() {
+        if (enabled) {
+            try {
+                clusterNodeRepository.deleteById(nodeId);
+            } catch (Exception e) {
+                log.warn("Failed to leave cluster: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Refresh the heartbeat of this node and the membership seen by it.
+     */
+    @Scheduled(initialDelayString = "${git.cluster.heartbeat-interval-ms:5000}",
+            fixedDelayString = "${git.cluster.heartbeat-interval-ms:5000}")
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        clusterNodeRepository.save(ClusterNode.builder()
+                .nodeId(nodeId)
+                .url(url)
+                .startedAt(startedAt)
+                .lastHeartbeat(now)
+                .build());
+        refreshMembership();
+    }
+
+    /**
+     * Rebuild the hash ring if nodes joined or left since the last refresh.
+     */
+    public void refreshMembership() {
+        LocalDateTime aliveAfter = LocalDateTime.now().minusNanos(nodeTimeoutMs * 1_000_000);
+        List<ClusterNode> alive = clusterNodeRepository.findByLastHeartbeatAfterOrderByNodeId(aliveAfter);
+        List<String> ids = alive.stream().map(ClusterNode::getNodeId).toList();
+        boolean changed = !ids.equals(members.stream().map(ClusterNode::getNodeId).toList());
+        members = alive;
+        if (changed) {
+            ring = new Ring(alive, virtualNodes);
+            log.info("Cluster membership changed: {}", ids);
+            eventPublisher.publishEvent(new ClusterMembershipChangedEvent(ids));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Sign a request this node forwards, over the sending node, the time it was sent and
+     * the method and URI (with query) it was sent for.
+     */
+    public String signForwardedRequest(long timestamp, String method, String uri) {
+        return sign(nodeId, timestamp, method, uri);
+    }
+
+    /**
+     * Check that a request claiming to be forwarded by another node was signed with the
+     * cluster secret, recently, for this method and URI.
+     */
+    public boolean verifyForwardedRequest(String sender, String timestamp, String signature,
+                                          String method, String uri) {
+        if (!enabled || sender == null || timestamp == null || signature == null) {
+            return false;
+        }
+        long sentAt;
+        try {
+            sentAt = Long.parseLong(timestamp);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (Math.abs(System.currentTimeMillis() - sentAt) > MAX_FORWARD_AGE_MS) {
+            return false;
+        }
+        return MessageDigest.isEqual(sign(sender, sentAt, method, uri).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String sign(String sender, long timestamp, String method, String uri) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret, HMAC_ALGORITHM));
+            String signed = String.join("\n", sender, Long.toString(timestamp), method, uri);
+            return HexFormat.of().formatHex(mac.doFinal(signed.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign forwarded request", e);
+        }
+    }
+
+    /**
+     * Get the node a repository's requests must be forwarded to, or empty if this node
+     * owns it (always, outside of cluster mode).
+     */
+    public Optional<ClusterNode> findRemoteOwner(String owner, String name) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        ClusterNode node = ring.nodeFor(owner + "/" + name);
+        return node == null || node.getNodeId().equals(nodeId) ? Optional.empty() : Optional.of(node);
+    }
+
+    /**
+     * Check whether this node owns a repository and runs its background work.
+     */
+    public boolean isLocal(String owner, String name) {
+        return findRemoteOwner(owner, name).isEmpty();
+    }
+
+    /**
+     * Check whether this node runs the background work that is not tied to a repository,
+     * e.g. reaping the trash. The member with the lowest node id does.
+     */
+    public boolean isCoordinator() {
+        List<ClusterNode> current = members;
+        return !enabled || current.isEmpty() || current.get(0).getNodeId().equals(nodeId);
+    }
+
+    /**
+     * Get the live members of the cluster.
+     */
+    public List<ClusterNodeResponse> getMembers() {
+        return members.stream()
+                .map(node -> ClusterNodeResponse.builder()
+                        .nodeId(node.getNodeId())
+                        .url(node.getUrl())
+                        .startedAt(node.getStartedAt())
+                        .lastHeartbeat(node.getLastHeartbeat())
+                        .self(node.getNodeId().equals(nodeId))
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Consistent hash ring with a number of points per node, so keys spread evenly and a
+     * membership change only moves the keys between the changed node and its neighbours.
+     */
+    static final class Ring {
+
+        private final NavigableMap<Long, ClusterNode> points = new TreeMap<>();
+
+        Ring(Collection<ClusterNode> nodes, int virtualNodes) {
+            for (ClusterNode node : nodes) {
+                for (int i = 0; i < virtualNodes; i++) {
+                    points.put(hash(node.getNodeId() + "#" + i), node);
+                }
+            }
+        }
+
+        ClusterNode nodeFor(String key) {
+            if (points.isEmpty()) {
+                return null;
+            }
+            Map.Entry<Long, ClusterNode> point = points.ceilingEntry(hash(key));
+            return (point != null ? point : points.firstEntry()).getValue();
+        }
+
+        private static long hash(String value) {
+            try {
+                byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+                long hash = 0;
+                for (int i = 0; i < 8; i++) {
+                    hash = (hash << 8) | (digest[i] & 0xff);
+                }
+                return hash;
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("MD5 not available", e);
+            }
+        }
+    }
+}
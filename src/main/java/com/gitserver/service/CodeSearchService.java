@@ -0,0 +1,316 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.CodeSearchResult;
+import com.gitserver.entity.GitRepository;
+import com.gitserver.entity.RepositoryPermission.PermissionLevel;
+import com.gitserver.event.RefUpdateEvent;
+import com.gitserver.exception.RepositoryNotFoundException;
+import com.gitserver.git.JGitService;
+import com.gitserver.repository.GitRepositoryJpaRepository;
+import com.gitserver.search.TrigramIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Service for code search over the default branch of every repository.
+ * Each repository has a {@link TrigramIndex} that narrows a query down to candidate
+ * files, which are then matched line by line. Indexes are built in the background,
+ * updated from the files changed by each ref update and merged into their file under
+ * {@code git.search.index-path} once {@code git.search.merge-threshold} files changed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CodeSearchService {
+
+    private static final int MAX_MATCHES_PER_FILE = 10;
+    private static final int MAX_LINE_LENGTH = 500;
+
+    private final GitRepositoryJpaRepository repositoryJpaRepository;
+    private final PermissionService permissionService;
+    private final JGitService jGitService;
+    private final TaskExecutor taskExecutor;
+
+    private final Map<Long, TrigramIndex> indexes = new ConcurrentHashMap<>();
+    private final Map<Long, Object> locks = new ConcurrentHashMap<>();
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    @Value("${git.search.index-path:./search-index}")
+    private String indexPath;
+
+    @Value("${git.search.max-file-size:1048576}")
+    private long maxFileSize;
+
+    @Value("${git.search.merge-threshold:1000}")
+    private int mergeThreshold;
+
+    /**
+     * Search the code of the repositories visible to a user. Repositories whose index is
+     * still being built are skipped.
+     *
+     * @param query    literal text (case-insensitive) or a regular expression
+     * @param regex    whether the query is a regular expression
+     * @param repo     optional "owner/name" filter
+     * @param path     optional path prefix filter
+     * @param limit    maximum number of files returned
+     * @param username authenticated user, or null for anonymous access
+     */
+    public List<CodeSearchResult> search(String query, boolean regex, String repo, String path, 
+                                         int limit, String username) {
+        if (query == null || query.isEmpty()) {
+            throw new IllegalArgumentException("Search query must not be empty");
+        }
+
+        Pattern pattern;
+        List<String> literals;
+        try {
+            pattern = regex ? Pattern.compile(query) : Pattern.compile(Pattern.quote(query), Pattern.CASE_INSENSITIVE);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Invalid regular expression: " + e.getDescription());
+        }
+        literals = regex ? TrigramIndex.requiredLiterals(query) : List.of(query);
+
+        List<CodeSearchResult> results = new ArrayList<>();
+        for (GitRepository repository : searchableRepositories(repo, username)) {
+            if (results.size() >= limit) {
+                break;
+            }
+            TrigramIndex index = getIndex(repository);
+            if (index == null) {
+                continue;
+            }
+            List<TrigramIndex.Document> candidates = index.candidates(literals, path);
+            if (candidates.isEmpty()) {
+                continue;
+            }
+
+            Map<String, String> blobIdsByPath = new LinkedHashMap<>();
+            candidates.forEach(document -> blobIdsByPath.put(document.path(), document.blobId()));
+            jGitService.readBlobs(repository.getOwner(), repository.getName(), blobIdsByPath, maxFileSize,
+                    (filePath, blobId, content) -> {
+                        if (content != null) {
+                            List<CodeSearchResult.LineMatch> matches = matchLines(pattern, content);
+                            if (!matches.isEmpty()) {
+                                results.add(CodeSearchResult.builder()
+                                        .owner(repository.getOwner())
+                                        .repository(repository.getName())
+                                        .path(filePath)
+                                        .blobId(blobId)
+                                        .matches(matches)
+                                        .build());
+                            }
+                        }
+                        return results.size() < limit;
+                    });
+        }
+        return results;
+    }
+
+    /**
+     * Bring the index of a repository up to date with its default branch, visiting only
+     * the files changed since the indexed commit. The index is rebuilt if that commit is
+     * no longer in the branch's history, e.g. after a force-push, as gc may remove it.
+     * A rebuilt index replaces the published one only once it is complete.
+     */
+    public void updateIndex(GitRepository repository) {
+        Long repositoryId = repository.getId();
+        synchronized (locks.computeIfAbsent(repositoryId, id -> new Object())) {
+            TrigramIndex index = indexes.get(repositoryId);
+            if (index == null) {
+                index = loadIndex(repositoryId);
+            }
+
+            String branch = repository.getDefaultBranch();
+            String head = jGitService.resolveBranchHead(repository.getOwner(), repository.getName(), branch);
+            if (Objects.equals(index.getCommitId(), head) && branch.equals(index.getBranch())) {
+                indexes.put(repositoryId, index);
+                return;
+            }
+            if (!branch.equals(index.getBranch()) || (index.getCommitId() != null && (head == null
+                    || !jGitService.isAncestor(repository.getOwner(), repository.getName(), index.getCommitId(), head)))) {
+                index = new TrigramIndex();
+            }
+
+            int[] changed = new int[1];
+            TrigramIndex target = index;
+            jGitService.walkChangedBlobs(repository.getOwner(), repository.getName(), 
+                    index.getCommitId(), head, maxFileSize, (filePath, blobId, content) -> {
+                        if (content == null || isBinary(content)) {
+                            target.remove(filePath);
+                        } else {
+                            target.put(filePath, blobId, content);
+                        }
+                        changed[0]++;
+                        return true;
+                    });
+            index.setIndexedCommit(branch, head);
+
+            // Changes not merged yet are replayed from the file's commit after a restart
+            if (index.needsMerge(mergeThreshold)) {
+                try {
+                    index.merge(indexFile(repositoryId));
+                } catch (IOException e) {
+                    log.warn("Failed to save code search index for {}/{}: {}", 
+                            repository.getOwner(), repository.getName(), e.getMessage());
+                }
+            }
+            indexes.put(repositoryId, index);
+            log.debug("Updated code search index for {}/{}: {} changed files", 
+                    repository.getOwner(), repository.getName(), changed[0]);
+        }
+    }
+
+    /**
+     * Delete the index of a repository.
+     */
+    public void deleteIndex(Long repositoryId) {
+        indexes.remove(repositoryId);
+        locks.remove(repositoryId);
+        try {
+            Files.deleteIfExists(indexFile(repositoryId));
+        } catch (IOException e) {
+            log.warn("Failed to delete code search index {}: {}", repositoryId, e.getMessage());
+        }
+    }
+
+    /**
+     * Catch up on all repositories at startup, e.g. after pushes made while the index
+     * files were not being updated.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void indexAll() {
+        for (GitRepository repository : repositoryJpaRepository.findAll()) {
+            updateIndexQuietly(repository);
+        }
+    }
+
+    /**
+     * Update the index when the default branch of a repository moves.
+     */
+    @Async
+    @EventListener
+    public void onRefUpdate(RefUpdateEvent event) {
+        repositoryJpaRepository.findByOwnerAndName(event.getOwner(), event.getName()).ifPresent(repository -> {
+            boolean defaultBranchChanged = event.getChanges().stream()
+                    .anyMatch(change -> change.isBranch() 
+                            && repository.getDefaultBranch().equals(change.getBranchName()));
+            if (defaultBranchChanged) {
+                updateIndexQuietly(repository);
+            }
+        });
+    }
+
+    private void scheduleUpdate(GitRepository repository) {
+        if (pending.add(repository.getId())) {
+            taskExecutor.execute(() -> {
+                try {
+                    updateIndexQuietly(repository);
+                } finally {
+                    pending.remove(repository.getId());
+                }
+            });
+        }
+    }
+
+    private void updateIndexQuietly(GitRepository repository) {
+        try {
+            updateIndex(repository);
+        } catch (Exception e) {
+            log.warn("Failed to update code search index for {}/{}: {}", 
+                    repository.getOwner(), repository.getName(), e.getMessage());
+        }
+    }
+
+    private List<GitRepository> searchableRepositories(String repo, String username) {
+        List<GitRepository> repositories;
+        if (repo != null && !repo.isEmpty()) {
+            String[] parts = repo.split("/", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Repository filter must be 'owner/name'");
+            }
+            repositories = List.of(repositoryJpaRepository.findByOwnerAndName(parts[0], parts[1])
+                    .orElseThrow(() -> new RepositoryNotFoundException(parts[0], parts[1])));
+        } else {
+            repositories = new ArrayList<>(repositoryJpaRepository.findAll());
+            repositories.sort(Comparator.comparing(GitRepository::getOwner).thenComparing(GitRepository::getName));
+        }
+
+        Set<Long> permitted = permissionService.filterPermitted(
+                repositories.stream().map(GitRepository::getId).toList(), username, PermissionLevel.READ);
+        return repositories.stream()
+                .filter(repository -> permitted.contains(repository.getId()))
+                .toList();
+    }
+
+    /**
+     * The index of a repository's default branch, or null after scheduling a build.
+     */
+    private TrigramIndex getIndex(GitRepository repository) {
+        TrigramIndex index = indexes.get(repository.getId());
+        if (index == null || !repository.getDefaultBranch().equals(index.getBranch())) {
+            scheduleUpdate(repository);
+            return null;
+        }
+        return index;
+    }
+
+    private TrigramIndex loadIndex(Long repositoryId) {
+        Path file = indexFile(repositoryId);
+        if (Files.exists(file)) {
+            try {
+                return TrigramIndex.load(file);
+            } catch (IOException e) {
+                log.warn("Discarding unreadable code search index {}: {}", file, e.getMessage());
+            }
+        }
+        return new TrigramIndex();
+    }
+
+    private Path indexFile(Long repositoryId) {
+        return Paths.get(indexPath, repositoryId + ".idx");
+    }
+
+    private static List<CodeSearchResult.LineMatch> matchLines(Pattern pattern, byte[] content) {
+        List<CodeSearchResult.LineMatch> matches = new ArrayList<>();
+        String[] lines = new String(content, StandardCharsets.UTF_8).split("\n", -1);
+        Matcher matcher = pattern.matcher("");
+        for (int i = 0; i < lines.length && matches.size() < MAX_MATCHES_PER_FILE; i++) {
+            if (matcher.reset(lines[i]).find()) {
+                String line = lines[i].length() > MAX_LINE_LENGTH ? lines[i].substring(0, MAX_LINE_LENGTH) : lines[i];
+                matches.add(CodeSearchResult.LineMatch.builder()
+                        .lineNumber(i + 1)
+                        .line(line)
+                        .build());
+            }
+        }
+        return matches;
+    }
+
+    private static boolean isBinary(byte[] content) {
+        int length = Math.min(content.length, 8000);
+        for (int i = 0; i < length; i++) {
+            if (content[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
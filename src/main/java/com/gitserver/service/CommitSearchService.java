@@ -0,0 +1,195 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.CommitSearchResponse;
+import com.gitserver.entity.GitRepository;
+import com.gitserver.event.RefUpdateEvent;
+import com.gitserver.exception.RepositoryNotFoundException;
+import com.gitserver.git.JGitService;
+import com.gitserver.repository.GitRepositoryJpaRepository;
+import com.gitserver.search.CommitIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service for searching commit messages and authors.
+ * The {@link CommitIndex} of a repository is built in the background on first use and
+ * afterwards extended with the commits each ref update makes reachable, or rebuilt
+ * when an update is not a fast-forward.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CommitSearchService {
+
+    private final GitRepositoryJpaRepository repositoryJpaRepository;
+    private final JGitService jGitService;
+    private final TaskExecutor taskExecutor;
+
+    private final Map<Long, CommitIndex> indexes = new ConcurrentHashMap<>();
+    private final Map<Long, Object> locks = new ConcurrentHashMap<>();
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+
+    @Value("${git.search.index-path:./search-index}")
+    private String indexPath;
+
+    /**
+     * Search the commits of a repository. Returns empty while the index is being built.
+     */
+    public Optional<CommitSearchResponse> search(String owner, String name, String query, int page, int size) {
+        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, name)
+                .orElseThrow(() -> new RepositoryNotFoundException(owner, name));
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query must not be empty");
+        }
+
+        CommitIndex index = indexes.get(repository.getId());
+        if (index == null) {
+            // Load a saved index or build one, then catch up on anything pushed meanwhile
+            scheduleUpdate(repository);
+            return Optional.empty();
+        }
+
+        CommitIndex.Page result = index.search(query, page * size, size);
+        List<CommitSearchResponse.Item> items = result.hits().stream()
+                .map(hit -> CommitSearchResponse.Item.builder()
+                        .id(hit.entry().commitId())
+                        .shortId(hit.entry().commitId().substring(0, 7))
+                        .summary(hit.entry().summary())
+                        .author(hit.entry().author())
+                        .authorEmail(hit.entry().authorEmail())
+                        .commitTime(hit.entry().commitTime())
+                        .score(hit.score())
+                        .build())
+                .toList();
+
+        return Optional.of(CommitSearchResponse.builder()
+                .query(query)
+                .totalCount(result.total())
+                .page(page)
+                .size(size)
+                .items(items)
+                .build());
+    }
+
+    /**
+     * Index the commits that became reachable from the branches of a repository since
+     * the last update, building the index first if needed. The index is rebuilt when a
+     * previously indexed head is no longer reachable from any branch.
+     */
+    public void updateIndex(GitRepository repository) {
+        Long repositoryId = repository.getId();
+        synchronized (locks.computeIfAbsent(repositoryId, id -> new Object())) {
+            CommitIndex index = indexes.get(repositoryId);
+            if (index == null) {
+                index = loadIndex(repositoryId);
+            }
+
+            List<String> heads = jGitService.getBranchHeads(repository.getOwner(), repository.getName());
+            if (!heads.equals(index.getHeads())) {
+                if (!jGitService.allReachable(repository.getOwner(), repository.getName(), index.getHeads(), heads)) {
+                    // A force-push or branch deletion dropped commits; the index can only grow, so
+                    // build a new one while searches keep using the published index
+                    index = new CommitIndex();
+                }
+                int before = index.size();
+                CommitIndex target = index;
+                jGitService.walkCommits(repository.getOwner(), repository.getName(), heads, index.getHeads(),
+                        commit -> target.add(commit.getId(), commit.getAuthor(), commit.getAuthorEmail(),
+                                commit.getCommitTime(), commit.getMessage()));
+                index.setHeads(heads);
+                save(repository, index);
+                log.debug("Indexed {} commits of {}/{}", index.size() - before, 
+                        repository.getOwner(), repository.getName());
+            }
+            indexes.put(repositoryId, index);
+        }
+    }
+
+    /**
+     * Delete the index of a repository.
+     */
+    public void deleteIndex(Long repositoryId) {
+        indexes.remove(repositoryId);
+        locks.remove(repositoryId);
+        try {
+            Files.deleteIfExists(indexFile(repositoryId));
+        } catch (IOException e) {
+            log.warn("Failed to delete commit index {}: {}", repositoryId, e.getMessage());
+        }
+    }
+
+    /**
+     * Extend the index after refs of a repository have changed. Repositories whose
+     * index has never been built are left until they are first searched.
+     */
+    @Async
+    @EventListener
+    public void onRefUpdate(RefUpdateEvent event) {
+        repositoryJpaRepository.findByOwnerAndName(event.getOwner(), event.getName()).ifPresent(repository -> {
+            if (indexes.containsKey(repository.getId()) || Files.exists(indexFile(repository.getId()))) {
+                updateIndexQuietly(repository);
+            }
+        });
+    }
+
+    private void scheduleUpdate(GitRepository repository) {
+        if (pending.add(repository.getId())) {
+            taskExecutor.execute(() -> {
+                try {
+                    updateIndexQuietly(repository);
+                } finally {
+                    pending.remove(repository.getId());
+                }
+            });
+        }
+    }
+
+    private void updateIndexQuietly(GitRepository repository) {
+        try {
+            updateIndex(repository);
+        } catch (Exception e) {
+            log.warn("Failed to update commit index for {}/{}: {}", 
+                    repository.getOwner(), repository.getName(), e.getMessage());
+        }
+    }
+
+    private CommitIndex loadIndex(Long repositoryId) {
+        Path file = indexFile(repositoryId);
+        if (Files.exists(file)) {
+            try {
+                return CommitIndex.load(file);
+            } catch (IOException e) {
+                log.warn("Discarding unreadable commit index {}: {}", file, e.getMessage());
+            }
+        }
+        return new CommitIndex();
+    }
+
+    private void save(GitRepository repository, CommitIndex index) {
+        try {
+            index.save(indexFile(repository.getId()));
+        } catch (IOException e) {
+            log.warn("Failed to save commit index for {}/{}: {}", 
+                    repository.getOwner(), repository.getName(), e.getMessage());
+        }
+    }
+
+    private Path indexFile(Long repositoryId) {
+        return Paths.get(indexPath, repositoryId + ".commits");
+    }
+}
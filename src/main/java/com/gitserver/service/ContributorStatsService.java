@@ -0,0 +1,239 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.CommitDiffStats;
+import com.gitserver.dto.CommitInfo;
+import com.gitserver.dto.ContributorStats;
+import com.gitserver.entity.CommitStats;
+import com.gitserver.entity.ContributorStatsState;
+import com.gitserver.entity.ContributorWeeklyStats;
+import com.gitserver.entity.GitRepository;
+import com.gitserver.git.JGitService;
+import com.gitserver.repository.CommitStatsRepository;
+import com.gitserver.repository.ContributorStatsStateRepository;
+import com.gitserver.repository.ContributorWeeklyStatsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service computing per-author weekly commit, addition and deletion statistics.
+ * Diff statistics are computed once per commit (in parallel) and stored in
+ * {@link CommitStats}; weekly aggregates are extended with only the commits added
+ * to the default branch since the last run.
+ */
+@Slf4j
+@Service
+public class ContributorStatsService {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final CommitStatsRepository commitStatsRepository;
+    private final ContributorWeeklyStatsRepository weeklyStatsRepository;
+    private final ContributorStatsStateRepository stateRepository;
+    private final JGitService jGitService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${git.insights.stats-parallelism:0}")
+    private int parallelism;
+
+    public ContributorStatsService(CommitStatsRepository commitStatsRepository,
+                                   ContributorWeeklyStatsRepository weeklyStatsRepository,
+                                   ContributorStatsStateRepository stateRepository,
+                                   JGitService jGitService,
+                                   PlatformTransactionManager transactionManager) {
+        this.commitStatsRepository = commitStatsRepository;
+        this.weeklyStatsRepository = weeklyStatsRepository;
+        this.stateRepository = stateRepository;
+        this.jGitService = jGitService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Get the contributor statistics of a repository, or empty if they have not been
+     * computed for the current default branch yet.
+     */
+    public Optional<List<ContributorStats>> getContributorStats(GitRepository repository) {
+        Optional<ContributorStatsState> state = stateRepository.findByRepositoryId(repository.getId());
+        if (state.isEmpty() || !repository.getDefaultBranch().equals(state.get().getIndexedBranch())) {
+            return Optional.empty();
+        }
+
+        Map<String, List<ContributorWeeklyStats>> byAuthor = weeklyStatsRepository
+                .findByRepositoryIdOrderByAuthorAscWeekStartAsc(repository.getId())
+                .stream()
+                .collect(Collectors.groupingBy(ContributorWeeklyStats::getAuthor, LinkedHashMap::new, Collectors.toList()));
+
+        List<ContributorStats> result = new ArrayList<>();
+        byAuthor.forEach((author, weeks) -> result.add(ContributorStats.builder()
+                .author(author)
+                .totalCommits(weeks.stream().mapToLong(ContributorWeeklyStats::getCommits).sum())
+                .totalAdditions(weeks.stream().mapToLong(ContributorWeeklyStats::getAdditions).sum())
+                .totalDeletions(weeks.stream().mapToLong(ContributorWeeklyStats::getDeletions).sum())
+                .weeks(weeks.stream()
+                        .map(w -> ContributorStats.Week.builder()
+                                .weekStart(w.getWeekStart())
+                                .commits(w.getCommits())
+                                .additions(w.getAdditions())
+                                .deletions(w.getDeletions())
+                                .build())
+                        .collect(Collectors.toList()))
+                .build()));
+        result.sort(Comparator.comparingLong(ContributorStats::getTotalCommits).reversed());
+        return Optional.of(result);
+    }
+
+    /**
+     * Bring the contributor statistics of a repository up to date with its default branch.
+     * Concurrent refreshes of the same repository are serialized on the state row.
+     */
+    @Transactional
+    public void refresh(GitRepository repository) {
+        String owner = repository.getOwner();
+        String name = repository.getName();
+        Long repositoryId = repository.getId();
+        ContributorStatsState state = lockState(repositoryId);
+
+        String branch = repository.getDefaultBranch();
+        String head = jGitService.resolveBranchHead(owner, name, branch);
+        boolean sameBranch = branch.equals(state.getIndexedBranch());
+        if (sameBranch && Objects.equals(head, state.getIndexedCommitId())) {
+            return;
+        }
+
+        String since = state.getIndexedCommitId();
+        boolean incremental = sameBranch && since != null && head != null 
+                && jGitService.isAncestor(owner, name, since, head);
+        if (!incremental) {
+            weeklyStatsRepository.deleteByRepositoryId(repositoryId);
+            since = null;
+        }
+
+        if (head != null) {
+            List<CommitInfo> batch = new ArrayList<>();
+            jGitService.walkCommits(owner, name, head, since, commit -> {
+                batch.add(commit);
+                if (batch.size() >= BATCH_SIZE) {
+                    processBatch(repository, batch);
+                    batch.clear();
+                }
+            });
+            processBatch(repository, batch);
+        }
+
+        state.setIndexedBranch(branch);
+        state.setIndexedCommitId(head);
+        stateRepository.save(state);
+    }
+
+    /**
+     * Remove all contributor statistics of a repository.
+     */
+    @Transactional
+    public void deleteStatistics(Long repositoryId) {
+        weeklyStatsRepository.deleteByRepositoryId(repositoryId);
+        commitStatsRepository.deleteByRepositoryId(repositoryId);
+        stateRepository.deleteByRepositoryId(repositoryId);
+    }
+
+    private ContributorStatsState lockState(Long repositoryId) {
+        Optional<ContributorStatsState> existing = stateRepository.findByRepositoryIdForUpdate(repositoryId);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        // Insert in a transaction of its own so losing a race does not roll back the caller's
+        try {
+            transactionTemplate.executeWithoutResult(status -> stateRepository.saveAndFlush(
+                    ContributorStatsState.builder()
+                            .repositoryId(repositoryId)
+                            .build()));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Contributor stats state of repository {} was created concurrently", repositoryId);
+        }
+        return stateRepository.findByRepositoryIdForUpdate(repositoryId).orElseThrow();
+    }
+
+    private void processBatch(GitRepository repository, List<CommitInfo> commits) {
+        if (commits.isEmpty()) {
+            return;
+        }
+        Long repositoryId = repository.getId();
+
+        // Reuse stats already computed for these commits (e.g. before a history rewrite)
+        Map<String, CommitStats> known = commitStatsRepository
+                .findByRepositoryIdAndCommitIdIn(repositoryId, commits.stream().map(CommitInfo::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(CommitStats::getCommitId, Function.identity()));
+
+        Map<String, CommitInfo> missing = commits.stream()
+                .filter(c -> !known.containsKey(c.getId()))
+                .collect(Collectors.toMap(CommitInfo::getId, Function.identity()));
+
+        if (!missing.isEmpty()) {
+            List<CommitDiffStats> diffStats = jGitService.getCommitDiffStats(repository.getOwner(), 
+                    repository.getName(), new ArrayList<>(missing.keySet()), effectiveParallelism());
+            List<CommitStats> computed = diffStats.stream()
+                    .map(d -> CommitStats.builder()
+                            .repositoryId(repositoryId)
+                            .commitId(d.getCommitId())
+                            .author(missing.get(d.getCommitId()).getAuthor())
+                            .weekStart(weekStart(missing.get(d.getCommitId()).getAuthorTime()))
+                            .additions(d.getAdditions())
+                            .deletions(d.getDeletions())
+                            .build())
+                    .toList();
+            commitStatsRepository.saveAll(computed);
+            computed.forEach(c -> known.put(c.getCommitId(), c));
+        }
+
+        // Aggregate the batch per (author, week) before touching the weekly table
+        Map<String, Map<LocalDate, long[]>> totals = new HashMap<>();
+        for (CommitInfo commit : commits) {
+            CommitStats stats = known.get(commit.getId());
+            long[] bucket = totals.computeIfAbsent(stats.getAuthor(), a -> new HashMap<>())
+                    .computeIfAbsent(stats.getWeekStart(), w -> new long[3]);
+            bucket[0]++;
+            bucket[1] += stats.getAdditions();
+            bucket[2] += stats.getDeletions();
+        }
+
+        totals.forEach((author, weeks) -> weeks.forEach((week, bucket) -> {
+            if (weeklyStatsRepository.increment(repositoryId, author, week, bucket[0], bucket[1], bucket[2]) == 0) {
+                weeklyStatsRepository.saveAndFlush(ContributorWeeklyStats.builder()
+                        .repositoryId(repositoryId)
+                        .author(author)
+                        .weekStart(week)
+                        .commits(bucket[0])
+                        .additions(bucket[1])
+                        .deletions(bucket[2])
+                        .build());
+            }
+        }));
+        log.debug("Processed contributor stats for {} commits ({} diffed) in {}/{}", 
+                commits.size(), missing.size(), repository.getOwner(), repository.getName());
+    }
+
+    private LocalDate weekStart(long authorTime) {
+        return Instant.ofEpochMilli(authorTime).atZone(ZoneOffset.UTC).toLocalDate()
+                .with(TemporalAdjusters.previousOrSame(DayOfWeek.SUNDAY));
+    }
+
+    private int effectiveParallelism() {
+        return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+}
@@ -0,0 +1,132 @@
+package com.gitserver.service;
+
+import com.gitserver.entity.GitRepository;
+import com.gitserver.exception.RepositoryNotFoundException;
+import com.gitserver.exception.RepositoryQuotaExceededException;
+import com.gitserver.git.JGitService;
+import com.gitserver.repository.GitRepositoryJpaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Service for tracking repository disk usage.
+ * Usage is kept incrementally on {@link GitRepository#getDiskUsage()} as objects are
+ * written, and periodically reconciled against a full scan of the object database.
+ * Scans run outside of any transaction of this service; only storing their result does.
+ */
+@Slf4j
+@Service
+public class DiskUsageService {
+
+    private final GitRepositoryJpaRepository repositoryJpaRepository;
+    private final JGitService jGitService;
+    private final ClusterService clusterService;
+    private final TransactionTemplate transactionTemplate;
+    private final long quotaBytes;
+
+    public DiskUsageService(GitRepositoryJpaRepository repositoryJpaRepository,
+                            JGitService jGitService,
+                            ClusterService clusterService,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${git.repositories.quota-bytes:0}") long quotaBytes) {
+        this.repositoryJpaRepository = repositoryJpaRepository;
+        this.jGitService = jGitService;
+        this.clusterService = clusterService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.quotaBytes = quotaBytes;
+    }
+
+    /**
+     * Get the disk usage of a repository, scanning it once if it has never been measured.
+     */
+    public long getDiskUsage(GitRepository repository) {
+        if (repository.getDiskUsage() != null) {
+            return repository.getDiskUsage();
+        }
+        return recalculate(repository.getOwner(), repository.getName());
+    }
+
+    /**
+     * Add the size of newly written objects, e.g. a pack received by receive-pack.
+     */
+    @Transactional
+    public void recordBytesAdded(String owner, String name, long bytes) {
+        if (bytes <= 0) {
+            return;
+        }
+        repositoryJpaRepository.addDiskUsage(owner, name, bytes);
+    }
+
+    /**
+     * Add the size of the loose objects written by a commit made through the API.
+     */
+    @Transactional
+    public void recordCommit(String owner, String name, String commitId) {
+        if (commitId == null) {
+            return;
+        }
+        recordBytesAdded(owner, name, jGitService.getLooseObjectsSize(owner, name, commitId));
+    }
+
+    /**
+     * Replace the tracked usage with the result of a full scan of the object database.
+     */
+    public long recalculate(String owner, String name) {
+        long size = jGitService.getRepositorySize(owner, name);
+        transactionTemplate.executeWithoutResult(status -> repositoryJpaRepository.setDiskUsage(owner, name, size));
+        return size;
+    }
+
+    /**
+     * Get the number of bytes a repository may still grow by, or -1 if quotas are disabled.
+     */
+    public long getRemainingQuota(String owner, String name) {
+        if (quotaBytes <= 0) {
+            return -1;
+        }
+        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, name)
+                .orElseThrow(() -> new RepositoryNotFoundException(owner, name));
+        return Math.max(0, quotaBytes - getDiskUsage(repository));
+    }
+
+    /**
+     * Verify a repository is below its quota, throw exception if not.
+     */
+    public void checkQuota(String owner, String name) {
+        if (getRemainingQuota(owner, name) == 0) {
+            GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, name)
+                    .orElseThrow(() -> new RepositoryNotFoundException(owner, name));
+            throw new RepositoryQuotaExceededException(owner, name, getDiskUsage(repository), quotaBytes);
+        }
+    }
+
+    /**
+     * Periodically rescan every repository this node owns to correct drift in the incremental counters
+     * (e.g. objects pruned by gc or written outside the server).
+     */
+    @Scheduled(initialDelayString = "${git.disk-usage.reconcile-interval-ms:21600000}",
+               fixedDelayString = "${git.disk-usage.reconcile-interval-ms:21600000}")
+    public void reconcileAll() {
+        for (GitRepository repository : repositoryJpaRepository.findAll()) {
+            if (!clusterService.isLocal(repository.getOwner(), repository.getName())) {
+                continue;
+            }
+            try {
+                Long tracked = repository.getDiskUsage();
+                long actual = recalculate(repository.getOwner(), repository.getName());
+                if (tracked != null && tracked != actual) {
+                    log.debug("Reconciled disk usage of {}/{}: {} -> {} bytes",
+                            repository.getOwner(), repository.getName(), tracked, actual);
+                }
+            } catch (Exception e) {
+                log.warn("Failed to reconcile disk usage of {}/{}: {}",
+                        repository.getOwner(), repository.getName(), e.getMessage());
+            }
+        }
+    }
+}
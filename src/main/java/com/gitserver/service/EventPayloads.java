@@ -0,0 +1,74 @@
+package com.gitserver.service;
+
+import com.gitserver.event.IssueChangedEvent;
+import com.gitserver.event.RefUpdateEvent;
+import com.gitserver.event.RefUpdateEvent.RefChange;
+
+import java.util.*;
+
+/**
+ * Payloads of the repository events sent to event stream subscribers and webhooks, so
+ * both describe an event the same way.
+ */
+final class EventPayloads {
+
+    static final String PUSH = "push";
+    static final String BRANCH_CREATED = "branch.created";
+    static final String BRANCH_DELETED = "branch.deleted";
+    static final String ISSUE = "issue";
+    static final String PULL_REQUEST = "pull_request";
+
+    static final List<String> TYPES = List.of(PUSH, BRANCH_CREATED, BRANCH_DELETED, ISSUE, PULL_REQUEST);
+
+    private static final int MAX_REFS_PER_PUSH = 100;
+
+    private EventPayloads() {
+    }
+
+    record Payload(String type, Map<String, Object> data) {
+    }
+
+    /**
+     * A push event for the updated refs, followed by an event per created or deleted branch.
+     */
+    static List<Payload> of(RefUpdateEvent event) {
+        List<Payload> payloads = new ArrayList<>();
+        List<Map<String, Object>> refs = new ArrayList<>();
+        for (RefChange change : event.getChanges()) {
+            if (change.getNewId() != null && refs.size() < MAX_REFS_PER_PUSH) {
+                Map<String, Object> ref = new LinkedHashMap<>();
+                ref.put("ref", change.getRefName());
+                ref.put("before", change.getOldId());
+                ref.put("after", change.getNewId());
+                refs.add(ref);
+            }
+        }
+        if (!refs.isEmpty()) {
+            payloads.add(new Payload(PUSH, Map.of(
+                    "source", event.getSource().name().toLowerCase(Locale.ROOT),
+                    "refCount", event.getChanges().size(),
+                    "refs", refs)));
+        }
+        for (RefChange change : event.getChanges()) {
+            if (change.isBranch() && (change.getOldId() == null || change.getNewId() == null)) {
+                payloads.add(new Payload(change.getOldId() == null ? BRANCH_CREATED : BRANCH_DELETED, Map.of(
+                        "branch", change.getBranchName(),
+                        "sha", change.getNewId() != null ? change.getNewId() : change.getOldId())));
+            }
+        }
+        return payloads;
+    }
+
+    static Payload of(IssueChangedEvent event) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("number", event.getNumber());
+        data.put("title", event.getTitle());
+        data.put("state", event.getState());
+        data.put("author", event.getAuthor());
+        data.put("assignee", event.getAssignee());
+        data.put("labels", new TreeSet<>(event.getLabels()));
+        data.put("createdAt", event.getCreatedAt());
+        data.put("updatedAt", event.getUpdatedAt());
+        return new Payload(event.getKind() == IssueChangedEvent.Kind.ISSUE ? ISSUE : PULL_REQUEST, data);
+    }
+}
@@ -0,0 +1,519 @@
+package com.gitserver.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gitserver.dto.RepositoryDescriptor;
+import com.gitserver.dto.RepositoryEventMessage;
+import com.gitserver.entity.EventIdCounter;
+import com.gitserver.entity.GitRepository;
+import com.gitserver.entity.RepositoryEvent;
+import com.gitserver.entity.RepositoryPermission;
+import com.gitserver.entity.RepositoryPermission.PermissionLevel;
+import com.gitserver.event.IssueChangedEvent;
+import com.gitserver.event.RefUpdateEvent;
+import com.gitserver.repository.EventIdCounterRepository;
+import com.gitserver.repository.GitRepositoryJpaRepository;
+import com.gitserver.repository.RepositoryEventRepository;
+import com.gitserver.repository.RepositoryPermissionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service publishing repository events (pushes, branches, issues and pull requests) to
+ * server-sent event subscribers, per repository or for all repositories a user owns or
+ * collaborates on.
+ * <p>
+ * Event ids are reserved in blocks from a counter row shared by the nodes of a cluster,
+ * never below the clock in microseconds, so they are unique across nodes, increase in
+ * publication order and survive restarts. Recent events are kept in a ring buffer and
+ * written to the database in batches, so a subscriber reconnecting with Last-Event-ID
+ * gets what it missed. Publishing only appends to per-subscriber queues; a small pool
+ * drains them, and subscribers that fall too far behind are disconnected and resume on
+ * reconnect.
+ * <p>
+ * In cluster mode a repository's events are published by the node owning it, which is
+ * also the node its streams are forwarded to. Streams of all of a user's repositories
+ * would need the events of every node, so they are only available on a single node.
+ */
+@Slf4j
+@Service
+public class EventStreamService {
+
+    private static final int COUNTER_ID = 1;
+    // A block older than this is dropped, so ids stay close to the clock of every node
+    private static final long MAX_BLOCK_AGE_MS = 1000;
+
+    private final RepositoryEventRepository eventRepository;
+    private final EventIdCounterRepository counterRepository;
+    private final ClusterService clusterService;
+    private final RepositoryResolver repositoryResolver;
+    private final PermissionService permissionService;
+    private final GitRepositoryJpaRepository repositoryJpaRepository;
+    private final RepositoryPermissionRepository permissionRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int idBlockSize;
+    private final int queueLimit;
+    private final int maxReplay;
+    private final long streamTimeoutMs;
+    private final long reconnectDelayMs;
+    private final Duration retention;
+    private final ExecutorService dispatcher;
+
+    // Ring buffer of recent events, guarded by itself; also orders publication
+    private final StreamEvent[] ring;
+    private int ringStart;
+    private int ringSize;
+    private long nextId;
+    private long blockEnd;
+    private long blockReservedAt;
+
+    private final Queue<RepositoryEvent> unsaved = new ConcurrentLinkedQueue<>();
+    private final Map<Long, Set<Subscriber>> repositorySubscribers = new ConcurrentHashMap<>();
+    private final Map<String, Set<Subscriber>> userSubscribers = new ConcurrentHashMap<>();
+
+    public EventStreamService(RepositoryEventRepository eventRepository,
+                              EventIdCounterRepository counterRepository,
+                              ClusterService clusterService,
+                              RepositoryResolver repositoryResolver,
+                              PermissionService permissionService,
+                              GitRepositoryJpaRepository repositoryJpaRepository,
+                              RepositoryPermissionRepository permissionRepository,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${git.events.buffer-size:10000}") int bufferSize,
+                              @Value("${git.events.id-block-size:1000}") int idBlockSize,
+                              @Value("${git.events.subscriber-queue-limit:1000}") int queueLimit,
+                              @Value("${git.events.max-replay:1000}") int maxReplay,
+                              @Value("${git.events.stream-timeout-ms:3600000}") long streamTimeoutMs,
+                              @Value("${git.events.reconnect-delay-ms:3000}") long reconnectDelayMs,
+                              @Value("${git.events.retention-hours:24}") long retentionHours,
+                              @Value("${git.events.dispatch-threads:4}") int dispatchThreads) {
+        this.eventRepository = eventRepository;
+        this.counterRepository = counterRepository;
+        this.clusterService = clusterService;
+        this.repositoryResolver = repositoryResolver;
+        this.permissionService = permissionService;
+        this.repositoryJpaRepository = repositoryJpaRepository;
+        this.permissionRepository = permissionRepository;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.ring = new StreamEvent[bufferSize];
+        this.idBlockSize = Math.max(1, idBlockSize);
+        this.queueLimit = queueLimit;
+        this.maxReplay = maxReplay;
+        this.streamTimeoutMs = streamTimeoutMs;
+        this.reconnectDelayMs = reconnectDelayMs;
+        this.retention = Duration.ofHours(retentionHours);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "event-dispatch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        dispatcher.shutdownNow();
+        repositorySubscribers.values().forEach(subscribers -> subscribers.forEach(Subscriber::close));
+        userSubscribers.values().forEach(subscribers -> subscribers.forEach(Subscriber::close));
+    }
+
+    /**
+     * Subscribe to the events of a repository. With a last event id, the events after it
+     * that are still kept are sent first.
+     */
+    public SseEmitter subscribeToRepository(String owner, String name, String username, Long lastEventId) {
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, name);
+        Subscriber subscriber = new Subscriber(repository.getId(), username, lastEventId);
+        return register(subscriber, repositorySubscribers.computeIfAbsent(repository.getId(),
+                id -> ConcurrentHashMap.newKeySet()));
+    }
+
+    /**
+     * Subscribe to the events of every repository a user owns or collaborates on. Not
+     * available in cluster mode.
+     */
+    public SseEmitter subscribeToUser(String username, Long lastEventId) {
+        if (clusterService.isEnabled()) {
+            throw new IllegalStateException(
+                    "Event streams of all your repositories are not available in cluster mode; "
+                            + "subscribe to the events of each repository instead");
+        }
+        Subscriber subscriber = new Subscriber(null, username, lastEventId);
+        return register(subscriber, userSubscribers.computeIfAbsent(username, user -> ConcurrentHashMap.newKeySet()));
+    }
+
+    private SseEmitter register(Subscriber subscriber, Set<Subscriber> subscribers) {
+        subscribers.add(subscriber);
+        subscriber.emitter.onCompletion(() -> subscribers.remove(subscriber));
+        subscriber.emitter.onTimeout(subscriber::close);
+        subscriber.emitter.onError(e -> subscriber.close());
+        // The first drain opens the stream and sends the missed events
+        subscriber.schedule();
+        return subscriber.emitter;
+    }
+
+    /**
+     * Publish pushes and branch changes.
+     */
+    @EventListener
+    public void onRefUpdate(RefUpdateEvent event) {
+        Optional<RepositoryDescriptor> repository = repositoryResolver.find(event.getOwner(), event.getName());
+        if (repository.isEmpty()) {
+            // Being created; nobody can have subscribed yet
+            return;
+        }
+        EventPayloads.of(event).forEach(payload -> publish(repository.get(), payload.type(), payload.data()));
+    }
+
+    /**
+     * Publish committed issue and pull request changes.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onIssueChanged(IssueChangedEvent event) {
+        repositoryJpaRepository.findById(event.getRepositoryId()).ifPresent(repository -> {
+            EventPayloads.Payload payload = EventPayloads.of(event);
+            publish(RepositoryDescriptor.of(repository), payload.type(), payload.data());
+        });
+    }
+
+    /**
+     * Write the events published since the last flush to the database.
+     */
+    @Scheduled(fixedDelayString = "${git.events.flush-interval-ms:1000}")
+    public void flush() {
+        while (!unsaved.isEmpty()) {
+            List<RepositoryEvent> batch = new ArrayList<>();
+            RepositoryEvent event;
+            while (batch.size() < 500 && (event = unsaved.poll()) != null) {
+                batch.add(event);
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> eventRepository.saveAll(batch));
+            } catch (Exception e) {
+                // Save one by one, so a bad event does not lose the rest of the batch
+                int failed = 0;
+                for (RepositoryEvent failedEvent : batch) {
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> eventRepository.save(failedEvent));
+                    } catch (Exception single) {
+                        failed++;
+                    }
+                }
+                if (failed > 0) {
+                    // Still in the ring buffer; only resuming from further back misses them
+                    log.warn("Failed to persist {} repository events: {}", failed, e.getMessage());
+                }
+                if (failed == batch.size()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete persisted events older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${git.events.prune-interval-ms:3600000}")
+    public void prune() {
+        LocalDateTime before = LocalDateTime.now().minus(retention);
+        Integer deleted = transactionTemplate.execute(status -> eventRepository.deleteCreatedBefore(before));
+        if (deleted != null && deleted > 0) {
+            log.debug("Pruned {} repository events", deleted);
+        }
+    }
+
+    /**
+     * Send a comment to every subscriber, so idle connections are not closed by proxies.
+     */
+    @Scheduled(fixedDelayString = "${git.events.keepalive-ms:25000}")
+    public void keepAlive() {
+        repositorySubscribers.values().forEach(subscribers -> subscribers.forEach(Subscriber::ping));
+        userSubscribers.values().forEach(subscribers -> subscribers.forEach(Subscriber::ping));
+    }
+
+    /**
+     * Number of open subscriptions.
+     */
+    public int getSubscriberCount() {
+        return repositorySubscribers.values().stream().mapToInt(Set::size).sum()
+                + userSubscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void publish(RepositoryDescriptor repository, String type, Map<String, Object> payload) {
+        // Looked up first: may load the collaborators
+        Set<String> members = permissionService.getMembers(repository.getId());
+        synchronized (ring) {
+            long id;
+            try {
+                id = nextId();
+            } catch (RuntimeException e) {
+                log.warn("Dropped {} event of {}/{}, no event id could be reserved: {}",
+                        type, repository.getOwner(), repository.getName(), e.getMessage());
+                return;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            String data = toJson(RepositoryEventMessage.builder()
+                    .id(id)
+                    .type(type)
+                    .repository(repository.getOwner() + "/" + repository.getName())
+                    .createdAt(now)
+                    .payload(payload)
+                    .build());
+            StreamEvent event = new StreamEvent(id, repository.getId(), type, data);
+
+            ring[(ringStart + ringSize) % ring.length] = event;
+            if (ringSize < ring.length) {
+                ringSize++;
+            } else {
+                ringStart = (ringStart + 1) % ring.length;
+            }
+            unsaved.add(RepositoryEvent.builder()
+                    .id(id)
+                    .repositoryId(repository.getId())
+                    .type(type)
+                    .data(data)
+                    .createdAt(now)
+                    .build());
+
+            // Offered in id order, under the lock; offering never blocks
+            Set<Subscriber> subscribers = repositorySubscribers.get(repository.getId());
+            if (subscribers != null) {
+                subscribers.forEach(subscriber -> subscriber.offer(event));
+            }
+            for (String member : members) {
+                Set<Subscriber> memberSubscribers = userSubscribers.get(member);
+                if (memberSubscribers != null) {
+                    memberSubscribers.forEach(subscriber -> subscriber.offer(event));
+                }
+            }
+        }
+    }
+
+    /**
+     * Next event id, reserving a new block when the current one is used up or old. Blocks
+     * start at the shared counter or the current clock, whichever is later, so a node
+     * taking over a repository continues above the ids its previous owner used.
+     */
+    private long nextId() {
+        long now = System.currentTimeMillis();
+        if (nextId >= blockEnd || now - blockReservedAt > MAX_BLOCK_AGE_MS) {
+            nextId = reserveIds(now * 1000, idBlockSize);
+            blockEnd = nextId + idBlockSize;
+            blockReservedAt = now;
+        }
+        return nextId++;
+    }
+
+    private long reserveIds(long floor, int count) {
+        try {
+            return transactionTemplate.execute(status -> reserveBlock(floor, count));
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the counter row first
+            return transactionTemplate.execute(status -> reserveBlock(floor, count));
+        }
+    }
+
+    private long reserveBlock(long floor, int count) {
+        // The update locks the row until the reservation commits
+        if (counterRepository.advance(COUNTER_ID, floor, count) > 0) {
+            return counterRepository.findNextId(COUNTER_ID).orElseThrow() - count;
+        }
+
+        // First reservation: continue after the ids already in use
+        Long maxId = eventRepository.findMaxId();
+        long first = Math.max(floor, maxId != null ? maxId + 1 : 0);
+        counterRepository.saveAndFlush(new EventIdCounter(COUNTER_ID, first + count));
+        return first;
+    }
+
+    /**
+     * Get the events after an id that a subscriber may see: from the database if the ring
+     * buffer no longer reaches back that far, then from the ring buffer.
+     */
+    private List<StreamEvent> getEventsAfter(Subscriber subscriber, long afterId) {
+        List<StreamEvent> recent = new ArrayList<>();
+        long oldestInRing;
+        synchronized (ring) {
+            oldestInRing = ringSize > 0 ? ring[ringStart].id() : Long.MAX_VALUE;
+            for (int i = 0; i < ringSize; i++) {
+                StreamEvent event = ring[(ringStart + i) % ring.length];
+                if (event.id() > afterId) {
+                    recent.add(event);
+                }
+            }
+        }
+
+        List<StreamEvent> events = new ArrayList<>();
+        if (afterId < oldestInRing - 1) {
+            PageRequest page = PageRequest.of(0, maxReplay);
+            List<RepositoryEvent> stored = subscriber.repositoryId != null
+                    ? eventRepository.findByRepositoryIdAndIdGreaterThanOrderById(subscriber.repositoryId, afterId, page)
+                    : eventRepository.findByRepositoryIdInAndIdGreaterThanOrderById(
+                            getMemberRepositoryIds(subscriber.username), afterId, page);
+            for (RepositoryEvent event : stored) {
+                if (event.getId() < oldestInRing) {
+                    events.add(new StreamEvent(event.getId(), event.getRepositoryId(), event.getType(), event.getData()));
+                }
+            }
+        }
+        recent.stream().filter(subscriber::accepts).forEach(events::add);
+        return events.size() > maxReplay ? events.subList(events.size() - maxReplay, events.size()) : events;
+    }
+
+    private Set<Long> getMemberRepositoryIds(String username) {
+        Set<Long> ids = new HashSet<>();
+        repositoryJpaRepository.findByOwner(username).stream().map(GitRepository::getId).forEach(ids::add);
+        permissionRepository.findByUsername(username).stream()
+                .map(RepositoryPermission::getRepositoryId)
+                .forEach(ids::add);
+        return ids;
+    }
+
+    private String toJson(RepositoryEventMessage message) {
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize repository event", e);
+        }
+    }
+
+    private record StreamEvent(long id, Long repositoryId, String type, String data) {
+    }
+
+    // Queued to send a keep-alive comment
+    private static final StreamEvent PING = new StreamEvent(-1, null, null, null);
+
+    /**
+     * An open event stream with its own queue, drained by one dispatcher thread at a time.
+     */
+    private final class Subscriber {
+
+        final Long repositoryId;
+        final String username;
+        final SseEmitter emitter;
+        final Queue<StreamEvent> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final AtomicBoolean closed = new AtomicBoolean();
+        Long resumeAfter;
+        long lastSentId;
+        boolean started;
+
+        Subscriber(Long repositoryId, String username, Long lastEventId) {
+            this.repositoryId = repositoryId;
+            this.username = username;
+            this.emitter = new SseEmitter(streamTimeoutMs);
+            this.resumeAfter = lastEventId;
+        }
+
+        boolean accepts(StreamEvent event) {
+            if (repositoryId != null) {
+                // Access may have been revoked since subscribing
+                return repositoryId.equals(event.repositoryId())
+                        && permissionService.hasPermission(event.repositoryId(), username, PermissionLevel.READ);
+            }
+            return permissionService.getMembers(event.repositoryId()).contains(username);
+        }
+
+        void offer(StreamEvent event) {
+            if (closed.get()) {
+                return;
+            }
+            if (queued.incrementAndGet() > queueLimit) {
+                log.debug("Disconnecting slow event subscriber {}", username);
+                close();
+                return;
+            }
+            queue.add(event);
+            schedule();
+        }
+
+        void ping() {
+            offer(PING);
+        }
+
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                dispatcher.execute(this::drain);
+            }
+        }
+
+        void drain() {
+            try {
+                if (!started) {
+                    // Commits the response headers, and tells the client how soon to reconnect
+                    emitter.send(SseEmitter.event().reconnectTime(reconnectDelayMs));
+                    started = true;
+                }
+                if (resumeAfter != null) {
+                    lastSentId = resumeAfter;
+                    resumeAfter = null;
+                    for (StreamEvent event : getEventsAfter(this, lastSentId)) {
+                        send(event);
+                    }
+                }
+                StreamEvent event;
+                while ((event = queue.poll()) != null) {
+                    queued.decrementAndGet();
+                    if (event == PING) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    } else if (event.id() > lastSentId && accepts(event)) {
+                        send(event);
+                    }
+                }
+            } catch (Exception e) {
+                // Disconnected
+                close();
+            } finally {
+                scheduled.set(false);
+            }
+            if (!queue.isEmpty() && !closed.get()) {
+                schedule();
+            }
+        }
+
+        void send(StreamEvent event) throws IOException {
+            emitter.send(SseEmitter.event().id(Long.toString(event.id())).name(event.type()).data(event.data()));
+            lastSentId = event.id();
+        }
+
+        void close() {
+            if (closed.compareAndSet(false, true)) {
+                queue.clear();
+                Set<Subscriber> subscribers = repositoryId != null
+                        ? repositorySubscribers.get(repositoryId) : userSubscribers.get(username);
+                if (subscribers != null) {
+                    subscribers.remove(this);
+                }
+                emitter.complete();
+            }
+        }
+    }
+}
@@ -1,10 +1,7 @@
 package com.gitserver.service;
 
 import com.gitserver.dto.*;
-import com.gitserver.entity.GitRepository;
-import com.gitserver.exception.RepositoryNotFoundException;
 import com.gitserver.git.JGitService;
-import com.gitserver.repository.GitRepositoryJpaRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -19,14 +16,15 @@ import java.util.List;
 @RequiredArgsConstructor
 public class FileService {
 
-    private final GitRepositoryJpaRepository repositoryJpaRepository;
+    private final RepositoryResolver repositoryResolver;
     private final JGitService jGitService;
+    private final DiskUsageService diskUsageService;
 
     /**
      * Get files in a directory.
      */
     public List<FileInfo> getFiles(String owner, String name, String branch, String path) {
-        GitRepository repository = getRepository(owner, name);
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, name);
         String effectiveBranch = branch != null ? branch : repository.getDefaultBranch();
         return jGitService.getFiles(owner, name, effectiveBranch, path);
     }
@@ -35,7 +33,7 @@ public class FileService {
      * Get file content.
      */
     public FileContent getFileContent(String owner, String name, String branch, String path) {
-        GitRepository repository = getRepository(owner, name);
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, name);
         String effectiveBranch = branch != null ? branch : repository.getDefaultBranch();
         return jGitService.getFileContent(owner, name, effectiveBranch, path);
     }
@@ -45,8 +43,11 @@ public class FileService {
      */
     public CommitInfo createOrUpdateFile(String owner, String name, FileUpdateRequest request, 
                                          String authorName, String authorEmail) {
-        getRepository(owner, name);
-        return jGitService.createOrUpdateFile(owner, name, request, authorName, authorEmail);
+        repositoryResolver.resolve(owner, name);
+        diskUsageService.checkQuota(owner, name);
+        CommitInfo commit = jGitService.createOrUpdateFile(owner, name, request, authorName, authorEmail);
+        diskUsageService.recordCommit(owner, name, commit.getId());
+        return commit;
     }
 
     /**
@@ -54,13 +55,10 @@ public class FileService {
      */
     public CommitInfo deleteFile(String owner, String name, String path, String branch, 
                                  String message, String authorName, String authorEmail) {
-        GitRepository repository = getRepository(owner, name);
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, name);
         String effectiveBranch = branch != null ? branch : repository.getDefaultBranch();
-        return jGitService.deleteFile(owner, name, path, effectiveBranch, message, authorName, authorEmail);
-    }
-
-    private GitRepository getRepository(String owner, String name) {
-        return repositoryJpaRepository.findByOwnerAndName(owner, name)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, name));
+        CommitInfo commit = jGitService.deleteFile(owner, name, path, effectiveBranch, message, authorName, authorEmail);
+        diskUsageService.recordCommit(owner, name, commit.getId());
+        return commit;
     }
 }
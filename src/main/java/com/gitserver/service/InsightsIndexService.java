@@ -0,0 +1,197 @@
+package com.gitserver.service;
+
+import com.gitserver.entity.CommitActivity;
+import com.gitserver.entity.Contributor;
+import com.gitserver.entity.GitRepository;
+import com.gitserver.entity.Issue.IssueState;
+import com.gitserver.entity.PullRequest.PullRequestState;
+import com.gitserver.entity.RepositoryInsightsSnapshot;
+import com.gitserver.git.JGitService;
+import com.gitserver.repository.CommitActivityRepository;
+import com.gitserver.repository.ContributorRepository;
+import com.gitserver.repository.IssueRepository;
+import com.gitserver.repository.PullRequestRepository;
+import com.gitserver.repository.RepositoryInsightsSnapshotRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Service maintaining the materialized insights of each repository.
+ * Commit statistics are extended by walking only the commits added to the default
+ * branch since the last indexed commit; a full rebuild happens only when history
+ * is rewritten or the default branch changes.
+ */
+@Slf4j
+@Service
+public class InsightsIndexService {
+
+    private final RepositoryInsightsSnapshotRepository snapshotRepository;
+    private final CommitActivityRepository commitActivityRepository;
+    private final ContributorRepository contributorRepository;
+    private final IssueRepository issueRepository;
+    private final PullRequestRepository pullRequestRepository;
+    private final JGitService jGitService;
+    private final TransactionTemplate transactionTemplate;
+
+    public InsightsIndexService(RepositoryInsightsSnapshotRepository snapshotRepository,
+                                CommitActivityRepository commitActivityRepository,
+                                ContributorRepository contributorRepository,
+                                IssueRepository issueRepository,
+                                PullRequestRepository pullRequestRepository,
+                                JGitService jGitService,
+                                PlatformTransactionManager transactionManager) {
+        this.snapshotRepository = snapshotRepository;
+        this.commitActivityRepository = commitActivityRepository;
+        this.contributorRepository = contributorRepository;
+        this.issueRepository = issueRepository;
+        this.pullRequestRepository = pullRequestRepository;
+        this.jGitService = jGitService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Bring the commit and branch statistics of a repository up to date.
+     * Concurrent refreshes of the same repository are serialized on the snapshot row.
+     */
+    @Transactional
+    public void refreshCommitStatistics(GitRepository repository) {
+        String owner = repository.getOwner();
+        String name = repository.getName();
+        RepositoryInsightsSnapshot snapshot = lockSnapshot(repository.getId());
+
+        snapshot.setTotalBranches(jGitService.countBranches(owner, name));
+
+        String branch = repository.getDefaultBranch();
+        String head = jGitService.resolveBranchHead(owner, name, branch);
+        boolean sameBranch = branch.equals(snapshot.getIndexedBranch());
+
+        if (head == null) {
+            clearCommitStatistics(snapshot);
+        } else if (!sameBranch || !head.equals(snapshot.getIndexedCommitId())) {
+            String since = snapshot.getIndexedCommitId();
+            boolean incremental = sameBranch && since != null && jGitService.isAncestor(owner, name, since, head);
+            if (!incremental) {
+                clearCommitStatistics(snapshot);
+                since = null;
+            }
+            indexCommits(snapshot, owner, name, head, since);
+        }
+
+        snapshot.setIndexedBranch(branch);
+        snapshot.setIndexedCommitId(head);
+        snapshotRepository.save(snapshot);
+    }
+
+    /**
+     * Recount the issue states of a repository after an issue write.
+     */
+    @Transactional
+    public void refreshIssueCounts(Long repositoryId) {
+        snapshotRepository.updateIssueCounts(repositoryId,
+                issueRepository.countByRepositoryIdAndState(repositoryId, IssueState.OPEN),
+                issueRepository.countByRepositoryIdAndState(repositoryId, IssueState.CLOSED));
+    }
+
+    /**
+     * Recount the pull request states of a repository after a pull request write.
+     */
+    @Transactional
+    public void refreshPullRequestCounts(Long repositoryId) {
+        snapshotRepository.updatePullRequestCounts(repositoryId,
+                pullRequestRepository.countByRepositoryIdAndState(repositoryId, PullRequestState.OPEN),
+                pullRequestRepository.countByRepositoryIdAndState(repositoryId, PullRequestState.CLOSED),
+                pullRequestRepository.countByRepositoryIdAndState(repositoryId, PullRequestState.MERGED));
+    }
+
+    /**
+     * Remove all materialized insights of a repository.
+     */
+    @Transactional
+    public void deleteStatistics(Long repositoryId) {
+        commitActivityRepository.deleteByRepositoryId(repositoryId);
+        contributorRepository.deleteByRepositoryId(repositoryId);
+        snapshotRepository.deleteByRepositoryId(repositoryId);
+    }
+
+    private RepositoryInsightsSnapshot lockSnapshot(Long repositoryId) {
+        Optional<RepositoryInsightsSnapshot> existing = snapshotRepository.findByRepositoryIdForUpdate(repositoryId);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        // Insert in a transaction of its own so losing a race does not roll back the caller's
+        try {
+            transactionTemplate.executeWithoutResult(status -> snapshotRepository.saveAndFlush(
+                    RepositoryInsightsSnapshot.builder()
+                            .repositoryId(repositoryId)
+                            .openIssues(issueRepository.countByRepositoryIdAndState(repositoryId, IssueState.OPEN))
+                            .closedIssues(issueRepository.countByRepositoryIdAndState(repositoryId, IssueState.CLOSED))
+                            .openPullRequests(pullRequestRepository.countByRepositoryIdAndState(repositoryId, PullRequestState.OPEN))
+                            .closedPullRequests(pullRequestRepository.countByRepositoryIdAndState(repositoryId, PullRequestState.CLOSED))
+                            .mergedPullRequests(pullRequestRepository.countByRepositoryIdAndState(repositoryId, PullRequestState.MERGED))
+                            .build()));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Insights snapshot of repository {} was created concurrently", repositoryId);
+        }
+        return snapshotRepository.findByRepositoryIdForUpdate(repositoryId).orElseThrow();
+    }
+
+    private void clearCommitStatistics(RepositoryInsightsSnapshot snapshot) {
+        commitActivityRepository.deleteByRepositoryId(snapshot.getRepositoryId());
+        contributorRepository.deleteByRepositoryId(snapshot.getRepositoryId());
+        snapshot.setTotalCommits(0);
+        snapshot.setTotalContributors(0);
+    }
+
+    private void indexCommits(RepositoryInsightsSnapshot snapshot, String owner, String name, 
+                              String head, String since) {
+        Map<LocalDate, Long> commitsPerDay = new HashMap<>();
+        Map<String, Long> commitsPerAuthor = new HashMap<>();
+        long[] newCommits = {0};
+
+        jGitService.walkCommits(owner, name, head, since, commit -> {
+            LocalDate day = Instant.ofEpochMilli(commit.getAuthorTime()).atZone(ZoneOffset.UTC).toLocalDate();
+            commitsPerDay.merge(day, 1L, Long::sum);
+            commitsPerAuthor.merge(commit.getAuthor(), 1L, Long::sum);
+            newCommits[0]++;
+        });
+
+        Long repositoryId = snapshot.getRepositoryId();
+        commitsPerDay.forEach((day, count) -> {
+            if (commitActivityRepository.incrementCommitCount(repositoryId, day, count) == 0) {
+                commitActivityRepository.save(CommitActivity.builder()
+                        .repositoryId(repositoryId)
+                        .activityDate(day)
+                        .commitCount(count)
+                        .build());
+            }
+        });
+        commitsPerAuthor.forEach((author, count) -> {
+            if (contributorRepository.incrementCommitCount(repositoryId, author, count) == 0) {
+                contributorRepository.save(Contributor.builder()
+                        .repositoryId(repositoryId)
+                        .name(author)
+                        .commitCount(count)
+                        .build());
+            }
+        });
+        contributorRepository.flush();
+
+        snapshot.setTotalCommits(snapshot.getTotalCommits() + newCommits[0]);
+        snapshot.setTotalContributors((int) contributorRepository.countByRepositoryId(repositoryId));
+        log.debug("Indexed {} new commits for {}/{}", newCommits[0], owner, name);
+    }
+}
@@ -1,22 +1,34 @@
 package com.gitserver.service;
 
-import com.gitserver.dto.CommitInfo;
+import com.gitserver.dto.ContributorStats;
 import com.gitserver.dto.RepositoryInsights;
+import com.gitserver.dto.TreeStats;
+import com.gitserver.entity.CommitActivity;
 import com.gitserver.entity.GitRepository;
+import com.gitserver.entity.RepositoryInsightsSnapshot;
+import com.gitserver.event.RefUpdateEvent;
 import com.gitserver.exception.RepositoryNotFoundException;
-import com.gitserver.git.JGitService;
+import com.gitserver.repository.CommitActivityRepository;
 import com.gitserver.repository.GitRepositoryJpaRepository;
+import com.gitserver.repository.RepositoryInsightsSnapshotRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.HashSet;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Service for repository insights/statistics.
+ * Reads come from the materialized snapshot maintained by {@link InsightsIndexService}.
  */
 @Slf4j
 @Service
@@ -24,9 +36,16 @@ import java.util.Set;
 public class InsightsService {
 
     private final GitRepositoryJpaRepository repositoryJpaRepository;
-    private final JGitService jGitService;
-    private final IssueService issueService;
-    private final PullRequestService pullRequestService;
+    private final RepositoryInsightsSnapshotRepository snapshotRepository;
+    private final CommitActivityRepository commitActivityRepository;
+    private final InsightsIndexService insightsIndexService;
+    private final ContributorStatsService contributorStatsService;
+    private final TreeStatsService treeStatsService;
+    private final DiskUsageService diskUsageService;
+    private final TaskExecutor taskExecutor;
+
+    // Repositories whose contributor stats are being computed after a request found none
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
 
     /**
      * Get comprehensive insights for a repository.
@@ -36,70 +55,126 @@ public class InsightsService {
                 .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
 
         String defaultBranch = repository.getDefaultBranch();
+        RepositoryInsightsSnapshot snapshot = getSnapshot(repository);
 
-        // Get commits (up to 1000 for statistics)
-        List<CommitInfo> commits = jGitService.getCommits(owner, repoName, defaultBranch, 1000);
-        
-        // Calculate commit statistics
-        long oneWeekAgoMs = System.currentTimeMillis() - (7 * 24 * 60 * 60 * 1000L);
-        long oneMonthAgoMs = System.currentTimeMillis() - (30 * 24 * 60 * 60 * 1000L);
-        
-        int commitsLastWeek = (int) commits.stream()
-                .filter(c -> c.getAuthorTime() > oneWeekAgoMs)
-                .count();
-        
-        int commitsLastMonth = (int) commits.stream()
-                .filter(c -> c.getAuthorTime() > oneMonthAgoMs)
-                .count();
-
-        // Count unique contributors
-        Set<String> contributors = new HashSet<>();
-        for (CommitInfo commit : commits) {
-            contributors.add(commit.getAuthor());
-        }
+        // Commit activity for the last month, bucketed per day
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        List<CommitActivity> recentActivity = commitActivityRepository
+                .findByRepositoryIdAndActivityDateGreaterThanEqual(repository.getId(), today.minusDays(30));
 
-        // Get branch count
-        int totalBranches = jGitService.getBranches(owner, repoName).size();
+        int commitsLastMonth = (int) recentActivity.stream()
+                .mapToLong(CommitActivity::getCommitCount)
+                .sum();
 
-        // Get file count from root directory recursively
-        int totalFiles = countFiles(owner, repoName, defaultBranch, "");
+        int commitsLastWeek = (int) recentActivity.stream()
+                .filter(a -> !a.getActivityDate().isBefore(today.minusDays(7)))
+                .mapToLong(CommitActivity::getCommitCount)
+                .sum();
 
-        // Get repository size (estimated from file count)
-        long repositorySize = jGitService.getRepositorySize(owner, repoName);
+        // Get recursive file count (memoized per tree)
+        int totalFiles = (int) countFiles(owner, repoName, defaultBranch);
 
-        // Get issue and PR statistics
-        long openIssues = issueService.countOpenIssues(repository.getId());
-        long closedIssues = issueService.countClosedIssues(repository.getId());
-        long openPullRequests = pullRequestService.countOpenPullRequests(repository.getId());
-        long closedPullRequests = pullRequestService.countClosedPullRequests(repository.getId());
-        long mergedPullRequests = pullRequestService.countMergedPullRequests(repository.getId());
+        // Get repository size (tracked incrementally)
+        long repositorySize = diskUsageService.getDiskUsage(repository);
 
         return RepositoryInsights.builder()
                 .repositoryId(repository.getId())
                 .owner(owner)
                 .name(repoName)
-                .totalCommits(commits.size())
+                .totalCommits((int) snapshot.getTotalCommits())
                 .commitsLastMonth(commitsLastMonth)
                 .commitsLastWeek(commitsLastWeek)
-                .totalBranches(totalBranches)
+                .totalBranches(snapshot.getTotalBranches())
                 .defaultBranch(defaultBranch)
                 .totalFiles(totalFiles)
                 .repositorySize(repositorySize)
-                .openIssues(openIssues)
-                .closedIssues(closedIssues)
-                .openPullRequests(openPullRequests)
-                .closedPullRequests(closedPullRequests)
-                .mergedPullRequests(mergedPullRequests)
-                .totalContributors(contributors.size())
+                .openIssues(snapshot.getOpenIssues())
+                .closedIssues(snapshot.getClosedIssues())
+                .openPullRequests(snapshot.getOpenPullRequests())
+                .closedPullRequests(snapshot.getClosedPullRequests())
+                .mergedPullRequests(snapshot.getMergedPullRequests())
+                .totalContributors(snapshot.getTotalContributors())
                 .generatedAt(LocalDateTime.now())
                 .build();
     }
 
-    private int countFiles(String owner, String repoName, String branch, String path) {
+    /**
+     * Get per-author weekly statistics for a repository. Returns empty while the
+     * statistics are still being computed in the background.
+     */
+    public Optional<List<ContributorStats>> getContributorStats(String owner, String repoName) {
+        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
+                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+
+        Optional<List<ContributorStats>> stats = contributorStatsService.getContributorStats(repository);
+        if (stats.isEmpty() && pending.add(repository.getId())) {
+            taskExecutor.execute(() -> {
+                try {
+                    refreshContributorStats(repository);
+                } finally {
+                    pending.remove(repository.getId());
+                }
+            });
+        }
+        return stats;
+    }
+
+    /**
+     * Get recursive file count, size and files per extension for a branch, tag or commit.
+     */
+    public TreeStats getTreeStats(String owner, String repoName, String ref) {
+        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
+                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+
+        String revision = ref != null ? ref : repository.getDefaultBranch();
+        return treeStatsService.getTreeStats(owner, repoName, revision);
+    }
+
+    /**
+     * Update the materialized insights after refs of a repository have changed.
+     */
+    @Async
+    @EventListener
+    public void onRefUpdate(RefUpdateEvent event) {
+        repositoryJpaRepository.findByOwnerAndName(event.getOwner(), event.getName()).ifPresent(repository -> {
+            try {
+                insightsIndexService.refreshCommitStatistics(repository);
+            } catch (Exception e) {
+                log.warn("Failed to update insights for {}/{}: {}", 
+                        event.getOwner(), event.getName(), e.getMessage());
+            }
+            refreshContributorStats(repository);
+            countFiles(repository.getOwner(), repository.getName(), repository.getDefaultBranch());
+        });
+    }
+
+    private void refreshContributorStats(GitRepository repository) {
+        try {
+            contributorStatsService.refresh(repository);
+        } catch (Exception e) {
+            log.warn("Failed to update contributor stats for {}/{}: {}", 
+                    repository.getOwner(), repository.getName(), e.getMessage());
+        }
+    }
+
+    private RepositoryInsightsSnapshot getSnapshot(GitRepository repository) {
+        RepositoryInsightsSnapshot snapshot = snapshotRepository.findByRepositoryId(repository.getId()).orElse(null);
+        if (snapshot != null && repository.getDefaultBranch().equals(snapshot.getIndexedBranch())) {
+            return snapshot;
+        }
+
+        // First access, or the default branch changed: index synchronously once
+        insightsIndexService.refreshCommitStatistics(repository);
+        return snapshotRepository.findByRepositoryId(repository.getId())
+                .orElseThrow(() -> new IllegalStateException("Insights snapshot missing for " + 
+                        repository.getOwner() + "/" + repository.getName()));
+    }
+
+    private long countFiles(String owner, String repoName, String branch) {
         try {
-            return jGitService.getFiles(owner, repoName, branch, path).size();
+            return treeStatsService.getTreeStats(owner, repoName, branch).getFileCount();
         } catch (Exception e) {
-            log.warn("Error counting files at path '{}': {}", path, e.getMessage());
+            log.warn("Error counting files on branch '{}': {}", branch, e.getMessage());
             return 0;
         }
     }
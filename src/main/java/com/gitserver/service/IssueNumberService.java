@@ -0,0 +1,122 @@
+package com.gitserver.service;
+
+import com.gitserver.entity.IssueNumberCounter;
+import com.gitserver.repository.IssueNumberCounterRepository;
+import com.gitserver.repository.IssueRepository;
+import com.gitserver.repository.PullRequestRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service allocating issue and pull request numbers. Numbers are reserved from the
+ * per-repository counter row in blocks, in a short transaction of their own, and handed
+ * out from memory; numbers of a block still unused at shutdown are skipped.
+ */
+@Slf4j
+@Service
+public class IssueNumberService {
+
+    private final IssueNumberCounterRepository counterRepository;
+    private final IssueRepository issueRepository;
+    private final PullRequestRepository pullRequestRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int blockSize;
+    private final Map<Long, Block> blocks = new ConcurrentHashMap<>();
+
+    public IssueNumberService(IssueNumberCounterRepository counterRepository,
+                              IssueRepository issueRepository,
+                              PullRequestRepository pullRequestRepository,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${git.issue-numbers.block-size:20}") int blockSize) {
+        this.counterRepository = counterRepository;
+        this.issueRepository = issueRepository;
+        this.pullRequestRepository = pullRequestRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = Math.max(1, blockSize);
+    }
+
+    /**
+     * Numbers reserved from the counter row and not handed out yet.
+     */
+    private static class Block {
+        private int next;
+        private int end;
+    }
+
+    /**
+     * Allocate the next issue or pull request number of a repository.
+     */
+    public int nextNumber(Long repositoryId) {
+        Block block = blocks.computeIfAbsent(repositoryId, id -> new Block());
+        synchronized (block) {
+            if (block.next >= block.end) {
+                block.next = reserve(repositoryId, blockSize);
+                block.end = block.next + blockSize;
+            }
+            return block.next++;
+        }
+    }
+
+    /**
+     * Allocate count consecutive numbers of a repository and return the first. Ranges
+     * larger than what is left of the current block are reserved from the counter in
+     * one round trip.
+     */
+    public int nextNumbers(Long repositoryId, int count) {
+        Block block = blocks.computeIfAbsent(repositoryId, id -> new Block());
+        synchronized (block) {
+            if (block.end - block.next >= count) {
+                int first = block.next;
+                block.next += count;
+                return first;
+            }
+            return reserve(repositoryId, count);
+        }
+    }
+
+    /**
+     * Forget the counter of a deleted repository.
+     */
+    public void deleteCounter(Long repositoryId) {
+        blocks.remove(repositoryId);
+        if (counterRepository.existsById(repositoryId)) {
+            counterRepository.deleteById(repositoryId);
+        }
+    }
+
+    /**
+     * Reserve the next size numbers and return the first.
+     */
+    private int reserve(Long repositoryId, int size) {
+        try {
+            return transactionTemplate.execute(status -> reserveBlock(repositoryId, size));
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the counter row first
+            return transactionTemplate.execute(status -> reserveBlock(repositoryId, size));
+        }
+    }
+
+    private int reserveBlock(Long repositoryId, int size) {
+        // The update locks the row until the reservation commits
+        if (counterRepository.advance(repositoryId, size) > 0) {
+            return counterRepository.findNextNumber(repositoryId).orElseThrow() - size;
+        }
+
+        // First allocation: continue after the numbers already in use
+        int first = Math.max(
+                issueRepository.findMaxIssueNumberByRepositoryId(repositoryId).orElse(0),
+                pullRequestRepository.findMaxPrNumberByRepositoryId(repositoryId).orElse(0)) + 1;
+        counterRepository.saveAndFlush(new IssueNumberCounter(repositoryId, first + size));
+        log.debug("Created issue number counter for repository {} starting at {}", repositoryId, first);
+        return first;
+    }
+}
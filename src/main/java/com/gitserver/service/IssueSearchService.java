@@ -0,0 +1,192 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.IssueSearchResponse;
+import com.gitserver.entity.GitRepository;
+import com.gitserver.entity.Issue;
+import com.gitserver.entity.PullRequest;
+import com.gitserver.entity.RepositoryPermission.PermissionLevel;
+import com.gitserver.event.IssueChangedEvent;
+import com.gitserver.event.IssueChangedEvent.Kind;
+import com.gitserver.exception.RepositoryNotFoundException;
+import com.gitserver.repository.GitRepositoryJpaRepository;
+import com.gitserver.repository.IssueRepository;
+import com.gitserver.repository.PullRequestRepository;
+import com.gitserver.search.IssueIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Service for full-text search over issues and pull requests.
+ * Each repository's {@link IssueIndex} is loaded from the tables on first use (and in
+ * the background at startup), then kept current from {@link IssueChangedEvent}s once
+ * the writing transaction has committed.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IssueSearchService {
+
+    private final GitRepositoryJpaRepository repositoryJpaRepository;
+    private final IssueRepository issueRepository;
+    private final PullRequestRepository pullRequestRepository;
+    private final PermissionService permissionService;
+
+    private final Map<Long, IssueIndex> indexes = new ConcurrentHashMap<>();
+    private final Map<Long, Object> locks = new ConcurrentHashMap<>();
+
+    /**
+     * Search the issues and pull requests of a repository. Every query term must match
+     * the title, body or labels; the other criteria are optional exact filters.
+     */
+    public IssueSearchResponse search(String owner, String repoName, String query, String type, String state,
+                                      String label, String author, String assignee, int page, int size,
+                                      String username) {
+        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
+                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+        if (repository.isPrivate() && (username == null 
+                || !permissionService.hasPermission(owner, repoName, username, PermissionLevel.READ))) {
+            throw new RepositoryNotFoundException(owner, repoName);
+        }
+
+        Kind kind = parseKind(type);
+        String normalizedState = state != null && !state.isEmpty() ? state.toUpperCase(Locale.ROOT) : null;
+        Predicate<IssueIndex.Document> filter = document ->
+                (kind == null || document.kind() == kind)
+                        && (normalizedState == null || normalizedState.equals(document.state()))
+                        && (label == null || document.labels().contains(label))
+                        && (author == null || author.equals(document.author()))
+                        && (assignee == null || assignee.equals(document.assignee()));
+
+        IssueIndex.Page result = getIndex(repository.getId()).search(query, filter, page * size, size);
+        List<IssueSearchResponse.Item> items = result.hits().stream()
+                .map(hit -> IssueSearchResponse.Item.builder()
+                        .type(hit.document().kind() == Kind.ISSUE ? "issue" : "pull_request")
+                        .number(hit.document().number())
+                        .title(hit.document().title())
+                        .state(hit.document().state())
+                        .author(hit.document().author())
+                        .assignee(hit.document().assignee())
+                        .labels(hit.document().labels())
+                        .createdAt(hit.document().createdAt())
+                        .score(hit.score())
+                        .build())
+                .toList();
+
+        return IssueSearchResponse.builder()
+                .query(query)
+                .totalCount(result.total())
+                .page(page)
+                .size(size)
+                .items(items)
+                .build();
+    }
+
+    /**
+     * Apply a committed issue or pull request change to the index, if it is loaded.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onIssueChanged(IssueChangedEvent event) {
+        IssueIndex index = indexes.get(event.getRepositoryId());
+        if (index != null) {
+            index.put(toDocument(event), event.getBody());
+        }
+    }
+
+    /**
+     * Rebuild the index of a repository from the issue and pull request tables.
+     * Changes committed meanwhile are applied to the new index as it is loaded.
+     */
+    public void rebuildIndex(Long repositoryId) {
+        synchronized (locks.computeIfAbsent(repositoryId, id -> new Object())) {
+            IssueIndex index = new IssueIndex();
+            indexes.put(repositoryId, index);
+
+            for (Issue issue : issueRepository.findByRepositoryIdOrderByCreatedAtDesc(repositoryId)) {
+                IssueChangedEvent event = IssueChangedEvent.of(issue);
+                index.put(toDocument(event), event.getBody());
+            }
+            for (PullRequest pullRequest : pullRequestRepository.findByRepositoryIdOrderByCreatedAtDesc(repositoryId)) {
+                IssueChangedEvent event = IssueChangedEvent.of(pullRequest);
+                index.put(toDocument(event), event.getBody());
+            }
+            index.markReady();
+        }
+    }
+
+    /**
+     * Load the indexes of all repositories in the background at startup.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildAll() {
+        for (GitRepository repository : repositoryJpaRepository.findAll()) {
+            try {
+                if (!indexes.containsKey(repository.getId())) {
+                    rebuildIndex(repository.getId());
+                }
+            } catch (Exception e) {
+                log.warn("Failed to build issue index for {}/{}: {}", 
+                        repository.getOwner(), repository.getName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Drop the loaded index of a repository so the next search reloads it from the
+     * tables, e.g. after an import wrote too many rows to apply one by one.
+     */
+    public void invalidateIndex(Long repositoryId) {
+        indexes.remove(repositoryId);
+    }
+
+    /**
+     * Drop the index of a deleted repository.
+     */
+    public void deleteIndex(Long repositoryId) {
+        indexes.remove(repositoryId);
+        locks.remove(repositoryId);
+    }
+
+    private IssueIndex getIndex(Long repositoryId) {
+        IssueIndex index = indexes.get(repositoryId);
+        if (index != null && index.isReady()) {
+            return index;
+        }
+        synchronized (locks.computeIfAbsent(repositoryId, id -> new Object())) {
+            index = indexes.get(repositoryId);
+            if (index == null || !index.isReady()) {
+                rebuildIndex(repositoryId);
+                index = indexes.get(repositoryId);
+            }
+            return index;
+        }
+    }
+
+    private static IssueIndex.Document toDocument(IssueChangedEvent event) {
+        return new IssueIndex.Document(event.getKind(), event.getNumber(), event.getTitle(), event.getState(),
+                event.getAuthor(), event.getAssignee(), event.getLabels(), event.getCreatedAt(), 
+                event.getUpdatedAt());
+    }
+
+    private static Kind parseKind(String type) {
+        if (type == null || type.isEmpty()) {
+            return null;
+        }
+        return switch (type.toLowerCase(Locale.ROOT)) {
+            case "issue" -> Kind.ISSUE;
+            case "pr", "pull_request" -> Kind.PULL_REQUEST;
+            default -> throw new IllegalArgumentException("Unknown type: " + type);
+        };
+    }
+}
@@ -1,20 +1,26 @@
 package com.gitserver.service;
 
 import com.gitserver.dto.*;
-import com.gitserver.entity.GitRepository;
 import com.gitserver.entity.Issue;
 import com.gitserver.entity.Issue.IssueState;
+import com.gitserver.event.IssueChangedEvent;
 import com.gitserver.exception.IssueNotFoundException;
-import com.gitserver.exception.RepositoryNotFoundException;
-import com.gitserver.repository.GitRepositoryJpaRepository;
 import com.gitserver.repository.IssueRepository;
+import com.gitserver.repository.IssueSummary;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -25,44 +31,67 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class IssueService {
 
+    private static final int DEFAULT_PAGE_SIZE = 30;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final IssueRepository issueRepository;
-    private final GitRepositoryJpaRepository repositoryJpaRepository;
+    private final RepositoryResolver repositoryResolver;
+    private final InsightsIndexService insightsIndexService;
+    private final IssueNumberService issueNumberService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Create a new issue.
      */
     @Transactional
     public IssueResponse createIssue(String owner, String repoName, String authorUsername, CreateIssueRequest request) {
-        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
 
-        Integer nextIssueNumber = issueRepository.findMaxIssueNumberByRepositoryId(repository.getId())
-                .map(n -> n + 1)
-                .orElse(1);
-
-        Issue issue = Issue.builder()
-                .issueNumber(nextIssueNumber)
-                .title(request.getTitle())
-                .body(request.getBody())
-                .state(IssueState.OPEN)
-                .repositoryId(repository.getId())
-                .authorUsername(authorUsername)
-                .assigneeUsername(request.getAssignee())
-                .labels(request.getLabels())
-                .build();
+        int nextIssueNumber = issueNumberService.nextNumber(repository.getId());
+        Issue issue = newIssue(repository.getId(), nextIssueNumber, authorUsername, request);
 
         issue = issueRepository.save(issue);
+        insightsIndexService.refreshIssueCounts(repository.getId());
+        eventPublisher.publishEvent(IssueChangedEvent.of(issue));
         log.info("Created issue #{} in repository {}/{}", nextIssueNumber, owner, repoName);
 
         return toResponse(issue, owner, repoName);
     }
 
+    /**
+     * Create many issues in one transaction. The issues get consecutive numbers and
+     * their rows are inserted in JDBC batches.
+     */
+    @Transactional
+    public List<IssueResponse> createIssues(String owner, String repoName, String authorUsername,
+                                            List<CreateIssueRequest> requests) {
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
+        long started = System.nanoTime();
+
+        int number = issueNumberService.nextNumbers(repository.getId(), requests.size());
+        List<Issue> issues = new ArrayList<>(requests.size());
+        for (CreateIssueRequest request : requests) {
+            issues.add(newIssue(repository.getId(), number++, authorUsername, request));
+        }
+
+        issues = issueRepository.saveAll(issues);
+        issueRepository.flush();
+        insightsIndexService.refreshIssueCounts(repository.getId());
+        issues.forEach(issue -> eventPublisher.publishEvent(IssueChangedEvent.of(issue)));
+        log.info("Created {} issues in repository {}/{} in {} ms", issues.size(), owner, repoName,
+                (System.nanoTime() - started) / 1_000_000);
+
+        return issues.stream()
+                .map(issue -> toResponse(issue, owner, repoName))
+                .collect(Collectors.toList());
+    }
+
     /**
      * Get an issue by number.
      */
+    @Transactional(readOnly = true)
     public IssueResponse getIssue(String owner, String repoName, Integer issueNumber) {
-        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
 
         Issue issue = issueRepository.findByRepositoryIdAndIssueNumber(repository.getId(), issueNumber)
                 .orElseThrow(() -> new IssueNotFoundException(owner, repoName, issueNumber));
@@ -71,23 +100,60 @@ public class IssueService {
     }
 
     /**
-     * Get all issues for a repository.
+     * Get a page of issues for a repository, newest first. Pass the next cursor of a
+     * page to get the following one.
      */
-    public List<IssueResponse> getIssues(String owner, String repoName, String state) {
-        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+    @Transactional(readOnly = true)
+    public CursorPage<IssueResponse> getIssues(String owner, String repoName, String state, String cursor, Integer limit) {
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
+
+        CursorPage.Cursor position = CursorPage.Cursor.decode(cursor);
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // Fetch one extra row to learn whether there is a next page
+        PageRequest pageable = PageRequest.of(0, pageSize + 1);
 
-        List<Issue> issues;
+        List<IssueSummary> rows;
         if (state != null && !state.isEmpty()) {
             IssueState issueState = IssueState.valueOf(state.toUpperCase());
-            issues = issueRepository.findByRepositoryIdAndStateOrderByCreatedAtDesc(repository.getId(), issueState);
+            rows = issueRepository.findPageByState(repository.getId(), issueState,
+                    position.createdAt(), position.id(), pageable);
         } else {
-            issues = issueRepository.findByRepositoryIdOrderByCreatedAtDesc(repository.getId());
+            rows = issueRepository.findPage(repository.getId(), position.createdAt(), position.id(), pageable);
         }
 
-        return issues.stream()
-                .map(issue -> toResponse(issue, owner, repoName))
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            IssueSummary last = rows.get(pageSize - 1);
+            nextCursor = new CursorPage.Cursor(last.createdAt(), last.id()).encode();
+        }
+
+        Map<Long, Set<String>> labels = new HashMap<>();
+        if (!rows.isEmpty()) {
+            List<Long> ids = rows.stream().map(IssueSummary::id).collect(Collectors.toList());
+            for (Object[] row : issueRepository.findLabels(ids)) {
+                labels.computeIfAbsent((Long) row[0], id -> new HashSet<>()).add((String) row[1]);
+            }
+        }
+
+        List<IssueResponse> items = rows.stream()
+                .map(row -> IssueResponse.builder()
+                        .id(row.id())
+                        .issueNumber(row.issueNumber())
+                        .title(row.title())
+                        .body(row.body())
+                        .state(row.state().name())
+                        .author(row.authorUsername())
+                        .assignee(row.assigneeUsername())
+                        .labels(labels.getOrDefault(row.id(), new HashSet<>()))
+                        .repositoryOwner(owner)
+                        .repositoryName(repoName)
+                        .createdAt(row.createdAt())
+                        .updatedAt(row.updatedAt())
+                        .closedAt(row.closedAt())
+                        .build())
                 .collect(Collectors.toList());
+        return new CursorPage<>(items, nextCursor);
     }
 
     /**
@@ -95,36 +161,70 @@ public class IssueService {
      */
     @Transactional
     public IssueResponse updateIssue(String owner, String repoName, Integer issueNumber, UpdateIssueRequest request) {
-        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
 
         Issue issue = issueRepository.findByRepositoryIdAndIssueNumber(repository.getId(), issueNumber)
                 .orElseThrow(() -> new IssueNotFoundException(owner, repoName, issueNumber));
 
-        if (request.getTitle() != null) {
-            issue.setTitle(request.getTitle());
-        }
-        if (request.getBody() != null) {
-            issue.setBody(request.getBody());
-        }
+        applyUpdate(issue, request);
+
+        issue = issueRepository.save(issue);
         if (request.getState() != null) {
-            IssueState newState = IssueState.valueOf(request.getState().toUpperCase());
-            if (newState == IssueState.CLOSED && issue.getState() != IssueState.CLOSED) {
-                issue.setClosedAt(LocalDateTime.now());
-            }
-            issue.setState(newState);
+            insightsIndexService.refreshIssueCounts(repository.getId());
         }
-        if (request.getAssignee() != null) {
-            issue.setAssigneeUsername(request.getAssignee());
+        eventPublisher.publishEvent(IssueChangedEvent.of(issue));
+        log.info("Updated issue #{} in repository {}/{}", issueNumber, owner, repoName);
+
+        return toResponse(issue, owner, repoName);
+    }
+
+    /**
+     * Update many issues in one transaction. Either every issue is updated or, if one
+     * of them does not exist, none is.
+     */
+    @Transactional
+    public List<IssueResponse> updateIssues(String owner, String repoName,
+                                            List<BulkUpdateRequest.Item<UpdateIssueRequest>> items) {
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
+        long started = System.nanoTime();
+
+        Set<Integer> numbers = items.stream().map(BulkUpdateRequest.Item::getNumber).collect(Collectors.toSet());
+        Map<Integer, Issue> issues = issueRepository.findByRepositoryIdAndIssueNumberIn(repository.getId(), numbers)
+                .stream()
+                .collect(Collectors.toMap(Issue::getIssueNumber, issue -> issue));
+
+        boolean stateChanged = false;
+        for (BulkUpdateRequest.Item<UpdateIssueRequest> item : items) {
+            Issue issue = issues.get(item.getNumber());
+            if (issue == null) {
+                throw new IssueNotFoundException(owner, repoName, item.getNumber());
+            }
+            applyUpdate(issue, item.getChanges());
+            stateChanged |= item.getChanges().getState() != null;
         }
-        if (request.getLabels() != null) {
-            issue.setLabels(request.getLabels());
+
+        issueRepository.flush();
+        if (stateChanged) {
+            insightsIndexService.refreshIssueCounts(repository.getId());
         }
+        issues.values().forEach(issue -> eventPublisher.publishEvent(IssueChangedEvent.of(issue)));
+        log.info("Updated {} issues in repository {}/{} in {} ms", issues.size(), owner, repoName,
+                (System.nanoTime() - started) / 1_000_000);
 
-        issue = issueRepository.save(issue);
-        log.info("Updated issue #{} in repository {}/{}", issueNumber, owner, repoName);
+        return items.stream()
+                .map(item -> toResponse(issues.get(item.getNumber()), owner, repoName))
+                .collect(Collectors.toList());
+    }
 
-        return toResponse(issue, owner, repoName);
+    /**
+     * Close many issues in one transaction.
+     */
+    @Transactional
+    public List<IssueResponse> closeIssues(String owner, String repoName, List<Integer> issueNumbers) {
+        UpdateIssueRequest close = UpdateIssueRequest.builder().state("CLOSED").build();
+        return updateIssues(owner, repoName, issueNumbers.stream()
+                .map(number -> new BulkUpdateRequest.Item<>(number, close))
+                .collect(Collectors.toList()));
     }
 
     /**
@@ -148,6 +248,7 @@ public class IssueService {
     /**
      * Count open issues for a repository.
      */
+    @Transactional(readOnly = true)
     public long countOpenIssues(Long repositoryId) {
         return issueRepository.countByRepositoryIdAndState(repositoryId, IssueState.OPEN);
     }
@@ -155,10 +256,47 @@ public class IssueService {
     /**
      * Count closed issues for a repository.
      */
+    @Transactional(readOnly = true)
     public long countClosedIssues(Long repositoryId) {
         return issueRepository.countByRepositoryIdAndState(repositoryId, IssueState.CLOSED);
     }
 
+
+    private static Issue newIssue(Long repositoryId, int issueNumber, String authorUsername, CreateIssueRequest request) {
+        return Issue.builder()
+                .issueNumber(issueNumber)
+                .title(request.getTitle())
+                .body(request.getBody())
+                .state(IssueState.OPEN)
+                .repositoryId(repositoryId)
+                .authorUsername(authorUsername)
+                .assigneeUsername(request.getAssignee())
+                .labels(request.getLabels())
+                .build();
+    }
+
+    private static void applyUpdate(Issue issue, UpdateIssueRequest request) {
+        if (request.getTitle() != null) {
+            issue.setTitle(request.getTitle());
+        }
+        if (request.getBody() != null) {
+            issue.setBody(request.getBody());
+        }
+        if (request.getState() != null) {
+            IssueState newState = IssueState.valueOf(request.getState().toUpperCase());
+            if (newState == IssueState.CLOSED && issue.getState() != IssueState.CLOSED) {
+                issue.setClosedAt(LocalDateTime.now());
+            }
+            issue.setState(newState);
+        }
+        if (request.getAssignee() != null) {
+            issue.setAssigneeUsername(request.getAssignee());
+        }
+        if (request.getLabels() != null) {
+            issue.setLabels(request.getLabels());
+        }
+    }
+
     private IssueResponse toResponse(Issue issue, String owner, String repoName) {
         return IssueResponse.builder()
                 .id(issue.getId())
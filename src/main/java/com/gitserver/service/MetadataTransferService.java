@@ -0,0 +1,392 @@
+package com.gitserver.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.gitserver.dto.MetadataImportResult;
+import com.gitserver.dto.MetadataRecord;
+import com.gitserver.dto.MetadataRecord.*;
+import com.gitserver.dto.RepositoryDescriptor;
+import com.gitserver.entity.*;
+import com.gitserver.repository.*;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Service exporting and importing the metadata of a repository (collaborators, issues,
+ * pull requests, reviews and review comments) as NDJSON, one {@link MetadataRecord} per
+ * line. Both directions stream: the export merges cursors ordered by id and the import
+ * parses one line at a time and writes in JDBC batches, so memory does not grow with
+ * the size of the repository.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MetadataTransferService {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final RepositoryResolver repositoryResolver;
+    private final RepositoryPermissionRepository permissionRepository;
+    private final IssueRepository issueRepository;
+    private final PullRequestRepository pullRequestRepository;
+    private final ReviewRepository reviewRepository;
+    private final ReviewCommentRepository reviewCommentRepository;
+    private final UserRepository userRepository;
+    private final IssueNumberService issueNumberService;
+    private final InsightsIndexService insightsIndexService;
+    private final IssueSearchService issueSearchService;
+    private final PermissionService permissionService;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Write the metadata of a repository to a stream. Each review directly follows its
+     * pull request and each review comment its review.
+     */
+    @Transactional(readOnly = true)
+    public void exportMetadata(String owner, String repoName, OutputStream out) throws IOException {
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
+        Long repositoryId = repository.getId();
+        long started = System.nanoTime();
+        long lines = 0;
+
+        ObjectWriter writer = objectMapper.writerFor(MetadataRecord.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            for (RepositoryPermission permission : permissionRepository.findByRepositoryId(repositoryId)) {
+                write(writer, generator, new PermissionRecord(permission.getUsername(), permission.getPermission()));
+                lines++;
+            }
+
+            try (Stream<IssueSummary> issues = issueRepository.streamByRepositoryId(repositoryId);
+                 Stream<Object[]> labelRows = issueRepository.streamLabels(repositoryId)) {
+                Cursor<Object[]> labels = new Cursor<>(labelRows.iterator());
+                for (Iterator<IssueSummary> it = issues.iterator(); it.hasNext(); ) {
+                    IssueSummary issue = it.next();
+                    write(writer, generator, new IssueRecord(issue.issueNumber(), issue.title(), issue.body(),
+                            issue.state(), issue.authorUsername(), issue.assigneeUsername(),
+                            values(labels, issue.id()), issue.createdAt(), issue.updatedAt(), issue.closedAt()));
+                    lines++;
+                }
+            }
+
+            try (Stream<PullRequestSummary> pullRequests = pullRequestRepository.streamByRepositoryId(repositoryId);
+                 Stream<Object[]> labelRows = pullRequestRepository.streamLabels(repositoryId);
+                 Stream<Object[]> reviewerRows = pullRequestRepository.streamReviewers(repositoryId);
+                 Stream<Review> reviewRows = reviewRepository.streamByRepositoryId(repositoryId);
+                 Stream<ReviewComment> commentRows = reviewCommentRepository.streamByRepositoryId(repositoryId)) {
+                Cursor<Object[]> labels = new Cursor<>(labelRows.iterator());
+                Cursor<Object[]> reviewers = new Cursor<>(reviewerRows.iterator());
+                Cursor<Review> reviews = new Cursor<>(reviewRows.iterator());
+                Cursor<ReviewComment> comments = new Cursor<>(commentRows.iterator());
+
+                for (Iterator<PullRequestSummary> it = pullRequests.iterator(); it.hasNext(); ) {
+                    PullRequestSummary pullRequest = it.next();
+                    Long id = pullRequest.id();
+                    write(writer, generator, new PullRequestRecord(pullRequest.prNumber(), pullRequest.title(),
+                            pullRequest.body(), pullRequest.state(), pullRequest.authorUsername(),
+                            pullRequest.headBranch(), pullRequest.baseBranch(), values(labels, id),
+                            values(reviewers, id), pullRequest.merged(), pullRequest.mergedBy(),
+                            pullRequest.mergedAt(), pullRequest.createdAt(), pullRequest.updatedAt(),
+                            pullRequest.closedAt()));
+                    lines++;
+
+                    for (Review review : reviews.rowsOf(id, Review::getPullRequestId)) {
+                        entityManager.detach(review);
+                        write(writer, generator, new ReviewRecord(pullRequest.prNumber(), review.getReviewerUsername(),
+                                review.getBody(), review.getState(), review.getCommitId(),
+                                review.getCreatedAt(), review.getUpdatedAt()));
+                        lines++;
+
+                        comments.skipWhile(comment -> comment.getPullRequestId() < id
+                                || (comment.getPullRequestId().equals(id) && comment.getReviewId() < review.getId()));
+                        while (comments.peek() != null && comments.peek().getPullRequestId().equals(id)
+                                && comments.peek().getReviewId().equals(review.getId())) {
+                            ReviewComment comment = comments.next();
+                            entityManager.detach(comment);
+                            write(writer, generator, new ReviewCommentRecord(pullRequest.prNumber(),
+                                    comment.getAuthorUsername(), comment.getBody(), comment.getFilePath(),
+                                    comment.getLineNumber(), comment.getCommitId(), comment.getCreatedAt(),
+                                    comment.getUpdatedAt()));
+                            lines++;
+                        }
+                    }
+                }
+            }
+        }
+
+        log.info("Exported {} metadata records of repository {}/{} in {} ms", lines, owner, repoName,
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Import metadata written by {@link #exportMetadata} into a repository. Issue and
+     * pull request numbers are kept if the repository has none yet and shifted past the
+     * existing ones otherwise. Collaborators without an account here are skipped. The
+     * import is one transaction: a malformed line rolls all of it back. Rows are written
+     * with placeholder numbers and get their final ones from a range reserved once the
+     * highest imported number is known, so issues created meanwhile are not disturbed.
+     */
+    @Transactional
+    public MetadataImportResult importMetadata(String owner, String repoName, InputStream in) throws IOException {
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
+        Long repositoryId = repository.getId();
+        long started = System.nanoTime();
+
+        int maxNumber = 0;
+        long permissions = 0, issues = 0, pullRequests = 0, reviews = 0, reviewComments = 0;
+        Integer pullRequestNumber = null;
+        Long pullRequestId = null;
+        Long reviewId = null;
+        long pending = 0;
+
+        try (MappingIterator<MetadataRecord> records = objectMapper.readerFor(MetadataRecord.class).readValues(in)) {
+            while (hasNext(records)) {
+                MetadataRecord record = next(records);
+
+                if (record instanceof PermissionRecord permission) {
+                    if (importPermission(repositoryId, owner, permission)) {
+                        permissions++;
+                    }
+                } else if (record instanceof IssueRecord issue) {
+                    if (issue.number() <= 0) {
+                        throw invalid(records, "issue number must be positive");
+                    }
+                    issueRepository.save(Issue.builder()
+                            .issueNumber(-issue.number())
+                            .title(issue.title())
+                            .body(issue.body())
+                            .state(issue.state())
+                            .repositoryId(repositoryId)
+                            .authorUsername(issue.author())
+                            .assigneeUsername(issue.assignee())
+                            .labels(issue.labels() != null ? new HashSet<>(issue.labels()) : new HashSet<>())
+                            .createdAt(issue.createdAt())
+                            .updatedAt(issue.updatedAt())
+                            .closedAt(issue.closedAt())
+                            .build());
+                    maxNumber = Math.max(maxNumber, issue.number());
+                    issues++;
+                } else if (record instanceof PullRequestRecord pr) {
+                    if (pr.number() <= 0) {
+                        throw invalid(records, "pull request number must be positive");
+                    }
+                    PullRequest pullRequest = pullRequestRepository.save(PullRequest.builder()
+                            .prNumber(-pr.number())
+                            .title(pr.title())
+                            .body(pr.body())
+                            .state(pr.state())
+                            .repositoryId(repositoryId)
+                            .authorUsername(pr.author())
+                            .headBranch(pr.headBranch())
+                            .baseBranch(pr.baseBranch())
+                            .labels(pr.labels() != null ? new HashSet<>(pr.labels()) : new HashSet<>())
+                            .reviewers(pr.reviewers() != null ? new HashSet<>(pr.reviewers()) : new HashSet<>())
+                            .isMerged(pr.merged())
+                            .mergedBy(pr.mergedBy())
+                            .mergedAt(pr.mergedAt())
+                            .createdAt(pr.createdAt())
+                            .updatedAt(pr.updatedAt())
+                            .closedAt(pr.closedAt())
+                            .build());
+                    pullRequestNumber = pr.number();
+                    pullRequestId = pullRequest.getId();
+                    reviewId = null;
+                    maxNumber = Math.max(maxNumber, pr.number());
+                    pullRequests++;
+                } else if (record instanceof ReviewRecord review) {
+                    if (pullRequestId == null || pullRequestNumber != review.pullRequest()) {
+                        throw invalid(records, "review does not follow pull request #" + review.pullRequest());
+                    }
+                    reviewId = reviewRepository.save(Review.builder()
+                            .pullRequestId(pullRequestId)
+                            .reviewerUsername(review.reviewer())
+                            .body(review.body())
+                            .state(review.state())
+                            .commitId(review.commitId())
+                            .createdAt(review.createdAt())
+                            .updatedAt(review.updatedAt())
+                            .build()).getId();
+                    reviews++;
+                } else if (record instanceof ReviewCommentRecord comment) {
+                    if (reviewId == null || pullRequestNumber != comment.pullRequest()) {
+                        throw invalid(records, "review comment does not follow a review of pull request #"
+                                + comment.pullRequest());
+                    }
+                    reviewCommentRepository.save(ReviewComment.builder()
+                            .reviewId(reviewId)
+                            .pullRequestId(pullRequestId)
+                            .authorUsername(comment.author())
+                            .body(comment.body())
+                            .filePath(comment.filePath())
+                            .lineNumber(comment.lineNumber())
+                            .commitId(comment.commitId())
+                            .createdAt(comment.createdAt())
+                            .updatedAt(comment.updatedAt())
+                            .build());
+                    reviewComments++;
+                }
+
+                // Write what has been collected and let go of the entities
+                if (++pending >= BATCH_SIZE) {
+                    entityManager.flush();
+                    entityManager.clear();
+                    pending = 0;
+                }
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        // Staged rows carry their negated numbers, which never collide with real ones
+        int numberOffset = 0;
+        if (maxNumber > 0) {
+            numberOffset = issueNumberService.nextNumbers(repositoryId, maxNumber) - 1;
+            issueRepository.assignStagedNumbers(repositoryId, numberOffset);
+            pullRequestRepository.assignStagedNumbers(repositoryId, numberOffset);
+        }
+        insightsIndexService.refreshIssueCounts(repositoryId);
+        insightsIndexService.refreshPullRequestCounts(repositoryId);
+        if (permissions > 0) {
+            permissionService.invalidateAcl(repositoryId);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    issueSearchService.invalidateIndex(repositoryId);
+                }
+            });
+        }
+
+        long durationMillis = (System.nanoTime() - started) / 1_000_000;
+        log.info("Imported {} issues, {} pull requests, {} reviews and {} review comments into {}/{} in {} ms",
+                issues, pullRequests, reviews, reviewComments, owner, repoName, durationMillis);
+        return MetadataImportResult.builder()
+                .permissions(permissions)
+                .issues(issues)
+                .pullRequests(pullRequests)
+                .reviews(reviews)
+                .reviewComments(reviewComments)
+                .numberOffset(numberOffset)
+                .durationMillis(durationMillis)
+                .build();
+    }
+
+    private boolean importPermission(Long repositoryId, String owner, PermissionRecord record) {
+        if (record.username() == null || record.username().equals(owner)
+                || !userRepository.existsByUsername(record.username())) {
+            log.debug("Skipping imported collaborator {}", record.username());
+            return false;
+        }
+        RepositoryPermission permission = permissionRepository
+                .findByRepositoryIdAndUsername(repositoryId, record.username())
+                .orElseGet(() -> RepositoryPermission.builder()
+                        .repositoryId(repositoryId)
+                        .username(record.username())
+                        .build());
+        permission.setPermission(record.permission());
+        permissionRepository.save(permission);
+        return true;
+    }
+
+    private static void write(ObjectWriter writer, JsonGenerator generator, MetadataRecord record) throws IOException {
+        writer.writeValue(generator, record);
+        generator.writeRaw('\n');
+    }
+
+    private static boolean hasNext(MappingIterator<MetadataRecord> records) throws IOException {
+        try {
+            return records.hasNextValue();
+        } catch (JsonProcessingException e) {
+            throw invalid(records, e.getOriginalMessage());
+        }
+    }
+
+    private static MetadataRecord next(MappingIterator<MetadataRecord> records) throws IOException {
+        try {
+            return records.nextValue();
+        } catch (JsonProcessingException e) {
+            throw invalid(records, e.getOriginalMessage());
+        }
+    }
+
+    private static IllegalArgumentException invalid(MappingIterator<MetadataRecord> records, String message) {
+        return new IllegalArgumentException("Invalid metadata on line "
+                + records.getCurrentLocation().getLineNr() + ": " + message);
+    }
+
+    /**
+     * The values of the (parent id, value) rows of a parent.
+     */
+    private static Set<String> values(Cursor<Object[]> rows, Long parentId) {
+        Set<String> values = new TreeSet<>();
+        for (Object[] row : rows.rowsOf(parentId, r -> (Long) r[0])) {
+            values.add((String) row[1]);
+        }
+        return values;
+    }
+
+    /**
+     * Iterator over rows ordered by a parent id that can look one row ahead, used to
+     * merge child rows into the stream of their parents.
+     */
+    private static final class Cursor<T> {
+
+        private final Iterator<T> rows;
+        private T next;
+
+        Cursor(Iterator<T> rows) {
+            this.rows = rows;
+            this.next = rows.hasNext() ? rows.next() : null;
+        }
+
+        T peek() {
+            return next;
+        }
+
+        T next() {
+            T current = next;
+            next = rows.hasNext() ? rows.next() : null;
+            return current;
+        }
+
+        void skipWhile(Predicate<T> condition) {
+            while (next != null && condition.test(next)) {
+                next();
+            }
+        }
+
+        /**
+         * The rows of a parent; rows of earlier parents that were not asked for are skipped.
+         */
+        List<T> rowsOf(Long parentId, Function<T, Long> parentOf) {
+            skipWhile(row -> parentOf.apply(row) < parentId);
+            List<T> result = new ArrayList<>();
+            while (next != null && parentOf.apply(next).equals(parentId)) {
+                result.add(next());
+            }
+            return result;
+        }
+
+    }
+}
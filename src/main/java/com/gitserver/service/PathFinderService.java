@@ -0,0 +1,131 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.PathMatch;
+import com.gitserver.entity.GitRepository;
+import com.gitserver.event.RefUpdateEvent;
+import com.gitserver.exception.RepositoryNotFoundException;
+import com.gitserver.git.JGitService;
+import com.gitserver.repository.GitRepositoryJpaRepository;
+import com.gitserver.search.PathIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service for fuzzy "go to file" lookups.
+ * Path indexes are cached per tree SHA, so refs and repositories with identical trees
+ * share one index. A new tree is derived from the previous tree indexed for the same
+ * repository by applying only the paths added and removed between them.
+ */
+@Slf4j
+@Service
+public class PathFinderService {
+
+    private final GitRepositoryJpaRepository repositoryJpaRepository;
+    private final JGitService jGitService;
+    private final Map<String, PathIndex> indexesByTree;
+    private final Map<Long, String> lastTreeByRepository = new ConcurrentHashMap<>();
+    private final Map<Long, Object> locks = new ConcurrentHashMap<>();
+
+    public PathFinderService(GitRepositoryJpaRepository repositoryJpaRepository,
+                             JGitService jGitService,
+                             @Value("${git.search.path-index-cache-size:256}") int cacheSize) {
+        this.repositoryJpaRepository = repositoryJpaRepository;
+        this.jGitService = jGitService;
+        this.indexesByTree = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PathIndex> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Find files of a branch, tag or commit whose path fuzzily matches a query.
+     */
+    public List<PathMatch> findFiles(String owner, String name, String branch, String query, int limit) {
+        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, name)
+                .orElseThrow(() -> new RepositoryNotFoundException(owner, name));
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query must not be empty");
+        }
+
+        String revision = branch != null ? branch : repository.getDefaultBranch();
+        String treeId = jGitService.resolveTreeId(owner, name, revision);
+        return getIndex(repository, treeId).find(query, limit).stream()
+                .map(match -> PathMatch.builder()
+                        .path(match.path())
+                        .score(match.score())
+                        .matchedPositions(match.positions())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Keep the default branch index current for repositories that use the finder.
+     */
+    @Async
+    @EventListener
+    public void onRefUpdate(RefUpdateEvent event) {
+        repositoryJpaRepository.findByOwnerAndName(event.getOwner(), event.getName()).ifPresent(repository -> {
+            if (!lastTreeByRepository.containsKey(repository.getId())) {
+                return;
+            }
+            try {
+                String treeId = jGitService.resolveTreeId(repository.getOwner(), repository.getName(), 
+                        repository.getDefaultBranch());
+                getIndex(repository, treeId);
+            } catch (Exception e) {
+                log.debug("Failed to update path index for {}/{}: {}", 
+                        repository.getOwner(), repository.getName(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Forget the indexing history of a deleted repository.
+     */
+    public void deleteIndex(Long repositoryId) {
+        lastTreeByRepository.remove(repositoryId);
+        locks.remove(repositoryId);
+    }
+
+    private PathIndex getIndex(GitRepository repository, String treeId) {
+        PathIndex index = indexesByTree.get(treeId);
+        if (index != null) {
+            return index;
+        }
+
+        synchronized (locks.computeIfAbsent(repository.getId(), id -> new Object())) {
+            index = indexesByTree.get(treeId);
+            if (index != null) {
+                return index;
+            }
+
+            String previousTreeId = lastTreeByRepository.get(repository.getId());
+            PathIndex previous = previousTreeId != null ? indexesByTree.get(previousTreeId) : null;
+
+            List<String> added = new ArrayList<>();
+            List<String> removed = new ArrayList<>();
+            jGitService.diffTreePaths(repository.getOwner(), repository.getName(), 
+                    previous != null ? previousTreeId : null, treeId, 
+                    (path, isAdded) -> (isAdded ? added : removed).add(path));
+
+            if (previous != null) {
+                index = previous.apply(added, removed);
+            } else {
+                Collections.sort(added);
+                index = PathIndex.of(added);
+            }
+
+            indexesByTree.put(treeId, index);
+            lastTreeByRepository.put(repository.getId(), treeId);
+            return index;
+        }
+    }
+}
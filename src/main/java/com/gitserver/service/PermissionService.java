@@ -1,44 +1,78 @@
 package com.gitserver.service;
 
+import com.gitserver.config.ReadWriteRoutingDataSource;
 import com.gitserver.dto.PermissionRequest;
 import com.gitserver.dto.PermissionResponse;
+import com.gitserver.dto.RepositoryDescriptor;
 import com.gitserver.entity.GitRepository;
 import com.gitserver.entity.RepositoryPermission;
 import com.gitserver.entity.RepositoryPermission.PermissionLevel;
+import com.gitserver.event.CacheInvalidatedEvent;
+import com.gitserver.event.ClusterMembershipChangedEvent;
 import com.gitserver.exception.PermissionDeniedException;
-import com.gitserver.exception.RepositoryNotFoundException;
 import com.gitserver.exception.UserNotFoundException;
 import com.gitserver.repository.GitRepositoryJpaRepository;
 import com.gitserver.repository.RepositoryPermissionRepository;
 import com.gitserver.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
- * Service for repository permission management.
+ * Service for repository permission management. Permission checks are answered from
+ * per-repository access control lists cached in memory; writes to permissions or to a
+ * repository's visibility invalidate the list of that repository, on every node of a
+ * cluster.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class PermissionService {
 
+    private static final String CACHE_NAME = "acls";
+
     private final RepositoryPermissionRepository permissionRepository;
+    private final RepositoryResolver repositoryResolver;
     private final GitRepositoryJpaRepository repositoryJpaRepository;
     private final UserRepository userRepository;
+    private final CacheInvalidationService cacheInvalidationService;
+
+    private final Map<Long, Acl> acls = new ConcurrentHashMap<>();
+    // Bumped on every invalidation; a list loaded across a bump may be stale and is not cached
+    private final AtomicLong aclVersion = new AtomicLong();
+
+    /**
+     * Access control list of one repository: its owner, visibility and collaborators.
+     */
+    private record Acl(String owner, boolean isPrivate, Map<String, PermissionLevel> collaborators) {
+
+        boolean allows(String username, PermissionLevel requiredLevel) {
+            if (username != null && username.equals(owner)) {
+                return true;
+            }
+            if (!isPrivate && requiredLevel == PermissionLevel.READ) {
+                return true;
+            }
+            PermissionLevel level = username != null ? collaborators.get(username) : null;
+            return level != null && hasRequiredLevel(level, requiredLevel);
+        }
+    }
 
     /**
      * Add or update a collaborator's permission.
      */
     @Transactional
     public PermissionResponse addCollaborator(String owner, String repoName, PermissionRequest request) {
-        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
 
         // Verify user exists
         if (!userRepository.existsByUsername(request.getUsername())) {
@@ -68,6 +102,7 @@ public class PermissionService {
         }
 
         permission = permissionRepository.save(permission);
+        invalidateAcl(repository.getId());
         log.info("Added/updated collaborator '{}' with {} permission on {}/{}", 
                  request.getUsername(), level, owner, repoName);
 
@@ -78,8 +113,7 @@ public class PermissionService {
      * Get all collaborators for a repository.
      */
     public List<PermissionResponse> getCollaborators(String owner, String repoName) {
-        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
 
         return permissionRepository.findByRepositoryId(repository.getId())
                 .stream()
@@ -91,8 +125,7 @@ public class PermissionService {
      * Get a specific collaborator's permission.
      */
     public PermissionResponse getCollaborator(String owner, String repoName, String username) {
-        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
 
         RepositoryPermission permission = permissionRepository
                 .findByRepositoryIdAndUsername(repository.getId(), username)
@@ -106,38 +139,139 @@ public class PermissionService {
      */
     @Transactional
     public void removeCollaborator(String owner, String repoName, String username) {
-        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
 
         permissionRepository.deleteByRepositoryIdAndUsername(repository.getId(), username);
+        invalidateAcl(repository.getId());
         log.info("Removed collaborator '{}' from {}/{}", username, owner, repoName);
     }
 
     /**
-     * Check if a user has at least the specified permission level.
+     * Check if a user has at least the specified permission level. A null username is an
+     * anonymous user, who can only read public repositories.
      */
     public boolean hasPermission(String owner, String repoName, String username, PermissionLevel requiredLevel) {
-        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
+        Acl acl = acls.get(repository.getId());
+        if (acl == null) {
+            acl = loadAcls(List.of(repository.getId())).get(repository.getId());
+        }
+        return acl != null && acl.allows(username, requiredLevel);
+    }
 
-        // Owner always has ADMIN permission
-        if (username.equals(owner)) {
-            return true;
+    /**
+     * Check if a user has at least the specified permission level on a repository given
+     * by id. False if the repository does not exist.
+     */
+    public boolean hasPermission(Long repositoryId, String username, PermissionLevel requiredLevel) {
+        Acl acl = acls.get(repositoryId);
+        if (acl == null) {
+            acl = loadAcls(List.of(repositoryId)).get(repositoryId);
         }
+        return acl != null && acl.allows(username, requiredLevel);
+    }
 
-        // Check for public repository and READ access
-        if (!repository.isPrivate() && requiredLevel == PermissionLevel.READ) {
-            return true;
+    /**
+     * Get the owner and collaborators of a repository.
+     */
+    public Set<String> getMembers(Long repositoryId) {
+        Acl acl = acls.get(repositoryId);
+        if (acl == null) {
+            acl = loadAcls(List.of(repositoryId)).get(repositoryId);
+        }
+        if (acl == null) {
+            return Set.of();
         }
+        Set<String> members = new HashSet<>(acl.collaborators().keySet());
+        members.add(acl.owner());
+        return members;
+    }
 
-        Optional<RepositoryPermission> permission = 
-                permissionRepository.findByRepositoryIdAndUsername(repository.getId(), username);
+    /**
+     * Get the ids of the repositories, among the given ones, on which a user has at least
+     * the specified permission level. Lists not cached yet are loaded in one batch.
+     */
+    public Set<Long> filterPermitted(Collection<Long> repositoryIds, String username, PermissionLevel requiredLevel) {
+        Map<Long, Acl> found = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long repositoryId : repositoryIds) {
+            Acl acl = acls.get(repositoryId);
+            if (acl != null) {
+                found.put(repositoryId, acl);
+            } else {
+                missing.add(repositoryId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            found.putAll(loadAcls(missing));
+        }
+
+        Set<Long> permitted = new HashSet<>();
+        found.forEach((repositoryId, acl) -> {
+            if (acl.allows(username, requiredLevel)) {
+                permitted.add(repositoryId);
+            }
+        });
+        return permitted;
+    }
 
-        if (permission.isEmpty()) {
-            return false;
+    /**
+     * Drop the cached access control list of a repository. Inside a transaction it is
+     * dropped again after commit, so a concurrent check cannot re-cache the old rows.
+     */
+    public void invalidateAcl(Long repositoryId) {
+        aclVersion.incrementAndGet();
+        acls.remove(repositoryId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    aclVersion.incrementAndGet();
+                    acls.remove(repositoryId);
+                }
+            });
         }
+        cacheInvalidationService.broadcast(CACHE_NAME, repositoryId.toString());
+    }
 
-        return hasRequiredLevel(permission.get().getPermission(), requiredLevel);
+    @EventListener
+    public void onCacheInvalidated(CacheInvalidatedEvent event) {
+        if (event.covers(CACHE_NAME)) {
+            aclVersion.incrementAndGet();
+            if (event.isAll()) {
+                acls.clear();
+            } else {
+                acls.remove(Long.valueOf(event.getKey()));
+            }
+        }
+    }
+
+    @EventListener
+    public void onMembershipChanged(ClusterMembershipChangedEvent event) {
+        // Lists of repositories this node takes over may have changed on another node
+        aclVersion.incrementAndGet();
+        acls.clear();
+    }
+
+    private Map<Long, Acl> loadAcls(Collection<Long> repositoryIds) {
+        long version = aclVersion.get();
+        Map<Long, Map<String, PermissionLevel>> collaborators = new HashMap<>();
+        for (RepositoryPermission permission : permissionRepository.findByRepositoryIdIn(repositoryIds)) {
+            collaborators.computeIfAbsent(permission.getRepositoryId(), id -> new HashMap<>())
+                    .put(permission.getUsername(), permission.getPermission());
+        }
+
+        Map<Long, Acl> loaded = new HashMap<>();
+        for (GitRepository repository : repositoryJpaRepository.findAllById(repositoryIds)) {
+            Acl acl = new Acl(repository.getOwner(), repository.isPrivate(),
+                    Map.copyOf(collaborators.getOrDefault(repository.getId(), Map.of())));
+            loaded.put(repository.getId(), acl);
+        }
+        // Lists read from a lagging replica could outlive the invalidation of newer rows
+        if (aclVersion.get() == version && !ReadWriteRoutingDataSource.isCurrentTransactionOnReplica()) {
+            acls.putAll(loaded);
+        }
+        return loaded;
     }
 
     /**
@@ -164,7 +298,7 @@ public class PermissionService {
         }
     }
 
-    private boolean hasRequiredLevel(PermissionLevel actual, PermissionLevel required) {
+    private static boolean hasRequiredLevel(PermissionLevel actual, PermissionLevel required) {
         // ADMIN > WRITE > READ
         return switch (required) {
             case READ -> true; // All permission levels include read
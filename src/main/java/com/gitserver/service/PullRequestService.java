@@ -1,22 +1,28 @@
 package com.gitserver.service;
 
 import com.gitserver.dto.*;
-import com.gitserver.entity.GitRepository;
 import com.gitserver.entity.PullRequest;
 import com.gitserver.entity.PullRequest.PullRequestState;
+import com.gitserver.event.IssueChangedEvent;
 import com.gitserver.exception.PullRequestNotFoundException;
-import com.gitserver.exception.RepositoryNotFoundException;
 import com.gitserver.exception.BranchNotFoundException;
 import com.gitserver.git.JGitService;
-import com.gitserver.repository.GitRepositoryJpaRepository;
 import com.gitserver.repository.PullRequestRepository;
+import com.gitserver.repository.PullRequestSummary;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -27,60 +33,76 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class PullRequestService {
 
+    private static final int DEFAULT_PAGE_SIZE = 30;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final PullRequestRepository pullRequestRepository;
-    private final GitRepositoryJpaRepository repositoryJpaRepository;
+    private final RepositoryResolver repositoryResolver;
     private final JGitService jGitService;
+    private final DiskUsageService diskUsageService;
+    private final InsightsIndexService insightsIndexService;
+    private final IssueNumberService issueNumberService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Create a new pull request.
      */
     @Transactional
     public PullRequestResponse createPullRequest(String owner, String repoName, String authorUsername, CreatePullRequestRequest request) {
-        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
-
-        // Verify branches exist
-        List<BranchInfo> branches = jGitService.getBranches(owner, repoName);
-        boolean headExists = branches.stream().anyMatch(b -> b.getName().equals(request.getHeadBranch()));
-        boolean baseExists = branches.stream().anyMatch(b -> b.getName().equals(request.getBaseBranch()));
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
 
-        if (!headExists) {
-            throw new BranchNotFoundException(owner + "/" + repoName, request.getHeadBranch());
-        }
-        if (!baseExists) {
-            throw new BranchNotFoundException(owner + "/" + repoName, request.getBaseBranch());
-        }
+        checkBranches(owner, repoName, jGitService.getBranches(owner, repoName), request);
 
-        Integer nextPrNumber = pullRequestRepository.findMaxPrNumberByRepositoryId(repository.getId())
-                .map(n -> n + 1)
-                .orElse(1);
-
-        PullRequest pullRequest = PullRequest.builder()
-                .prNumber(nextPrNumber)
-                .title(request.getTitle())
-                .body(request.getBody())
-                .state(PullRequestState.OPEN)
-                .repositoryId(repository.getId())
-                .authorUsername(authorUsername)
-                .headBranch(request.getHeadBranch())
-                .baseBranch(request.getBaseBranch())
-                .labels(request.getLabels())
-                .reviewers(request.getReviewers())
-                .isMerged(false)
-                .build();
+        int nextPrNumber = issueNumberService.nextNumber(repository.getId());
+        PullRequest pullRequest = newPullRequest(repository.getId(), nextPrNumber, authorUsername, request);
 
         pullRequest = pullRequestRepository.save(pullRequest);
+        insightsIndexService.refreshPullRequestCounts(repository.getId());
+        eventPublisher.publishEvent(IssueChangedEvent.of(pullRequest));
         log.info("Created pull request #{} in repository {}/{}", nextPrNumber, owner, repoName);
 
         return toResponse(pullRequest, owner, repoName);
     }
 
+    /**
+     * Create many pull requests in one transaction. The pull requests get consecutive
+     * numbers and their rows are inserted in JDBC batches.
+     */
+    @Transactional
+    public List<PullRequestResponse> createPullRequests(String owner, String repoName, String authorUsername,
+                                                        List<CreatePullRequestRequest> requests) {
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
+        long started = System.nanoTime();
+
+        List<BranchInfo> branches = jGitService.getBranches(owner, repoName);
+        for (CreatePullRequestRequest request : requests) {
+            checkBranches(owner, repoName, branches, request);
+        }
+
+        int number = issueNumberService.nextNumbers(repository.getId(), requests.size());
+        List<PullRequest> pullRequests = new ArrayList<>(requests.size());
+        for (CreatePullRequestRequest request : requests) {
+            pullRequests.add(newPullRequest(repository.getId(), number++, authorUsername, request));
+        }
+
+        pullRequests = pullRequestRepository.saveAll(pullRequests);
+        pullRequestRepository.flush();
+        insightsIndexService.refreshPullRequestCounts(repository.getId());
+        pullRequests.forEach(pullRequest -> eventPublisher.publishEvent(IssueChangedEvent.of(pullRequest)));
+        log.info("Created {} pull requests in repository {}/{} in {} ms", pullRequests.size(), owner, repoName,
+                (System.nanoTime() - started) / 1_000_000);
+
+        return pullRequests.stream()
+                .map(pullRequest -> toResponse(pullRequest, owner, repoName))
+                .collect(Collectors.toList());
+    }
+
     /**
      * Get a pull request by number.
      */
+    @Transactional(readOnly = true)
     public PullRequestResponse getPullRequest(String owner, String repoName, Integer prNumber) {
-        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
 
         PullRequest pullRequest = pullRequestRepository.findByRepositoryIdAndPrNumber(repository.getId(), prNumber)
                 .orElseThrow(() -> new PullRequestNotFoundException(owner, repoName, prNumber));
@@ -89,23 +111,70 @@ public class PullRequestService {
     }
 
     /**
-     * Get all pull requests for a repository.
+     * Get a page of pull requests for a repository, newest first. Pass the next cursor
+     * of a page to get the following one.
      */
-    public List<PullRequestResponse> getPullRequests(String owner, String repoName, String state) {
-        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+    @Transactional(readOnly = true)
+    public CursorPage<PullRequestResponse> getPullRequests(String owner, String repoName, String state,
+                                                           String cursor, Integer limit) {
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
+
+        CursorPage.Cursor position = CursorPage.Cursor.decode(cursor);
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        // Fetch one extra row to learn whether there is a next page
+        PageRequest pageable = PageRequest.of(0, pageSize + 1);
 
-        List<PullRequest> pullRequests;
+        List<PullRequestSummary> rows;
         if (state != null && !state.isEmpty()) {
             PullRequestState prState = PullRequestState.valueOf(state.toUpperCase());
-            pullRequests = pullRequestRepository.findByRepositoryIdAndStateOrderByCreatedAtDesc(repository.getId(), prState);
+            rows = pullRequestRepository.findPageByState(repository.getId(), prState,
+                    position.createdAt(), position.id(), pageable);
         } else {
-            pullRequests = pullRequestRepository.findByRepositoryIdOrderByCreatedAtDesc(repository.getId());
+            rows = pullRequestRepository.findPage(repository.getId(), position.createdAt(), position.id(), pageable);
         }
 
-        return pullRequests.stream()
-                .map(pr -> toResponse(pr, owner, repoName))
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            PullRequestSummary last = rows.get(pageSize - 1);
+            nextCursor = new CursorPage.Cursor(last.createdAt(), last.id()).encode();
+        }
+
+        Map<Long, Set<String>> labels = new HashMap<>();
+        Map<Long, Set<String>> reviewers = new HashMap<>();
+        if (!rows.isEmpty()) {
+            List<Long> ids = rows.stream().map(PullRequestSummary::id).collect(Collectors.toList());
+            for (Object[] row : pullRequestRepository.findLabels(ids)) {
+                labels.computeIfAbsent((Long) row[0], id -> new HashSet<>()).add((String) row[1]);
+            }
+            for (Object[] row : pullRequestRepository.findReviewers(ids)) {
+                reviewers.computeIfAbsent((Long) row[0], id -> new HashSet<>()).add((String) row[1]);
+            }
+        }
+
+        List<PullRequestResponse> items = rows.stream()
+                .map(row -> PullRequestResponse.builder()
+                        .id(row.id())
+                        .prNumber(row.prNumber())
+                        .title(row.title())
+                        .body(row.body())
+                        .state(row.state().name())
+                        .author(row.authorUsername())
+                        .headBranch(row.headBranch())
+                        .baseBranch(row.baseBranch())
+                        .labels(labels.getOrDefault(row.id(), new HashSet<>()))
+                        .reviewers(reviewers.getOrDefault(row.id(), new HashSet<>()))
+                        .isMerged(row.merged())
+                        .mergedBy(row.mergedBy())
+                        .mergedAt(row.mergedAt())
+                        .repositoryOwner(owner)
+                        .repositoryName(repoName)
+                        .createdAt(row.createdAt())
+                        .updatedAt(row.updatedAt())
+                        .closedAt(row.closedAt())
+                        .build())
                 .collect(Collectors.toList());
+        return new CursorPage<>(items, nextCursor);
     }
 
     /**
@@ -113,36 +182,70 @@ public class PullRequestService {
      */
     @Transactional
     public PullRequestResponse updatePullRequest(String owner, String repoName, Integer prNumber, UpdatePullRequestRequest request) {
-        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
 
         PullRequest pullRequest = pullRequestRepository.findByRepositoryIdAndPrNumber(repository.getId(), prNumber)
                 .orElseThrow(() -> new PullRequestNotFoundException(owner, repoName, prNumber));
 
-        if (request.getTitle() != null) {
-            pullRequest.setTitle(request.getTitle());
-        }
-        if (request.getBody() != null) {
-            pullRequest.setBody(request.getBody());
-        }
+        applyUpdate(pullRequest, request);
+
+        pullRequest = pullRequestRepository.save(pullRequest);
         if (request.getState() != null) {
-            PullRequestState newState = PullRequestState.valueOf(request.getState().toUpperCase());
-            if (newState == PullRequestState.CLOSED && pullRequest.getState() != PullRequestState.CLOSED) {
-                pullRequest.setClosedAt(LocalDateTime.now());
-            }
-            pullRequest.setState(newState);
+            insightsIndexService.refreshPullRequestCounts(repository.getId());
         }
-        if (request.getLabels() != null) {
-            pullRequest.setLabels(request.getLabels());
+        eventPublisher.publishEvent(IssueChangedEvent.of(pullRequest));
+        log.info("Updated pull request #{} in repository {}/{}", prNumber, owner, repoName);
+
+        return toResponse(pullRequest, owner, repoName);
+    }
+
+    /**
+     * Update many pull requests in one transaction. Either every pull request is updated
+     * or, if one of them does not exist, none is.
+     */
+    @Transactional
+    public List<PullRequestResponse> updatePullRequests(String owner, String repoName,
+                                                        List<BulkUpdateRequest.Item<UpdatePullRequestRequest>> items) {
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
+        long started = System.nanoTime();
+
+        Set<Integer> numbers = items.stream().map(BulkUpdateRequest.Item::getNumber).collect(Collectors.toSet());
+        Map<Integer, PullRequest> pullRequests = pullRequestRepository
+                .findByRepositoryIdAndPrNumberIn(repository.getId(), numbers).stream()
+                .collect(Collectors.toMap(PullRequest::getPrNumber, pullRequest -> pullRequest));
+
+        boolean stateChanged = false;
+        for (BulkUpdateRequest.Item<UpdatePullRequestRequest> item : items) {
+            PullRequest pullRequest = pullRequests.get(item.getNumber());
+            if (pullRequest == null) {
+                throw new PullRequestNotFoundException(owner, repoName, item.getNumber());
+            }
+            applyUpdate(pullRequest, item.getChanges());
+            stateChanged |= item.getChanges().getState() != null;
         }
-        if (request.getReviewers() != null) {
-            pullRequest.setReviewers(request.getReviewers());
+
+        pullRequestRepository.flush();
+        if (stateChanged) {
+            insightsIndexService.refreshPullRequestCounts(repository.getId());
         }
+        pullRequests.values().forEach(pullRequest -> eventPublisher.publishEvent(IssueChangedEvent.of(pullRequest)));
+        log.info("Updated {} pull requests in repository {}/{} in {} ms", pullRequests.size(), owner, repoName,
+                (System.nanoTime() - started) / 1_000_000);
 
-        pullRequest = pullRequestRepository.save(pullRequest);
-        log.info("Updated pull request #{} in repository {}/{}", prNumber, owner, repoName);
+        return items.stream()
+                .map(item -> toResponse(pullRequests.get(item.getNumber()), owner, repoName))
+                .collect(Collectors.toList());
+    }
 
-        return toResponse(pullRequest, owner, repoName);
+    /**
+     * Close many pull requests in one transaction.
+     */
+    @Transactional
+    public List<PullRequestResponse> closePullRequests(String owner, String repoName, List<Integer> prNumbers) {
+        UpdatePullRequestRequest close = UpdatePullRequestRequest.builder().state("CLOSED").build();
+        return updatePullRequests(owner, repoName, prNumbers.stream()
+                .map(number -> new BulkUpdateRequest.Item<>(number, close))
+                .collect(Collectors.toList()));
     }
 
     /**
@@ -150,8 +253,7 @@ public class PullRequestService {
      */
     @Transactional
     public PullRequestResponse mergePullRequest(String owner, String repoName, Integer prNumber, String mergedBy) {
-        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
 
         PullRequest pullRequest = pullRequestRepository.findByRepositoryIdAndPrNumber(repository.getId(), prNumber)
                 .orElseThrow(() -> new PullRequestNotFoundException(owner, repoName, prNumber));
@@ -165,7 +267,10 @@ public class PullRequestService {
         }
 
         // Perform Git merge
-        jGitService.mergeBranch(owner, repoName, pullRequest.getHeadBranch(), pullRequest.getBaseBranch(), mergedBy);
+        diskUsageService.checkQuota(owner, repoName);
+        String mergeCommitId = jGitService.mergeBranch(owner, repoName, 
+                pullRequest.getHeadBranch(), pullRequest.getBaseBranch(), mergedBy);
+        diskUsageService.recordCommit(owner, repoName, mergeCommitId);
 
         pullRequest.setMerged(true);
         pullRequest.setMergedBy(mergedBy);
@@ -174,6 +279,8 @@ public class PullRequestService {
         pullRequest.setClosedAt(LocalDateTime.now());
 
         pullRequest = pullRequestRepository.save(pullRequest);
+        insightsIndexService.refreshPullRequestCounts(repository.getId());
+        eventPublisher.publishEvent(IssueChangedEvent.of(pullRequest));
         log.info("Merged pull request #{} in repository {}/{}", prNumber, owner, repoName);
 
         return toResponse(pullRequest, owner, repoName);
@@ -192,8 +299,7 @@ public class PullRequestService {
      * Get diff for a pull request.
      */
     public String getPullRequestDiff(String owner, String repoName, Integer prNumber) {
-        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
 
         PullRequest pullRequest = pullRequestRepository.findByRepositoryIdAndPrNumber(repository.getId(), prNumber)
                 .orElseThrow(() -> new PullRequestNotFoundException(owner, repoName, prNumber));
@@ -204,6 +310,7 @@ public class PullRequestService {
     /**
      * Count open pull requests for a repository.
      */
+    @Transactional(readOnly = true)
     public long countOpenPullRequests(Long repositoryId) {
         return pullRequestRepository.countByRepositoryIdAndState(repositoryId, PullRequestState.OPEN);
     }
@@ -211,6 +318,7 @@ public class PullRequestService {
     /**
      * Count closed pull requests for a repository.
      */
+    @Transactional(readOnly = true)
     public long countClosedPullRequests(Long repositoryId) {
         return pullRequestRepository.countByRepositoryIdAndState(repositoryId, PullRequestState.CLOSED);
     }
@@ -218,10 +326,63 @@ public class PullRequestService {
     /**
      * Count merged pull requests for a repository.
      */
+    @Transactional(readOnly = true)
     public long countMergedPullRequests(Long repositoryId) {
         return pullRequestRepository.countByRepositoryIdAndState(repositoryId, PullRequestState.MERGED);
     }
 
+    private static void checkBranches(String owner, String repoName, List<BranchInfo> branches,
+                                      CreatePullRequestRequest request) {
+        boolean headExists = branches.stream().anyMatch(b -> b.getName().equals(request.getHeadBranch()));
+        boolean baseExists = branches.stream().anyMatch(b -> b.getName().equals(request.getBaseBranch()));
+
+        if (!headExists) {
+            throw new BranchNotFoundException(owner + "/" + repoName, request.getHeadBranch());
+        }
+        if (!baseExists) {
+            throw new BranchNotFoundException(owner + "/" + repoName, request.getBaseBranch());
+        }
+    }
+
+    private static PullRequest newPullRequest(Long repositoryId, int prNumber, String authorUsername,
+                                              CreatePullRequestRequest request) {
+        return PullRequest.builder()
+                .prNumber(prNumber)
+                .title(request.getTitle())
+                .body(request.getBody())
+                .state(PullRequestState.OPEN)
+                .repositoryId(repositoryId)
+                .authorUsername(authorUsername)
+                .headBranch(request.getHeadBranch())
+                .baseBranch(request.getBaseBranch())
+                .labels(request.getLabels())
+                .reviewers(request.getReviewers())
+                .isMerged(false)
+                .build();
+    }
+
+    private static void applyUpdate(PullRequest pullRequest, UpdatePullRequestRequest request) {
+        if (request.getTitle() != null) {
+            pullRequest.setTitle(request.getTitle());
+        }
+        if (request.getBody() != null) {
+            pullRequest.setBody(request.getBody());
+        }
+        if (request.getState() != null) {
+            PullRequestState newState = PullRequestState.valueOf(request.getState().toUpperCase());
+            if (newState == PullRequestState.CLOSED && pullRequest.getState() != PullRequestState.CLOSED) {
+                pullRequest.setClosedAt(LocalDateTime.now());
+            }
+            pullRequest.setState(newState);
+        }
+        if (request.getLabels() != null) {
+            pullRequest.setLabels(request.getLabels());
+        }
+        if (request.getReviewers() != null) {
+            pullRequest.setReviewers(request.getReviewers());
+        }
+    }
+
     private PullRequestResponse toResponse(PullRequest pullRequest, String owner, String repoName) {
         return PullRequestResponse.builder()
                 .id(pullRequest.getId())
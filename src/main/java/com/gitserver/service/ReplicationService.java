@@ -0,0 +1,396 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.ReplicaStatus;
+import com.gitserver.entity.GitRepository;
+import com.gitserver.event.RefUpdateEvent;
+import com.gitserver.git.JGitService;
+import com.gitserver.repository.GitRepositoryJpaRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.transport.FetchConnection;
+import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
+import org.eclipse.jgit.transport.Transport;
+import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.eclipse.jgit.util.FS;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service replicating repositories to secondary locations after their refs change.
+ * Each replica is a local directory holding bare copies in the owner/name layout, or
+ * the base URL of another git server. Replication is asynchronous: a push mirrors all
+ * refs of the repository, so updates queued while one is in flight are coalesced, and
+ * failed pushes are retried with exponential back-off.
+ */
+@Slf4j
+@Service
+public class ReplicationService {
+
+    private final JGitService jGitService;
+    private final GitRepositoryJpaRepository repositoryJpaRepository;
+    private final ClusterService clusterService;
+    private final List<Replica> replicas;
+    private final boolean routeReads;
+    private final boolean resyncOnStartup;
+    private final long retryInitialDelayMs;
+    private final long retryMaxDelayMs;
+    private final int timeoutSeconds;
+    private final UsernamePasswordCredentialsProvider credentials;
+    private final AtomicInteger readCounter = new AtomicInteger();
+
+    public ReplicationService(JGitService jGitService,
+                              GitRepositoryJpaRepository repositoryJpaRepository,
+                              ClusterService clusterService,
+                              @Value("${git.replication.replicas:}") List<String> locations,
+                              @Value("${git.replication.threads:2}") int threads,
+                              @Value("${git.replication.route-reads:false}") boolean routeReads,
+                              @Value("${git.replication.resync-on-startup:true}") boolean resyncOnStartup,
+                              @Value("${git.replication.retry-initial-delay-ms:1000}") long retryInitialDelayMs,
+                              @Value("${git.replication.retry-max-delay-ms:300000}") long retryMaxDelayMs,
+                              @Value("${git.replication.timeout-seconds:60}") int timeoutSeconds,
+                              @Value("${git.replication.username:}") String username,
+                              @Value("${git.replication.password:}") String password) {
+        this.jGitService = jGitService;
+        this.repositoryJpaRepository = repositoryJpaRepository;
+        this.clusterService = clusterService;
+        this.routeReads = routeReads;
+        this.resyncOnStartup = resyncOnStartup;
+        this.retryInitialDelayMs = retryInitialDelayMs;
+        this.retryMaxDelayMs = retryMaxDelayMs;
+        this.timeoutSeconds = timeoutSeconds;
+        this.credentials = username.isEmpty() ? null : new UsernamePasswordCredentialsProvider(username, password);
+        this.replicas = locations.stream()
+                .map(String::trim)
+                .filter(location -> !location.isEmpty())
+                .map(location -> new Replica(location, threads))
+                .toList();
+        if (!replicas.isEmpty()) {
+            log.info("Replicating repositories to {}", locations);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        replicas.forEach(replica -> replica.executor.shutdownNow());
+    }
+
+    /**
+     * Queue the repository for replication after its refs changed. Runs on the thread
+     * that made the change so the replicas stop serving reads of it right away.
+     */
+    @EventListener
+    public void onRefUpdate(RefUpdateEvent event) {
+        replicate(event.getOwner(), event.getName());
+    }
+
+    /**
+     * Queue a repository for replication to every replica.
+     */
+    public void replicate(String owner, String name) {
+        replicas.forEach(replica -> replica.schedule(owner, name));
+    }
+
+    /**
+     * Queue every repository once after startup, since replicas may have missed updates
+     * while the server was down. Replicas already up to date only exchange refs.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void resyncAll() {
+        if (replicas.isEmpty() || !resyncOnStartup) {
+            return;
+        }
+        List<GitRepository> repositories = repositoryJpaRepository.findAll();
+        repositories.stream()
+                .filter(repository -> clusterService.isLocal(repository.getOwner(), repository.getName()))
+                .forEach(repository -> replicate(repository.getOwner(), repository.getName()));
+        log.info("Queued {} repositories for replication", repositories.size());
+    }
+
+    /**
+     * Get the git directory a read of the repository should be served from, spreading
+     * reads over the primary and the local replicas that have every update applied.
+     * Empty means the primary copy.
+     */
+    public Optional<Path> selectReadCopy(String owner, String name) {
+        if (!routeReads) {
+            return Optional.empty();
+        }
+        String key = owner + "/" + name;
+        List<Replica> caughtUp = replicas.stream()
+                .filter(replica -> replica.isLocal() && replica.isCaughtUp(key))
+                .toList();
+        if (caughtUp.isEmpty()) {
+            return Optional.empty();
+        }
+        int slot = Math.floorMod(readCounter.getAndIncrement(), caughtUp.size() + 1);
+        return slot == 0 ? Optional.empty() : Optional.of(caughtUp.get(slot - 1).localPath(owner, name));
+    }
+
+    /**
+     * Check whether a replica has every update of a repository applied.
+     */
+    public boolean isCaughtUp(String location, String owner, String name) {
+        return replicas.stream()
+                .filter(replica -> replica.location.equals(location))
+                .anyMatch(replica -> replica.isCaughtUp(owner + "/" + name));
+    }
+
+    /**
+     * Get the replication state of every replica.
+     */
+    public List<ReplicaStatus> getStatus() {
+        long now = System.currentTimeMillis();
+        return replicas.stream().map(replica -> {
+            long oldest = replica.pending.values().stream().mapToLong(task -> task.since).min().orElse(now);
+            return ReplicaStatus.builder()
+                    .location(replica.location)
+                    .pendingRepositories(replica.pending.size())
+                    .failingRepositories((int) replica.pending.values().stream().filter(task -> task.attempts > 0).count())
+                    .lagMillis(now - oldest)
+                    .lastReplicatedAt(replica.lastReplicatedAt)
+                    .lastError(replica.lastError)
+                    .build();
+        }).toList();
+    }
+
+    /**
+     * Mirror all refs of a repository to a replica, sending only the objects it lacks.
+     * Refs are compared-and-swapped against what the replica advertised, so a concurrent
+     * change there fails the push and it is retried.
+     */
+    private void push(Replica replica, String owner, String name) throws IOException {
+        if (!jGitService.repositoryExistsOnDisk(owner, name)) {
+            return;
+        }
+        Path gitDir = jGitService.getGitDirectory(jGitService.getRepositoryPath(owner, name));
+        try (Repository repository = RepositoryCache.open(RepositoryCache.FileKey.exact(gitDir.toFile(), FS.DETECTED), true)) {
+            if (replica.isLocal()) {
+                initLocalCopy(replica.localPath(owner, name));
+            }
+            int updated;
+            try (Transport transport = Transport.open(repository, replica.uri(owner, name))) {
+                transport.setTimeout(timeoutSeconds);
+                if (credentials != null) {
+                    transport.setCredentialsProvider(credentials);
+                }
+                Map<String, Ref> remoteRefs;
+                try (FetchConnection connection = transport.openFetch()) {
+                    remoteRefs = new HashMap<>(connection.getRefsMap());
+                }
+
+                List<RemoteRefUpdate> updates = new ArrayList<>();
+                for (Ref ref : repository.getRefDatabase().getRefsByPrefix(Constants.R_REFS)) {
+                    Ref remote = remoteRefs.remove(ref.getName());
+                    ObjectId id = ref.getObjectId();
+                    if (id == null || (remote != null && id.equals(remote.getObjectId()))) {
+                        continue;
+                    }
+                    updates.add(new RemoteRefUpdate(repository, ref.getName(), id, ref.getName(), true, null,
+                            remote != null ? remote.getObjectId() : ObjectId.zeroId()));
+                }
+                for (Ref remote : remoteRefs.values()) {
+                    if (remote.getName().startsWith(Constants.R_REFS)) {
+                        updates.add(new RemoteRefUpdate(repository, (String) null, remote.getName(), true, null,
+                                remote.getObjectId()));
+                    }
+                }
+
+                updated = updates.size();
+                if (!updates.isEmpty()) {
+                    PushResult result = transport.push(NullProgressMonitor.INSTANCE, updates);
+                    for (RemoteRefUpdate update : result.getRemoteUpdates()) {
+                        if (update.getStatus() != RemoteRefUpdate.Status.OK
+                                && update.getStatus() != RemoteRefUpdate.Status.UP_TO_DATE) {
+                            throw new IOException(update.getRemoteName() + ": " + update.getStatus()
+                                    + (update.getMessage() != null ? " (" + update.getMessage() + ")" : ""));
+                        }
+                    }
+                }
+            }
+            if (replica.isLocal()) {
+                linkHead(repository, replica.localPath(owner, name));
+            }
+            log.debug("Replicated {}/{} to {} ({} ref updates)", owner, name, replica.location, updated);
+        }
+    }
+
+    private void initLocalCopy(Path path) throws IOException {
+        if (Files.exists(path.resolve("HEAD"))) {
+            return;
+        }
+        try {
+            Git.init().setBare(true).setDirectory(path.toFile()).call().close();
+        } catch (Exception e) {
+            throw new IOException("Failed to create replica " + path + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Point HEAD of a local copy at the same branch as the primary, so clones from it
+     * check out the default branch.
+     */
+    private void linkHead(Repository repository, Path path) throws IOException {
+        Ref head = repository.exactRef(Constants.HEAD);
+        if (head == null || !head.isSymbolic()) {
+            return;
+        }
+        String target = head.getTarget().getName();
+        try (Repository copy = RepositoryCache.open(RepositoryCache.FileKey.exact(path.toFile(), FS.DETECTED), true)) {
+            Ref copyHead = copy.exactRef(Constants.HEAD);
+            if (copyHead == null || !copyHead.isSymbolic() || !target.equals(copyHead.getTarget().getName())) {
+                RefUpdate.Result result = copy.updateRef(Constants.HEAD).link(target);
+                if (result != RefUpdate.Result.NEW && result != RefUpdate.Result.FORCED
+                        && result != RefUpdate.Result.NO_CHANGE) {
+                    throw new IOException("Failed to link HEAD of replica " + path + ": " + result);
+                }
+            }
+        }
+    }
+
+    /**
+     * A repository waiting to be pushed to a replica. {@code since} is when the oldest
+     * update not yet on the replica was made.
+     */
+    private static class Task {
+        final long since;
+        int attempts;
+        boolean running;
+        long rerunSince;
+
+        Task(long since) {
+            this.since = since;
+        }
+    }
+
+    /**
+     * A replica location with its own queue, so a slow or unreachable replica does not
+     * hold back the others.
+     */
+    private class Replica {
+        final String location;
+        final ScheduledExecutorService executor;
+        final ConcurrentHashMap<String, Task> pending = new ConcurrentHashMap<>();
+        final Set<String> replicated = ConcurrentHashMap.newKeySet();
+        volatile Instant lastReplicatedAt;
+        volatile String lastError;
+
+        Replica(String location, int threads) {
+            this.location = location.endsWith("/") ? location.substring(0, location.length() - 1) : location;
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.executor = Executors.newScheduledThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "replication-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        boolean isLocal() {
+            return !location.contains("://");
+        }
+
+        Path localPath(String owner, String name) {
+            return Path.of(location).resolve(owner).resolve(name).toAbsolutePath().normalize();
+        }
+
+        URIish uri(String owner, String name) throws IOException {
+            try {
+                return isLocal() ? new URIish(localPath(owner, name).toString())
+                        : new URIish(location + "/" + owner + "/" + name + ".git");
+            } catch (URISyntaxException e) {
+                throw new IOException("Invalid replica location " + location, e);
+            }
+        }
+
+        boolean isCaughtUp(String key) {
+            return replicated.contains(key) && !pending.containsKey(key);
+        }
+
+        void schedule(String owner, String name) {
+            String key = owner + "/" + name;
+            boolean[] submit = new boolean[1];
+            pending.compute(key, (k, task) -> {
+                if (task == null) {
+                    submit[0] = true;
+                    return new Task(System.currentTimeMillis());
+                }
+                if (task.running && task.rerunSince == 0) {
+                    task.rerunSince = System.currentTimeMillis();
+                }
+                return task;
+            });
+            if (submit[0]) {
+                executor.execute(() -> run(owner, name));
+            }
+        }
+
+        void run(String owner, String name) {
+            String key = owner + "/" + name;
+            pending.computeIfPresent(key, (k, task) -> {
+                task.running = true;
+                task.rerunSince = 0;
+                return task;
+            });
+
+            Exception failure = null;
+            try {
+                push(this, owner, name);
+            } catch (Exception e) {
+                failure = e;
+            }
+
+            long delay = -1;
+            if (failure == null) {
+                replicated.add(key);
+                lastReplicatedAt = Instant.now();
+                Task task = pending.compute(key, (k, current) -> {
+                    // Updated while the push ran: push again, counting lag from that update
+                    if (current == null || current.rerunSince == 0) {
+                        return null;
+                    }
+                    return new Task(current.rerunSince);
+                });
+                delay = task != null ? 0 : -1;
+            } else {
+                lastError = key + ": " + failure.getMessage();
+                Task task = pending.computeIfPresent(key, (k, current) -> {
+                    current.running = false;
+                    current.attempts++;
+                    return current;
+                });
+                int attempts = task != null ? task.attempts : 1;
+                delay = Math.min(retryMaxDelayMs, retryInitialDelayMs << Math.min(attempts - 1, 20));
+                log.warn("Failed to replicate {} to {} (attempt {}, retrying in {} ms): {}",
+                        key, location, attempts, delay, failure.getMessage());
+            }
+            if (delay >= 0 && !executor.isShutdown()) {
+                executor.schedule(() -> run(owner, name), delay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.gitserver.service;
+
+import com.gitserver.entity.GitRepository;
+import com.gitserver.git.JGitService;
+import com.gitserver.repository.GitRepositoryJpaRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Service for background repository maintenance (garbage collection, storage migration).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RepositoryMaintenanceService {
+
+    private static final Duration UNUSED_POOL_GRACE = Duration.ofDays(1);
+
+    private final GitRepositoryJpaRepository repositoryJpaRepository;
+    private final JGitService jGitService;
+    private final DiskUsageService diskUsageService;
+    private final ClusterService clusterService;
+
+    @Value("${git.maintenance.enabled:true}")
+    private boolean maintenanceEnabled;
+
+    @Value("${git.repositories.convert-to-bare:true}")
+    private boolean convertToBare;
+
+    /**
+     * Run maintenance on a single repository and refresh its disk usage.
+     */
+    public void runMaintenance(String owner, String name) {
+        jGitService.runGarbageCollection(owner, name);
+        long size = diskUsageService.recalculate(owner, name);
+        log.info("Maintenance finished for {}/{}, disk usage is now {} bytes", owner, name, size);
+    }
+
+    /**
+     * Run maintenance on every repository this node owns, then on the object pools of fork
+     * networks if this node coordinates the cluster. Members hand their objects to their
+     * pool first, so a pool's refs cover everything its members use when it is collected.
+     */
+    @Scheduled(cron = "${git.maintenance.cron:0 0 3 * * *}")
+    public void runScheduledMaintenance() {
+        if (!maintenanceEnabled) {
+            return;
+        }
+        Set<Path> poolsInUse = new HashSet<>(jGitService.getObjectPoolsUsedInTrash());
+        for (GitRepository repository : repositoryJpaRepository.findAll()) {
+            try {
+                if (clusterService.isLocal(repository.getOwner(), repository.getName())) {
+                    runMaintenance(repository.getOwner(), repository.getName());
+                }
+            } catch (Exception e) {
+                log.warn("Maintenance failed for {}/{}: {}",
+                        repository.getOwner(), repository.getName(), e.getMessage());
+            }
+            jGitService.getObjectPool(jGitService.getRepositoryPath(repository.getOwner(), repository.getName()))
+                    .ifPresent(poolsInUse::add);
+        }
+
+        if (!clusterService.isCoordinator()) {
+            return;
+        }
+        long unusedBefore = System.currentTimeMillis() - UNUSED_POOL_GRACE.toMillis();
+        for (Path pool : jGitService.getObjectPools()) {
+            try {
+                if (poolsInUse.contains(pool)) {
+                    jGitService.runPoolGarbageCollection(pool);
+                } else if (jGitService.getObjectPoolCreatedAt(pool) < unusedBefore) {
+                    // A pool created since the repositories were listed is not unused
+                    jGitService.discard(pool);
+                    log.info("Removed unused object pool {}", pool);
+                }
+            } catch (Exception e) {
+                log.warn("Maintenance failed for object pool {}: {}", pool, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Convert repositories still stored with a working tree to bare storage, dropping the
+     * checked-out copy of their files. Each conversion is two renames, so git traffic to
+     * the repository only misses it for a moment.
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void convertRepositoriesToBare() {
+        if (!convertToBare) {
+            return;
+        }
+        int converted = 0;
+        for (GitRepository repository : repositoryJpaRepository.findAll()) {
+            if (!clusterService.isLocal(repository.getOwner(), repository.getName())) {
+                continue;
+            }
+            try {
+                if (jGitService.convertToBare(repository.getOwner(), repository.getName())) {
+                    converted++;
+                }
+            } catch (Exception e) {
+                log.warn("Failed to convert {}/{} to bare storage: {}",
+                        repository.getOwner(), repository.getName(), e.getMessage());
+            }
+        }
+        if (converted > 0) {
+            log.info("Converted {} repositories to bare storage", converted);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.gitserver.service;
+
+import com.gitserver.config.ReadWriteRoutingDataSource;
+import com.gitserver.dto.RepositoryDescriptor;
+import com.gitserver.event.CacheInvalidatedEvent;
+import com.gitserver.event.ClusterMembershipChangedEvent;
+import com.gitserver.exception.RepositoryNotFoundException;
+import com.gitserver.repository.GitRepositoryJpaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service resolving owner/name coordinates to repository descriptors, cached in memory.
+ * Anything that changes a repository's row must call {@link #invalidate}, which drops the
+ * descriptor on the other nodes of a cluster too.
+ */
+@Slf4j
+@Service
+public class RepositoryResolver {
+
+    private static final String CACHE_NAME = "repositories";
+
+    private final GitRepositoryJpaRepository repositoryJpaRepository;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final Map<String, RepositoryDescriptor> descriptors;
+    // Bumped on every invalidation; a descriptor loaded across a bump may be stale and is not cached
+    private final AtomicLong version = new AtomicLong();
+
+    public RepositoryResolver(GitRepositoryJpaRepository repositoryJpaRepository,
+                              CacheInvalidationService cacheInvalidationService,
+                              @Value("${git.repositories.descriptor-cache-size:10000}") int cacheSize) {
+        this.repositoryJpaRepository = repositoryJpaRepository;
+        this.cacheInvalidationService = cacheInvalidationService;
+        this.descriptors = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RepositoryDescriptor> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Find a repository by owner and name.
+     */
+    public Optional<RepositoryDescriptor> find(String owner, String name) {
+        String key = key(owner, name);
+        RepositoryDescriptor descriptor = descriptors.get(key);
+        if (descriptor != null) {
+            return Optional.of(descriptor);
+        }
+        long loadedAt = version.get();
+        Optional<RepositoryDescriptor> loaded = repositoryJpaRepository.findByOwnerAndName(owner, name)
+                .map(RepositoryDescriptor::of);
+        // A row read from a lagging replica could outlive the invalidation of a newer one
+        if (loaded.isPresent() && version.get() == loadedAt
+                && !ReadWriteRoutingDataSource.isCurrentTransactionOnReplica()) {
+            descriptors.put(key, loaded.get());
+        }
+        return loaded;
+    }
+
+    /**
+     * Get a repository by owner and name, throw exception if it does not exist.
+     */
+    public RepositoryDescriptor resolve(String owner, String name) {
+        return find(owner, name).orElseThrow(() -> new RepositoryNotFoundException(owner, name));
+    }
+
+    /**
+     * Drop the cached descriptor of a repository. Inside a transaction the descriptor is
+     * dropped again after commit, so a concurrent read cannot re-cache the old row.
+     */
+    public void invalidate(String owner, String name) {
+        String key = key(owner, name);
+        drop(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    drop(key);
+                }
+            });
+        }
+        cacheInvalidationService.broadcast(CACHE_NAME, key);
+        log.debug("Invalidated repository descriptor {}", key);
+    }
+
+    @EventListener
+    public void onCacheInvalidated(CacheInvalidatedEvent event) {
+        if (event.covers(CACHE_NAME)) {
+            version.incrementAndGet();
+            if (event.isAll()) {
+                descriptors.clear();
+            } else {
+                descriptors.remove(event.getKey());
+            }
+        }
+    }
+
+    /**
+     * Drop all cached descriptors when repository ownership moved between cluster nodes;
+     * rows of repositories served elsewhere meanwhile may have changed.
+     */
+    @EventListener
+    public void onMembershipChanged(ClusterMembershipChangedEvent event) {
+        version.incrementAndGet();
+        descriptors.clear();
+    }
+
+    private void drop(String key) {
+        version.incrementAndGet();
+        descriptors.remove(key);
+    }
+
+    private static String key(String owner, String name) {
+        return owner + "/" + name;
+    }
+}
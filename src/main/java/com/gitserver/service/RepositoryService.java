@@ -2,10 +2,16 @@ package com.gitserver.service;
 
 import com.gitserver.dto.*;
 import com.gitserver.entity.GitRepository;
+import com.gitserver.entity.TrashedRepository;
+import com.gitserver.entity.RepositoryPermission.PermissionLevel;
 import com.gitserver.exception.RepositoryAlreadyExistsException;
 import com.gitserver.exception.RepositoryNotFoundException;
 import com.gitserver.git.JGitService;
 import com.gitserver.repository.GitRepositoryJpaRepository;
+import com.gitserver.repository.IssueRepository;
+import com.gitserver.repository.PullRequestRepository;
+import com.gitserver.repository.RepositoryPermissionRepository;
+import com.gitserver.repository.WebhookRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,6 +19,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -25,6 +32,21 @@ public class RepositoryService {
 
     private final GitRepositoryJpaRepository repositoryJpaRepository;
     private final JGitService jGitService;
+    private final InsightsIndexService insightsIndexService;
+    private final ContributorStatsService contributorStatsService;
+    private final CodeSearchService codeSearchService;
+    private final CommitSearchService commitSearchService;
+    private final PathFinderService pathFinderService;
+    private final IssueSearchService issueSearchService;
+    private final IssueNumberService issueNumberService;
+    private final RepositoryResolver repositoryResolver;
+    private final PermissionService permissionService;
+    private final RepositoryTrashService repositoryTrashService;
+    private final ReplicationService replicationService;
+    private final IssueRepository issueRepository;
+    private final PullRequestRepository pullRequestRepository;
+    private final RepositoryPermissionRepository permissionRepository;
+    private final WebhookRepository webhookRepository;
 
     @Value("${server.port:8080}")
     private int serverPort;
@@ -60,9 +82,12 @@ public class RepositoryService {
                 .isPrivate(request.isPrivate())
                 .defaultBranch(branch)
                 .diskPath(jGitService.getDiskPath(owner, request.getName()))
+                .diskUsage(jGitService.getRepositorySize(owner, request.getName()))
                 .build();
 
         repository = repositoryJpaRepository.save(repository);
+        insightsIndexService.refreshCommitStatistics(repository);
+        contributorStatsService.refresh(repository);
         log.info("Created repository: {}/{}", owner, request.getName());
 
         return toResponse(repository);
@@ -71,6 +96,7 @@ public class RepositoryService {
     /**
      * Get a repository by owner and name.
      */
+    @Transactional(readOnly = true)
     public RepositoryResponse getRepository(String owner, String name) {
         GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, name)
                 .orElseThrow(() -> new RepositoryNotFoundException(owner, name));
@@ -78,17 +104,17 @@ public class RepositoryService {
     }
 
     /**
-     * Get all repositories for an owner.
+     * Get the repositories of an owner that a user can read.
      */
-    public List<RepositoryResponse> getRepositoriesByOwner(String owner) {
-        return repositoryJpaRepository.findByOwner(owner).stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public List<RepositoryResponse> getRepositoriesByOwner(String owner, String username) {
+        return readable(repositoryJpaRepository.findByOwner(owner), username);
     }
 
     /**
      * Get all public repositories.
      */
+    @Transactional(readOnly = true)
     public List<RepositoryResponse> getPublicRepositories() {
         return repositoryJpaRepository.findByIsPrivate(false).stream()
                 .map(this::toResponse)
@@ -96,12 +122,11 @@ public class RepositoryService {
     }
 
     /**
-     * Get all repositories.
+     * Get all repositories that a user can read.
      */
-    public List<RepositoryResponse> getAllRepositories() {
-        return repositoryJpaRepository.findAll().stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public List<RepositoryResponse> getAllRepositories(String username) {
+        return readable(repositoryJpaRepository.findAll(), username);
     }
 
     /**
@@ -121,6 +146,8 @@ public class RepositoryService {
         }
 
         repository = repositoryJpaRepository.save(repository);
+        repositoryResolver.invalidate(owner, name);
+        permissionService.invalidateAcl(repository.getId());
         log.info("Updated repository: {}/{}", owner, name);
 
         return toResponse(repository);
@@ -134,21 +161,131 @@ public class RepositoryService {
         GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, name)
                 .orElseThrow(() -> new RepositoryNotFoundException(owner, name));
 
-        // Delete from disk
-        jGitService.deleteRepository(owner, name);
+        // Move to the trash; the reaper deletes the files later
+        repositoryTrashService.trash(repository);
 
         // Delete from database
+        insightsIndexService.deleteStatistics(repository.getId());
+        contributorStatsService.deleteStatistics(repository.getId());
+        codeSearchService.deleteIndex(repository.getId());
+        commitSearchService.deleteIndex(repository.getId());
+        pathFinderService.deleteIndex(repository.getId());
+        issueSearchService.deleteIndex(repository.getId());
+        issueNumberService.deleteCounter(repository.getId());
         repositoryJpaRepository.delete(repository);
+        repositoryResolver.invalidate(owner, name);
+        permissionService.invalidateAcl(repository.getId());
         log.info("Deleted repository: {}/{}", owner, name);
     }
 
+    /**
+     * Fork a repository. The fork shares the object storage of its fork network, so it
+     * takes no space until it diverges.
+     */
+    @Transactional
+    public RepositoryResponse forkRepository(String owner, String name, String forkOwner, String forkName) {
+        GitRepository parent = repositoryJpaRepository.findByOwnerAndName(owner, name)
+                .orElseThrow(() -> new RepositoryNotFoundException(owner, name));
+        String targetName = forkName != null ? forkName : name;
+        if (repositoryJpaRepository.existsByOwnerAndName(forkOwner, targetName)) {
+            throw new RepositoryAlreadyExistsException(forkOwner, targetName);
+        }
+
+        jGitService.forkRepository(owner, name, forkOwner, targetName);
+
+        GitRepository fork = repositoryJpaRepository.save(GitRepository.builder()
+                .name(targetName)
+                .description(parent.getDescription())
+                .owner(forkOwner)
+                .isPrivate(parent.isPrivate())
+                .defaultBranch(parent.getDefaultBranch())
+                .diskPath(jGitService.getDiskPath(forkOwner, targetName))
+                .diskUsage(jGitService.getRepositorySize(forkOwner, targetName))
+                .forkedFromId(parent.getId())
+                .build());
+        insightsIndexService.refreshCommitStatistics(fork);
+        contributorStatsService.refresh(fork);
+        // The refs were copied without a ref update event
+        replicationService.replicate(forkOwner, targetName);
+        log.info("Forked repository {}/{} to {}/{}", owner, name, forkOwner, targetName);
+        return toResponse(fork);
+    }
+
+    /**
+     * Get the forks of a repository that a user can read.
+     */
+    @Transactional(readOnly = true)
+    public List<RepositoryResponse> getForks(String owner, String name, String username) {
+        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, name)
+                .orElseThrow(() -> new RepositoryNotFoundException(owner, name));
+        return readable(repositoryJpaRepository.findByForkedFromId(repository.getId()), username);
+    }
+
+    /**
+     * Get the deleted repositories of an owner that can still be restored.
+     */
+    @Transactional(readOnly = true)
+    public List<TrashedRepositoryResponse> getTrash(String owner) {
+        return repositoryTrashService.getTrash(owner);
+    }
+
+    /**
+     * Restore a deleted repository from the trash, with its issues, pull requests,
+     * collaborators and webhooks.
+     */
+    @Transactional
+    public RepositoryResponse restoreRepository(String owner, Long trashId) {
+        TrashedRepository trashed = repositoryTrashService.getEntry(owner, trashId);
+        String name = trashed.getName();
+        if (repositoryJpaRepository.existsByOwnerAndName(owner, name)) {
+            throw new RepositoryAlreadyExistsException(owner, name);
+        }
+        repositoryTrashService.restore(trashed);
+
+        GitRepository repository = repositoryJpaRepository.save(GitRepository.builder()
+                .name(name)
+                .description(trashed.getDescription())
+                .owner(owner)
+                .isPrivate(trashed.isPrivate())
+                .defaultBranch(trashed.getDefaultBranch())
+                .diskPath(jGitService.getDiskPath(owner, name))
+                .diskUsage(trashed.getDiskUsage())
+                .forkedFromId(trashed.getForkedFromId())
+                .build());
+
+        // Rows of the deleted repository still refer to its old id
+        issueRepository.moveToRepository(trashed.getRepositoryId(), repository.getId());
+        pullRequestRepository.moveToRepository(trashed.getRepositoryId(), repository.getId());
+        permissionRepository.moveToRepository(trashed.getRepositoryId(), repository.getId());
+        webhookRepository.moveToRepository(trashed.getRepositoryId(), repository.getId());
+
+        insightsIndexService.refreshCommitStatistics(repository);
+        contributorStatsService.refresh(repository);
+        issueSearchService.invalidateIndex(repository.getId());
+        repositoryResolver.invalidate(owner, name);
+        permissionService.invalidateAcl(repository.getId());
+        replicationService.replicate(owner, name);
+        log.info("Restored repository: {}/{}", owner, name);
+        return toResponse(repository);
+    }
+
     /**
      * Check if a repository exists.
      */
+    @Transactional(readOnly = true)
     public boolean repositoryExists(String owner, String name) {
         return repositoryJpaRepository.existsByOwnerAndName(owner, name);
     }
 
+    private List<RepositoryResponse> readable(List<GitRepository> repositories, String username) {
+        Set<Long> permitted = permissionService.filterPermitted(
+                repositories.stream().map(GitRepository::getId).toList(), username, PermissionLevel.READ);
+        return repositories.stream()
+                .filter(repository -> permitted.contains(repository.getId()))
+                .map(this::toResponse)
+                .collect(Collectors.toList());
+    }
+
     private RepositoryResponse toResponse(GitRepository repository) {
         String cloneUrl = String.format("http://localhost:%d/git/%s/%s.git", 
                 serverPort, repository.getOwner(), repository.getName());
@@ -161,6 +298,7 @@ public class RepositoryService {
                 .isPrivate(repository.isPrivate())
                 .defaultBranch(repository.getDefaultBranch())
                 .cloneUrl(cloneUrl)
+                .forkedFromId(repository.getForkedFromId())
                 .createdAt(repository.getCreatedAt())
                 .updatedAt(repository.getUpdatedAt())
                 .build();
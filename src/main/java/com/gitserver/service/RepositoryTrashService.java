@@ -0,0 +1,266 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.TrashedRepositoryResponse;
+import com.gitserver.entity.GitRepository;
+import com.gitserver.entity.TrashedRepository;
+import com.gitserver.exception.TrashedRepositoryNotFoundException;
+import com.gitserver.git.JGitService;
+import com.gitserver.repository.TrashedRepositoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Service for the trash area of deleted repositories. Deleting a repository only renames
+ * its directory into the trash, which is instant and happens inside the deleting
+ * transaction; a background reaper removes trashed directories once their grace period
+ * has passed, at a limited number of files per second so it does not starve git
+ * traffic of disk bandwidth. Until then the repository can be restored.
+ */
+@Slf4j
+@Service
+public class RepositoryTrashService {
+
+    private final TrashedRepositoryRepository trashedRepositoryRepository;
+    private final JGitService jGitService;
+    private final ClusterService clusterService;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration gracePeriod;
+    private final long filesPerSecond;
+
+    public RepositoryTrashService(TrashedRepositoryRepository trashedRepositoryRepository,
+                                  JGitService jGitService,
+                                  ClusterService clusterService,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${git.trash.grace-period-hours:24}") long gracePeriodHours,
+                                  @Value("${git.trash.reaper-files-per-second:2000}") long filesPerSecond) {
+        this.trashedRepositoryRepository = trashedRepositoryRepository;
+        this.jGitService = jGitService;
+        this.clusterService = clusterService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.gracePeriod = Duration.ofHours(gracePeriodHours);
+        this.filesPerSecond = filesPerSecond;
+    }
+
+    /**
+     * Move the directory of a repository being deleted into the trash. Call it from the
+     * transaction deleting the repository row: if that rolls back, the directory is
+     * moved back.
+     */
+    public TrashedRepository trash(GitRepository repository) {
+        String owner = repository.getOwner();
+        String name = repository.getName();
+        Path trashPath = jGitService.moveToTrash(owner, name, repository.getId() + "-" + System.currentTimeMillis());
+        onRollback(() -> jGitService.restoreFromTrash(trashPath, owner, name));
+
+        return trashedRepositoryRepository.save(TrashedRepository.builder()
+                .repositoryId(repository.getId())
+                .owner(owner)
+                .name(name)
+                .description(repository.getDescription())
+                .isPrivate(repository.isPrivate())
+                .defaultBranch(repository.getDefaultBranch())
+                .trashPath(trashPath.toString())
+                .diskUsage(repository.getDiskUsage())
+                .forkedFromId(repository.getForkedFromId())
+                .build());
+    }
+
+    /**
+     * Get the deleted repositories of an owner that can still be restored.
+     */
+    public List<TrashedRepositoryResponse> getTrash(String owner) {
+        return trashedRepositoryRepository.findByOwnerOrderByDeletedAtDesc(owner).stream()
+                .filter(entry -> !isExpired(entry))
+                .map(this::toResponse)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Get a deleted repository of an owner that can still be restored.
+     */
+    public TrashedRepository getEntry(String owner, Long trashId) {
+        return trashedRepositoryRepository.findById(trashId)
+                .filter(entry -> entry.getOwner().equals(owner) && !isExpired(entry))
+                .orElseThrow(() -> new TrashedRepositoryNotFoundException(trashId));
+    }
+
+    /**
+     * Take a repository out of the trash and move its directory back into place. Call
+     * it from the transaction recreating the repository row: if that rolls back, the
+     * directory goes back to the trash.
+     */
+    public void restore(TrashedRepository entry) {
+        // The reaper or a concurrent restore may have claimed it since it was read
+        if (trashedRepositoryRepository.claim(entry.getId()) == 0) {
+            throw new TrashedRepositoryNotFoundException(entry.getId());
+        }
+
+        String owner = entry.getOwner();
+        String name = entry.getName();
+        Path trashPath = Path.of(entry.getTrashPath());
+        jGitService.restoreFromTrash(trashPath, owner, name);
+        onRollback(() -> jGitService.moveToTrash(owner, name, trashPath.getFileName().toString()));
+    }
+
+    /**
+     * Periodically delete the trashed repositories whose grace period has passed. In a
+     * cluster only the coordinator does, as the trash areas are shared.
+     */
+    @Scheduled(initialDelayString = "${git.trash.reaper-interval-ms:300000}",
+            fixedDelayString = "${git.trash.reaper-interval-ms:300000}")
+    public void reap() {
+        if (!clusterService.isCoordinator()) {
+            return;
+        }
+        int purged = purge(LocalDateTime.now().minus(gracePeriod));
+        if (purged > 0) {
+            log.info("Reaped {} deleted repositories from the trash", purged);
+        }
+    }
+
+    /**
+     * Delete the trashed repositories deleted before a point in time, and directories in
+     * the trash areas that no entry refers to (old copies of moved repositories, or left by
+     * a crash mid-delete) that are as old.
+     * Returns the number of repositories deleted.
+     */
+    public int purge(LocalDateTime deletedBefore) {
+        int purged = 0;
+        for (TrashedRepository entry : trashedRepositoryRepository.findByDeletedAtBeforeOrderByDeletedAt(deletedBefore)) {
+            // The claim commits right away, so a restore can no longer take the entry
+            Integer claimed = transactionTemplate.execute(status -> trashedRepositoryRepository.claim(entry.getId()));
+            if (claimed == null || claimed == 0) {
+                continue;
+            }
+            try {
+                deleteThrottled(Path.of(entry.getTrashPath()));
+                purged++;
+                log.debug("Reaped {}/{} from {}", entry.getOwner(), entry.getName(), entry.getTrashPath());
+            } catch (IOException e) {
+                // The orphan sweep below retries it next time
+                log.warn("Failed to reap {}: {}", entry.getTrashPath(), e.getMessage());
+            }
+        }
+
+        long cutoff = deletedBefore.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        for (Path trash : jGitService.getTrashPaths()) {
+            if (!Files.isDirectory(trash)) {
+                continue;
+            }
+            try (Stream<Path> directories = Files.list(trash)) {
+                for (Path directory : directories.toList()) {
+                    if (trashedAt(directory) < cutoff
+                            && !trashedRepositoryRepository.existsByTrashPath(directory.toString())) {
+                        deleteThrottled(directory);
+                        log.info("Removed orphaned trash directory {}", directory);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Failed to sweep trash directory {}: {}", trash, e.getMessage());
+            }
+        }
+        return purged;
+    }
+
+    private boolean isExpired(TrashedRepository entry) {
+        return entry.getDeletedAt().plus(gracePeriod).isBefore(LocalDateTime.now());
+    }
+
+    /**
+     * When a directory was trashed, from the millisecond timestamp ending its name.
+     */
+    private static long trashedAt(Path directory) {
+        String name = directory.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(name.lastIndexOf('-') + 1));
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private void deleteThrottled(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        long started = System.nanoTime();
+        long[] deleted = {0};
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                throttle(++deleted[0], started);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void throttle(long deleted, long started) throws InterruptedIOException {
+        if (filesPerSecond <= 0) {
+            return;
+        }
+        long aheadMillis = (deleted * 1_000_000_000L / filesPerSecond - (System.nanoTime() - started)) / 1_000_000;
+        if (aheadMillis > 0) {
+            try {
+                Thread.sleep(aheadMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reaping trash");
+            }
+        }
+    }
+
+    private static void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    try {
+                        action.run();
+                    } catch (RuntimeException e) {
+                        log.error("Failed to undo trash move after rollback", e);
+                    }
+                }
+            }
+        });
+    }
+
+    private TrashedRepositoryResponse toResponse(TrashedRepository entry) {
+        return TrashedRepositoryResponse.builder()
+                .id(entry.getId())
+                .owner(entry.getOwner())
+                .name(entry.getName())
+                .description(entry.getDescription())
+                .deletedAt(entry.getDeletedAt())
+                .restorableUntil(entry.getDeletedAt().plus(gracePeriod))
+                .build();
+    }
+}
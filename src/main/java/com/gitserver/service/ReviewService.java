@@ -1,15 +1,12 @@
 package com.gitserver.service;
 
 import com.gitserver.dto.*;
-import com.gitserver.entity.GitRepository;
 import com.gitserver.entity.PullRequest;
 import com.gitserver.entity.Review;
 import com.gitserver.entity.Review.ReviewState;
 import com.gitserver.entity.ReviewComment;
 import com.gitserver.exception.PullRequestNotFoundException;
-import com.gitserver.exception.RepositoryNotFoundException;
 import com.gitserver.exception.ReviewNotFoundException;
-import com.gitserver.repository.GitRepositoryJpaRepository;
 import com.gitserver.repository.PullRequestRepository;
 import com.gitserver.repository.ReviewCommentRepository;
 import com.gitserver.repository.ReviewRepository;
@@ -32,7 +29,7 @@ public class ReviewService {
     private final ReviewRepository reviewRepository;
     private final ReviewCommentRepository reviewCommentRepository;
     private final PullRequestRepository pullRequestRepository;
-    private final GitRepositoryJpaRepository repositoryJpaRepository;
+    private final RepositoryResolver repositoryResolver;
 
     /**
      * Create a new review on a pull request.
@@ -40,8 +37,7 @@ public class ReviewService {
     @Transactional
     public ReviewResponse createReview(String owner, String repoName, Integer prNumber, 
                                         String reviewerUsername, CreateReviewRequest request) {
-        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
 
         PullRequest pullRequest = pullRequestRepository.findByRepositoryIdAndPrNumber(repository.getId(), prNumber)
                 .orElseThrow(() -> new PullRequestNotFoundException(owner, repoName, prNumber));
@@ -65,9 +61,9 @@ public class ReviewService {
     /**
      * Get all reviews for a pull request.
      */
+    @Transactional(readOnly = true)
     public List<ReviewResponse> getReviews(String owner, String repoName, Integer prNumber) {
-        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
 
         PullRequest pullRequest = pullRequestRepository.findByRepositoryIdAndPrNumber(repository.getId(), prNumber)
                 .orElseThrow(() -> new PullRequestNotFoundException(owner, repoName, prNumber));
@@ -81,6 +77,7 @@ public class ReviewService {
     /**
      * Get a specific review.
      */
+    @Transactional(readOnly = true)
     public ReviewResponse getReview(Long reviewId) {
         Review review = reviewRepository.findById(reviewId)
                 .orElseThrow(() -> new ReviewNotFoundException(reviewId));
@@ -112,8 +109,7 @@ public class ReviewService {
     @Transactional
     public ReviewCommentResponse addComment(String owner, String repoName, Integer prNumber, 
                                              Long reviewId, String authorUsername, CreateReviewCommentRequest request) {
-        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
 
         PullRequest pullRequest = pullRequestRepository.findByRepositoryIdAndPrNumber(repository.getId(), prNumber)
                 .orElseThrow(() -> new PullRequestNotFoundException(owner, repoName, prNumber));
@@ -140,6 +136,7 @@ public class ReviewService {
     /**
      * Get comments for a review.
      */
+    @Transactional(readOnly = true)
     public List<ReviewCommentResponse> getReviewComments(Long reviewId) {
         return reviewCommentRepository.findByReviewIdOrderByCreatedAtAsc(reviewId)
                 .stream()
@@ -150,9 +147,9 @@ public class ReviewService {
     /**
      * Get all comments for a pull request.
      */
+    @Transactional(readOnly = true)
     public List<ReviewCommentResponse> getPullRequestComments(String owner, String repoName, Integer prNumber) {
-        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, repoName)
-                .orElseThrow(() -> new RepositoryNotFoundException(owner, repoName));
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
 
         PullRequest pullRequest = pullRequestRepository.findByRepositoryIdAndPrNumber(repository.getId(), prNumber)
                 .orElseThrow(() -> new PullRequestNotFoundException(owner, repoName, prNumber));
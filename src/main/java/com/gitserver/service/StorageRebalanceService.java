@@ -0,0 +1,161 @@
+package com.gitserver.service;
+
+import com.gitserver.entity.GitRepository;
+import com.gitserver.exception.RepositoryNotFoundException;
+import com.gitserver.git.JGitService;
+import com.gitserver.git.RepositoryStorage;
+import com.gitserver.git.RepositoryWriteFence;
+import com.gitserver.repository.GitRepositoryJpaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Service moving repositories between storage roots so disk usage and I/O spread
+ * evenly. A repository stays readable and writable while it is copied; writes are only
+ * fenced off while the files changed meanwhile are copied and its path is switched.
+ */
+@Slf4j
+@Service
+public class StorageRebalanceService {
+
+    private final GitRepositoryJpaRepository repositoryJpaRepository;
+    private final JGitService jGitService;
+    private final RepositoryStorage repositoryStorage;
+    private final RepositoryWriteFence writeFence;
+    private final RepositoryResolver repositoryResolver;
+    private final ClusterService clusterService;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxMoves;
+    private final double tolerance;
+
+    public StorageRebalanceService(GitRepositoryJpaRepository repositoryJpaRepository,
+                                   JGitService jGitService,
+                                   RepositoryStorage repositoryStorage,
+                                   RepositoryWriteFence writeFence,
+                                   RepositoryResolver repositoryResolver,
+                                   ClusterService clusterService,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${git.storage.rebalance-enabled:true}") boolean enabled,
+                                   @Value("${git.storage.rebalance-max-moves:10}") int maxMoves,
+                                   @Value("${git.storage.rebalance-tolerance:0.1}") double tolerance) {
+        this.repositoryJpaRepository = repositoryJpaRepository;
+        this.jGitService = jGitService;
+        this.repositoryStorage = repositoryStorage;
+        this.writeFence = writeFence;
+        this.repositoryResolver = repositoryResolver;
+        this.clusterService = clusterService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxMoves = maxMoves;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Move a repository to another storage root. Returns its new directory.
+     */
+    public Path moveRepository(String owner, String name, Path targetRoot) {
+        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(owner, name)
+                .orElseThrow(() -> new RepositoryNotFoundException(owner, name));
+        Path source = jGitService.getRepositoryPath(owner, name);
+        if (RepositoryStorage.rootOf(source).normalize().equals(targetRoot.normalize())) {
+            return source;
+        }
+
+        // Bulk copy while the repository stays in use
+        Path staging = jGitService.stageCopy(source, targetRoot);
+        Path target = null;
+        long fencedNanos;
+        try (RepositoryWriteFence.Permit fence = writeFence.fence(owner, name)) {
+            long fencedAt = System.nanoTime();
+            target = jGitService.finishCopy(source, staging);
+            String diskPath = target.toString();
+            transactionTemplate.executeWithoutResult(status ->
+                    repositoryJpaRepository.updateDiskPath(repository.getId(), diskPath));
+            repositoryResolver.invalidate(owner, name);
+            fencedNanos = System.nanoTime() - fencedAt;
+        } catch (RuntimeException e) {
+            jGitService.discard(target != null ? target : staging);
+            throw e;
+        }
+
+        // Readers that opened the old copy keep their file handles; the reaper deletes it
+        jGitService.discard(source);
+        log.info("Moved repository {}/{} from {} to {}, writes were held back for {} ms",
+                owner, name, source, target, fencedNanos / 1_000_000);
+        return target;
+    }
+
+    /**
+     * Periodically move repositories from the fullest storage root to the emptiest until
+     * their usage is within the tolerance of each other, a few repositories per run.
+     */
+    @Scheduled(initialDelayString = "${git.storage.rebalance-interval-ms:3600000}",
+            fixedDelayString = "${git.storage.rebalance-interval-ms:3600000}")
+    public void rebalance() {
+        if (!enabled || repositoryStorage.getRoots().size() < 2) {
+            return;
+        }
+
+        Map<Path, Long> usage = new HashMap<>();
+        Map<Path, List<GitRepository>> repositoriesByRoot = new HashMap<>();
+        for (Path root : repositoryStorage.getRoots()) {
+            usage.put(root.normalize(), 0L);
+            repositoriesByRoot.put(root.normalize(), new ArrayList<>());
+        }
+        for (GitRepository repository : repositoryJpaRepository.findAll()) {
+            if (repository.getDiskPath() == null) {
+                continue;
+            }
+            Path root = RepositoryStorage.rootOf(Path.of(repository.getDiskPath())).normalize();
+            if (usage.containsKey(root)) {
+                usage.merge(root, size(repository), Long::sum);
+                // Only the owner can fence off writes to a repository while it is moved
+                if (clusterService.isLocal(repository.getOwner(), repository.getName())) {
+                    repositoriesByRoot.get(root).add(repository);
+                }
+            }
+        }
+
+        long total = usage.values().stream().mapToLong(Long::longValue).sum();
+        for (int moves = 0; moves < maxMoves; moves++) {
+            Path fullest = Collections.max(usage.entrySet(), Map.Entry.comparingByValue()).getKey();
+            Path emptiest = Collections.min(usage.entrySet(), Map.Entry.comparingByValue()).getKey();
+            long gap = usage.get(fullest) - usage.get(emptiest);
+            if (gap <= total * tolerance) {
+                return;
+            }
+
+            // The largest repository that narrows the gap without reversing it
+            Optional<GitRepository> candidate = repositoriesByRoot.get(fullest).stream()
+                    .filter(repository -> size(repository) > 0 && size(repository) <= gap / 2)
+                    .max(Comparator.comparingLong(StorageRebalanceService::size));
+            if (candidate.isEmpty()) {
+                return;
+            }
+
+            GitRepository repository = candidate.get();
+            repositoriesByRoot.get(fullest).remove(repository);
+            try {
+                moveRepository(repository.getOwner(), repository.getName(), emptiest);
+                repositoriesByRoot.get(emptiest).add(repository);
+                usage.merge(fullest, -size(repository), Long::sum);
+                usage.merge(emptiest, size(repository), Long::sum);
+            } catch (Exception e) {
+                log.warn("Failed to move {}/{} to {}: {}",
+                        repository.getOwner(), repository.getName(), emptiest, e.getMessage());
+            }
+        }
+    }
+
+    private static long size(GitRepository repository) {
+        return repository.getDiskUsage() != null ? repository.getDiskUsage() : 0L;
+    }
+}
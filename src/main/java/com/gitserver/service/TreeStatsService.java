@@ -0,0 +1,121 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.TreeStats;
+import com.gitserver.entity.TreeStatsEntry;
+import com.gitserver.git.JGitService;
+import com.gitserver.git.TreeStatsCache;
+import com.gitserver.repository.TreeStatsEntryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Service for recursive tree statistics (file count, total size, files per extension).
+ * Statistics are memoized per tree SHA in memory and in the database, so computing them
+ * for a new commit only visits the subtrees it changed.
+ */
+@Slf4j
+@Service
+public class TreeStatsService {
+
+    private final JGitService jGitService;
+    private final TreeStatsEntryRepository treeStatsEntryRepository;
+    private final Map<String, TreeStats> memo;
+
+    public TreeStatsService(JGitService jGitService,
+                            TreeStatsEntryRepository treeStatsEntryRepository,
+                            @Value("${git.tree-stats.cache-size:10000}") int cacheSize) {
+        this.jGitService = jGitService;
+        this.treeStatsEntryRepository = treeStatsEntryRepository;
+        this.memo = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TreeStats> eldest) {
+                return size() > cacheSize;
+            }
+        });
+    }
+
+    /**
+     * Get the statistics of the tree of a branch, tag or commit.
+     */
+    public TreeStats getTreeStats(String owner, String name, String revision) {
+        MemoizingCache cache = new MemoizingCache();
+        TreeStats stats = jGitService.getTreeStats(owner, name, revision, cache);
+        cache.flush();
+        return stats;
+    }
+
+    /**
+     * Cache backed by the in-memory memo and the tree_stats table. New entries are
+     * written in one batch once the computation is complete.
+     */
+    private class MemoizingCache implements TreeStatsCache {
+
+        private final List<TreeStatsEntry> pending = new ArrayList<>();
+
+        @Override
+        public TreeStats get(String treeId) {
+            TreeStats stats = memo.get(treeId);
+            if (stats == null) {
+                stats = treeStatsEntryRepository.findById(treeId).map(TreeStatsService::toTreeStats).orElse(null);
+                if (stats != null) {
+                    memo.put(treeId, stats);
+                }
+            }
+            return stats;
+        }
+
+        @Override
+        public void put(String treeId, TreeStats stats) {
+            memo.put(treeId, stats);
+            pending.add(TreeStatsEntry.builder()
+                    .treeId(treeId)
+                    .fileCount(stats.getFileCount())
+                    .totalSize(stats.getTotalSize())
+                    .extensionCounts(encode(stats.getExtensionCounts()))
+                    .build());
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try {
+                treeStatsEntryRepository.saveAll(pending);
+            } catch (DataAccessException e) {
+                // A concurrent computation stored the same trees; the values are identical
+                log.debug("Tree statistics already stored: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static TreeStats toTreeStats(TreeStatsEntry entry) {
+        return TreeStats.builder()
+                .treeId(entry.getTreeId())
+                .fileCount(entry.getFileCount())
+                .totalSize(entry.getTotalSize())
+                .extensionCounts(decode(entry.getExtensionCounts()))
+                .build();
+    }
+
+    private static String encode(Map<String, Long> extensionCounts) {
+        StringJoiner joiner = new StringJoiner("/");
+        extensionCounts.forEach((ext, count) -> joiner.add(ext + "=" + count));
+        return joiner.toString();
+    }
+
+    private static Map<String, Long> decode(String encoded) {
+        Map<String, Long> extensionCounts = new TreeMap<>();
+        if (encoded == null || encoded.isEmpty()) {
+            return extensionCounts;
+        }
+        for (String pair : encoded.split("/")) {
+            int separator = pair.lastIndexOf('=');
+            extensionCounts.put(pair.substring(0, separator), Long.parseLong(pair.substring(separator + 1)));
+        }
+        return extensionCounts;
+    }
+}
@@ -5,6 +5,7 @@ import com.gitserver.entity.User;
 import com.gitserver.exception.UserAlreadyExistsException;
 import com.gitserver.exception.UserNotFoundException;
 import com.gitserver.repository.UserRepository;
+import com.gitserver.security.CachingAuthenticationProvider;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -27,6 +28,8 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final CachingAuthenticationProvider authenticationProvider;
+    private final AccessTokenService accessTokenService;
 
     /**
      * Create a new user.
@@ -106,6 +109,41 @@ public class UserService {
         return toResponse(user);
     }
 
+    /**
+     * Change a user's password after verifying the current one.
+     */
+    @Transactional
+    public void changePassword(String username, ChangePasswordRequest request) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new UserNotFoundException("User not found: " + username));
+
+        if (!passwordEncoder.matches(request.getCurrentPassword(), user.getPassword())) {
+            throw new IllegalArgumentException("Current password is incorrect");
+        }
+
+        user.setPassword(passwordEncoder.encode(request.getNewPassword()));
+        userRepository.save(user);
+        authenticationProvider.invalidate(username);
+        log.info("Changed password of user: {}", username);
+    }
+
+    /**
+     * Enable or disable a user account.
+     */
+    @Transactional
+    public UserResponse setEnabled(String username, boolean enabled) {
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new UserNotFoundException("User not found: " + username));
+
+        user.setEnabled(enabled);
+        user = userRepository.save(user);
+        authenticationProvider.invalidate(username);
+        accessTokenService.invalidateUser(username);
+        log.info("{} user: {}", enabled ? "Enabled" : "Disabled", username);
+
+        return toResponse(user);
+    }
+
     /**
      * Delete a user.
      */
@@ -113,7 +151,9 @@ public class UserService {
     public void deleteUser(String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UserNotFoundException("User not found: " + username));
+        accessTokenService.revokeAll(username);
         userRepository.delete(user);
+        authenticationProvider.invalidate(username);
         log.info("Deleted user: {}", username);
     }
 
@@ -0,0 +1,459 @@
+package com.gitserver.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gitserver.dto.WebhookEventMessage;
+import com.gitserver.entity.Webhook;
+import com.gitserver.entity.WebhookDelivery;
+import com.gitserver.entity.WebhookDelivery.DeliveryStatus;
+import com.gitserver.repository.WebhookDeliveryRepository;
+import com.gitserver.repository.WebhookRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service sending the webhook deliveries queued in the outbox. A single poller claims
+ * due rows for a lease and hands them to a fixed pool of delivery threads, which keep
+ * claiming rows of the same webhook while it has any due. The rows of one webhook are
+ * sent together, up to its batch size.
+ * <p>
+ * Memory stays bounded however far the endpoints fall behind: rows are only claimed for
+ * a free delivery thread and a free slot of their endpoint (scheme, host and port), so
+ * a slow endpoint holds at most its own slots and the rest waits in the outbox. Failed
+ * attempts are retried with exponential back-off and dead-lettered after the last one;
+ * meanwhile the endpoint gets no other requests, so its other rows keep their attempts.
+ * <p>
+ * Delivery is at least once: a node stopping mid-attempt leaves the rows leased, and
+ * they are sent again when the lease runs out. Receivers can tell repeats apart by the
+ * event id. In cluster mode the coordinator sends all deliveries.
+ */
+@Slf4j
+@Service
+public class WebhookDeliveryService {
+
+    public static final String EVENT_HEADER = "X-Git-Server-Event";
+    public static final String DELIVERY_HEADER = "X-Git-Server-Delivery";
+    public static final String SIGNATURE_HEADER = "X-Git-Server-Signature-256";
+
+    private static final String BATCH_EVENT = "batch";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int MAX_ERROR_LENGTH = 1000;
+    // Rows claimed at once, so unbatched webhooks do not cost a claim per event
+    private static final int MIN_CLAIM_SIZE = 20;
+    // Claims a delivery thread makes in a row before it lets other webhooks have it
+    private static final int MAX_CLAIMS_PER_DISPATCH = 8;
+
+    private final WebhookRepository webhookRepository;
+    private final WebhookDeliveryRepository deliveryRepository;
+    private final ClusterService clusterService;
+    private final WebhookUrlPolicy urlPolicy;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final HttpClient httpClient;
+    private final int endpointConcurrency;
+    private final int maxAttempts;
+    private final long retryInitialDelayMs;
+    private final long retryMaxDelayMs;
+    private final Duration requestTimeout;
+    private final Duration attemptTimeout;
+    private final Duration retention;
+
+    private final ExecutorService poller;
+    private final ExecutorService executor;
+    private final Semaphore threads;
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final AtomicBoolean pollQueued = new AtomicBoolean();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public WebhookDeliveryService(WebhookRepository webhookRepository,
+                                  WebhookDeliveryRepository deliveryRepository,
+                                  ClusterService clusterService,
+                                  WebhookUrlPolicy urlPolicy,
+                                  ObjectMapper objectMapper,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${git.webhooks.threads:16}") int threads,
+                                  @Value("${git.webhooks.endpoint-concurrency:4}") int endpointConcurrency,
+                                  @Value("${git.webhooks.max-attempts:8}") int maxAttempts,
+                                  @Value("${git.webhooks.retry-initial-delay-ms:10000}") long retryInitialDelayMs,
+                                  @Value("${git.webhooks.retry-max-delay-ms:3600000}") long retryMaxDelayMs,
+                                  @Value("${git.webhooks.connect-timeout-ms:5000}") long connectTimeoutMs,
+                                  @Value("${git.webhooks.timeout-ms:10000}") long timeoutMs,
+                                  @Value("${git.webhooks.retention-hours:72}") long retentionHours) {
+        this.webhookRepository = webhookRepository;
+        this.deliveryRepository = deliveryRepository;
+        this.clusterService = clusterService;
+        this.urlPolicy = urlPolicy;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.endpointConcurrency = endpointConcurrency;
+        this.maxAttempts = maxAttempts;
+        this.retryInitialDelayMs = retryInitialDelayMs;
+        this.retryMaxDelayMs = retryMaxDelayMs;
+        this.requestTimeout = Duration.ofMillis(timeoutMs);
+        this.attemptTimeout = Duration.ofMillis(connectTimeoutMs + timeoutMs);
+        this.retention = Duration.ofHours(retentionHours);
+        this.threads = new Semaphore(threads);
+        this.poller = Executors.newSingleThreadExecutor(daemonThreads("webhook-poller"));
+        this.executor = Executors.newFixedThreadPool(threads, daemonThreads("webhook-delivery"));
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        poller.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Look for due deliveries soon, e.g. after new ones were committed. Returns at once.
+     */
+    public void wakeUp() {
+        if (pollQueued.compareAndSet(false, true)) {
+            try {
+                poller.execute(this::dispatchDue);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+            }
+        }
+    }
+
+    /**
+     * Pick up retries that became due, and deliveries committed by other nodes.
+     */
+    @Scheduled(fixedDelayString = "${git.webhooks.poll-interval-ms:1000}")
+    public void poll() {
+        wakeUp();
+    }
+
+    /**
+     * Delete completed deliveries older than the retention period.
+     */
+    @Scheduled(fixedDelayString = "${git.webhooks.prune-interval-ms:3600000}")
+    public void prune() {
+        if (!clusterService.isCoordinator()) {
+            return;
+        }
+        LocalDateTime before = LocalDateTime.now().minus(retention);
+        Integer deleted = transactionTemplate.execute(status -> deliveryRepository.deleteCompletedBefore(before));
+        if (deleted != null && deleted > 0) {
+            log.debug("Pruned {} webhook deliveries", deleted);
+        }
+    }
+
+    /**
+     * Number of events delivered since startup.
+     */
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    /**
+     * Number of failed delivery attempts since startup.
+     */
+    public long getFailedAttemptCount() {
+        return failed.get();
+    }
+
+    /**
+     * Claim due deliveries and hand them out while there are free delivery threads. Only
+     * runs on the poller thread.
+     */
+    private void dispatchDue() {
+        // Cleared first, so a wake-up arriving meanwhile queues another run
+        pollQueued.set(false);
+        if (!clusterService.isCoordinator()) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> webhookIds = deliveryRepository.findWebhookIdsDue(DeliveryStatus.PENDING, now);
+            if (webhookIds.isEmpty()) {
+                return;
+            }
+            for (Webhook webhook : webhookRepository.findAllById(webhookIds)) {
+                if (!webhook.isActive()) {
+                    // Kept until it is activated again or deleted
+                    continue;
+                }
+                Endpoint endpoint = endpoints.computeIfAbsent(endpointOf(webhook.getUrl()),
+                        key -> new Endpoint(endpointConcurrency));
+                while (!endpoint.isBackingOff() && endpoint.slots.tryAcquire()) {
+                    if (!threads.tryAcquire()) {
+                        // Every thread is busy; the next one to finish polls again
+                        endpoint.slots.release();
+                        return;
+                    }
+                    List<WebhookDelivery> claimed;
+                    try {
+                        claimed = claim(webhook, now);
+                    } catch (RuntimeException e) {
+                        release(endpoint);
+                        throw e;
+                    }
+                    if (claimed.isEmpty()) {
+                        release(endpoint);
+                        break;
+                    }
+                    executor.execute(() -> {
+                        try {
+                            deliverAll(webhook, endpoint, claimed);
+                        } catch (Exception e) {
+                            log.warn("Failed to deliver to webhook {}: {}", webhook.getId(), e.getMessage());
+                        } finally {
+                            release(endpoint);
+                            wakeUp();
+                        }
+                    });
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the claimed rows are sent again when their lease runs out
+        } catch (Exception e) {
+            log.warn("Failed to dispatch webhook deliveries: {}", e.getMessage());
+        }
+    }
+
+    private void release(Endpoint endpoint) {
+        threads.release();
+        endpoint.slots.release();
+    }
+
+    /**
+     * Lease the next due rows of a webhook, enough for a few batches. Synchronized, so
+     * the threads of this node do not compete for the same rows; each row is leased with
+     * a compare-and-set, so a row is never claimed twice, e.g. while the coordinator of
+     * a cluster changes.
+     */
+    private synchronized List<WebhookDelivery> claim(Webhook webhook, LocalDateTime now) {
+        int batchSize = Math.max(1, webhook.getBatchSize());
+        int claimSize = Math.max(batchSize, MIN_CLAIM_SIZE / batchSize * batchSize);
+        return transactionTemplate.execute(status -> {
+            List<WebhookDelivery> due = deliveryRepository.findDue(webhook.getId(), DeliveryStatus.PENDING, now,
+                    PageRequest.of(0, claimSize));
+            // Outlasts sending every batch, so rows are only claimed again once given up on
+            int batches = (due.size() + batchSize - 1) / batchSize;
+            LocalDateTime until = LocalDateTime.now().plus(attemptTimeout.multipliedBy(batches)).plusMinutes(1);
+            List<WebhookDelivery> claimed = new ArrayList<>(due.size());
+            for (WebhookDelivery delivery : due) {
+                if (deliveryRepository.lease(delivery.getId(), DeliveryStatus.PENDING,
+                        delivery.getNextAttemptAt(), until) == 1) {
+                    claimed.add(delivery);
+                }
+            }
+            return claimed;
+        });
+    }
+
+    /**
+     * Send claimed rows in batches, claiming more while the webhook has any due. Stops at
+     * the first failure that will be retried and releases the rows not sent.
+     */
+    private void deliverAll(Webhook webhook, Endpoint endpoint, List<WebhookDelivery> claimed) {
+        int batchSize = Math.max(1, webhook.getBatchSize());
+        for (int claims = 1; ; claims++) {
+            for (int start = 0; start < claimed.size(); start += batchSize) {
+                List<WebhookDelivery> batch = claimed.subList(start, Math.min(start + batchSize, claimed.size()));
+                long retryDelay = deliver(webhook, batch);
+                if (retryDelay >= 0) {
+                    endpoint.backOff(retryDelay);
+                    List<WebhookDelivery> unsent = claimed.subList(start + batch.size(), claimed.size());
+                    if (!unsent.isEmpty()) {
+                        transactionTemplate.executeWithoutResult(status ->
+                                deliveryRepository.reschedule(ids(unsent), LocalDateTime.now()));
+                    }
+                    return;
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+            }
+            if (claims == MAX_CLAIMS_PER_DISPATCH) {
+                return;
+            }
+            claimed = claim(webhook, LocalDateTime.now());
+            if (claimed.isEmpty()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Send one request with a batch of deliveries and record the outcome.
+     *
+     * @return the delay before the batch is retried, or -1 if it was delivered or given up on
+     */
+    private long deliver(Webhook webhook, List<WebhookDelivery> batch) {
+        boolean batched = webhook.getBatchSize() > 1;
+        Integer responseStatus = null;
+        String error;
+        boolean retry;
+        try {
+            // The host may resolve to another address than when the webhook was saved
+            urlPolicy.check(webhook.getUrl());
+            byte[] body = toJson(batched ? Map.of("events", messages(batch)) : messages(batch).get(0));
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(webhook.getUrl()))
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .header("User-Agent", "git-server-webhooks")
+                    .header(EVENT_HEADER, batched ? BATCH_EVENT : batch.get(0).getEventType())
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+            if (!batched) {
+                request.header(DELIVERY_HEADER, batch.get(0).getId().toString());
+            }
+            if (webhook.getSecret() != null) {
+                request.header(SIGNATURE_HEADER, "sha256=" + sign(webhook.getSecret(), body));
+            }
+            HttpResponse<Void> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.discarding());
+            responseStatus = response.statusCode();
+            if (responseStatus / 100 == 2) {
+                record(batch, DeliveryStatus.DELIVERED, responseStatus, null, null);
+                delivered.addAndGet(batch.size());
+                return -1;
+            }
+            error = "HTTP " + responseStatus;
+            // Other client errors will not go away by sending the same request again
+            retry = responseStatus >= 500 || responseStatus == 408 || responseStatus == 429;
+        } catch (IOException e) {
+            error = e.getClass().getSimpleName() + (e.getMessage() != null ? ": " + e.getMessage() : "");
+            retry = true;
+        } catch (IllegalArgumentException e) {
+            error = "Invalid webhook URL: " + e.getMessage();
+            retry = false;
+        } catch (InterruptedException e) {
+            // Shutting down; the rows are sent again when their lease runs out
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+
+        failed.incrementAndGet();
+        int attempts = batch.stream().mapToInt(WebhookDelivery::getAttempts).max().orElse(0) + 1;
+        if (retry && attempts < maxAttempts) {
+            long delay = Math.min(retryMaxDelayMs, retryInitialDelayMs << Math.min(attempts - 1, 20));
+            log.debug("Webhook {} delivery of {} events failed ({}), retrying in {} ms",
+                    webhook.getId(), batch.size(), error, delay);
+            record(batch, DeliveryStatus.PENDING, responseStatus, error, LocalDateTime.now().plusNanos(delay * 1_000_000));
+            return delay;
+        }
+        log.warn("Webhook {} delivery of {} events failed after {} attempts, giving up: {}",
+                webhook.getId(), batch.size(), attempts, error);
+        record(batch, DeliveryStatus.DEAD, responseStatus, error, null);
+        return -1;
+    }
+
+    private void record(List<WebhookDelivery> batch, DeliveryStatus status, Integer responseStatus, String error,
+                        LocalDateTime nextAttemptAt) {
+        LocalDateTime now = LocalDateTime.now();
+        String truncated = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        try {
+            transactionTemplate.executeWithoutResult(tx -> deliveryRepository.recordAttempt(ids(batch), status,
+                    responseStatus, truncated, nextAttemptAt != null ? nextAttemptAt : now,
+                    status == DeliveryStatus.PENDING ? null : now));
+        } catch (Exception e) {
+            // The rows are attempted again when their lease runs out
+            log.warn("Failed to record webhook delivery outcome: {}", e.getMessage());
+        }
+    }
+
+    private List<WebhookEventMessage> messages(List<WebhookDelivery> batch) {
+        return batch.stream()
+                .map(delivery -> WebhookEventMessage.builder()
+                        .id(delivery.getId())
+                        .type(delivery.getEventType())
+                        .repository(delivery.getRepository())
+                        .createdAt(delivery.getCreatedAt())
+                        .payload(delivery.getPayload())
+                        .build())
+                .toList();
+    }
+
+    private byte[] toJson(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize webhook delivery", e);
+        }
+    }
+
+    private static String sign(String secret, byte[] body) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+            return HexFormat.of().formatHex(mac.doFinal(body));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 not available", e);
+        }
+    }
+
+    private static String endpointOf(String url) {
+        try {
+            URI uri = URI.create(url);
+            return uri.getScheme() + "://" + uri.getAuthority();
+        } catch (IllegalArgumentException e) {
+            // Fails when delivered, and is dead-lettered then
+            return url;
+        }
+    }
+
+    private static List<Long> ids(List<WebhookDelivery> batch) {
+        return batch.stream().map(WebhookDelivery::getId).toList();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * A receiving server: the requests that may be in flight to it, and until when it gets
+     * none after a failed one.
+     */
+    private static final class Endpoint {
+
+        final Semaphore slots;
+        volatile long backOffUntil;
+
+        Endpoint(int concurrency) {
+            this.slots = new Semaphore(concurrency);
+        }
+
+        boolean isBackingOff() {
+            return System.currentTimeMillis() < backOffUntil;
+        }
+
+        void backOff(long delayMs) {
+            backOffUntil = System.currentTimeMillis() + delayMs;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.gitserver.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gitserver.config.ReadWriteRoutingDataSource;
+import com.gitserver.dto.CreateWebhookRequest;
+import com.gitserver.dto.RepositoryDescriptor;
+import com.gitserver.dto.WebhookDeliveryResponse;
+import com.gitserver.dto.WebhookResponse;
+import com.gitserver.entity.Webhook;
+import com.gitserver.entity.WebhookDelivery;
+import com.gitserver.entity.WebhookDelivery.DeliveryStatus;
+import com.gitserver.event.CacheInvalidatedEvent;
+import com.gitserver.event.ClusterMembershipChangedEvent;
+import com.gitserver.event.IssueChangedEvent;
+import com.gitserver.event.RefUpdateEvent;
+import com.gitserver.exception.WebhookNotFoundException;
+import com.gitserver.repository.GitRepositoryJpaRepository;
+import com.gitserver.repository.WebhookDeliveryRepository;
+import com.gitserver.repository.WebhookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.UnknownHostException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Service managing webhooks and writing their outbox. Every event a webhook receives
+ * becomes a delivery row, written in the transaction that changed the data, so an
+ * event is delivered if and only if its change committed, and the request making the
+ * change never waits for an endpoint. {@link WebhookDeliveryService} sends the rows.
+ */
+@Slf4j
+@Service
+public class WebhookService {
+
+    private static final String ALL_EVENTS = "*";
+    private static final int MAX_DELIVERIES_LISTED = 100;
+    private static final String CACHE_NAME = "webhooks";
+
+    private final WebhookRepository webhookRepository;
+    private final WebhookDeliveryRepository deliveryRepository;
+    private final RepositoryResolver repositoryResolver;
+    private final GitRepositoryJpaRepository repositoryJpaRepository;
+    private final WebhookDeliveryService deliveryService;
+    private final CacheInvalidationService cacheInvalidationService;
+    private final WebhookUrlPolicy urlPolicy;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    // Active webhooks per repository id, so events of repositories without webhooks cost no query
+    private final Map<Long, List<Target>> targets = new ConcurrentHashMap<>();
+
+    public WebhookService(WebhookRepository webhookRepository,
+                          WebhookDeliveryRepository deliveryRepository,
+                          RepositoryResolver repositoryResolver,
+                          GitRepositoryJpaRepository repositoryJpaRepository,
+                          WebhookDeliveryService deliveryService,
+                          CacheInvalidationService cacheInvalidationService,
+                          WebhookUrlPolicy urlPolicy,
+                          ObjectMapper objectMapper,
+                          PlatformTransactionManager transactionManager) {
+        this.webhookRepository = webhookRepository;
+        this.deliveryRepository = deliveryRepository;
+        this.repositoryResolver = repositoryResolver;
+        this.repositoryJpaRepository = repositoryJpaRepository;
+        this.deliveryService = deliveryService;
+        this.cacheInvalidationService = cacheInvalidationService;
+        this.urlPolicy = urlPolicy;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Create a webhook for a repository.
+     */
+    @Transactional
+    public WebhookResponse createWebhook(String owner, String repoName, String username, CreateWebhookRequest request) {
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
+        Webhook webhook = Webhook.builder()
+                .repositoryId(repository.getId())
+                .createdBy(username)
+                .build();
+        apply(webhook, request);
+        webhook = webhookRepository.save(webhook);
+        invalidate(repository.getId());
+        log.info("Created webhook {} for repository {}/{}", webhook.getId(), owner, repoName);
+        return toResponse(webhook);
+    }
+
+    /**
+     * Replace the settings of a webhook. A secret left out keeps the current one.
+     */
+    @Transactional
+    public WebhookResponse updateWebhook(String owner, String repoName, Long webhookId, CreateWebhookRequest request) {
+        Webhook webhook = findWebhook(owner, repoName, webhookId);
+        apply(webhook, request);
+        webhook = webhookRepository.save(webhook);
+        invalidate(webhook.getRepositoryId());
+        return toResponse(webhook);
+    }
+
+    @Transactional(readOnly = true)
+    public List<WebhookResponse> getWebhooks(String owner, String repoName) {
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
+        return webhookRepository.findByRepositoryIdOrderById(repository.getId()).stream()
+                .map(this::toResponse)
+                .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public WebhookResponse getWebhook(String owner, String repoName, Long webhookId) {
+        return toResponse(findWebhook(owner, repoName, webhookId));
+    }
+
+    /**
+     * Delete a webhook with its deliveries, including those not yet sent.
+     */
+    @Transactional
+    public void deleteWebhook(String owner, String repoName, Long webhookId) {
+        Webhook webhook = findWebhook(owner, repoName, webhookId);
+        deliveryRepository.deleteByWebhook(webhook.getId());
+        webhookRepository.delete(webhook);
+        invalidate(webhook.getRepositoryId());
+        log.info("Deleted webhook {} of repository {}/{}", webhookId, owner, repoName);
+    }
+
+    /**
+     * Get the latest deliveries of a webhook, newest first, optionally in one status.
+     */
+    @Transactional(readOnly = true)
+    public List<WebhookDeliveryResponse> getDeliveries(String owner, String repoName, Long webhookId,
+                                                       DeliveryStatus status, int limit) {
+        Webhook webhook = findWebhook(owner, repoName, webhookId);
+        PageRequest page = PageRequest.of(0, Math.max(1, Math.min(limit, MAX_DELIVERIES_LISTED)));
+        List<WebhookDelivery> deliveries = status != null
+                ? deliveryRepository.findByWebhookIdAndStatusOrderByIdDesc(webhook.getId(), status, page)
+                : deliveryRepository.findByWebhookIdOrderByIdDesc(webhook.getId(), page);
+        return deliveries.stream().map(this::toResponse).collect(Collectors.toList());
+    }
+
+    /**
+     * Queue a delivery again, e.g. one that was dead-lettered, with a fresh set of attempts.
+     */
+    @Transactional
+    public WebhookDeliveryResponse redeliver(String owner, String repoName, Long webhookId, Long deliveryId) {
+        Webhook webhook = findWebhook(owner, repoName, webhookId);
+        WebhookDelivery delivery = deliveryRepository.findByIdAndWebhookId(deliveryId, webhook.getId())
+                .orElseThrow(() -> new WebhookNotFoundException(
+                        String.format("Delivery with ID %d of webhook %d not found", deliveryId, webhookId)));
+        delivery.setStatus(DeliveryStatus.PENDING);
+        delivery.setAttempts(0);
+        delivery.setNextAttemptAt(LocalDateTime.now());
+        delivery.setCompletedAt(null);
+        delivery = deliveryRepository.save(delivery);
+        wakeUpAfterCommit();
+        return toResponse(delivery);
+    }
+
+    /**
+     * Queue pushes and branch changes. Pushes are not part of a database transaction, so
+     * their rows are written in one of their own.
+     */
+    @EventListener
+    public void onRefUpdate(RefUpdateEvent event) {
+        Optional<RepositoryDescriptor> repository = repositoryResolver.find(event.getOwner(), event.getName());
+        if (repository.isEmpty() || getTargets(repository.get().getId()).isEmpty()) {
+            return;
+        }
+        String name = repository.get().getOwner() + "/" + repository.get().getName();
+        enqueue(repository.get().getId(), name, EventPayloads.of(event));
+    }
+
+    /**
+     * Queue issue and pull request changes, in the transaction making them.
+     */
+    @EventListener
+    public void onIssueChanged(IssueChangedEvent event) {
+        if (getTargets(event.getRepositoryId()).isEmpty()) {
+            return;
+        }
+        repositoryJpaRepository.findById(event.getRepositoryId()).ifPresent(repository ->
+                enqueue(repository.getId(), repository.getOwner() + "/" + repository.getName(),
+                        List.of(EventPayloads.of(event))));
+    }
+
+    @EventListener
+    public void onMembershipChanged(ClusterMembershipChangedEvent event) {
+        // Webhooks of repositories this node takes over may have changed on another node
+        targets.clear();
+    }
+
+    @EventListener
+    public void onCacheInvalidated(CacheInvalidatedEvent event) {
+        if (event.covers(CACHE_NAME)) {
+            if (event.isAll()) {
+                targets.clear();
+            } else {
+                targets.remove(Long.valueOf(event.getKey()));
+            }
+        }
+    }
+
+    private void enqueue(Long repositoryId, String repository, List<EventPayloads.Payload> payloads) {
+        LocalDateTime now = LocalDateTime.now();
+        List<WebhookDelivery> deliveries = new ArrayList<>();
+        for (EventPayloads.Payload payload : payloads) {
+            String data = null;
+            for (Target target : getTargets(repositoryId)) {
+                if (target.receives(payload.type())) {
+                    data = data != null ? data : toJson(payload.data());
+                    deliveries.add(WebhookDelivery.builder()
+                            .webhookId(target.webhookId())
+                            .repository(repository)
+                            .eventType(payload.type())
+                            .payload(data)
+                            .status(DeliveryStatus.PENDING)
+                            .attempts(0)
+                            .nextAttemptAt(now)
+                            .createdAt(now)
+                            .build());
+                }
+            }
+        }
+        if (!deliveries.isEmpty()) {
+            // Joins the transaction of the change if there is one
+            transactionTemplate.executeWithoutResult(status -> {
+                deliveryRepository.saveAll(deliveries);
+                wakeUpAfterCommit();
+            });
+        }
+    }
+
+    private void wakeUpAfterCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deliveryService.wakeUp();
+            }
+        });
+    }
+
+    private List<Target> getTargets(Long repositoryId) {
+        List<Target> cached = targets.get(repositoryId);
+        if (cached != null) {
+            return cached;
+        }
+        List<Target> loaded = webhookRepository.findByRepositoryIdAndActiveTrue(repositoryId).stream()
+                .map(webhook -> new Target(webhook.getId(), parseEvents(webhook.getEvents())))
+                .toList();
+        // Rows read from a lagging replica could outlive the invalidation of newer ones
+        if (!ReadWriteRoutingDataSource.isCurrentTransactionOnReplica()) {
+            targets.putIfAbsent(repositoryId, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Drop the cached webhooks of a repository, again after commit, so a concurrent event
+     * cannot re-cache the old rows, and on the other nodes of a cluster.
+     */
+    private void invalidate(Long repositoryId) {
+        targets.remove(repositoryId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    targets.remove(repositoryId);
+                }
+            });
+        }
+        cacheInvalidationService.broadcast(CACHE_NAME, repositoryId.toString());
+    }
+
+    private Webhook findWebhook(String owner, String repoName, Long webhookId) {
+        RepositoryDescriptor repository = repositoryResolver.resolve(owner, repoName);
+        return webhookRepository.findByIdAndRepositoryId(webhookId, repository.getId())
+                .orElseThrow(() -> new WebhookNotFoundException(webhookId));
+    }
+
+    private void apply(Webhook webhook, CreateWebhookRequest request) {
+        Set<String> events = request.getEvents() != null ? new TreeSet<>(request.getEvents()) : new TreeSet<>();
+        events.remove(ALL_EVENTS);
+        for (String event : events) {
+            if (!EventPayloads.TYPES.contains(event)) {
+                throw new IllegalArgumentException("Unknown webhook event '" + event + "', expected one of "
+                        + String.join(", ", EventPayloads.TYPES));
+            }
+        }
+        try {
+            urlPolicy.check(request.getUrl());
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Webhook URL host cannot be resolved: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Webhook URL not allowed: " + e.getMessage());
+        }
+        webhook.setUrl(request.getUrl());
+        if (request.getSecret() != null) {
+            webhook.setSecret(request.getSecret().isEmpty() ? null : request.getSecret());
+        }
+        webhook.setEvents(events.isEmpty() ? ALL_EVENTS : String.join(",", events));
+        webhook.setBatchSize(request.getBatchSize() != null ? request.getBatchSize() : 1);
+        webhook.setActive(request.getActive() == null || request.getActive());
+    }
+
+    private static Set<String> parseEvents(String events) {
+        return events.equals(ALL_EVENTS) ? Set.of() : Set.of(events.split(","));
+    }
+
+    private String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize webhook payload", e);
+        }
+    }
+
+    private WebhookResponse toResponse(Webhook webhook) {
+        Set<String> events = parseEvents(webhook.getEvents());
+        return WebhookResponse.builder()
+                .id(webhook.getId())
+                .url(webhook.getUrl())
+                .hasSecret(webhook.getSecret() != null)
+                .events(events.isEmpty() ? Set.of(ALL_EVENTS) : new TreeSet<>(events))
+                .batchSize(webhook.getBatchSize())
+                .active(webhook.isActive())
+                .pendingDeliveries(deliveryRepository.countByWebhookIdAndStatus(webhook.getId(), DeliveryStatus.PENDING))
+                .deadDeliveries(deliveryRepository.countByWebhookIdAndStatus(webhook.getId(), DeliveryStatus.DEAD))
+                .createdBy(webhook.getCreatedBy())
+                .createdAt(webhook.getCreatedAt())
+                .updatedAt(webhook.getUpdatedAt())
+                .build();
+    }
+
+    private WebhookDeliveryResponse toResponse(WebhookDelivery delivery) {
+        return WebhookDeliveryResponse.builder()
+                .id(delivery.getId())
+                .event(delivery.getEventType())
+                .status(delivery.getStatus().name())
+                .attempts(delivery.getAttempts())
+                .responseStatus(delivery.getResponseStatus())
+                .lastError(delivery.getLastError())
+                .nextAttemptAt(delivery.getStatus() == DeliveryStatus.PENDING ? delivery.getNextAttemptAt() : null)
+                .createdAt(delivery.getCreatedAt())
+                .completedAt(delivery.getCompletedAt())
+                .build();
+    }
+
+    /**
+     * An active webhook as needed to decide which events it receives; no events means all.
+     */
+    private record Target(Long webhookId, Set<String> events) {
+
+        boolean receives(String type) {
+            return events.isEmpty() || events.contains(type);
+        }
+    }
+}
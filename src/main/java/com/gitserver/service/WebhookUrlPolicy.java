@@ -0,0 +1,128 @@
+package com.gitserver.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.util.*;
+
+/**
+ * Decides which URLs webhooks may be sent to, so they cannot be used to reach services
+ * on the server's own network. A host must not resolve to a loopback, link-local (such
+ * as cloud metadata endpoints), site-local, unique local, wildcard or multicast address,
+ * unless the host, the address or a range containing it is listed in
+ * {@code git.webhooks.allowed-hosts}. URLs are checked when a webhook is saved and again
+ * before each delivery, as the host may resolve differently by then.
+ */
+@Component
+public class WebhookUrlPolicy {
+
+    private final Set<String> allowedHosts = new HashSet<>();
+    private final List<Range> allowedRanges = new ArrayList<>();
+
+    /**
+     * An address range in CIDR notation.
+     */
+    private record Range(byte[] network, int prefixLength) {
+
+        boolean contains(InetAddress address) {
+            byte[] bytes = address.getAddress();
+            if (bytes.length != network.length) {
+                return false;
+            }
+            for (int bit = 0; bit < prefixLength; bit++) {
+                int mask = 0x80 >> (bit % 8);
+                if ((bytes[bit / 8] & mask) != (network[bit / 8] & mask)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    public WebhookUrlPolicy(@Value("${git.webhooks.allowed-hosts:}") String allowedHosts) {
+        for (String entry : allowedHosts.split(",")) {
+            String host = entry.trim().toLowerCase(Locale.ROOT);
+            if (host.isEmpty()) {
+                continue;
+            }
+            int slash = host.indexOf('/');
+            if (slash < 0) {
+                this.allowedHosts.add(host);
+                continue;
+            }
+            try {
+                byte[] network = InetAddress.getByName(host.substring(0, slash)).getAddress();
+                int prefixLength = Integer.parseInt(host.substring(slash + 1));
+                if (prefixLength < 0 || prefixLength > network.length * 8) {
+                    throw new NumberFormatException("prefix length out of range");
+                }
+                allowedRanges.add(new Range(network, prefixLength));
+            } catch (UnknownHostException | NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid address range in git.webhooks.allowed-hosts: " + host, e);
+            }
+        }
+    }
+
+    /**
+     * Check that webhooks may be sent to a URL.
+     *
+     * @throws IllegalArgumentException if the URL has no host or its host is not allowed
+     * @throws UnknownHostException     if the host cannot be resolved
+     */
+    public void check(String url) throws UnknownHostException {
+        String host;
+        try {
+            host = new URI(url).getHost();
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e.getMessage());
+        }
+        if (host == null) {
+            throw new IllegalArgumentException("no host in " + url);
+        }
+        host = host.toLowerCase(Locale.ROOT);
+        if (host.startsWith("[") && host.endsWith("]")) {
+            host = host.substring(1, host.length() - 1);
+        }
+        if (allowedHosts.contains(host)) {
+            return;
+        }
+        for (InetAddress address : InetAddress.getAllByName(host)) {
+            if (isPrivate(address) && !isAllowed(address)) {
+                throw new IllegalArgumentException(
+                        host + " resolves to the private address " + address.getHostAddress());
+            }
+        }
+    }
+
+    private boolean isAllowed(InetAddress address) {
+        return allowedHosts.contains(address.getHostAddress())
+                || allowedRanges.stream().anyMatch(range -> range.contains(address));
+    }
+
+    private static boolean isPrivate(InetAddress address) throws UnknownHostException {
+        if (address.isLoopbackAddress() || address.isLinkLocalAddress() || address.isSiteLocalAddress()
+                || address.isAnyLocalAddress() || address.isMulticastAddress()) {
+            return true;
+        }
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 4) {
+            // "This network" 0.0.0.0/8 and carrier-grade NAT 100.64.0.0/10
+            return bytes[0] == 0 || (bytes[0] == 100 && (bytes[1] & 0xC0) == 64);
+        }
+        // Unique local fc00::/7, which isSiteLocalAddress does not cover
+        if ((bytes[0] & 0xFE) == 0xFC) {
+            return true;
+        }
+        // IPv4-compatible ::a.b.c.d, which reaches the embedded IPv4 address
+        for (int i = 0; i < 12; i++) {
+            if (bytes[i] != 0) {
+                return false;
+            }
+        }
+        return isPrivate(InetAddress.getByAddress(Arrays.copyOfRange(bytes, 12, 16)));
+    }
+}
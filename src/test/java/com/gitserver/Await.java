@@ -0,0 +1,39 @@
+package com.gitserver;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Polling helper for tests waiting on work done in the background.
+ */
+public final class Await {
+
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+    private static final long POLL_INTERVAL_MS = 20;
+
+    private Await() {
+    }
+
+    /**
+     * Wait until a condition holds, failing with the given message after 30 seconds.
+     */
+    public static void until(String message, BooleanSupplier condition) throws InterruptedException {
+        until(message, DEFAULT_TIMEOUT, condition);
+    }
+
+    /**
+     * Wait until a condition holds, failing with the given message once the timeout passes.
+     */
+    public static void until(String message, Duration timeout, BooleanSupplier condition)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                fail(message);
+            }
+            Thread.sleep(POLL_INTERVAL_MS);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.gitserver;
+
+import java.util.Locale;
+
+/**
+ * Helpers for the tests tagged "benchmark", which run with {@code mvn test -Pbenchmark}
+ * and print their measurements to standard output.
+ */
+public final class Benchmark {
+
+    private Benchmark() {
+    }
+
+    /**
+     * A size setting of a benchmark, which can be scaled with {@code -Dbenchmark.<name>=<value>}.
+     */
+    public static long size(String name, long defaultValue) {
+        return Long.getLong("benchmark." + name, defaultValue);
+    }
+
+    /**
+     * Print one measurement of a benchmark.
+     */
+    public static void report(String benchmark, String format, Object... args) {
+        System.out.printf(Locale.ROOT, "[benchmark] %s: %s%n", benchmark, String.format(Locale.ROOT, format, args));
+    }
+
+    /**
+     * Rate of operations per second over an elapsed time.
+     */
+    public static double perSecond(long operations, long elapsedNanos) {
+        return operations * 1e9 / Math.max(elapsedNanos, 1);
+    }
+
+    /**
+     * Heap in use after a garbage collection was requested, in megabytes.
+     */
+    public static long usedHeapMegabytes() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+    }
+}
@@ -0,0 +1,133 @@
+package com.gitserver.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ReadWriteRoutingDataSource, with two in-memory H2 databases standing in
+ * for the primary and the replica.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private JdbcTemplate primary;
+    private JdbcTemplate routed;
+    private TransactionTemplate writeTransaction;
+    private TransactionTemplate readTransaction;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("routing_primary", "primary");
+        JdbcTemplate replica = database("routing_replica", "replica");
+
+        DataSource dataSource = new LazyConnectionDataSourceProxy(
+                routingDataSource(primary.getDataSource(), replica.getDataSource(), 60_000));
+        routed = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        writeTransaction = new TransactionTemplate(transactionManager);
+        readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testReadOnlyTransactionsUseReplica() {
+        assertEquals("replica", readTransaction.execute(status -> node()));
+        assertEquals("primary", writeTransaction.execute(status -> node()));
+        assertEquals("primary", node());
+    }
+
+    @Test
+    void testReplicaRouteIsVisibleToTransaction() {
+        assertEquals(Boolean.TRUE, readTransaction.execute(status -> {
+            node();
+            return ReadWriteRoutingDataSource.isCurrentTransactionOnReplica();
+        }));
+        assertFalse(ReadWriteRoutingDataSource.isCurrentTransactionOnReplica());
+        assertEquals(Boolean.FALSE, writeTransaction.execute(status -> {
+            node();
+            return ReadWriteRoutingDataSource.isCurrentTransactionOnReplica();
+        }));
+    }
+
+    @Test
+    void testUserReadsOwnWritesFromPrimary() {
+        authenticate("alice");
+        writeTransaction.executeWithoutResult(status ->
+                routed.update("INSERT INTO writes (author) VALUES (?)", "alice"));
+        assertEquals(List.of("alice"), primary.queryForList("SELECT author FROM writes", String.class));
+        assertEquals("primary", readTransaction.execute(status -> node()));
+
+        authenticate("bob");
+        assertEquals("replica", readTransaction.execute(status -> node()));
+    }
+
+    @Test
+    void testRolledBackWriteDoesNotPinUser() {
+        authenticate("carol");
+        writeTransaction.executeWithoutResult(status -> {
+            routed.update("INSERT INTO writes (author) VALUES (?)", "carol");
+            status.setRollbackOnly();
+        });
+        assertEquals("replica", readTransaction.execute(status -> node()));
+    }
+
+    @Test
+    void testPinningExpires() throws Exception {
+        DataSource dataSource = new LazyConnectionDataSourceProxy(
+                routingDataSource(primary.getDataSource(), database("routing_replica", "replica").getDataSource(), 50));
+        TransactionTemplate write = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        TransactionTemplate read = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        read.setReadOnly(true);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+        authenticate("dave");
+        write.executeWithoutResult(status -> jdbc.update("INSERT INTO writes (author) VALUES (?)", "dave"));
+        assertEquals("primary", read.execute(status -> jdbc.queryForObject("SELECT name FROM node", String.class)));
+        Thread.sleep(100);
+        assertEquals("replica", read.execute(status -> jdbc.queryForObject("SELECT name FROM node", String.class)));
+    }
+
+    private String node() {
+        return routed.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static ReadWriteRoutingDataSource routingDataSource(DataSource primary, DataSource replica, long readYourWritesMillis) {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica, readYourWritesMillis);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    private static JdbcTemplate database(String name, String node) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("DROP TABLE IF EXISTS node");
+        jdbc.execute("DROP TABLE IF EXISTS writes");
+        jdbc.execute("CREATE TABLE node (name VARCHAR(20))");
+        jdbc.execute("CREATE TABLE writes (author VARCHAR(20))");
+        jdbc.update("INSERT INTO node (name) VALUES (?)", node);
+        return jdbc;
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(username, null, List.of()));
+    }
+}
@@ -0,0 +1,101 @@
+package com.gitserver.config;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests read/write routing through JPA within web requests. The primary and the replica
+ * are the same in-memory database opened as different users, so CURRENT_USER tells
+ * which route a statement took.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-jpa-test;DB_CLOSE_DELAY=-1;"
+                + "INIT=CREATE USER IF NOT EXISTS REPLICA PASSWORD 'replica' ADMIN",
+        "git.datasource.replica.url=jdbc:h2:mem:routing-jpa-test;DB_CLOSE_DELAY=-1",
+        "git.datasource.replica.username=replica",
+        "git.datasource.replica.password=replica",
+        "git.datasource.replica.read-your-writes-ms=0"
+})
+@AutoConfigureMockMvc
+@Import(ReadWriteRoutingJpaTest.RouteController.class)
+class ReadWriteRoutingJpaTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    @WithMockUser
+    void testWriteAfterReadOnlyTransactionUsesPrimary() throws Exception {
+        assertInstanceOf(JpaTransactionManager.class, transactionManager);
+
+        mockMvc.perform(get("/test/routes/read-then-write"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").value("REPLICA"))
+                .andExpect(jsonPath("$[1]").value("SA"));
+    }
+
+    @Test
+    @WithMockUser
+    void testReadOnlyTransactionAfterLookupUsesReplica() throws Exception {
+        mockMvc.perform(get("/test/routes/lookup-then-read"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0]").value("SA"))
+                .andExpect(jsonPath("$[1]").value("REPLICA"));
+    }
+
+    /**
+     * Runs statements through the shared EntityManager in the order a request would.
+     */
+    @RestController
+    static class RouteController {
+
+        @PersistenceContext
+        private EntityManager entityManager;
+
+        private final TransactionTemplate readTransaction;
+        private final TransactionTemplate writeTransaction;
+
+        RouteController(PlatformTransactionManager transactionManager) {
+            this.readTransaction = new TransactionTemplate(transactionManager);
+            this.readTransaction.setReadOnly(true);
+            this.writeTransaction = new TransactionTemplate(transactionManager);
+        }
+
+        @GetMapping("/test/routes/read-then-write")
+        List<String> readThenWrite() {
+            return List.of(readTransaction.execute(status -> currentUser()),
+                    writeTransaction.execute(status -> currentUser()));
+        }
+
+        @GetMapping("/test/routes/lookup-then-read")
+        List<String> lookupThenRead() {
+            return List.of(currentUser(), readTransaction.execute(status -> currentUser()));
+        }
+
+        private String currentUser() {
+            return (String) entityManager.createNativeQuery("SELECT CURRENT_USER").getSingleResult();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.gitserver.config;
+
+import com.gitserver.dto.CreateUserRequest;
+import com.gitserver.repository.UserRepository;
+import com.gitserver.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the access rules of SecurityConfig.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class SecurityConfigTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @LocalServerPort
+    private int port;
+
+    private static final String TEST_USER = "securityuser";
+    private static final String PASSWORD = "password123";
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() {
+        cleanupTestData();
+        userService.createUser(CreateUserRequest.builder()
+                .username(TEST_USER)
+                .email(TEST_USER + "@test.com")
+                .password(PASSWORD)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanupTestData();
+    }
+
+    private void cleanupTestData() {
+        try {
+            userService.deleteUser(TEST_USER);
+        } catch (Exception e) {
+            // Ignore cleanup errors
+        }
+    }
+
+    @Test
+    void testOnlyAdminsDisableAndEnableUsers() throws Exception {
+        assertEquals(403, put("/api/users/admin/disable", TEST_USER, PASSWORD));
+        assertEquals(403, put("/api/users/" + TEST_USER + "/enable", TEST_USER, PASSWORD));
+        assertTrue(isEnabled("admin"));
+
+        assertEquals(200, put("/api/users/" + TEST_USER + "/disable", "admin", "admin123"));
+        assertFalse(isEnabled(TEST_USER));
+        assertEquals(200, put("/api/users/" + TEST_USER + "/enable", "admin", "admin123"));
+        assertTrue(isEnabled(TEST_USER));
+    }
+
+    private boolean isEnabled(String username) {
+        return userRepository.findByUsername(username).orElseThrow().isEnabled();
+    }
+
+    private int put(String path, String username, String password) throws Exception {
+        String credentials = Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Authorization", "Basic " + credentials)
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
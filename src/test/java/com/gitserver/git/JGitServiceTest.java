@@ -1,30 +1,54 @@
 package com.gitserver.git;
 
 import com.gitserver.dto.BranchInfo;
+import com.gitserver.dto.CommitDiffStats;
 import com.gitserver.dto.CommitInfo;
 import com.gitserver.dto.FileContent;
 import com.gitserver.dto.FileInfo;
+import com.gitserver.dto.FileUpdateRequest;
+import com.gitserver.exception.FileNotFoundException;
+import org.eclipse.jgit.api.Git;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Tests for JGitService.
  */
-@SpringBootTest
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:jgit-service-test;DB_CLOSE_DELAY=-1")
 class JGitServiceTest {
 
+    @TempDir
+    static Path repositoriesDir;
+
+    @DynamicPropertySource
+    static void repositoryProperties(DynamicPropertyRegistry registry) {
+        registry.add("git.repositories.base-path", () -> repositoriesDir.toString());
+    }
+
     @Autowired
     private JGitService jGitService;
 
+    @Autowired
+    private RepositoryWriteFence writeFence;
+
     private static final String TEST_OWNER = "testuser";
     private static final String TEST_REPO = "jgittest";
 
@@ -121,4 +145,102 @@ class JGitServiceTest {
         jGitService.deleteRepository(TEST_OWNER, TEST_REPO);
         assertFalse(jGitService.repositoryExistsOnDisk(TEST_OWNER, TEST_REPO));
     }
+
+    @Test
+    void testLooseObjectsSizeMatchesRepositoryGrowth() {
+        jGitService.initRepository(TEST_OWNER, TEST_REPO, true, "Test description");
+        long sizeBefore = jGitService.getRepositorySize(TEST_OWNER, TEST_REPO);
+
+        FileUpdateRequest request = FileUpdateRequest.builder()
+                .path("docs/guide.md")
+                .content("# Guide\n")
+                .message("Add guide")
+                .branch("main")
+                .build();
+        CommitInfo commit = jGitService.createOrUpdateFile(TEST_OWNER, TEST_REPO, request, "tester", "tester@gitserver.local");
+
+        long sizeAfter = jGitService.getRepositorySize(TEST_OWNER, TEST_REPO);
+        long looseSize = jGitService.getLooseObjectsSize(TEST_OWNER, TEST_REPO, commit.getId());
+
+        assertTrue(looseSize > 0);
+        assertEquals(sizeAfter - sizeBefore, looseSize);
+    }
+
+    @Test
+    void testRepositoriesAreBare() {
+        jGitService.initRepository(TEST_OWNER, TEST_REPO, true, "Test description");
+        Path repoPath = jGitService.getRepositoryPath(TEST_OWNER, TEST_REPO);
+
+        assertTrue(Files.exists(repoPath.resolve("HEAD")));
+        assertFalse(Files.exists(repoPath.resolve("README.md")));
+        assertFalse(Files.exists(repoPath.resolve(".git")));
+
+        FileUpdateRequest request = FileUpdateRequest.builder()
+                .path("/src/Main.java")
+                .content("class Main {}\n")
+                .message("Add main")
+                .branch("main")
+                .build();
+        jGitService.createOrUpdateFile(TEST_OWNER, TEST_REPO, request, "tester", "tester@gitserver.local");
+        assertEquals("class Main {}\n", jGitService.getFileContent(TEST_OWNER, TEST_REPO, "main", "src/Main.java").getContent());
+        assertFalse(Files.exists(repoPath.resolve("src")));
+
+        jGitService.deleteFile(TEST_OWNER, TEST_REPO, "src/Main.java", "main", "Remove main", "tester", "tester@gitserver.local");
+        assertThrows(FileNotFoundException.class,
+                () -> jGitService.getFileContent(TEST_OWNER, TEST_REPO, "main", "src/Main.java"));
+    }
+
+    @Test
+    void testMergeBranchWithoutWorkingTree() {
+        jGitService.initRepository(TEST_OWNER, TEST_REPO, true, "Test description");
+        jGitService.createBranch(TEST_OWNER, TEST_REPO, "feature", "main");
+        jGitService.createOrUpdateFile(TEST_OWNER, TEST_REPO, FileUpdateRequest.builder()
+                .path("feature.txt").content("feature\n").message("Add feature").branch("feature").build(),
+                "tester", "tester@gitserver.local");
+        jGitService.createOrUpdateFile(TEST_OWNER, TEST_REPO, FileUpdateRequest.builder()
+                .path("main.txt").content("main\n").message("Add main").branch("main").build(),
+                "tester", "tester@gitserver.local");
+
+        String mergeId = jGitService.mergeBranch(TEST_OWNER, TEST_REPO, "feature", "main", "reviewer");
+
+        CommitInfo merge = jGitService.getCommit(TEST_OWNER, TEST_REPO, mergeId);
+        assertEquals(2, merge.getParentIds().size());
+        assertEquals("reviewer", merge.getAuthor());
+        assertEquals("feature\n", jGitService.getFileContent(TEST_OWNER, TEST_REPO, "main", "feature.txt").getContent());
+        assertEquals("main\n", jGitService.getFileContent(TEST_OWNER, TEST_REPO, "main", "main.txt").getContent());
+        assertNull(jGitService.mergeBranch(TEST_OWNER, TEST_REPO, "feature", "main", "reviewer"));
+
+        // The merged lines are credited to the feature commit, not again to the merger
+        String featureId = merge.getParentIds().get(1);
+        Map<String, CommitDiffStats> stats = jGitService.getCommitDiffStats(TEST_OWNER, TEST_REPO,
+                        List.of(featureId, mergeId), 2).stream()
+                .collect(Collectors.toMap(CommitDiffStats::getCommitId, s -> s));
+        assertEquals(1, stats.get(featureId).getAdditions());
+        assertEquals(0, stats.get(mergeId).getAdditions());
+        assertEquals(0, stats.get(mergeId).getDeletions());
+    }
+
+    @Test
+    void testConvertToBare() throws Exception {
+        Path repoPath = jGitService.getRepositoryPath(TEST_OWNER, TEST_REPO);
+        try (Git git = Git.init().setDirectory(repoPath.toFile()).setInitialBranch("main").call()) {
+            Files.writeString(repoPath.resolve("README.md"), "# Old layout\n");
+            git.add().addFilepattern("README.md").call();
+            git.commit().setAuthor("tester", "tester@gitserver.local").setMessage("Initial commit").call();
+        }
+
+        // The rename waits for writes in progress
+        CompletableFuture<Boolean> converted;
+        try (RepositoryWriteFence.Permit permit = writeFence.enter(TEST_OWNER, TEST_REPO)) {
+            converted = CompletableFuture.supplyAsync(() -> jGitService.convertToBare(TEST_OWNER, TEST_REPO));
+            assertThrows(TimeoutException.class, () -> converted.get(200, TimeUnit.MILLISECONDS));
+        }
+        assertTrue(converted.get(10, TimeUnit.SECONDS));
+
+        assertFalse(Files.exists(repoPath.resolve(".git")));
+        assertFalse(Files.exists(repoPath.resolve("README.md")));
+        assertTrue(jGitService.repositoryExistsOnDisk(TEST_OWNER, TEST_REPO));
+        assertEquals("# Old layout\n", jGitService.getFileContent(TEST_OWNER, TEST_REPO, "main", "README.md").getContent());
+        assertFalse(jGitService.convertToBare(TEST_OWNER, TEST_REPO));
+    }
 }
@@ -0,0 +1,78 @@
+package com.gitserver.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for TrigramIndex, covering the mapped file and the in-memory delta kept on top of it.
+ */
+class TrigramIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static void put(TrigramIndex index, String path, String content) {
+        index.put(path, "blob-" + path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> paths(TrigramIndex index, String literal) {
+        return index.candidates(List.of(literal), null).stream()
+                .map(TrigramIndex.Document::path)
+                .toList();
+    }
+
+    @Test
+    void testDeltaIsSearchedTogetherWithMergedFile() throws IOException {
+        Path file = tempDir.resolve("1.idx");
+        TrigramIndex index = new TrigramIndex();
+        put(index, "a.txt", "handleRequest");
+        put(index, "b.txt", "parseCount");
+        put(index, "c.txt", "handleResponse");
+        index.setIndexedCommit("main", "c1");
+        assertTrue(index.needsMerge(1000));
+        index.merge(file);
+        assertFalse(index.needsMerge(1000));
+
+        put(index, "d.txt", "handleRequest again");
+        put(index, "b.txt", "countItems");
+        index.remove("c.txt");
+
+        assertEquals(List.of("a.txt", "d.txt"), paths(index, "HANDLEREQ"));
+        assertEquals(List.of(), paths(index, "parseCount"));
+        assertEquals(List.of("b.txt"), paths(index, "countItems"));
+        assertEquals(List.of("a.txt", "d.txt"), paths(index, "handle"));
+        assertTrue(index.needsMerge(4));
+        assertFalse(index.needsMerge(5));
+    }
+
+    @Test
+    void testMergedFileDropsTombstonesAndLoadsBack() throws IOException {
+        Path file = tempDir.resolve("2.idx");
+        TrigramIndex index = new TrigramIndex();
+        for (int i = 0; i < 300; i++) {
+            put(index, "file" + i + ".txt", "value " + i + (i % 2 == 0 ? " even" : " odd"));
+        }
+        index.merge(file);
+        for (int i = 0; i < 300; i += 3) {
+            index.remove("file" + i + ".txt");
+        }
+        index.setIndexedCommit("main", "c2");
+        index.merge(file);
+
+        TrigramIndex loaded = TrigramIndex.load(file);
+        assertEquals("main", loaded.getBranch());
+        assertEquals("c2", loaded.getCommitId());
+        assertEquals(200, loaded.size());
+        assertEquals(100, paths(loaded, "even").size());
+        assertEquals(List.of("file299.txt"), paths(loaded, "value 299"));
+        assertEquals(List.of(), paths(loaded, "value 297"));
+        assertEquals(200, loaded.candidates(List.of(), null).size());
+    }
+}
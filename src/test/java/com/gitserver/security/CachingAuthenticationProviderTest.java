@@ -0,0 +1,210 @@
+package com.gitserver.security;
+
+import com.gitserver.Benchmark;
+import com.gitserver.dto.ChangePasswordRequest;
+import com.gitserver.dto.CreateUserRequest;
+import com.gitserver.repository.UserRepository;
+import com.gitserver.service.CacheInvalidationService;
+import com.gitserver.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.DisabledException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests for CachingAuthenticationProvider.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class CachingAuthenticationProviderTest {
+
+    @Autowired
+    private AuthenticationManager authenticationManager;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private CacheInvalidationService cacheInvalidationService;
+
+    private static final String TEST_USER = "cachedauthuser";
+    private static final String PASSWORD = "password123";
+
+    @BeforeEach
+    void setUp() {
+        cleanupTestData();
+        userService.createUser(CreateUserRequest.builder()
+                .username(TEST_USER)
+                .email(TEST_USER + "@test.com")
+                .password(PASSWORD)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanupTestData();
+    }
+
+    private void cleanupTestData() {
+        try {
+            userService.deleteUser(TEST_USER);
+        } catch (Exception e) {
+            // Ignore cleanup errors
+        }
+    }
+
+    private Authentication login(String password) {
+        return authenticationManager.authenticate(
+                UsernamePasswordAuthenticationToken.unauthenticated(TEST_USER, password));
+    }
+
+    @Test
+    void testRepeatedLoginIsServedFromCache() {
+        Authentication first = login(PASSWORD);
+        assertTrue(first.isAuthenticated());
+        assertEquals(TEST_USER, first.getName());
+        assertTrue(first.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_USER")));
+
+        assertSame(first, login(PASSWORD));
+        assertThrows(BadCredentialsException.class, () -> login("wrong-password"));
+    }
+
+    @Test
+    void testPasswordChangeInvalidatesCache() {
+        login(PASSWORD);
+
+        userService.changePassword(TEST_USER, ChangePasswordRequest.builder()
+                .currentPassword(PASSWORD)
+                .newPassword("new-password456")
+                .build());
+
+        assertThrows(BadCredentialsException.class, () -> login(PASSWORD));
+        assertTrue(login("new-password456").isAuthenticated());
+    }
+
+    @Test
+    void testDisableAndDeleteInvalidateCache() {
+        login(PASSWORD);
+
+        userService.setEnabled(TEST_USER, false);
+        assertThrows(DisabledException.class, () -> login(PASSWORD));
+
+        userService.setEnabled(TEST_USER, true);
+        login(PASSWORD);
+        userService.deleteUser(TEST_USER);
+        assertThrows(BadCredentialsException.class, () -> login(PASSWORD));
+    }
+
+    @Test
+    void testCredentialsVerifiedAcrossAnInvalidationAreNotCached() {
+        AtomicReference<CachingAuthenticationProvider> provider = new AtomicReference<>();
+        AtomicBoolean changeDuringLookup = new AtomicBoolean(true);
+        CustomUserDetailsService racingLookup = new CustomUserDetailsService(userRepository) {
+            @Override
+            public UserDetails loadUserByUsername(String username) {
+                UserDetails details = super.loadUserByUsername(username);
+                // The account changes after its old state was read
+                if (changeDuringLookup.getAndSet(false)) {
+                    provider.get().invalidate(username);
+                }
+                return details;
+            }
+        };
+        provider.set(new CachingAuthenticationProvider(racingLookup, passwordEncoder, cacheInvalidationService,
+                60, 100));
+        UsernamePasswordAuthenticationToken credentials =
+                UsernamePasswordAuthenticationToken.unauthenticated(TEST_USER, PASSWORD);
+
+        Authentication first = provider.get().authenticate(credentials);
+        Authentication second = provider.get().authenticate(credentials);
+        assertNotSame(first, second);
+        assertSame(second, provider.get().authenticate(credentials));
+    }
+
+    /**
+     * Measures HTTP Basic requests per second per core through the security filter chain,
+     * on as many threads as there are cores, for 5 seconds (scaled with
+     * -Dbenchmark.auth.seconds). Logins that bypass the cache are timed for comparison.
+     */
+    @Test
+    @Tag("benchmark")
+    void testAuthenticatedRequestThroughput() throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        long durationNanos = Benchmark.size("auth.seconds", 5) * 1_000_000_000L;
+        String basic = "Basic " + Base64.getEncoder().encodeToString(
+                (TEST_USER + ":" + PASSWORD).getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(get("/api/users/me").header(HttpHeaders.AUTHORIZATION, basic))
+                .andExpect(status().isOk());
+
+        ExecutorService executor = Executors.newFixedThreadPool(cores);
+        try {
+            long start = System.nanoTime();
+            List<Future<Long>> workers = new ArrayList<>();
+            for (int i = 0; i < cores; i++) {
+                workers.add(executor.submit(() -> {
+                    long requests = 0;
+                    while (System.nanoTime() - start < durationNanos) {
+                        mockMvc.perform(get("/api/users/me").header(HttpHeaders.AUTHORIZATION, basic))
+                                .andExpect(status().isOk());
+                        requests++;
+                    }
+                    return requests;
+                }));
+            }
+            long requests = 0;
+            for (Future<Long> worker : workers) {
+                requests += worker.get();
+            }
+            double perSecond = Benchmark.perSecond(requests, System.nanoTime() - start);
+            Benchmark.report("auth", "cached: %.0f requests per second on %d cores, %.0f per core",
+                    perSecond, cores, perSecond / cores);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        CachingAuthenticationProvider uncached = new CachingAuthenticationProvider(
+                new CustomUserDetailsService(userRepository), passwordEncoder, cacheInvalidationService, 0, 100);
+        int logins = 20;
+        long start = System.nanoTime();
+        for (int i = 0; i < logins; i++) {
+            uncached.authenticate(UsernamePasswordAuthenticationToken.unauthenticated(TEST_USER, PASSWORD));
+        }
+        Benchmark.report("auth", "uncached: %.0f logins per second per core",
+                Benchmark.perSecond(logins, System.nanoTime() - start));
+    }
+}
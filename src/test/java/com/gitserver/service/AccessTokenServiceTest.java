@@ -0,0 +1,182 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.*;
+import com.gitserver.entity.AccessToken.Scope;
+import com.gitserver.entity.User;
+import com.gitserver.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests for AccessTokenService.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+class AccessTokenServiceTest {
+
+    @Autowired
+    private AccessTokenService accessTokenService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private static final String TEST_USER = "tokenuser";
+
+    @BeforeEach
+    void setUp() {
+        cleanupTestData();
+        userService.createUser(CreateUserRequest.builder()
+                .username(TEST_USER)
+                .email(TEST_USER + "@test.com")
+                .password("password123")
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanupTestData();
+    }
+
+    private void cleanupTestData() {
+        try {
+            userService.deleteUser(TEST_USER);
+        } catch (Exception e) {
+            // Ignore cleanup errors
+        }
+    }
+
+    private AccessTokenResponse createToken(String name, String... scopes) {
+        return accessTokenService.createToken(TEST_USER, CreateAccessTokenRequest.builder()
+                .name(name)
+                .scopes(Set.of(scopes))
+                .expiresInDays(30)
+                .build());
+    }
+
+    @Test
+    void testCreateVerifyAndRevokeToken() {
+        AccessTokenResponse created = createToken("ci", "REPO_READ", "REPO_WRITE");
+        assertTrue(created.getToken().startsWith(AccessTokenService.TOKEN_PREFIX));
+        assertTrue(created.getToken().startsWith(created.getTokenPrefix()));
+
+        AccessTokenService.VerifiedToken verified = accessTokenService.verify(created.getToken()).orElseThrow();
+        assertEquals(TEST_USER, verified.username());
+        assertTrue(verified.hasScope(Scope.REPO_WRITE));
+        assertFalse(verified.hasScope(Scope.API));
+        assertTrue(accessTokenService.verify(created.getToken() + "x").isEmpty());
+
+        List<AccessTokenResponse> tokens = accessTokenService.getTokens(TEST_USER);
+        assertEquals(1, tokens.size());
+        assertNull(tokens.get(0).getToken());
+
+        accessTokenService.revokeToken(TEST_USER, created.getId());
+        assertTrue(accessTokenService.verify(created.getToken()).isEmpty());
+    }
+
+    @Test
+    void testLastUsedIsRecordedInBatches() {
+        AccessTokenResponse created = createToken("laptop", "API");
+        accessTokenService.verify(created.getToken());
+        assertNull(accessTokenService.getTokens(TEST_USER).get(0).getLastUsedAt());
+
+        accessTokenService.flushLastUsed();
+        assertNotNull(accessTokenService.getTokens(TEST_USER).get(0).getLastUsedAt());
+    }
+
+    @Test
+    void testDisabledUserTokensStopWorking() {
+        AccessTokenResponse created = createToken("script", "API");
+        assertTrue(accessTokenService.verify(created.getToken()).isPresent());
+
+        userService.setEnabled(TEST_USER, false);
+        assertTrue(accessTokenService.verify(created.getToken()).isEmpty());
+    }
+
+    @Test
+    void testInvalidationRacingWithVerificationHoldsAfterCommit() {
+        String token = createToken("racy", "API").getToken();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            accessTokenService.invalidateUser(TEST_USER);
+            // A verification between the invalidation and the commit caches the old account
+            assertTrue(accessTokenService.verify(token).isPresent());
+            User user = userRepository.findByUsername(TEST_USER).orElseThrow();
+            user.setEnabled(false);
+            userRepository.save(user);
+        });
+
+        assertTrue(accessTokenService.verify(token).isEmpty());
+    }
+
+    @Test
+    void testTokenCannotCreateBroaderToken() throws Exception {
+        AccessTokenResponse creator = createToken("rotator", "API");
+
+        mockMvc.perform(post("/api/users/tokens")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + creator.getToken())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"escalated\",\"scopes\":[\"API\",\"REPO_WRITE\"]}"))
+                .andExpect(status().isForbidden());
+
+        mockMvc.perform(post("/api/users/tokens")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + creator.getToken())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"rotated\",\"scopes\":[\"API\"]}"))
+                .andExpect(status().isCreated());
+        Map<String, AccessTokenResponse> tokens = accessTokenService.getTokens(TEST_USER).stream()
+                .collect(Collectors.toMap(AccessTokenResponse::getName, token -> token));
+        // Asked for no expiry, expires with the token that created it
+        assertEquals(tokens.get("rotator").getExpiresAt(), tokens.get("rotated").getExpiresAt());
+    }
+
+    @Test
+    void testTokenAuthenticatesHttpRequests() throws Exception {
+        String apiToken = createToken("api", "API").getToken();
+        String readToken = createToken("read", "REPO_READ").getToken();
+
+        mockMvc.perform(get("/api/users/me").header(HttpHeaders.AUTHORIZATION, "Bearer " + apiToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value(TEST_USER));
+
+        String basic = Base64.getEncoder().encodeToString(("anything:" + apiToken).getBytes(StandardCharsets.UTF_8));
+        mockMvc.perform(get("/api/users/me").header(HttpHeaders.AUTHORIZATION, "Basic " + basic))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value(TEST_USER));
+
+        mockMvc.perform(get("/api/users/me").header(HttpHeaders.AUTHORIZATION, "Bearer " + readToken))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/users/me").header(HttpHeaders.AUTHORIZATION, "Bearer gsp_invalid"))
+                .andExpect(status().isUnauthorized());
+    }
+}
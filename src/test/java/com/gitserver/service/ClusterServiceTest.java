@@ -0,0 +1,406 @@
+package com.gitserver.service;
+
+import com.gitserver.config.ClusterForwardingFilter;
+import com.gitserver.dto.CreateAccessTokenRequest;
+import com.gitserver.dto.CreateUserRequest;
+import com.gitserver.entity.CacheInvalidation;
+import com.gitserver.entity.ClusterNode;
+import com.gitserver.entity.GitRepository;
+import com.gitserver.entity.RepositoryPermission.PermissionLevel;
+import com.gitserver.entity.User;
+import com.gitserver.repository.AccessTokenRepository;
+import com.gitserver.repository.CacheInvalidationRepository;
+import com.gitserver.repository.ClusterNodeRepository;
+import com.gitserver.repository.GitRepositoryJpaRepository;
+import com.gitserver.repository.UserRepository;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ClusterService and the forwarding of requests to repository owners.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "git.cluster.enabled=true",
+        "git.cluster.node-id=test-node",
+        "git.cluster.secret=test-secret",
+        "git.cluster.heartbeat-interval-ms=600000"
+})
+class ClusterServiceTest {
+
+    @Autowired
+    private ClusterService clusterService;
+
+    @Autowired
+    private ClusterNodeRepository clusterNodeRepository;
+
+    @Autowired
+    private CacheInvalidationService cacheInvalidationService;
+
+    @Autowired
+    private CacheInvalidationRepository cacheInvalidationRepository;
+
+    @Autowired
+    private RepositoryResolver repositoryResolver;
+
+    @Autowired
+    private PermissionService permissionService;
+
+    @Autowired
+    private GitRepositoryJpaRepository repositoryJpaRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private AuthenticationManager authenticationManager;
+
+    @Autowired
+    private AccessTokenService accessTokenService;
+
+    @Autowired
+    private AccessTokenRepository accessTokenRepository;
+
+    @Autowired
+    private EventStreamService eventStreamService;
+
+    @Autowired
+    private ClusterForwardingFilter clusterForwardingFilter;
+
+    @LocalServerPort
+    private int port;
+
+    private static final String TEST_OWNER = "clusteruser";
+    private static final String PEER_ID = "test-peer";
+
+    private HttpServer peer;
+    private final AtomicReference<String> forwardedBy = new AtomicReference<>();
+    private final AtomicReference<String> forwardedAuthorization = new AtomicReference<>();
+    private final AtomicReference<String> forwardedAt = new AtomicReference<>();
+    private final AtomicReference<String> forwardedSignature = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // A stand-in for another node, echoing the request body
+        peer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        peer.createContext("/", exchange -> {
+            forwardedBy.set(exchange.getRequestHeaders().getFirst(ClusterForwardingFilter.FORWARDED_BY_HEADER));
+            forwardedAuthorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            forwardedAt.set(exchange.getRequestHeaders().getFirst(ClusterForwardingFilter.FORWARDED_AT_HEADER));
+            forwardedSignature.set(exchange.getRequestHeaders().getFirst(ClusterForwardingFilter.FORWARDED_SIGNATURE_HEADER));
+            byte[] body = ("peer:" + exchange.getRequestURI().getPath() + ":"
+                    + new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8))
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        peer.start();
+        clusterNodeRepository.save(ClusterNode.builder()
+                .nodeId(PEER_ID)
+                .url("http://localhost:" + peer.getAddress().getPort())
+                .startedAt(LocalDateTime.now())
+                .lastHeartbeat(LocalDateTime.now())
+                .build());
+        clusterService.refreshMembership();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clusterNodeRepository.deleteById(PEER_ID);
+        clusterService.refreshMembership();
+        peer.stop(0);
+    }
+
+    @Test
+    void testRequestsAreForwardedToOwner() throws Exception {
+        assertEquals(2, clusterService.getMembers().size());
+        String remote = repositoryName(false);
+        String local = repositoryName(true);
+
+        HttpClient client = HttpClient.newHttpClient();
+        String authorization = "Basic " + Base64.getEncoder().encodeToString("admin:admin123".getBytes(StandardCharsets.UTF_8));
+        HttpResponse<String> forwarded = client.send(HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + port + "/git/" + TEST_OWNER + "/" + remote + ".git/git-upload-pack"))
+                .header("Authorization", authorization)
+                .header("Content-Type", "application/x-git-upload-pack-request")
+                .POST(HttpRequest.BodyPublishers.ofString("0000"))
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, forwarded.statusCode());
+        assertEquals("peer:/git/" + TEST_OWNER + "/" + remote + ".git/git-upload-pack:0000", forwarded.body());
+        assertEquals("test-node", forwardedBy.get());
+        assertEquals(authorization, forwardedAuthorization.get());
+        assertTrue(clusterService.verifyForwardedRequest("test-node", forwardedAt.get(), forwardedSignature.get(),
+                "POST", "/git/" + TEST_OWNER + "/" + remote + ".git/git-upload-pack"));
+
+        // A repository this node owns is served here: it does not exist
+        HttpResponse<String> served = client.send(HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + port + "/api/repos/" + TEST_OWNER + "/" + local))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(404, served.statusCode());
+    }
+
+    @Test
+    void testForwardedRequestsMustBeSigned() throws Exception {
+        String remote = repositoryName(false);
+        String path = "/api/repos/" + TEST_OWNER + "/" + remote;
+        HttpClient client = HttpClient.newHttpClient();
+        String authorization = "Basic " + Base64.getEncoder().encodeToString("admin:admin123".getBytes(StandardCharsets.UTF_8));
+
+        // A client cannot make this node serve a repository it does not own
+        HttpResponse<String> forged = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Authorization", authorization)
+                .header(ClusterForwardingFilter.FORWARDED_BY_HEADER, PEER_ID)
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(403, forged.statusCode());
+
+        long sentAt = System.currentTimeMillis();
+        HttpResponse<String> stale = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Authorization", authorization)
+                .header(ClusterForwardingFilter.FORWARDED_BY_HEADER, "test-node")
+                .header(ClusterForwardingFilter.FORWARDED_AT_HEADER, Long.toString(sentAt - 3_600_000))
+                .header(ClusterForwardingFilter.FORWARDED_SIGNATURE_HEADER,
+                        clusterService.signForwardedRequest(sentAt - 3_600_000, "GET", path))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(403, stale.statusCode());
+
+        // A request signed by a node is served here, without forwarding it again
+        HttpResponse<String> signed = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Authorization", authorization)
+                .header(ClusterForwardingFilter.FORWARDED_BY_HEADER, "test-node")
+                .header(ClusterForwardingFilter.FORWARDED_AT_HEADER, Long.toString(sentAt))
+                .header(ClusterForwardingFilter.FORWARDED_SIGNATURE_HEADER,
+                        clusterService.signForwardedRequest(sentAt, "GET", path))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(404, signed.statusCode());
+        assertNull(forwardedBy.get());
+    }
+
+    @Test
+    void testCacheInvalidationsOfOtherNodesAreApplied() {
+        GitRepository repository = repositoryJpaRepository.save(GitRepository.builder()
+                .owner(TEST_OWNER)
+                .name("cached-repo")
+                .isPrivate(true)
+                .build());
+        try {
+            assertTrue(repositoryResolver.resolve(TEST_OWNER, "cached-repo").isPrivate());
+            assertFalse(permissionService.hasPermission(repository.getId(), "someone", PermissionLevel.READ));
+
+            // Another node makes the repository public; this node's caches still have it private
+            repository.setPrivate(false);
+            repositoryJpaRepository.save(repository);
+            assertTrue(repositoryResolver.resolve(TEST_OWNER, "cached-repo").isPrivate());
+
+            LocalDateTime now = LocalDateTime.now();
+            cacheInvalidationRepository.saveAll(List.of(
+                    CacheInvalidation.builder().nodeId(PEER_ID).cacheName("repositories")
+                            .cacheKey(TEST_OWNER + "/cached-repo").createdAt(now).build(),
+                    CacheInvalidation.builder().nodeId(PEER_ID).cacheName("acls")
+                            .cacheKey(repository.getId().toString()).createdAt(now).build()));
+            cacheInvalidationService.poll();
+
+            assertFalse(repositoryResolver.resolve(TEST_OWNER, "cached-repo").isPrivate());
+            assertTrue(permissionService.hasPermission(repository.getId(), "someone", PermissionLevel.READ));
+
+            // Invalidations made here are recorded for the other nodes
+            repositoryResolver.invalidate(TEST_OWNER, "cached-repo");
+            assertTrue(cacheInvalidationRepository.findByCreatedAtAfterAndNodeIdNotOrderById(now.minusMinutes(1), PEER_ID)
+                    .stream()
+                    .anyMatch(invalidation -> invalidation.getNodeId().equals("test-node")
+                            && invalidation.getCacheKey().equals(TEST_OWNER + "/cached-repo")));
+        } finally {
+            repositoryJpaRepository.delete(repository);
+            repositoryResolver.invalidate(TEST_OWNER, "cached-repo");
+        }
+    }
+
+    @Test
+    void testOwnerListingIsNotForwarded() throws Exception {
+        // "owner" is not a user here; pick a listing that would route to the peer as a repository
+        String owner = TEST_OWNER;
+        for (int i = 0; clusterService.isLocal("owner", owner); i++) {
+            owner = TEST_OWNER + i;
+        }
+
+        HttpResponse<String> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(
+                        URI.create("http://localhost:" + port + "/api/repos/owner/" + owner))
+                .header("Authorization", "Basic "
+                        + Base64.getEncoder().encodeToString("admin:admin123".getBytes(StandardCharsets.UTF_8)))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("[]", response.body());
+        assertNull(forwardedBy.get());
+    }
+
+    @Test
+    void testAuthCacheInvalidationsOfOtherNodesAreApplied() {
+        String username = "clusterauthuser";
+        userService.createUser(CreateUserRequest.builder()
+                .username(username)
+                .email(username + "@test.com")
+                .password("password123")
+                .build());
+        try {
+            String token = accessTokenService.createToken(username, CreateAccessTokenRequest.builder()
+                    .name("cluster")
+                    .scopes(Set.of("api"))
+                    .build()).getToken();
+            authenticationManager.authenticate(
+                    UsernamePasswordAuthenticationToken.unauthenticated(username, "password123"));
+            assertTrue(accessTokenService.verify(token).isPresent());
+
+            // Another node changes the password and revokes the token; this node still has both cached
+            User user = userRepository.findByUsername(username).orElseThrow();
+            user.setPassword(passwordEncoder.encode("changed456"));
+            userRepository.save(user);
+            accessTokenRepository.deleteAll(accessTokenRepository.findByUserIdOrderByCreatedAtDesc(user.getId()));
+            assertTrue(accessTokenService.verify(token).isPresent());
+
+            LocalDateTime now = LocalDateTime.now();
+            cacheInvalidationRepository.saveAll(List.of(
+                    CacheInvalidation.builder().nodeId(PEER_ID).cacheName("credentials")
+                            .cacheKey(username).createdAt(now).build(),
+                    CacheInvalidation.builder().nodeId(PEER_ID).cacheName("access-tokens")
+                            .cacheKey(username).createdAt(now).build()));
+            cacheInvalidationService.poll();
+
+            assertThrows(BadCredentialsException.class, () -> authenticationManager.authenticate(
+                    UsernamePasswordAuthenticationToken.unauthenticated(username, "password123")));
+            assertTrue(accessTokenService.verify(token).isEmpty());
+
+            // Changes made here are recorded for the other nodes
+            accessTokenService.invalidateUser(username);
+            assertTrue(cacheInvalidationRepository.findByCreatedAtAfterAndNodeIdNotOrderById(now.minusMinutes(1), PEER_ID)
+                    .stream()
+                    .anyMatch(invalidation -> invalidation.getNodeId().equals("test-node")
+                            && invalidation.getCacheName().equals("access-tokens")
+                            && invalidation.getCacheKey().equals(username)));
+        } finally {
+            userService.deleteUser(username);
+        }
+    }
+
+    @Test
+    void testUserEventStreamsRejected() {
+        assertThrows(IllegalStateException.class, () -> eventStreamService.subscribeToUser("admin", null));
+    }
+
+    @Test
+    void testRingSpreadsKeysAndMovesFewOnMembershipChange() {
+        List<ClusterNode> nodes = IntStream.range(0, 3)
+                .mapToObj(i -> ClusterNode.builder().nodeId("node-" + i).url("http://node-" + i).build())
+                .toList();
+        ClusterService.Ring ring = new ClusterService.Ring(nodes, 128);
+        ClusterService.Ring shrunk = new ClusterService.Ring(nodes.subList(0, 2), 128);
+
+        Map<String, Integer> counts = new HashMap<>();
+        int moved = 0;
+        for (int i = 0; i < 3000; i++) {
+            String key = "owner/repo-" + i;
+            String before = ring.nodeFor(key).getNodeId();
+            String after = shrunk.nodeFor(key).getNodeId();
+            counts.merge(before, 1, Integer::sum);
+            if (!before.equals(after)) {
+                assertEquals("node-2", before, "only keys of the removed node move");
+                moved++;
+            }
+        }
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertTrue(count > 600 && count < 1400, "uneven spread: " + counts));
+        assertEquals(counts.get("node-2"), moved);
+    }
+
+    private String repositoryName(boolean local) {
+        for (int i = 0; ; i++) {
+            String name = "repo-" + i;
+            if (clusterService.isLocal(TEST_OWNER, name) == local) {
+                return name;
+            }
+        }
+    }
+
+    @Test
+    void testBufferedCreateRequestBodyCanBeReadAsynchronously() throws Exception {
+        byte[] json = "{\"name\":\"async-read\"}".getBytes(StandardCharsets.UTF_8);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/repos");
+        request.setContent(json);
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        List<String> callbacks = new ArrayList<>();
+
+        // Not authenticated, so the request stays on this node with its buffered body
+        clusterForwardingFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest buffered, ServletResponse response)
+                    throws IOException {
+                ServletInputStream in = buffered.getInputStream();
+                in.setReadListener(new ReadListener() {
+                    @Override
+                    public void onDataAvailable() throws IOException {
+                        callbacks.add("data");
+                        byte[] chunk = new byte[8];
+                        while (in.isReady() && !in.isFinished()) {
+                            read.write(chunk, 0, in.read(chunk));
+                        }
+                    }
+
+                    @Override
+                    public void onAllDataRead() {
+                        callbacks.add("done");
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        callbacks.add("error");
+                    }
+                });
+            }
+        });
+
+        assertEquals(List.of("data", "done"), callbacks);
+        assertArrayEquals(json, read.toByteArray());
+    }
+}
@@ -0,0 +1,284 @@
+package com.gitserver.service;
+
+import com.gitserver.Await;
+import com.gitserver.Benchmark;
+import com.gitserver.dto.CodeSearchResult;
+import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.dto.FileUpdateRequest;
+import com.gitserver.entity.GitRepository;
+import com.gitserver.git.JGitService;
+import com.gitserver.repository.GitRepositoryJpaRepository;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for CodeSearchService.
+ */
+@SpringBootTest
+class CodeSearchServiceTest {
+
+    @Autowired
+    private CodeSearchService codeSearchService;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private GitRepositoryJpaRepository repositoryJpaRepository;
+
+    @Autowired
+    private JGitService jGitService;
+
+    private static final String TEST_OWNER = "testuser";
+    private static final String TEST_REPO = "codesearchtestrepo";
+    private static final String REPO_FILTER = TEST_OWNER + "/" + TEST_REPO;
+
+    @BeforeEach
+    void setUp() {
+        cleanupTestData();
+        CreateRepositoryRequest request = CreateRepositoryRequest.builder()
+                .name(TEST_REPO)
+                .description("Test repository for code search")
+                .isPrivate(true)
+                .initReadme(true)
+                .build();
+        repositoryService.createRepository(TEST_OWNER, request);
+        writeFile("src/Main.java", "class Main {\n    void handleRequest() {}\n}\n");
+        writeFile("src/Util.java", "class Util {\n    int parseCount(String s) { return 0; }\n}\n");
+        writeFile("docs/notes.md", "Remember to handle the request queue\n");
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanupTestData();
+    }
+
+    private void cleanupTestData() {
+        try {
+            if (repositoryService.repositoryExists(TEST_OWNER, TEST_REPO)) {
+                repositoryService.deleteRepository(TEST_OWNER, TEST_REPO);
+            }
+        } catch (Exception e) {
+            // Ignore cleanup errors
+        }
+    }
+
+    private void writeFile(String path, String content) {
+        FileUpdateRequest request = FileUpdateRequest.builder()
+                .path(path)
+                .content(content)
+                .message("Update " + path)
+                .branch("main")
+                .build();
+        fileService.createOrUpdateFile(TEST_OWNER, TEST_REPO, request, TEST_OWNER, "test@gitserver.local");
+    }
+
+    private List<CodeSearchResult> search(String query, boolean regex, String path) {
+        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(TEST_OWNER, TEST_REPO).orElseThrow();
+        codeSearchService.updateIndex(repository);
+        return codeSearchService.search(query, regex, REPO_FILTER, path, 50, TEST_OWNER);
+    }
+
+    @Test
+    void testLiteralSearchIsCaseInsensitive() {
+        List<CodeSearchResult> results = search("HANDLEREQUEST", false, null);
+
+        assertEquals(1, results.size());
+        assertEquals("src/Main.java", results.get(0).getPath());
+        assertEquals(2, results.get(0).getMatches().get(0).getLineNumber());
+    }
+
+    @Test
+    void testRegexSearchWithPathFilter() {
+        assertEquals(2, search("handle.*[Rr]equest", true, null).size());
+
+        List<CodeSearchResult> results = search("handle.*[Rr]equest", true, "docs/");
+        assertEquals(1, results.size());
+        assertEquals("docs/notes.md", results.get(0).getPath());
+    }
+
+    @Test
+    void testRegexEscapesAreNotRequiredAsLiteralText() {
+        assertEquals(1, search("parse\\x43ount", true, null).size());
+        assertEquals(1, search("parse\\x{43}ount", true, null).size());
+        assertEquals(1, search("parse\\u0043ount", true, null).size());
+        assertEquals(1, search("parse\\0103ount", true, null).size());
+        assertEquals(1, search("(?<first>p)arse\\k<first>?Count", true, null).size());
+        assertEquals(1, search("parse\\p{Lu}ount", true, null).size());
+    }
+
+    @Test
+    void testIndexFollowsChanges() {
+        assertEquals(1, search("parseCount", false, null).size());
+
+        writeFile("src/Util.java", "class Util {\n    int countItems() { return 0; }\n}\n");
+
+        assertTrue(search("parseCount", false, null).isEmpty());
+        assertEquals(1, search("countItems", false, null).size());
+    }
+
+    @Test
+    void testPrivateRepositoryHiddenFromOtherUsers() {
+        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(TEST_OWNER, TEST_REPO).orElseThrow();
+        codeSearchService.updateIndex(repository);
+
+        assertTrue(codeSearchService.search("handleRequest", false, REPO_FILTER, null, 50, null).isEmpty());
+        assertTrue(codeSearchService.search("handleRequest", false, REPO_FILTER, null, 50, "stranger").isEmpty());
+    }
+
+    @Test
+    void testIndexRebuiltAfterForcePushRemovesIndexedCommit() throws Exception {
+        assertEquals(1, search("request queue", false, null).size());
+
+        // Force main back before the last commit and drop that commit, as gc would
+        Path gitDir = jGitService.getGitDirectory(jGitService.getRepositoryPath(TEST_OWNER, TEST_REPO));
+        ObjectId dropped;
+        try (Repository repository = Git.open(gitDir.toFile()).getRepository();
+             RevWalk revWalk = new RevWalk(repository)) {
+            RevCommit head = revWalk.parseCommit(repository.resolve("refs/heads/main"));
+            RefUpdate update = repository.updateRef("refs/heads/main");
+            update.setNewObjectId(head.getParent(0));
+            update.setForceUpdate(true);
+            assertEquals(RefUpdate.Result.FORCED, update.update());
+            dropped = head.getId();
+        }
+        String name = dropped.getName();
+        assertTrue(Files.deleteIfExists(gitDir.resolve("objects").resolve(name.substring(0, 2)).resolve(name.substring(2))));
+        try (Repository repository = Git.open(gitDir.toFile()).getRepository()) {
+            assertFalse(repository.getObjectDatabase().has(dropped));
+        }
+
+        assertTrue(search("request queue", false, null).isEmpty());
+        assertEquals(1, search("parseCount", false, null).size());
+    }
+
+    @Test
+    void testRepositorySkippedUntilIndexBuiltInBackground() throws Exception {
+        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(TEST_OWNER, TEST_REPO).orElseThrow();
+        codeSearchService.deleteIndex(repository.getId());
+
+        assertTrue(codeSearchService.search("handleRequest", false, REPO_FILTER, null, 50, TEST_OWNER).isEmpty());
+        Await.until("index was not built", () ->
+                codeSearchService.search("handleRequest", false, REPO_FILTER, null, 50, TEST_OWNER).size() == 1);
+    }
+
+    /**
+     * Indexes a generated corpus of Java-like files, 1 GB unless scaled with
+     * -Dbenchmark.code-search.mb, then times literal and regex queries over it.
+     */
+    @Test
+    @Tag("benchmark")
+    void testSearchOverGeneratedCorpus() throws Exception {
+        long corpusBytes = Benchmark.size("code-search.mb", 1024) << 20;
+        int fileSize = 16 * 1024;
+        int needleEvery = 1000;
+        Random random = new Random(42);
+        String[] words = new String[5000];
+        for (int i = 0; i < words.length; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int length = 4 + random.nextInt(9); word.length() < length; ) {
+                word.append((char) ('a' + random.nextInt(26)));
+            }
+            words[i] = word.toString();
+        }
+
+        Path gitDir = jGitService.getGitDirectory(jGitService.getRepositoryPath(TEST_OWNER, TEST_REPO));
+        long generateStart = System.nanoTime();
+        int files = 0;
+        try (Repository repository = Git.open(gitDir.toFile()).getRepository();
+             ObjectInserter inserter = repository.newObjectInserter()) {
+            DirCache tree = DirCache.newInCore();
+            DirCacheBuilder builder = tree.builder();
+            for (long written = 0; written < corpusBytes; written += fileSize, files++) {
+                StringBuilder content = new StringBuilder("class File" + files + " {\n");
+                if (files % needleEvery == 0) {
+                    content.append("    void plantedNeedle").append(files).append("() {}\n");
+                }
+                while (content.length() < fileSize) {
+                    content.append("    int ").append(words[random.nextInt(words.length)])
+                            .append(" = ").append(words[random.nextInt(words.length)])
+                            .append('(').append(words[random.nextInt(words.length)])
+                            .append(", ").append(random.nextInt(1000)).append(");\n");
+                }
+                content.append("}\n");
+                DirCacheEntry entry = new DirCacheEntry(String.format("gen/%03d/File%d.java", files % 256, files));
+                entry.setFileMode(FileMode.REGULAR_FILE);
+                entry.setObjectId(inserter.insert(Constants.OBJ_BLOB, content.toString().getBytes(StandardCharsets.UTF_8)));
+                builder.add(entry);
+            }
+            builder.finish();
+
+            PersonIdent author = new PersonIdent("Benchmark", "benchmark@gitserver.local");
+            CommitBuilder commit = new CommitBuilder();
+            commit.setTreeId(tree.writeTree(inserter));
+            commit.setParentId(repository.resolve("refs/heads/main"));
+            commit.setAuthor(author);
+            commit.setCommitter(author);
+            commit.setMessage("Generated corpus");
+            ObjectId commitId = inserter.insert(commit);
+            inserter.flush();
+            RefUpdate update = repository.updateRef("refs/heads/main");
+            update.setNewObjectId(commitId);
+            assertEquals(RefUpdate.Result.FAST_FORWARD, update.update());
+        }
+        Benchmark.report("code-search", "generated %d files, %d MB in %d ms",
+                files, corpusBytes >> 20, (System.nanoTime() - generateStart) / 1_000_000);
+
+        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(TEST_OWNER, TEST_REPO).orElseThrow();
+        long indexStart = System.nanoTime();
+        codeSearchService.updateIndex(repository);
+        long indexNanos = System.nanoTime() - indexStart;
+        Benchmark.report("code-search", "indexed in %d ms, %.1f MB/s", indexNanos / 1_000_000,
+                Benchmark.perSecond(corpusBytes >> 20, indexNanos));
+
+        int needle = (files - 1) / needleEvery * needleEvery;
+        List<String[]> queries = List.of(
+                new String[] {"literal, one file", "plantedNeedle" + needle + "(", "false"},
+                new String[] {"literal, common word", words[0], "false"},
+                new String[] {"regex, one file", "planted[A-Z]eedle" + needle + "\\(", "true"},
+                new String[] {"regex, common prefix", words[1] + " = [a-z]+\\(", "true"});
+        for (String[] query : queries) {
+            boolean regex = Boolean.parseBoolean(query[2]);
+            List<CodeSearchResult> results = codeSearchService.search(query[1], regex, REPO_FILTER, null, 50, TEST_OWNER);
+            assertFalse(results.isEmpty(), query[0]);
+            int runs = 20;
+            long start = System.nanoTime();
+            for (int i = 0; i < runs; i++) {
+                codeSearchService.search(query[1], regex, REPO_FILTER, null, 50, TEST_OWNER);
+            }
+            Benchmark.report("code-search", "%s: %.2f ms per query, %d results",
+                    query[0], (System.nanoTime() - start) / 1e6 / runs, results.size());
+        }
+        assertEquals(1, codeSearchService.search("plantedNeedle" + needle + "(", false, REPO_FILTER, null, 50,
+                TEST_OWNER).size());
+    }
+}
@@ -0,0 +1,145 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.CommitSearchResponse;
+import com.gitserver.dto.CreateBranchRequest;
+import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.dto.FileUpdateRequest;
+import com.gitserver.entity.GitRepository;
+import com.gitserver.repository.GitRepositoryJpaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for CommitSearchService.
+ */
+@SpringBootTest
+class CommitSearchServiceTest {
+
+    @Autowired
+    private CommitSearchService commitSearchService;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private BranchService branchService;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private GitRepositoryJpaRepository repositoryJpaRepository;
+
+    private static final String TEST_OWNER = "testuser";
+    private static final String TEST_REPO = "commitsearchtestrepo";
+
+    @BeforeEach
+    void setUp() {
+        cleanupTestData();
+        CreateRepositoryRequest request = CreateRepositoryRequest.builder()
+                .name(TEST_REPO)
+                .description("Test repository for commit search")
+                .isPrivate(false)
+                .initReadme(true)
+                .build();
+        repositoryService.createRepository(TEST_OWNER, request);
+        commit("main", "a.txt", "Fix login redirect\n\nRefs PROJ-101", "alice", "alice@example.com");
+        commit("main", "b.txt", "Add login page", "bob", "bob@example.com");
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanupTestData();
+    }
+
+    private void cleanupTestData() {
+        try {
+            if (repositoryService.repositoryExists(TEST_OWNER, TEST_REPO)) {
+                repositoryService.deleteRepository(TEST_OWNER, TEST_REPO);
+            }
+        } catch (Exception e) {
+            // Ignore cleanup errors
+        }
+    }
+
+    private void commit(String branch, String path, String message, String author, String email) {
+        FileUpdateRequest request = FileUpdateRequest.builder()
+                .path(path)
+                .content(message)
+                .message(message)
+                .branch(branch)
+                .build();
+        fileService.createOrUpdateFile(TEST_OWNER, TEST_REPO, request, author, email);
+    }
+
+    private CommitSearchResponse search(String query) {
+        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(TEST_OWNER, TEST_REPO).orElseThrow();
+        commitSearchService.updateIndex(repository);
+        return commitSearchService.search(TEST_OWNER, TEST_REPO, query, 0, 10).orElseThrow();
+    }
+
+    @Test
+    void testSearchByTicketKeyAndAuthor() {
+        CommitSearchResponse byTicket = search("proj-101");
+        assertEquals(1, byTicket.getTotalCount());
+        assertEquals("Fix login redirect", byTicket.getItems().get(0).getSummary());
+
+        CommitSearchResponse byAuthor = search("login bob@example.com");
+        assertEquals(1, byAuthor.getTotalCount());
+        assertEquals("bob", byAuthor.getItems().get(0).getAuthor());
+
+        assertEquals(2, search("LOGIN").getTotalCount());
+        assertEquals(0, search("logout").getTotalCount());
+    }
+
+    @Test
+    void testLongCompoundsStillSplitIntoWords() {
+        String path = "src/main/java/com/example/billing/invoices/export/InvoiceCsvExporter.java";
+        commit("main", "c.txt", "Speed up " + path, "carol", "carol@example.com");
+
+        assertEquals(1, search("InvoiceCsvExporter").getTotalCount());
+        assertEquals(1, search(path).getTotalCount());
+    }
+
+    @Test
+    void testIndexExtendedWithNewBranches() {
+        assertEquals(2, search("login").getTotalCount());
+
+        branchService.createBranch(TEST_OWNER, TEST_REPO, CreateBranchRequest.builder()
+                .name("feature")
+                .source("main")
+                .build());
+        commit("feature", "c.txt", "Login throttling", "carol", "carol@example.com");
+
+        CommitSearchResponse response = search("login");
+        assertEquals(3, response.getTotalCount());
+    }
+
+    @Test
+    void testIndexRebuiltWhenCommitsBecomeUnreachable() {
+        branchService.createBranch(TEST_OWNER, TEST_REPO, CreateBranchRequest.builder()
+                .name("feature")
+                .source("main")
+                .build());
+        commit("feature", "c.txt", "Login throttling", "carol", "carol@example.com");
+        assertEquals(3, search("login").getTotalCount());
+
+        branchService.deleteBranch(TEST_OWNER, TEST_REPO, "feature");
+
+        assertEquals(2, search("login").getTotalCount());
+        assertEquals(0, search("carol").getTotalCount());
+    }
+
+    @Test
+    void testSearchReturnsEmptyUntilIndexBuilt() {
+        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(TEST_OWNER, TEST_REPO).orElseThrow();
+        commitSearchService.deleteIndex(repository.getId());
+
+        assertTrue(commitSearchService.search(TEST_OWNER, TEST_REPO, "login", 0, 10).isEmpty());
+    }
+}
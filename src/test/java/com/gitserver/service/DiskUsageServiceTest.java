@@ -0,0 +1,130 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.dto.FileUpdateRequest;
+import com.gitserver.entity.GitRepository;
+import com.gitserver.exception.RepositoryQuotaExceededException;
+import com.gitserver.git.JGitService;
+import com.gitserver.repository.GitRepositoryJpaRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for DiskUsageService.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:disk-usage-test;DB_CLOSE_DELAY=-1",
+        "git.repositories.quota-bytes=1000000"
+})
+class DiskUsageServiceTest {
+
+    private static final long QUOTA = 1_000_000;
+
+    @TempDir
+    static Path repositoriesDir;
+
+    @DynamicPropertySource
+    static void repositoryProperties(DynamicPropertyRegistry registry) {
+        registry.add("git.repositories.base-path", () -> repositoriesDir.toString());
+    }
+
+    @Autowired
+    private DiskUsageService diskUsageService;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private JGitService jGitService;
+
+    @Autowired
+    private GitRepositoryJpaRepository repositoryJpaRepository;
+
+    private static final String TEST_OWNER = "diskuser";
+    private static final String TEST_REPO = "measured-repo";
+
+    @BeforeEach
+    void setUp() {
+        cleanupTestRepo();
+        repositoryService.createRepository(TEST_OWNER, CreateRepositoryRequest.builder()
+                .name(TEST_REPO)
+                .initReadme(true)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanupTestRepo();
+    }
+
+    private void cleanupTestRepo() {
+        try {
+            if (repositoryService.repositoryExists(TEST_OWNER, TEST_REPO)) {
+                repositoryService.deleteRepository(TEST_OWNER, TEST_REPO);
+            }
+        } catch (Exception e) {
+            // Ignore cleanup errors
+        }
+    }
+
+    @Test
+    void testUnmeasuredRepositoryIsScannedForQuota() {
+        setTrackedUsage(null);
+
+        long actual = jGitService.getRepositorySize(TEST_OWNER, TEST_REPO);
+        assertTrue(actual > 0);
+        assertEquals(QUOTA - actual, diskUsageService.getRemainingQuota(TEST_OWNER, TEST_REPO));
+        assertEquals(actual, trackedUsage());
+    }
+
+    @Test
+    void testReconcileCorrectsDrift() {
+        setTrackedUsage(1L);
+
+        diskUsageService.reconcileAll();
+
+        assertEquals(jGitService.getRepositorySize(TEST_OWNER, TEST_REPO), trackedUsage());
+    }
+
+    @Test
+    void testCommitsAreTrackedAndQuotaEnforced() {
+        diskUsageService.recalculate(TEST_OWNER, TEST_REPO);
+        long before = trackedUsage();
+
+        fileService.createOrUpdateFile(TEST_OWNER, TEST_REPO, FileUpdateRequest.builder()
+                .path("notes.txt")
+                .content("Some notes")
+                .message("Add notes")
+                .branch("main")
+                .build(), "Disk User", "disk@example.com");
+        assertTrue(trackedUsage() > before);
+
+        setTrackedUsage(QUOTA);
+        assertEquals(0, diskUsageService.getRemainingQuota(TEST_OWNER, TEST_REPO));
+        assertThrows(RepositoryQuotaExceededException.class,
+                () -> diskUsageService.checkQuota(TEST_OWNER, TEST_REPO));
+    }
+
+    private void setTrackedUsage(Long diskUsage) {
+        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(TEST_OWNER, TEST_REPO).orElseThrow();
+        repository.setDiskUsage(diskUsage);
+        repositoryJpaRepository.save(repository);
+    }
+
+    private long trackedUsage() {
+        return repositoryJpaRepository.findByOwnerAndName(TEST_OWNER, TEST_REPO).orElseThrow().getDiskUsage();
+    }
+}
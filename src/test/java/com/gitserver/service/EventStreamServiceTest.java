@@ -0,0 +1,223 @@
+package com.gitserver.service;
+
+import com.gitserver.Await;
+import com.gitserver.dto.CreateIssueRequest;
+import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.entity.EventIdCounter;
+import com.gitserver.git.JGitService;
+import com.gitserver.repository.EventIdCounterRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for EventStreamService, through the server-sent event endpoint.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "git.events.buffer-size=4",
+        "git.events.flush-interval-ms=600000"
+})
+class EventStreamServiceTest {
+
+    @Autowired
+    private EventStreamService eventStreamService;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private IssueService issueService;
+
+    @Autowired
+    private JGitService jGitService;
+
+    @Autowired
+    private EventIdCounterRepository counterRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @LocalServerPort
+    private int port;
+
+    // The default admin, so the stream can authenticate
+    private static final String TEST_OWNER = "admin";
+    private static final String TEST_REPO = "events-repo";
+
+    /** One server-sent event */
+    private record Event(long id, String type, String data) {
+    }
+
+    @BeforeEach
+    void setUp() {
+        cleanupTestRepo();
+        repositoryService.createRepository(TEST_OWNER, CreateRepositoryRequest.builder()
+                .name(TEST_REPO)
+                .initReadme(true)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanupTestRepo();
+    }
+
+    private void cleanupTestRepo() {
+        try {
+            if (repositoryService.repositoryExists(TEST_OWNER, TEST_REPO)) {
+                repositoryService.deleteRepository(TEST_OWNER, TEST_REPO);
+            }
+        } catch (Exception e) {
+            // Ignore cleanup errors
+        }
+    }
+
+    @Test
+    void testStreamDeliversEventsAndResumes() throws Exception {
+        List<Event> live;
+        try (EventReader reader = open("/api/repos/" + TEST_OWNER + "/" + TEST_REPO + "/events", null)) {
+            awaitSubscribers(1);
+            jGitService.createBranch(TEST_OWNER, TEST_REPO, "feature-a", "main");
+            issueService.createIssue(TEST_OWNER, TEST_REPO, TEST_OWNER, CreateIssueRequest.builder()
+                    .title("Streamed issue")
+                    .build());
+            live = reader.read(3);
+        }
+        assertEquals(List.of("push", "branch.created", "issue"), live.stream().map(Event::type).toList());
+        assertTrue(live.get(1).data().contains("\"branch\":\"feature-a\""));
+        assertTrue(live.get(2).data().contains("\"title\":\"Streamed issue\""));
+        assertTrue(live.get(0).id() < live.get(1).id() && live.get(1).id() < live.get(2).id());
+        awaitSubscribers(0);
+
+        // Missed while disconnected: 6 events, more than the ring buffer keeps
+        for (String branch : List.of("feature-b", "feature-c", "feature-d")) {
+            jGitService.createBranch(TEST_OWNER, TEST_REPO, branch, "main");
+        }
+        eventStreamService.flush();
+
+        List<Event> missed;
+        try (EventReader reader = open("/api/repos/" + TEST_OWNER + "/" + TEST_REPO + "/events", live.get(2).id())) {
+            missed = reader.read(6);
+        }
+        assertEquals(List.of("push", "branch.created", "push", "branch.created", "push", "branch.created"),
+                missed.stream().map(Event::type).toList());
+        assertTrue(missed.get(5).data().contains("feature-d"));
+        for (int i = 1; i < missed.size(); i++) {
+            assertTrue(missed.get(i - 1).id() < missed.get(i).id());
+        }
+    }
+
+    @Test
+    void testUserStreamCoversOwnedRepositories() throws Exception {
+        try (EventReader reader = open("/api/events", null)) {
+            awaitSubscribers(1);
+            jGitService.createBranch(TEST_OWNER, TEST_REPO, "short-lived", "main");
+            jGitService.deleteBranch(TEST_OWNER, TEST_REPO, "short-lived");
+            Event event = reader.read(3).get(2);
+            assertEquals("branch.deleted", event.type());
+            assertTrue(event.data().contains("\"repository\":\"" + TEST_OWNER + "/" + TEST_REPO + "\""));
+        }
+    }
+
+    @Test
+    void testEventIdsContinueAboveIdsReservedByOtherNodes() throws Exception {
+        // Another node, e.g. the previous owner of the repository, reserved ids well ahead of this one
+        long reserved = System.currentTimeMillis() * 1000 + 1_000_000_000L;
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            if (counterRepository.advance(1, reserved, 1000) == 0) {
+                counterRepository.saveAndFlush(new EventIdCounter(1, reserved + 1000));
+            }
+        });
+        // Let the block this node holds expire
+        Thread.sleep(1100);
+
+        try (EventReader reader = open("/api/repos/" + TEST_OWNER + "/" + TEST_REPO + "/events", null)) {
+            awaitSubscribers(1);
+            jGitService.createBranch(TEST_OWNER, TEST_REPO, "after-move", "main");
+            for (Event event : reader.read(2)) {
+                assertTrue(event.id() >= reserved + 1000, "id " + event.id() + " reused a reserved block");
+            }
+        }
+    }
+
+    private void awaitSubscribers(int count) throws InterruptedException {
+        Await.until("Subscriber count did not reach " + count, () -> {
+            // Closed connections are noticed on the next write
+            eventStreamService.keepAlive();
+            return eventStreamService.getSubscriberCount() == count;
+        });
+    }
+
+    private EventReader open(String path, Long lastEventId) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Authorization", "Basic " + Base64.getEncoder()
+                        .encodeToString("admin:admin123".getBytes(StandardCharsets.UTF_8)))
+                .header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", Long.toString(lastEventId));
+        }
+        HttpResponse<InputStream> response = HttpClient.newHttpClient()
+                .sendAsync(request.build(), HttpResponse.BodyHandlers.ofInputStream())
+                .get(10, TimeUnit.SECONDS);
+        assertEquals(200, response.statusCode());
+        return new EventReader(response.body());
+    }
+
+    private static class EventReader implements AutoCloseable {
+
+        private final InputStream body;
+        private final BufferedReader reader;
+
+        EventReader(InputStream body) {
+            this.body = body;
+            this.reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        }
+
+        List<Event> read(int count) throws Exception {
+            List<Event> events = new ArrayList<>();
+            Long id = null;
+            String type = null;
+            String data = null;
+            while (events.size() < count) {
+                String line = reader.readLine();
+                assertNotNull(line, "Stream ended");
+                if (line.startsWith("id:")) {
+                    id = Long.parseLong(line.substring(3).trim());
+                } else if (line.startsWith("event:")) {
+                    type = line.substring(6).trim();
+                } else if (line.startsWith("data:")) {
+                    data = line.substring(5);
+                } else if (line.isEmpty() && id != null) {
+                    events.add(new Event(id, type, data));
+                    id = null;
+                }
+            }
+            return events;
+        }
+
+        @Override
+        public void close() throws Exception {
+            body.close();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.*;
+import com.gitserver.entity.ContributorStatsState;
+import com.gitserver.entity.GitRepository;
+import com.gitserver.entity.Issue;
+import com.gitserver.entity.RepositoryInsightsSnapshot;
+import com.gitserver.repository.ContributorStatsStateRepository;
+import com.gitserver.repository.GitRepositoryJpaRepository;
+import com.gitserver.repository.IssueRepository;
+import com.gitserver.repository.RepositoryInsightsSnapshotRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for InsightsService.
+ */
+@SpringBootTest
+class InsightsServiceTest {
+
+    @Autowired
+    private InsightsService insightsService;
+
+    @Autowired
+    private InsightsIndexService insightsIndexService;
+
+    @Autowired
+    private ContributorStatsService contributorStatsService;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private IssueService issueService;
+
+    @Autowired
+    private GitRepositoryJpaRepository repositoryJpaRepository;
+
+    @Autowired
+    private IssueRepository issueRepository;
+
+    @Autowired
+    private RepositoryInsightsSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private ContributorStatsStateRepository contributorStatsStateRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private static final String TEST_OWNER = "testuser";
+    private static final String TEST_REPO = "insightstestrepo";
+
+    @BeforeEach
+    void setUp() {
+        cleanupTestData();
+        CreateRepositoryRequest request = CreateRepositoryRequest.builder()
+                .name(TEST_REPO)
+                .description("Test repository for insights")
+                .isPrivate(false)
+                .initReadme(true)
+                .build();
+        repositoryService.createRepository(TEST_OWNER, request);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanupTestData();
+    }
+
+    private void cleanupTestData() {
+        try {
+            repositoryJpaRepository.findByOwnerAndName(TEST_OWNER, TEST_REPO)
+                    .ifPresent(repo -> {
+                        List<Issue> issues = issueRepository.findByRepositoryIdOrderByCreatedAtDesc(repo.getId());
+                        issueRepository.deleteAll(issues);
+                    });
+
+            if (repositoryService.repositoryExists(TEST_OWNER, TEST_REPO)) {
+                repositoryService.deleteRepository(TEST_OWNER, TEST_REPO);
+            }
+        } catch (Exception e) {
+            // Ignore cleanup errors
+        }
+    }
+
+    @Test
+    void testInsightsForNewRepository() {
+        RepositoryInsights insights = insightsService.getRepositoryInsights(TEST_OWNER, TEST_REPO);
+
+        assertEquals(1, insights.getTotalCommits());
+        assertEquals(1, insights.getTotalBranches());
+        assertEquals(1, insights.getTotalContributors());
+        assertEquals(1, insights.getCommitsLastWeek());
+        assertTrue(insights.getRepositorySize() > 0);
+    }
+
+    @Test
+    void testInsightsUpdatedIncrementally() {
+        for (int i = 1; i <= 3; i++) {
+            FileUpdateRequest request = FileUpdateRequest.builder()
+                    .path("file" + i + ".txt")
+                    .content("content " + i)
+                    .message("Add file " + i)
+                    .branch("main")
+                    .build();
+            fileService.createOrUpdateFile(TEST_OWNER, TEST_REPO, request, "tester", "tester@gitserver.local");
+        }
+        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(TEST_OWNER, TEST_REPO).orElseThrow();
+        insightsIndexService.refreshCommitStatistics(repository);
+
+        RepositoryInsights insights = insightsService.getRepositoryInsights(TEST_OWNER, TEST_REPO);
+
+        assertEquals(4, insights.getTotalCommits());
+        assertEquals(2, insights.getTotalContributors());
+        assertEquals(4, insights.getCommitsLastMonth());
+    }
+
+    @Test
+    void testConcurrentFirstRefreshUsesExistingSnapshot() throws Exception {
+        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(TEST_OWNER, TEST_REPO).orElseThrow();
+        insightsIndexService.deleteStatistics(repository.getId());
+
+        // Another refresh inserts the snapshot and commits while this one is inserting it too
+        CountDownLatch inserted = new CountDownLatch(1);
+        CompletableFuture<Void> other = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    snapshotRepository.saveAndFlush(RepositoryInsightsSnapshot.builder()
+                            .repositoryId(repository.getId())
+                            .build());
+                    inserted.countDown();
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        assertTrue(inserted.await(10, TimeUnit.SECONDS));
+
+        insightsIndexService.refreshCommitStatistics(repository);
+        other.get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, insightsService.getRepositoryInsights(TEST_OWNER, TEST_REPO).getTotalCommits());
+    }
+
+    @Test
+    void testIssueCountsMaintainedOnWrite() {
+        IssueResponse first = issueService.createIssue(TEST_OWNER, TEST_REPO, TEST_OWNER,
+                CreateIssueRequest.builder().title("First").build());
+        issueService.createIssue(TEST_OWNER, TEST_REPO, TEST_OWNER,
+                CreateIssueRequest.builder().title("Second").build());
+        issueService.closeIssue(TEST_OWNER, TEST_REPO, first.getIssueNumber());
+
+        RepositoryInsights insights = insightsService.getRepositoryInsights(TEST_OWNER, TEST_REPO);
+
+        assertEquals(1, insights.getOpenIssues());
+        assertEquals(1, insights.getClosedIssues());
+    }
+
+    @Test
+    void testContributorStats() {
+        FileUpdateRequest request = FileUpdateRequest.builder()
+                .path("notes.txt")
+                .content("one\ntwo\nthree\n")
+                .message("Add notes")
+                .branch("main")
+                .build();
+        fileService.createOrUpdateFile(TEST_OWNER, TEST_REPO, request, "tester", "tester@gitserver.local");
+        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(TEST_OWNER, TEST_REPO).orElseThrow();
+        contributorStatsService.refresh(repository);
+
+        List<ContributorStats> stats = insightsService.getContributorStats(TEST_OWNER, TEST_REPO).orElseThrow();
+
+        ContributorStats tester = stats.stream()
+                .filter(s -> s.getAuthor().equals("tester"))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1, tester.getTotalCommits());
+        assertEquals(3, tester.getTotalAdditions());
+        assertEquals(0, tester.getTotalDeletions());
+        assertEquals(1, tester.getWeeks().size());
+    }
+
+    @Test
+    void testConcurrentFirstContributorStatsRefreshUsesExistingState() throws Exception {
+        GitRepository repository = repositoryJpaRepository.findByOwnerAndName(TEST_OWNER, TEST_REPO).orElseThrow();
+        contributorStatsService.deleteStatistics(repository.getId());
+
+        // Another refresh inserts the state row and commits while this one is inserting it too
+        CountDownLatch inserted = new CountDownLatch(1);
+        CompletableFuture<Void> other = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    contributorStatsStateRepository.saveAndFlush(ContributorStatsState.builder()
+                            .repositoryId(repository.getId())
+                            .build());
+                    inserted.countDown();
+                    try {
+                        Thread.sleep(200);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        assertTrue(inserted.await(10, TimeUnit.SECONDS));
+
+        contributorStatsService.refresh(repository);
+        other.get(10, TimeUnit.SECONDS);
+
+        List<ContributorStats> stats = insightsService.getContributorStats(TEST_OWNER, TEST_REPO).orElseThrow();
+        assertEquals(1, stats.stream().mapToLong(ContributorStats::getTotalCommits).sum());
+    }
+
+    @Test
+    void testTreeStatsCountFilesRecursively() {
+        String[] paths = {"src/main/App.java", "src/main/Util.java", "docs/guide.md"};
+        for (String path : paths) {
+            FileUpdateRequest request = FileUpdateRequest.builder()
+                    .path(path)
+                    .content("content of " + path)
+                    .message("Add " + path)
+                    .branch("main")
+                    .build();
+            fileService.createOrUpdateFile(TEST_OWNER, TEST_REPO, request, "tester", "tester@gitserver.local");
+        }
+
+        TreeStats stats = insightsService.getTreeStats(TEST_OWNER, TEST_REPO, "main");
+
+        assertEquals(4, stats.getFileCount());
+        assertEquals(2L, stats.getExtensionCounts().get("java"));
+        assertEquals(2L, stats.getExtensionCounts().get("md"));
+        assertTrue(stats.getTotalSize() > 0);
+        assertEquals(4, insightsService.getRepositoryInsights(TEST_OWNER, TEST_REPO).getTotalFiles());
+    }
+}
@@ -0,0 +1,162 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.*;
+import com.gitserver.entity.Issue;
+import com.gitserver.entity.PullRequest;
+import com.gitserver.git.JGitService;
+import com.gitserver.repository.GitRepositoryJpaRepository;
+import com.gitserver.repository.IssueRepository;
+import com.gitserver.repository.PullRequestRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for IssueNumberService.
+ */
+@SpringBootTest
+class IssueNumberServiceTest {
+
+    @Autowired
+    private IssueNumberService issueNumberService;
+
+    @Autowired
+    private IssueService issueService;
+
+    @Autowired
+    private PullRequestService pullRequestService;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private JGitService jGitService;
+
+    @Autowired
+    private GitRepositoryJpaRepository repositoryJpaRepository;
+
+    @Autowired
+    private IssueRepository issueRepository;
+
+    @Autowired
+    private PullRequestRepository pullRequestRepository;
+
+    private static final String TEST_OWNER = "testuser";
+    private static final String TEST_REPO = "issuenumbertestrepo";
+
+    private Long repositoryId;
+
+    @BeforeEach
+    void setUp() {
+        cleanupTestData();
+        CreateRepositoryRequest request = CreateRepositoryRequest.builder()
+                .name(TEST_REPO)
+                .description("Test repository for issue numbers")
+                .isPrivate(false)
+                .initReadme(true)
+                .build();
+        repositoryId = repositoryService.createRepository(TEST_OWNER, request).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanupTestData();
+    }
+
+    private void cleanupTestData() {
+        try {
+            repositoryJpaRepository.findByOwnerAndName(TEST_OWNER, TEST_REPO)
+                    .ifPresent(repo -> {
+                        List<Issue> issues = issueRepository.findByRepositoryIdOrderByCreatedAtDesc(repo.getId());
+                        issueRepository.deleteAll(issues);
+                        List<PullRequest> pullRequests = pullRequestRepository.findByRepositoryIdOrderByCreatedAtDesc(repo.getId());
+                        pullRequestRepository.deleteAll(pullRequests);
+                    });
+
+            if (repositoryService.repositoryExists(TEST_OWNER, TEST_REPO)) {
+                repositoryService.deleteRepository(TEST_OWNER, TEST_REPO);
+            }
+        } catch (Exception e) {
+            // Ignore cleanup errors
+        }
+    }
+
+    @Test
+    void testConcurrentAllocationsAreUniqueAndDense() throws Exception {
+        int threads = 16;
+        int perThread = 250;
+        Set<Integer> numbers = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        assertTrue(numbers.add(issueNumberService.nextNumber(repositoryId)));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * perThread, numbers.size());
+        assertEquals(1, Collections.min(numbers));
+        assertEquals(threads * perThread, Collections.max(numbers));
+    }
+
+    @Test
+    void testIssuesAndPullRequestsShareSequence() throws Exception {
+        jGitService.createBranch(TEST_OWNER, TEST_REPO, "feature", "main");
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int n = t;
+                futures.add(executor.submit(() -> issueService.createIssue(TEST_OWNER, TEST_REPO, TEST_OWNER,
+                        CreateIssueRequest.builder().title("Issue " + n).build()).getIssueNumber()));
+            }
+            Set<Integer> numbers = new HashSet<>();
+            for (Future<Integer> future : futures) {
+                assertTrue(numbers.add(future.get(60, TimeUnit.SECONDS)));
+            }
+            assertEquals(threads, numbers.size());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        PullRequestResponse pullRequest = pullRequestService.createPullRequest(TEST_OWNER, TEST_REPO, TEST_OWNER,
+                CreatePullRequestRequest.builder().title("PR").headBranch("feature").baseBranch("main").build());
+        assertEquals(threads + 1, pullRequest.getPrNumber());
+    }
+
+    @Test
+    void testCounterStartsAfterExistingNumbers() {
+        issueRepository.save(Issue.builder()
+                .issueNumber(7)
+                .title("Imported issue")
+                .repositoryId(repositoryId)
+                .authorUsername(TEST_OWNER)
+                .build());
+
+        IssueResponse issue = issueService.createIssue(TEST_OWNER, TEST_REPO, TEST_OWNER,
+                CreateIssueRequest.builder().title("New issue").build());
+        assertEquals(8, issue.getIssueNumber());
+    }
+}
@@ -1,5 +1,6 @@
 package com.gitserver.service;
 
+import com.gitserver.Benchmark;
 import com.gitserver.dto.*;
 import com.gitserver.entity.GitRepository;
 import com.gitserver.entity.Issue;
@@ -9,10 +10,12 @@ import com.gitserver.repository.GitRepositoryJpaRepository;
 import com.gitserver.repository.IssueRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -149,7 +152,7 @@ class IssueServiceTest {
             issueService.createIssue(TEST_OWNER, TEST_REPO, TEST_OWNER, request);
         }
 
-        List<IssueResponse> issues = issueService.getIssues(TEST_OWNER, TEST_REPO, null);
+        List<IssueResponse> issues = issueService.getIssues(TEST_OWNER, TEST_REPO, null, null, null).getItems();
 
         assertNotNull(issues);
         assertEquals(3, issues.size());
@@ -170,16 +173,42 @@ class IssueServiceTest {
         issueService.closeIssue(TEST_OWNER, TEST_REPO, closedIssue.getIssueNumber());
 
         // Get only open issues
-        List<IssueResponse> openIssues = issueService.getIssues(TEST_OWNER, TEST_REPO, "OPEN");
+        List<IssueResponse> openIssues = issueService.getIssues(TEST_OWNER, TEST_REPO, "OPEN", null, null).getItems();
         assertEquals(1, openIssues.size());
         assertEquals("Open Issue", openIssues.get(0).getTitle());
 
         // Get only closed issues
-        List<IssueResponse> closedIssues = issueService.getIssues(TEST_OWNER, TEST_REPO, "CLOSED");
+        List<IssueResponse> closedIssues = issueService.getIssues(TEST_OWNER, TEST_REPO, "CLOSED", null, null).getItems();
         assertEquals(1, closedIssues.size());
         assertEquals("Closed Issue", closedIssues.get(0).getTitle());
     }
 
+    @Test
+    void testGetIssuesPagesWithCursor() {
+        for (int i = 1; i <= 5; i++) {
+            CreateIssueRequest request = CreateIssueRequest.builder()
+                    .title("Issue " + i)
+                    .labels(Set.of("label-" + i))
+                    .build();
+            issueService.createIssue(TEST_OWNER, TEST_REPO, TEST_OWNER, request);
+        }
+
+        CursorPage<IssueResponse> first = issueService.getIssues(TEST_OWNER, TEST_REPO, null, null, 2);
+        assertEquals(List.of(5, 4), first.getItems().stream().map(IssueResponse::getIssueNumber).toList());
+        assertEquals(Set.of("label-5"), first.getItems().get(0).getLabels());
+        assertNotNull(first.getNextCursor());
+
+        CursorPage<IssueResponse> second = issueService.getIssues(TEST_OWNER, TEST_REPO, null, first.getNextCursor(), 2);
+        assertEquals(List.of(3, 2), second.getItems().stream().map(IssueResponse::getIssueNumber).toList());
+
+        CursorPage<IssueResponse> last = issueService.getIssues(TEST_OWNER, TEST_REPO, null, second.getNextCursor(), 2);
+        assertEquals(List.of(1), last.getItems().stream().map(IssueResponse::getIssueNumber).toList());
+        assertNull(last.getNextCursor());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> issueService.getIssues(TEST_OWNER, TEST_REPO, null, "not-a-cursor", 2));
+    }
+
     @Test
     void testUpdateIssue() {
         // Create an issue
@@ -243,4 +272,95 @@ class IssueServiceTest {
             issueService.createIssue(TEST_OWNER, "nonexistent", TEST_OWNER, request);
         });
     }
+
+    @Test
+    void testBulkCreateUpdateAndClose() {
+        List<CreateIssueRequest> requests = new ArrayList<>();
+        for (int i = 1; i <= 120; i++) {
+            requests.add(CreateIssueRequest.builder()
+                    .title("Bulk issue " + i)
+                    .labels(Set.of("imported"))
+                    .build());
+        }
+        List<IssueResponse> created = issueService.createIssues(TEST_OWNER, TEST_REPO, TEST_OWNER, requests);
+
+        assertEquals(120, created.size());
+        int first = created.get(0).getIssueNumber();
+        for (int i = 0; i < created.size(); i++) {
+            assertEquals(first + i, created.get(i).getIssueNumber());
+            assertEquals("Bulk issue " + (i + 1), created.get(i).getTitle());
+        }
+        assertEquals(Set.of("imported"), issueService.getIssue(TEST_OWNER, TEST_REPO, first + 7).getLabels());
+
+        List<IssueResponse> updated = issueService.updateIssues(TEST_OWNER, TEST_REPO, List.of(
+                new BulkUpdateRequest.Item<>(first, UpdateIssueRequest.builder().title("Renamed").build()),
+                new BulkUpdateRequest.Item<>(first + 1, UpdateIssueRequest.builder().assignee(TEST_OWNER).build())));
+        assertEquals("Renamed", updated.get(0).getTitle());
+        assertEquals(TEST_OWNER, updated.get(1).getAssignee());
+
+        List<IssueResponse> closed = issueService.closeIssues(TEST_OWNER, TEST_REPO, List.of(first + 2, first + 3));
+        assertTrue(closed.stream().allMatch(issue -> "CLOSED".equals(issue.getState()) && issue.getClosedAt() != null));
+        assertEquals(2, issueService.getIssues(TEST_OWNER, TEST_REPO, "CLOSED", null, null).getItems().size());
+    }
+
+    @Test
+    void testBulkUpdateIsAllOrNothing() {
+        IssueResponse issue = issueService.createIssue(TEST_OWNER, TEST_REPO, TEST_OWNER,
+                CreateIssueRequest.builder().title("Original").build());
+
+        assertThrows(IssueNotFoundException.class, () -> issueService.updateIssues(TEST_OWNER, TEST_REPO, List.of(
+                new BulkUpdateRequest.Item<>(issue.getIssueNumber(), UpdateIssueRequest.builder().title("Changed").build()),
+                new BulkUpdateRequest.Item<>(999, UpdateIssueRequest.builder().title("Missing").build()))));
+
+        assertEquals("Original", issueService.getIssue(TEST_OWNER, TEST_REPO, issue.getIssueNumber()).getTitle());
+    }
+
+    /**
+     * Measures rows per second of bulk issue creation and closing, in requests of the
+     * largest allowed size, against creating issues one at a time. Creates 20,000 issues
+     * with two labels each unless scaled with -Dbenchmark.bulk.issues.
+     */
+    @Test
+    @Tag("benchmark")
+    void testBulkInsertThroughput() {
+        int count = (int) Benchmark.size("bulk.issues", 20_000);
+        int batchSize = BulkCreateRequest.MAX_ITEMS;
+
+        int single = Math.min(count, 500);
+        long start = System.nanoTime();
+        for (int i = 0; i < single; i++) {
+            issueService.createIssue(TEST_OWNER, TEST_REPO, TEST_OWNER, CreateIssueRequest.builder()
+                    .title("Single issue " + i)
+                    .labels(Set.of("imported", "batch-" + i % 10))
+                    .build());
+        }
+        long singleNanos = System.nanoTime() - start;
+        Benchmark.report("bulk-insert", "one at a time: %.0f issues per second", Benchmark.perSecond(single, singleNanos));
+
+        List<Integer> numbers = new ArrayList<>();
+        start = System.nanoTime();
+        for (int created = 0; created < count; created += batchSize) {
+            List<CreateIssueRequest> requests = new ArrayList<>();
+            for (int i = created; i < Math.min(count, created + batchSize); i++) {
+                requests.add(CreateIssueRequest.builder()
+                        .title("Bulk issue " + i)
+                        .body("Imported issue body " + i)
+                        .labels(Set.of("imported", "batch-" + i % 10))
+                        .build());
+            }
+            issueService.createIssues(TEST_OWNER, TEST_REPO, TEST_OWNER, requests)
+                    .forEach(issue -> numbers.add(issue.getIssueNumber()));
+        }
+        long bulkNanos = System.nanoTime() - start;
+        assertEquals(count, numbers.size());
+        Benchmark.report("bulk-insert", "bulk create of %d: %.0f issues per second, %.0f rows per second with labels",
+                count, Benchmark.perSecond(count, bulkNanos), Benchmark.perSecond(3L * count, bulkNanos));
+
+        start = System.nanoTime();
+        for (int closed = 0; closed < count; closed += batchSize) {
+            issueService.closeIssues(TEST_OWNER, TEST_REPO, numbers.subList(closed, Math.min(count, closed + batchSize)));
+        }
+        Benchmark.report("bulk-insert", "bulk close: %.0f issues per second",
+                Benchmark.perSecond(count, System.nanoTime() - start));
+    }
 }
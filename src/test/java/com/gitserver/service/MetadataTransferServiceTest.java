@@ -0,0 +1,385 @@
+package com.gitserver.service;
+
+import com.gitserver.Benchmark;
+import com.gitserver.dto.*;
+import com.gitserver.entity.PullRequest;
+import com.gitserver.entity.Review;
+import com.gitserver.git.JGitService;
+import com.gitserver.repository.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for MetadataTransferService.
+ */
+@SpringBootTest
+class MetadataTransferServiceTest {
+
+    @Autowired
+    private MetadataTransferService metadataTransferService;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private IssueService issueService;
+
+    @Autowired
+    private PullRequestService pullRequestService;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private PermissionService permissionService;
+
+    @Autowired
+    private JGitService jGitService;
+
+    @Autowired
+    private GitRepositoryJpaRepository repositoryJpaRepository;
+
+    @Autowired
+    private IssueRepository issueRepository;
+
+    @Autowired
+    private PullRequestRepository pullRequestRepository;
+
+    @Autowired
+    private ReviewRepository reviewRepository;
+
+    @Autowired
+    private ReviewCommentRepository reviewCommentRepository;
+
+    @Autowired
+    private RepositoryPermissionRepository permissionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static final String TEST_OWNER = "testuser";
+    private static final String SOURCE_REPO = "metadatasourcerepo";
+    private static final String TARGET_REPO = "metadatatargetrepo";
+
+    @BeforeEach
+    void setUp() {
+        cleanupTestData();
+        for (String name : List.of(SOURCE_REPO, TARGET_REPO)) {
+            repositoryService.createRepository(TEST_OWNER, CreateRepositoryRequest.builder()
+                    .name(name)
+                    .isPrivate(false)
+                    .initReadme(true)
+                    .build());
+        }
+        jGitService.createBranch(TEST_OWNER, SOURCE_REPO, "feature", "main");
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanupTestData();
+    }
+
+    private void cleanupTestData() {
+        for (String name : List.of(SOURCE_REPO, TARGET_REPO)) {
+            try {
+                repositoryJpaRepository.findByOwnerAndName(TEST_OWNER, name).ifPresent(repo -> {
+                    for (PullRequest pullRequest : pullRequestRepository.findByRepositoryIdOrderByCreatedAtDesc(repo.getId())) {
+                        reviewCommentRepository.deleteAll(
+                                reviewCommentRepository.findByPullRequestIdOrderByCreatedAtAsc(pullRequest.getId()));
+                        reviewRepository.deleteAll(
+                                reviewRepository.findByPullRequestIdOrderByCreatedAtDesc(pullRequest.getId()));
+                        pullRequestRepository.delete(pullRequest);
+                    }
+                    issueRepository.deleteAll(issueRepository.findByRepositoryIdOrderByCreatedAtDesc(repo.getId()));
+                    permissionRepository.deleteAll(permissionRepository.findByRepositoryId(repo.getId()));
+                });
+                if (repositoryService.repositoryExists(TEST_OWNER, name)) {
+                    repositoryService.deleteRepository(TEST_OWNER, name);
+                }
+            } catch (Exception e) {
+                // Ignore cleanup errors
+            }
+        }
+    }
+
+    private byte[] exportSource() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        metadataTransferService.exportMetadata(TEST_OWNER, SOURCE_REPO, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void testExportAndImportRoundTrip() throws Exception {
+        permissionService.addCollaborator(TEST_OWNER, SOURCE_REPO,
+                PermissionRequest.builder().username("admin").permission("WRITE").build());
+        IssueResponse first = issueService.createIssue(TEST_OWNER, SOURCE_REPO, TEST_OWNER,
+                CreateIssueRequest.builder().title("First").body("Body").labels(Set.of("bug", "ui")).build());
+        issueService.createIssue(TEST_OWNER, SOURCE_REPO, TEST_OWNER,
+                CreateIssueRequest.builder().title("Second").build());
+        issueService.closeIssue(TEST_OWNER, SOURCE_REPO, 2);
+        PullRequestResponse pullRequest = pullRequestService.createPullRequest(TEST_OWNER, SOURCE_REPO, TEST_OWNER,
+                CreatePullRequestRequest.builder().title("Feature").headBranch("feature").baseBranch("main")
+                        .labels(Set.of("enhancement")).reviewers(Set.of("admin")).build());
+        ReviewResponse review = reviewService.createReview(TEST_OWNER, SOURCE_REPO, pullRequest.getPrNumber(), "admin",
+                CreateReviewRequest.builder().body("Looks good").event("APPROVE").build());
+        reviewService.addComment(TEST_OWNER, SOURCE_REPO, pullRequest.getPrNumber(), review.getId(), "admin",
+                CreateReviewCommentRequest.builder().body("Nit").filePath("README.md").lineNumber(1).build());
+        reviewService.addComment(TEST_OWNER, SOURCE_REPO, pullRequest.getPrNumber(), review.getId(), TEST_OWNER,
+                CreateReviewCommentRequest.builder().body("Fixed").build());
+
+        byte[] export = exportSource();
+        List<String> lines = new String(export, StandardCharsets.UTF_8).lines().toList();
+        assertEquals(7, lines.size());
+        assertTrue(lines.get(0).contains("\"type\":\"permission\""));
+        assertTrue(lines.get(4).contains("\"type\":\"review\""));
+        assertTrue(lines.get(6).contains("\"type\":\"review_comment\""));
+
+        MetadataImportResult result = metadataTransferService.importMetadata(TEST_OWNER, TARGET_REPO,
+                new ByteArrayInputStream(export));
+        assertEquals(1, result.getPermissions());
+        assertEquals(2, result.getIssues());
+        assertEquals(1, result.getPullRequests());
+        assertEquals(1, result.getReviews());
+        assertEquals(2, result.getReviewComments());
+        assertEquals(0, result.getNumberOffset());
+
+        IssueResponse imported = issueService.getIssue(TEST_OWNER, TARGET_REPO, first.getIssueNumber());
+        assertEquals("First", imported.getTitle());
+        assertEquals(Set.of("bug", "ui"), imported.getLabels());
+        assertEquals(issueService.getIssue(TEST_OWNER, SOURCE_REPO, first.getIssueNumber()).getCreatedAt(),
+                imported.getCreatedAt());
+        assertEquals("CLOSED", issueService.getIssue(TEST_OWNER, TARGET_REPO, 2).getState());
+        assertTrue(permissionService.canWrite(TEST_OWNER, TARGET_REPO, "admin"));
+
+        PullRequestResponse importedPullRequest = pullRequestService.getPullRequest(TEST_OWNER, TARGET_REPO,
+                pullRequest.getPrNumber());
+        assertEquals(Set.of("admin"), importedPullRequest.getReviewers());
+        List<ReviewResponse> reviews = reviewService.getReviews(TEST_OWNER, TARGET_REPO, pullRequest.getPrNumber());
+        assertEquals(1, reviews.size());
+        assertEquals(Review.ReviewState.APPROVED.name(), reviews.get(0).getState());
+        List<ReviewCommentResponse> comments = reviewService.getReviewComments(reviews.get(0).getId());
+        assertEquals(List.of("Nit", "Fixed"), comments.stream().map(ReviewCommentResponse::getBody).toList());
+
+        // New issues continue after the imported numbers
+        IssueResponse next = issueService.createIssue(TEST_OWNER, TARGET_REPO, TEST_OWNER,
+                CreateIssueRequest.builder().title("After import").build());
+        assertEquals(pullRequest.getPrNumber() + 1, next.getIssueNumber());
+    }
+
+    @Test
+    void testImportShiftsNumbersPastExistingOnes() throws Exception {
+        issueService.createIssue(TEST_OWNER, SOURCE_REPO, TEST_OWNER, CreateIssueRequest.builder().title("A").build());
+        issueService.createIssue(TEST_OWNER, TARGET_REPO, TEST_OWNER, CreateIssueRequest.builder().title("B").build());
+
+        MetadataImportResult result = metadataTransferService.importMetadata(TEST_OWNER, TARGET_REPO,
+                new ByteArrayInputStream(exportSource()));
+
+        assertTrue(result.getNumberOffset() >= 1);
+        assertEquals("A", issueService.getIssue(TEST_OWNER, TARGET_REPO, 1 + result.getNumberOffset()).getTitle());
+        assertEquals("B", issueService.getIssue(TEST_OWNER, TARGET_REPO, 1).getTitle());
+    }
+
+    @Test
+    void testIssuesCreatedDuringImportKeepTheirNumbers() throws Exception {
+        StringBuilder first = new StringBuilder();
+        StringBuilder second = new StringBuilder();
+        for (int number = 1; number <= 40; number++) {
+            (number <= 20 ? first : second).append("{\"type\":\"issue\",\"number\":").append(number)
+                    .append(",\"title\":\"Imported ").append(number)
+                    .append("\",\"state\":\"OPEN\",\"author\":\"testuser\"}\n");
+        }
+
+        // Halfway through the stream, other requests create issues and commit
+        List<Integer> created = Collections.synchronizedList(new ArrayList<>());
+        InputStream concurrentWrites = new InputStream() {
+            @Override
+            public int read() {
+                CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < 3; i++) {
+                        created.add(issueService.createIssue(TEST_OWNER, TARGET_REPO, TEST_OWNER,
+                                CreateIssueRequest.builder().title("Concurrent " + i).build()).getIssueNumber());
+                    }
+                }).orTimeout(30, TimeUnit.SECONDS).join();
+                return -1;
+            }
+        };
+        InputStream in = new SequenceInputStream(Collections.enumeration(List.of(
+                new ByteArrayInputStream(first.toString().getBytes(StandardCharsets.UTF_8)),
+                concurrentWrites,
+                new ByteArrayInputStream(second.toString().getBytes(StandardCharsets.UTF_8)))));
+
+        MetadataImportResult result = metadataTransferService.importMetadata(TEST_OWNER, TARGET_REPO, in);
+
+        assertEquals(40, result.getIssues());
+        assertEquals(3, created.size());
+        Set<Integer> numbers = new HashSet<>();
+        issueRepository.findByRepositoryIdOrderByCreatedAtDesc(
+                repositoryJpaRepository.findByOwnerAndName(TEST_OWNER, TARGET_REPO).orElseThrow().getId())
+                .forEach(issue -> assertTrue(numbers.add(issue.getIssueNumber())));
+        assertEquals(43, numbers.size());
+        assertTrue(numbers.containsAll(created));
+        for (int number = 1; number <= 40; number++) {
+            assertEquals("Imported " + number, issueService.getIssue(TEST_OWNER, TARGET_REPO,
+                    number + result.getNumberOffset()).getTitle());
+        }
+    }
+
+    @Test
+    void testMalformedImportIsRolledBack() {
+        String ndjson = "{\"type\":\"issue\",\"number\":1,\"title\":\"Kept?\",\"state\":\"OPEN\",\"author\":\"testuser\"}\n"
+                + "{\"type\":\"review\",\"pullRequest\":5,\"reviewer\":\"admin\",\"state\":\"APPROVED\"}\n";
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () ->
+                metadataTransferService.importMetadata(TEST_OWNER, TARGET_REPO,
+                        new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8))));
+        assertTrue(e.getMessage().contains("line 2"));
+        assertTrue(issueService.getIssues(TEST_OWNER, TARGET_REPO, null, null, null).getItems().isEmpty());
+    }
+
+    /**
+     * Imports a generated stream of 1M rows (scaled with -Dbenchmark.metadata.rows) and
+     * exports it again, reporting rows per second and the peak heap above the baseline.
+     * Every 10 rows are 4 issues and a pull request with a review and 4 review comments.
+     */
+    @Test
+    @Tag("benchmark")
+    void testImportExportThroughputAndMemory() throws Exception {
+        long rows = Benchmark.size("metadata.rows", 1_000_000) / 10 * 10;
+        IntFunction<String> group = g -> {
+            StringBuilder lines = new StringBuilder();
+            for (int i = 1; i <= 4; i++) {
+                lines.append("{\"type\":\"issue\",\"number\":").append(5 * g + i)
+                        .append(",\"title\":\"Generated issue ").append(5 * g + i)
+                        .append("\",\"body\":\"Steps to reproduce the problem\",\"state\":\"OPEN\"")
+                        .append(",\"author\":\"testuser\",\"labels\":[\"bug\",\"imported\"]}\n");
+            }
+            int pr = 5 * g + 5;
+            lines.append("{\"type\":\"pull_request\",\"number\":").append(pr)
+                    .append(",\"title\":\"Generated change\",\"state\":\"OPEN\",\"author\":\"testuser\"")
+                    .append(",\"headBranch\":\"feature\",\"baseBranch\":\"main\",\"reviewers\":[\"admin\"]}\n");
+            lines.append("{\"type\":\"review\",\"pullRequest\":").append(pr)
+                    .append(",\"reviewer\":\"admin\",\"body\":\"Some remarks\",\"state\":\"COMMENTED\"}\n");
+            for (int i = 1; i <= 4; i++) {
+                lines.append("{\"type\":\"review_comment\",\"pullRequest\":").append(pr)
+                        .append(",\"author\":\"admin\",\"body\":\"Remark ").append(i)
+                        .append("\",\"filePath\":\"README.md\",\"lineNumber\":").append(i).append("}\n");
+            }
+            return lines.toString();
+        };
+        // Generates the stream while it is read, so it does not take up heap itself
+        InputStream generated = new InputStream() {
+            private int nextGroup;
+            private byte[] buffer = new byte[0];
+            private int position;
+
+            @Override
+            public int read() {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (position == buffer.length) {
+                    if (nextGroup == rows / 10) {
+                        return -1;
+                    }
+                    buffer = group.apply(nextGroup++).getBytes(StandardCharsets.UTF_8);
+                    position = 0;
+                }
+                int count = Math.min(len, buffer.length - position);
+                System.arraycopy(buffer, position, b, off, count);
+                position += count;
+                return count;
+            }
+        };
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        AtomicLong peakHeap = new AtomicLong();
+        AtomicBoolean sampling = new AtomicBoolean(true);
+        Thread sampler = new Thread(() -> {
+            while (sampling.get()) {
+                peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        try {
+            long baseline = Benchmark.usedHeapMegabytes();
+            sampler.start();
+            long start = System.nanoTime();
+            MetadataImportResult result = metadataTransferService.importMetadata(TEST_OWNER, SOURCE_REPO, generated);
+            long importNanos = System.nanoTime() - start;
+            assertEquals(rows * 4 / 10, result.getIssues());
+            assertEquals(rows * 4 / 10, result.getReviewComments());
+            Benchmark.report("metadata", "import of %d rows: %d ms, %.0f rows per second, peak heap %d MB above %d MB",
+                    rows, importNanos / 1_000_000, Benchmark.perSecond(rows, importNanos),
+                    (peakHeap.get() >> 20) - baseline, baseline);
+
+            baseline = Benchmark.usedHeapMegabytes();
+            peakHeap.set(0);
+            AtomicLong exported = new AtomicLong();
+            OutputStream counting = new OutputStream() {
+                @Override
+                public void write(int b) {
+                    exported.incrementAndGet();
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    exported.addAndGet(len);
+                }
+            };
+            start = System.nanoTime();
+            metadataTransferService.exportMetadata(TEST_OWNER, SOURCE_REPO, counting);
+            long exportNanos = System.nanoTime() - start;
+            Benchmark.report("metadata", "export of %d rows, %d MB: %d ms, %.0f rows per second, peak heap %d MB above %d MB",
+                    rows, exported.get() >> 20, exportNanos / 1_000_000, Benchmark.perSecond(rows, exportNanos),
+                    (peakHeap.get() >> 20) - baseline, baseline);
+        } finally {
+            sampling.set(false);
+            sampler.join();
+            // Far quicker than the entity deletes of the cleanup
+            repositoryJpaRepository.findByOwnerAndName(TEST_OWNER, SOURCE_REPO).ifPresent(repo -> {
+                String pullRequests = "(SELECT id FROM pull_requests WHERE repository_id = ?)";
+                jdbcTemplate.update("DELETE FROM review_comments WHERE pull_request_id IN " + pullRequests, repo.getId());
+                jdbcTemplate.update("DELETE FROM reviews WHERE pull_request_id IN " + pullRequests, repo.getId());
+                jdbcTemplate.update("DELETE FROM pr_labels WHERE pr_id IN " + pullRequests, repo.getId());
+                jdbcTemplate.update("DELETE FROM pr_reviewers WHERE pr_id IN " + pullRequests, repo.getId());
+                jdbcTemplate.update("DELETE FROM pull_requests WHERE repository_id = ?", repo.getId());
+                jdbcTemplate.update("DELETE FROM issue_labels WHERE issue_id IN "
+                        + "(SELECT id FROM issues WHERE repository_id = ?)", repo.getId());
+                jdbcTemplate.update("DELETE FROM issues WHERE repository_id = ?", repo.getId());
+            });
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.dto.FileUpdateRequest;
+import com.gitserver.dto.PathMatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for PathFinderService.
+ */
+@SpringBootTest
+class PathFinderServiceTest {
+
+    @Autowired
+    private PathFinderService pathFinderService;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private FileService fileService;
+
+    private static final String TEST_OWNER = "testuser";
+    private static final String TEST_REPO = "pathfindertestrepo";
+
+    @BeforeEach
+    void setUp() {
+        cleanupTestData();
+        CreateRepositoryRequest request = CreateRepositoryRequest.builder()
+                .name(TEST_REPO)
+                .description("Test repository for path finder")
+                .isPrivate(false)
+                .initReadme(true)
+                .build();
+        repositoryService.createRepository(TEST_OWNER, request);
+        writeFile("src/main/java/com/example/UserService.java");
+        writeFile("src/main/java/com/example/util/StringUtils.java");
+        writeFile("docs/user-guide.md");
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanupTestData();
+    }
+
+    private void cleanupTestData() {
+        try {
+            if (repositoryService.repositoryExists(TEST_OWNER, TEST_REPO)) {
+                repositoryService.deleteRepository(TEST_OWNER, TEST_REPO);
+            }
+        } catch (Exception e) {
+            // Ignore cleanup errors
+        }
+    }
+
+    private void writeFile(String path) {
+        FileUpdateRequest request = FileUpdateRequest.builder()
+                .path(path)
+                .content("content of " + path)
+                .message("Add " + path)
+                .branch("main")
+                .build();
+        fileService.createOrUpdateFile(TEST_OWNER, TEST_REPO, request, TEST_OWNER, "test@gitserver.local");
+    }
+
+    @Test
+    void testFuzzyMatchRanksFileNameHits() {
+        List<PathMatch> matches = pathFinderService.findFiles(TEST_OWNER, TEST_REPO, null, "usrsvc", 10);
+
+        assertFalse(matches.isEmpty());
+        assertEquals("src/main/java/com/example/UserService.java", matches.get(0).getPath());
+        assertTrue(pathFinderService.findFiles(TEST_OWNER, TEST_REPO, null, "zzz", 10).isEmpty());
+    }
+
+    @Test
+    void testIndexFollowsNewCommits() {
+        assertEquals(4, pathFinderService.findFiles(TEST_OWNER, TEST_REPO, null, ".", 10).size());
+
+        writeFile("src/main/java/com/example/UserController.java");
+        fileService.deleteFile(TEST_OWNER, TEST_REPO, "docs/user-guide.md", "main", "Remove guide",
+                TEST_OWNER, "test@gitserver.local");
+
+        List<PathMatch> matches = pathFinderService.findFiles(TEST_OWNER, TEST_REPO, "main", "user", 10);
+        assertEquals(Set.of("src/main/java/com/example/UserService.java",
+                        "src/main/java/com/example/UserController.java"),
+                matches.stream().map(PathMatch::getPath).collect(Collectors.toSet()));
+    }
+}
@@ -1,18 +1,25 @@
 package com.gitserver.service;
 
+import com.gitserver.Benchmark;
 import com.gitserver.dto.*;
+import com.gitserver.entity.GitRepository;
+import com.gitserver.entity.RepositoryPermission;
 import com.gitserver.entity.RepositoryPermission.PermissionLevel;
 import com.gitserver.exception.PermissionDeniedException;
 import com.gitserver.exception.RepositoryNotFoundException;
 import com.gitserver.exception.UserNotFoundException;
+import com.gitserver.repository.GitRepositoryJpaRepository;
 import com.gitserver.repository.RepositoryPermissionRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,9 +41,13 @@ class PermissionServiceTest {
     @Autowired
     private RepositoryPermissionRepository permissionRepository;
 
+    @Autowired
+    private GitRepositoryJpaRepository repositoryJpaRepository;
+
     private static final String TEST_OWNER = "admin";
     private static final String TEST_REPO = "permissiontestrepo";
     private static final String TEST_COLLABORATOR = "testcollaborator";
+    private static final String PUBLIC_REPO = "permissionpublicrepo";
 
     @BeforeEach
     void setUp() {
@@ -77,6 +88,9 @@ class PermissionServiceTest {
             if (repositoryService.repositoryExists(TEST_OWNER, TEST_REPO)) {
                 repositoryService.deleteRepository(TEST_OWNER, TEST_REPO);
             }
+            if (repositoryService.repositoryExists(TEST_OWNER, PUBLIC_REPO)) {
+                repositoryService.deleteRepository(TEST_OWNER, PUBLIC_REPO);
+            }
         } catch (Exception e) {
             // Ignore cleanup errors
         }
@@ -265,4 +279,112 @@ class PermissionServiceTest {
             permissionService.addCollaborator(TEST_OWNER, TEST_REPO, request);
         });
     }
+
+    @Test
+    void testPermissionChecksFollowCollaboratorChanges() {
+        assertFalse(permissionService.hasPermission(TEST_OWNER, TEST_REPO, TEST_COLLABORATOR, PermissionLevel.READ));
+
+        permissionService.addCollaborator(TEST_OWNER, TEST_REPO, PermissionRequest.builder()
+                .username(TEST_COLLABORATOR)
+                .permission("READ")
+                .build());
+        assertTrue(permissionService.hasPermission(TEST_OWNER, TEST_REPO, TEST_COLLABORATOR, PermissionLevel.READ));
+        assertFalse(permissionService.canWrite(TEST_OWNER, TEST_REPO, TEST_COLLABORATOR));
+
+        permissionService.addCollaborator(TEST_OWNER, TEST_REPO, PermissionRequest.builder()
+                .username(TEST_COLLABORATOR)
+                .permission("WRITE")
+                .build());
+        assertTrue(permissionService.canWrite(TEST_OWNER, TEST_REPO, TEST_COLLABORATOR));
+
+        permissionService.removeCollaborator(TEST_OWNER, TEST_REPO, TEST_COLLABORATOR);
+        assertFalse(permissionService.hasPermission(TEST_OWNER, TEST_REPO, TEST_COLLABORATOR, PermissionLevel.READ));
+    }
+
+    @Test
+    void testFilterPermittedInBatch() {
+        Long privateId = repositoryService.getRepository(TEST_OWNER, TEST_REPO).getId();
+        Long publicId = repositoryService.createRepository(TEST_OWNER, CreateRepositoryRequest.builder()
+                .name(PUBLIC_REPO)
+                .isPrivate(false)
+                .build()).getId();
+        List<Long> ids = List.of(privateId, publicId);
+
+        assertEquals(Set.of(privateId, publicId), permissionService.filterPermitted(ids, TEST_OWNER, PermissionLevel.READ));
+        assertEquals(Set.of(publicId), permissionService.filterPermitted(ids, TEST_COLLABORATOR, PermissionLevel.READ));
+        assertEquals(Set.of(publicId), permissionService.filterPermitted(ids, null, PermissionLevel.READ));
+        assertEquals(Set.of(), permissionService.filterPermitted(ids, TEST_COLLABORATOR, PermissionLevel.WRITE));
+
+        // Making the repository public is visible to the next check
+        repositoryService.updateRepository(TEST_OWNER, TEST_REPO, CreateRepositoryRequest.builder()
+                .name(TEST_REPO)
+                .isPrivate(false)
+                .build());
+        assertEquals(Set.of(privateId, publicId), permissionService.filterPermitted(ids, TEST_COLLABORATOR, PermissionLevel.READ));
+    }
+
+    /**
+     * Times single and batch permission checks against cached access control lists, and
+     * a batch check that loads them, over 500 private repositories (scaled with
+     * -Dbenchmark.acl.repositories) shared with a collaborator on every other one.
+     */
+    @Test
+    @Tag("benchmark")
+    void testPermissionCheckThroughput() {
+        int count = (int) Benchmark.size("acl.repositories", 500);
+        List<GitRepository> repositories = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            repositories.add(GitRepository.builder()
+                    .name("aclbenchmark" + i)
+                    .owner(TEST_OWNER)
+                    .isPrivate(true)
+                    .defaultBranch("main")
+                    .build());
+        }
+        repositories = repositoryJpaRepository.saveAll(repositories);
+        try {
+            List<Long> ids = repositories.stream().map(GitRepository::getId).toList();
+            List<RepositoryPermission> permissions = new ArrayList<>();
+            for (int i = 0; i < count; i += 2) {
+                permissions.add(RepositoryPermission.builder()
+                        .repositoryId(ids.get(i))
+                        .username(TEST_COLLABORATOR)
+                        .permission(PermissionLevel.READ)
+                        .build());
+            }
+            permissionRepository.saveAll(permissions);
+
+            long start = System.nanoTime();
+            Set<Long> permitted = permissionService.filterPermitted(ids, TEST_COLLABORATOR, PermissionLevel.READ);
+            long loadNanos = System.nanoTime() - start;
+            assertEquals((count + 1) / 2, permitted.size());
+            Benchmark.report("acl", "batch check loading %d lists: %.2f ms", count, loadNanos / 1e6);
+
+            int singleChecks = 2_000_000;
+            int allowed = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < singleChecks; i++) {
+                if (permissionService.hasPermission(ids.get(i % count), TEST_COLLABORATOR, PermissionLevel.READ)) {
+                    allowed++;
+                }
+            }
+            long singleNanos = System.nanoTime() - start;
+            assertTrue(allowed >= singleChecks / 2);
+            Benchmark.report("acl", "single checks: %.0f per second, %.0f ns each",
+                    Benchmark.perSecond(singleChecks, singleNanos), (double) singleNanos / singleChecks);
+
+            int batches = 10_000;
+            start = System.nanoTime();
+            for (int i = 0; i < batches; i++) {
+                permissionService.filterPermitted(ids, TEST_COLLABORATOR, PermissionLevel.READ);
+            }
+            long batchNanos = System.nanoTime() - start;
+            Benchmark.report("acl", "batch checks of %d repositories: %.1f us each, %.0f repositories per second",
+                    count, batchNanos / 1e3 / batches, Benchmark.perSecond((long) batches * count, batchNanos));
+        } finally {
+            permissionRepository.deleteAll();
+            repositoryJpaRepository.deleteAll(repositories);
+            repositories.forEach(repository -> permissionService.invalidateAcl(repository.getId()));
+        }
+    }
 }
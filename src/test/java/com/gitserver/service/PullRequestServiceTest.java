@@ -171,7 +171,7 @@ class PullRequestServiceTest {
                 .build();
         pullRequestService.createPullRequest(TEST_OWNER, TEST_REPO, TEST_OWNER, request2);
 
-        List<PullRequestResponse> prs = pullRequestService.getPullRequests(TEST_OWNER, TEST_REPO, null);
+        List<PullRequestResponse> prs = pullRequestService.getPullRequests(TEST_OWNER, TEST_REPO, null, null, null).getItems();
 
         assertNotNull(prs);
         assertEquals(2, prs.size());
@@ -0,0 +1,140 @@
+package com.gitserver.service;
+
+import com.gitserver.Await;
+import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.dto.FileUpdateRequest;
+import com.gitserver.dto.ReplicaStatus;
+import com.gitserver.git.JGitService;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ReplicationService.
+ */
+@SpringBootTest(properties = {
+        "git.replication.replicas=target/replica-test, http://127.0.0.1:9/git",
+        "git.replication.route-reads=true",
+        "git.replication.retry-initial-delay-ms=100",
+        "git.replication.retry-max-delay-ms=1000"
+})
+class ReplicationServiceTest {
+
+    @Autowired
+    private ReplicationService replicationService;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private JGitService jGitService;
+
+    private static final String TEST_OWNER = "replicauser";
+    private static final String TEST_REPO = "replicated-repo";
+    private static final String LOCAL_REPLICA = "target/replica-test";
+    private static final String UNREACHABLE_REPLICA = "http://127.0.0.1:9/git";
+
+    @BeforeEach
+    void setUp() {
+        cleanupTestRepo();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanupTestRepo();
+    }
+
+    private void cleanupTestRepo() {
+        try {
+            if (repositoryService.repositoryExists(TEST_OWNER, TEST_REPO)) {
+                repositoryService.deleteRepository(TEST_OWNER, TEST_REPO);
+            }
+        } catch (Exception e) {
+            // Ignore cleanup errors
+        }
+    }
+
+    @Test
+    void testRefUpdatesAreMirroredToReplica() throws Exception {
+        repositoryService.createRepository(TEST_OWNER, CreateRepositoryRequest.builder()
+                .name(TEST_REPO)
+                .initReadme(true)
+                .build());
+        jGitService.createBranch(TEST_OWNER, TEST_REPO, "feature", "main");
+        jGitService.createOrUpdateFile(TEST_OWNER, TEST_REPO, FileUpdateRequest.builder()
+                .path("replicated.txt")
+                .content("replicated\n")
+                .message("Add replicated file")
+                .branch("main")
+                .build(), TEST_OWNER, TEST_OWNER + "@gitserver.local");
+        awaitCaughtUp();
+
+        try (Repository replica = Git.open(replicaPath().toFile()).getRepository()) {
+            assertEquals(jGitService.resolveBranchHead(TEST_OWNER, TEST_REPO, "main"),
+                    replica.exactRef("refs/heads/main").getObjectId().getName());
+            assertNotNull(replica.exactRef("refs/heads/feature"));
+            Ref head = replica.exactRef(Constants.HEAD);
+            assertEquals("refs/heads/main", head.getTarget().getName());
+        }
+
+        // Deleted refs are deleted on the replica too
+        jGitService.deleteBranch(TEST_OWNER, TEST_REPO, "feature");
+        awaitCaughtUp();
+        try (Repository replica = Git.open(replicaPath().toFile()).getRepository()) {
+            assertNull(replica.exactRef("refs/heads/feature"));
+        }
+
+        // Reads are spread over the primary and the caught-up replica
+        Set<Optional<Path>> copies = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            copies.add(replicationService.selectReadCopy(TEST_OWNER, TEST_REPO));
+        }
+        assertEquals(Set.of(Optional.empty(), Optional.of(replicaPath())), copies);
+    }
+
+    @Test
+    void testUnreachableReplicaIsReportedAsLagging() throws Exception {
+        repositoryService.createRepository(TEST_OWNER, CreateRepositoryRequest.builder()
+                .name(TEST_REPO)
+                .initReadme(true)
+                .build());
+        Await.until("Replication to the unreachable replica did not fail",
+                () -> unreachableStatus().getLastError() != null);
+
+        ReplicaStatus unreachable = unreachableStatus();
+        assertFalse(replicationService.isCaughtUp(UNREACHABLE_REPLICA, TEST_OWNER, TEST_REPO));
+        assertTrue(unreachable.getPendingRepositories() > 0);
+        assertTrue(unreachable.getFailingRepositories() > 0);
+        assertTrue(unreachable.getLagMillis() > 0);
+        assertNotNull(unreachable.getLastError());
+    }
+
+    private Path replicaPath() {
+        return Path.of(LOCAL_REPLICA, TEST_OWNER, TEST_REPO).toAbsolutePath().normalize();
+    }
+
+    private ReplicaStatus unreachableStatus() {
+        return replicationService.getStatus().stream()
+                .filter(replica -> replica.getLocation().equals(UNREACHABLE_REPLICA))
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private void awaitCaughtUp() throws InterruptedException {
+        Await.until("Replica did not catch up",
+                () -> replicationService.isCaughtUp(LOCAL_REPLICA, TEST_OWNER, TEST_REPO));
+    }
+}
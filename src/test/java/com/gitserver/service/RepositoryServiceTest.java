@@ -1,16 +1,29 @@
 package com.gitserver.service;
 
+import com.gitserver.dto.CreateIssueRequest;
 import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.dto.FileUpdateRequest;
+import com.gitserver.dto.RepositoryDescriptor;
 import com.gitserver.dto.RepositoryResponse;
+import com.gitserver.dto.TrashedRepositoryResponse;
 import com.gitserver.exception.RepositoryAlreadyExistsException;
+import com.gitserver.exception.FileNotFoundException;
 import com.gitserver.exception.RepositoryNotFoundException;
+import com.gitserver.exception.TrashedRepositoryNotFoundException;
+import com.gitserver.git.JGitService;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -18,14 +31,38 @@ import static org.junit.jupiter.api.Assertions.*;
 /**
  * Tests for RepositoryService.
  */
-@SpringBootTest
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:repository-service-test;DB_CLOSE_DELAY=-1")
 class RepositoryServiceTest {
 
+    @TempDir
+    static Path repositoriesDir;
+
+    @DynamicPropertySource
+    static void repositoryProperties(DynamicPropertyRegistry registry) {
+        registry.add("git.repositories.base-path", () -> repositoriesDir.toString());
+    }
+
     @Autowired
     private RepositoryService repositoryService;
 
+    @Autowired
+    private RepositoryResolver repositoryResolver;
+
+    @Autowired
+    private RepositoryTrashService repositoryTrashService;
+
+    @Autowired
+    private IssueService issueService;
+
+    @Autowired
+    private JGitService jGitService;
+
+    @Autowired
+    private RepositoryMaintenanceService repositoryMaintenanceService;
+
     private static final String TEST_OWNER = "testuser";
     private static final String TEST_REPO = "testrepo";
+    private static final String FORK_OWNER = "forkuser";
 
     @BeforeEach
     void setUp() {
@@ -44,6 +81,9 @@ class RepositoryServiceTest {
             if (repositoryService.repositoryExists(TEST_OWNER, TEST_REPO)) {
                 repositoryService.deleteRepository(TEST_OWNER, TEST_REPO);
             }
+            if (repositoryService.repositoryExists(FORK_OWNER, TEST_REPO)) {
+                repositoryService.deleteRepository(FORK_OWNER, TEST_REPO);
+            }
         } catch (Exception e) {
             // Ignore cleanup errors
         }
@@ -116,7 +156,7 @@ class RepositoryServiceTest {
 
         repositoryService.createRepository(TEST_OWNER, request);
 
-        List<RepositoryResponse> repos = repositoryService.getRepositoriesByOwner(TEST_OWNER);
+        List<RepositoryResponse> repos = repositoryService.getRepositoriesByOwner(TEST_OWNER, TEST_OWNER);
 
         assertNotNull(repos);
         assertTrue(repos.size() >= 1);
@@ -137,4 +177,107 @@ class RepositoryServiceTest {
         repositoryService.deleteRepository(TEST_OWNER, TEST_REPO);
         assertFalse(repositoryService.repositoryExists(TEST_OWNER, TEST_REPO));
     }
+
+    @Test
+    void testResolverSeesUpdatesAndDeletes() {
+        CreateRepositoryRequest request = CreateRepositoryRequest.builder()
+                .name(TEST_REPO)
+                .isPrivate(false)
+                .initReadme(true)
+                .build();
+        RepositoryResponse created = repositoryService.createRepository(TEST_OWNER, request);
+
+        RepositoryDescriptor descriptor = repositoryResolver.resolve(TEST_OWNER, TEST_REPO);
+        assertEquals(created.getId(), descriptor.getId());
+        assertFalse(descriptor.isPrivate());
+        assertSame(descriptor, repositoryResolver.resolve(TEST_OWNER, TEST_REPO));
+
+        repositoryService.updateRepository(TEST_OWNER, TEST_REPO, CreateRepositoryRequest.builder()
+                .name(TEST_REPO)
+                .isPrivate(true)
+                .defaultBranch("develop")
+                .build());
+        RepositoryDescriptor updated = repositoryResolver.resolve(TEST_OWNER, TEST_REPO);
+        assertTrue(updated.isPrivate());
+        assertEquals("develop", updated.getDefaultBranch());
+
+        repositoryService.deleteRepository(TEST_OWNER, TEST_REPO);
+        assertTrue(repositoryResolver.find(TEST_OWNER, TEST_REPO).isEmpty());
+    }
+
+    @Test
+    void testRestoreAndReapDeletedRepository() throws Exception {
+        repositoryService.createRepository(TEST_OWNER, CreateRepositoryRequest.builder()
+                .name(TEST_REPO)
+                .initReadme(true)
+                .build());
+        issueService.createIssue(TEST_OWNER, TEST_REPO, TEST_OWNER, CreateIssueRequest.builder()
+                .title("Survives the trash")
+                .build());
+        Path repoPath = Path.of(jGitService.getDiskPath(TEST_OWNER, TEST_REPO));
+
+        repositoryService.deleteRepository(TEST_OWNER, TEST_REPO);
+        assertFalse(Files.exists(repoPath));
+        TrashedRepositoryResponse trashed = repositoryService.getTrash(TEST_OWNER).get(0);
+        assertEquals(TEST_REPO, trashed.getName());
+        assertTrue(trashed.getRestorableUntil().isAfter(LocalDateTime.now()));
+
+        repositoryService.restoreRepository(TEST_OWNER, trashed.getId());
+        assertTrue(Files.exists(repoPath));
+        assertEquals("Survives the trash", issueService.getIssue(TEST_OWNER, TEST_REPO, 1).getTitle());
+        assertThrows(TrashedRepositoryNotFoundException.class,
+                () -> repositoryService.restoreRepository(TEST_OWNER, trashed.getId()));
+
+        repositoryService.deleteRepository(TEST_OWNER, TEST_REPO);
+        TrashedRepositoryResponse again = repositoryService.getTrash(TEST_OWNER).get(0);
+        assertTrue(repositoryTrashService.purge(LocalDateTime.now().plusSeconds(1)) >= 1);
+        assertTrue(repositoryService.getTrash(TEST_OWNER).isEmpty());
+        assertThrows(TrashedRepositoryNotFoundException.class,
+                () -> repositoryService.restoreRepository(TEST_OWNER, again.getId()));
+        try (var trash = Files.list(jGitService.getTrashPaths().get(0))) {
+            assertEquals(0, trash.count());
+        }
+    }
+
+    @Test
+    void testForkSharesObjectsWithParent() {
+        RepositoryResponse parent = repositoryService.createRepository(TEST_OWNER, CreateRepositoryRequest.builder()
+                .name(TEST_REPO)
+                .initReadme(true)
+                .build());
+        writeFile(TEST_OWNER, "docs/guide.md", "# Guide\n");
+        long parentSize = jGitService.getRepositorySize(TEST_OWNER, TEST_REPO);
+
+        RepositoryResponse fork = repositoryService.forkRepository(TEST_OWNER, TEST_REPO, FORK_OWNER, null);
+
+        assertEquals(parent.getId(), fork.getForkedFromId());
+        assertTrue(jGitService.getRepositorySize(FORK_OWNER, TEST_REPO) < parentSize);
+        assertEquals("# Guide\n", jGitService.getFileContent(FORK_OWNER, TEST_REPO, "main", "docs/guide.md").getContent());
+        assertEquals(List.of(fork.getId()), repositoryService.getForks(TEST_OWNER, TEST_REPO, TEST_OWNER).stream()
+                .map(RepositoryResponse::getId).toList());
+
+        // Each side diverges on its own, and maintenance keeps both readable
+        writeFile(FORK_OWNER, "fork.txt", "fork\n");
+        writeFile(TEST_OWNER, "parent.txt", "parent\n");
+        repositoryMaintenanceService.runMaintenance(FORK_OWNER, TEST_REPO);
+        repositoryMaintenanceService.runMaintenance(TEST_OWNER, TEST_REPO);
+        Path pool = jGitService.getObjectPool(jGitService.getRepositoryPath(FORK_OWNER, TEST_REPO)).orElseThrow();
+        jGitService.runPoolGarbageCollection(pool);
+
+        assertEquals("fork\n", jGitService.getFileContent(FORK_OWNER, TEST_REPO, "main", "fork.txt").getContent());
+        assertEquals("parent\n", jGitService.getFileContent(TEST_OWNER, TEST_REPO, "main", "parent.txt").getContent());
+        assertEquals("# Guide\n", jGitService.getFileContent(FORK_OWNER, TEST_REPO, "main", "docs/guide.md").getContent());
+        assertThrows(FileNotFoundException.class,
+                () -> jGitService.getFileContent(TEST_OWNER, TEST_REPO, "main", "fork.txt"));
+        assertTrue(jGitService.getRepositorySize(FORK_OWNER, TEST_REPO) < 1024);
+    }
+
+    private void writeFile(String owner, String path, String content) {
+        jGitService.createOrUpdateFile(owner, TEST_REPO, FileUpdateRequest.builder()
+                .path(path)
+                .content(content)
+                .message("Add " + path)
+                .branch("main")
+                .build(), owner, owner + "@gitserver.local");
+    }
 }
@@ -0,0 +1,84 @@
+package com.gitserver.service;
+
+import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.dto.FileUpdateRequest;
+import com.gitserver.git.JGitService;
+import com.gitserver.git.RepositoryStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for StorageRebalanceService.
+ */
+@SpringBootTest
+class StorageRebalanceServiceTest {
+
+    @Autowired
+    private StorageRebalanceService storageRebalanceService;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private RepositoryResolver repositoryResolver;
+
+    @Autowired
+    private JGitService jGitService;
+
+    private static final String TEST_OWNER = "storageuser";
+    private static final String TEST_REPO = "moved-repo";
+    private static final Path SECOND_ROOT = Path.of("target", "storage-root-2");
+
+    @BeforeEach
+    void setUp() {
+        cleanupTestRepo();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanupTestRepo();
+    }
+
+    private void cleanupTestRepo() {
+        try {
+            if (repositoryService.repositoryExists(TEST_OWNER, TEST_REPO)) {
+                repositoryService.deleteRepository(TEST_OWNER, TEST_REPO);
+            }
+        } catch (Exception e) {
+            // Ignore cleanup errors
+        }
+    }
+
+    @Test
+    void testMoveRepositoryToAnotherRoot() {
+        repositoryService.createRepository(TEST_OWNER, CreateRepositoryRequest.builder()
+                .name(TEST_REPO)
+                .initReadme(true)
+                .build());
+        Path source = jGitService.getRepositoryPath(TEST_OWNER, TEST_REPO);
+
+        Path target = storageRebalanceService.moveRepository(TEST_OWNER, TEST_REPO, SECOND_ROOT);
+
+        assertEquals(SECOND_ROOT.normalize(), RepositoryStorage.rootOf(target).normalize());
+        assertFalse(Files.exists(source));
+        assertEquals(target, jGitService.getRepositoryPath(TEST_OWNER, TEST_REPO));
+        assertEquals(target.toString(), repositoryResolver.resolve(TEST_OWNER, TEST_REPO).getDiskPath());
+        assertTrue(jGitService.getFileContent(TEST_OWNER, TEST_REPO, "main", "README.md").getContent().contains(TEST_REPO));
+
+        jGitService.createOrUpdateFile(TEST_OWNER, TEST_REPO, FileUpdateRequest.builder()
+                .path("after-move.txt")
+                .content("moved\n")
+                .message("Write after move")
+                .branch("main")
+                .build(), "tester", "tester@gitserver.local");
+        assertEquals("moved\n", jGitService.getFileContent(TEST_OWNER, TEST_REPO, "main", "after-move.txt").getContent());
+    }
+}
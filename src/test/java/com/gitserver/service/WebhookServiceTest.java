@@ -0,0 +1,297 @@
+package com.gitserver.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gitserver.Await;
+import com.gitserver.dto.CreateIssueRequest;
+import com.gitserver.dto.CreateRepositoryRequest;
+import com.gitserver.dto.CreateWebhookRequest;
+import com.gitserver.dto.WebhookDeliveryResponse;
+import com.gitserver.dto.WebhookResponse;
+import com.gitserver.entity.WebhookDelivery.DeliveryStatus;
+import com.gitserver.repository.WebhookRepository;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for WebhookService and WebhookDeliveryService, against a local stub endpoint.
+ * Uses a database of its own, so the delivery services of other cached test contexts
+ * do not send its deliveries.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:webhook-test;DB_CLOSE_DELAY=-1",
+        "git.webhooks.threads=8",
+        "git.webhooks.endpoint-concurrency=4",
+        "git.webhooks.max-attempts=3",
+        "git.webhooks.retry-initial-delay-ms=50",
+        "git.webhooks.retry-max-delay-ms=200",
+        "git.webhooks.poll-interval-ms=100",
+        "git.webhooks.allowed-hosts=127.0.0.1"
+})
+class WebhookServiceTest {
+
+    @Autowired
+    private WebhookService webhookService;
+
+    @Autowired
+    private WebhookDeliveryService webhookDeliveryService;
+
+    @Autowired
+    private RepositoryService repositoryService;
+
+    @Autowired
+    private WebhookRepository webhookRepository;
+
+    @Autowired
+    private IssueService issueService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private static final String TEST_OWNER = "hookuser";
+    private static final String TEST_REPO = "hooked-repo";
+    private static final String SECRET = "s3cret";
+
+    /** One request received by the stub endpoint */
+    private record Received(Map<String, String> headers, byte[] body) {
+    }
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private final Queue<Received> received = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger responseStatus = new AtomicInteger(200);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        cleanupTestRepo();
+        repositoryService.createRepository(TEST_OWNER, CreateRepositoryRequest.builder()
+                .name(TEST_REPO)
+                .initReadme(true)
+                .build());
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverExecutor = Executors.newFixedThreadPool(16);
+        server.setExecutor(serverExecutor);
+        server.createContext("/hook", exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                Map<String, String> headers = new HashMap<>();
+                exchange.getRequestHeaders().forEach((name, values) -> headers.put(name.toLowerCase(Locale.ROOT), values.get(0)));
+                received.add(new Received(headers, body));
+                exchange.sendResponseHeaders(responseStatus.get(), -1);
+            } finally {
+                inFlight.decrementAndGet();
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        cleanupTestRepo();
+    }
+
+    private void cleanupTestRepo() {
+        try {
+            if (repositoryService.repositoryExists(TEST_OWNER, TEST_REPO)) {
+                webhookService.getWebhooks(TEST_OWNER, TEST_REPO).forEach(webhook ->
+                        webhookService.deleteWebhook(TEST_OWNER, TEST_REPO, webhook.getId()));
+                repositoryService.deleteRepository(TEST_OWNER, TEST_REPO);
+            }
+        } catch (Exception e) {
+            // Ignore cleanup errors
+        }
+    }
+
+    private String hookUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/hook";
+    }
+
+    @Test
+    void testIssueEventsAreDeliveredSigned() throws Exception {
+        WebhookResponse webhook = webhookService.createWebhook(TEST_OWNER, TEST_REPO, TEST_OWNER,
+                CreateWebhookRequest.builder()
+                        .url(hookUrl())
+                        .secret(SECRET)
+                        .events(Set.of("issue"))
+                        .build());
+        WebhookResponse pushOnly = webhookService.createWebhook(TEST_OWNER, TEST_REPO, TEST_OWNER,
+                CreateWebhookRequest.builder()
+                        .url(hookUrl())
+                        .events(Set.of("push"))
+                        .build());
+        assertTrue(webhook.isHasSecret());
+        assertEquals(Set.of("issue"), webhook.getEvents());
+
+        issueService.createIssue(TEST_OWNER, TEST_REPO, TEST_OWNER, CreateIssueRequest.builder()
+                .title("Hooked issue")
+                .build());
+
+        Await.until("Webhook was not called", () -> !received.isEmpty());
+        Received request = received.poll();
+        assertEquals("issue", request.headers().get("x-git-server-event"));
+        assertEquals("sha256=" + hmac(request.body()), request.headers().get("x-git-server-signature-256"));
+
+        JsonNode event = objectMapper.readTree(request.body());
+        assertEquals("issue", event.get("type").asText());
+        assertEquals(TEST_OWNER + "/" + TEST_REPO, event.get("repository").asText());
+        assertEquals("Hooked issue", event.get("payload").get("title").asText());
+        assertEquals(request.headers().get("x-git-server-delivery"), event.get("id").asText());
+
+        Await.until("Delivery was not recorded", () -> webhookService.getDeliveries(TEST_OWNER, TEST_REPO,
+                webhook.getId(), DeliveryStatus.DELIVERED, 10).size() == 1);
+        // Filtered out when the issue was written, so nothing was queued for it
+        assertTrue(webhookService.getDeliveries(TEST_OWNER, TEST_REPO, pushOnly.getId(), null, 10).isEmpty());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void testFailingDeliveriesAreRetriedThenDeadLettered() throws Exception {
+        responseStatus.set(503);
+        WebhookResponse webhook = webhookService.createWebhook(TEST_OWNER, TEST_REPO, TEST_OWNER,
+                CreateWebhookRequest.builder()
+                        .url(hookUrl())
+                        .build());
+
+        issueService.createIssue(TEST_OWNER, TEST_REPO, TEST_OWNER, CreateIssueRequest.builder()
+                .title("Undeliverable issue")
+                .build());
+
+        Await.until("Delivery was not given up on", () -> !webhookService.getDeliveries(TEST_OWNER, TEST_REPO,
+                webhook.getId(), DeliveryStatus.DEAD, 10).isEmpty());
+        WebhookDeliveryResponse dead = webhookService.getDeliveries(TEST_OWNER, TEST_REPO, webhook.getId(),
+                DeliveryStatus.DEAD, 10).get(0);
+        assertEquals(3, dead.getAttempts());
+        assertEquals(503, dead.getResponseStatus());
+        assertEquals(3, received.size());
+        assertEquals(1, webhookService.getWebhook(TEST_OWNER, TEST_REPO, webhook.getId()).getDeadDeliveries());
+
+        // Redelivered by hand once the endpoint is back
+        responseStatus.set(200);
+        webhookService.redeliver(TEST_OWNER, TEST_REPO, webhook.getId(), dead.getId());
+        Await.until("Redelivery did not succeed", () -> webhookService.getDeliveries(TEST_OWNER, TEST_REPO,
+                webhook.getId(), DeliveryStatus.DELIVERED, 10).size() == 1);
+        assertEquals(4, received.size());
+    }
+
+    @Test
+    void testPrivateAddressesRejected() {
+        for (String url : List.of("http://127.0.0.2/hook", "http://169.254.169.254/latest/meta-data",
+                "http://10.0.0.1/hook", "http://[::1]/hook", "http://[fd00::1]/hook", "http://0.0.0.0/hook")) {
+            assertThrows(IllegalArgumentException.class, () -> webhookService.createWebhook(TEST_OWNER, TEST_REPO,
+                    TEST_OWNER, CreateWebhookRequest.builder().url(url).build()), url);
+        }
+        assertTrue(webhookService.getWebhooks(TEST_OWNER, TEST_REPO).isEmpty());
+    }
+
+    @Test
+    void testUrlCheckedAgainBeforeDelivery() throws Exception {
+        WebhookResponse webhook = webhookService.createWebhook(TEST_OWNER, TEST_REPO, TEST_OWNER,
+                CreateWebhookRequest.builder()
+                        .url(hookUrl())
+                        .build());
+        // Stands in for a host that resolves to a private address after it was registered
+        webhookRepository.findById(webhook.getId()).ifPresent(saved -> {
+            saved.setUrl("http://127.0.0.2:" + server.getAddress().getPort() + "/hook");
+            webhookRepository.save(saved);
+        });
+
+        issueService.createIssue(TEST_OWNER, TEST_REPO, TEST_OWNER, CreateIssueRequest.builder()
+                .title("Rebound issue")
+                .build());
+
+        Await.until("Delivery to a private address was not refused", () -> !webhookService.getDeliveries(
+                TEST_OWNER, TEST_REPO, webhook.getId(), DeliveryStatus.DEAD, 10).isEmpty());
+        WebhookDeliveryResponse dead = webhookService.getDeliveries(TEST_OWNER, TEST_REPO, webhook.getId(),
+                DeliveryStatus.DEAD, 10).get(0);
+        assertTrue(dead.getLastError().contains("private address"), dead.getLastError());
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testDeliveryThroughput() throws Exception {
+        int events = 2000;
+        for (int batchSize : new int[] {1, 50}) {
+            received.clear();
+            maxInFlight.set(0);
+            WebhookResponse webhook = webhookService.createWebhook(TEST_OWNER, TEST_REPO, TEST_OWNER,
+                    CreateWebhookRequest.builder()
+                            .url(hookUrl())
+                            .batchSize(batchSize)
+                            .build());
+
+            List<CreateIssueRequest> requests = new ArrayList<>();
+            for (int i = 0; i < events; i++) {
+                requests.add(CreateIssueRequest.builder().title("Issue " + i).build());
+                if (requests.size() == 500) {
+                    issueService.createIssues(TEST_OWNER, TEST_REPO, TEST_OWNER, requests);
+                    requests.clear();
+                }
+            }
+            Await.until("Not every event was delivered", () -> countEvents() >= events);
+
+            Set<Long> ids = new HashSet<>();
+            for (Received request : received) {
+                JsonNode body = objectMapper.readTree(request.body());
+                if (batchSize > 1) {
+                    assertEquals("batch", request.headers().get("x-git-server-event"));
+                    body.get("events").forEach(event -> ids.add(event.get("id").asLong()));
+                } else {
+                    ids.add(body.get("id").asLong());
+                }
+            }
+            assertEquals(events, ids.size(), "Every event is delivered exactly once");
+            assertTrue(maxInFlight.get() <= 4, "At most endpoint-concurrency requests at a time");
+
+            webhookService.deleteWebhook(TEST_OWNER, TEST_REPO, webhook.getId());
+        }
+        assertTrue(webhookDeliveryService.getDeliveredCount() >= 2L * events);
+    }
+
+    private int countEvents() {
+        int count = 0;
+        for (Received request : received) {
+            String event = request.headers().get("x-git-server-event");
+            if ("batch".equals(event)) {
+                try {
+                    count += objectMapper.readTree(request.body()).get("events").size();
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            } else {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static String hmac(byte[] body) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        return HexFormat.of().formatHex(mac.doFinal(body));
+    }
+}